@@ -18,4 +18,9 @@
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+
+# 开启 minifyEnabled 后，正式版删除 core 模块的调试日志调用
+-assumenosideeffects class lsp.wol.core.platform.Log {
+    public static void d(...);
+}
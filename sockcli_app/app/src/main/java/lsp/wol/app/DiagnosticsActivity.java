@@ -0,0 +1,104 @@
+package lsp.wol.app;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+
+import lsp.wol.core.metrics.MetricsRegistry;
+
+/**
+ * 诊断页面：每秒刷新连接、流量、心跳与局域网发包指标，可导出 JSON 快照
+ */
+public class DiagnosticsActivity extends AppCompatActivity {
+
+    private static final long REFRESH_INTERVAL_MS = 1000;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private TextView metricsText;
+
+    private final Runnable refresh = new Runnable() {
+        @Override
+        public void run() {
+            metricsText.setText(MetricsRegistry.shared().snapshot().toString());
+            handler.postDelayed(this, REFRESH_INTERVAL_MS);
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_diagnostics);
+
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        setSupportActionBar(toolbar);
+        getSupportActionBar().setTitle("诊断");
+        getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+
+        metricsText = findViewById(R.id.metricsText);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // 只在页面可见时刷新
+        handler.post(refresh);
+    }
+
+    @Override
+    protected void onPause() {
+        handler.removeCallbacks(refresh);
+        super.onPause();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_diagnostics, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_export) {
+            exportJson();
+            return true;
+        }
+        if (item.getItemId() == R.id.action_export_logs) {
+            exportLogs();
+            return true;
+        }
+        if (item.getItemId() == android.R.id.home) {
+            finish();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    // 通过系统分享导出当前快照
+    private void exportJson() {
+        String json = MetricsRegistry.shared().snapshot().toJson();
+        Log.i(String.valueOf(R.string.app_name), "DiagnosticsActivity exportJson: " + json.length() + " 字符");
+        Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType("application/json");
+        intent.putExtra(Intent.EXTRA_SUBJECT, "wol-metrics.json");
+        intent.putExtra(Intent.EXTRA_TEXT, json);
+        startActivity(Intent.createChooser(intent, "导出诊断数据"));
+    }
+
+    // 环形缓冲区中的最近日志
+    private void exportLogs() {
+        String logs = String.join("\n", lsp.wol.core.platform.Log.ring().dump());
+        Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType("text/plain");
+        intent.putExtra(Intent.EXTRA_SUBJECT, "wol-logs.txt");
+        intent.putExtra(Intent.EXTRA_TEXT, logs);
+        startActivity(Intent.createChooser(intent, "导出最近日志"));
+    }
+}
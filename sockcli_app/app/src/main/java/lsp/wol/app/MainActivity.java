@@ -1,11 +1,22 @@
 package lsp.wol.app;
 
+import android.content.Context;
+import android.content.Intent;
+import android.net.ConnectivityManager;
+import android.net.LinkProperties;
+import android.net.Network;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.SearchView;
 import androidx.appcompat.widget.Toolbar;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -13,16 +24,42 @@ import androidx.core.view.WindowInsetsCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
-import lsp.wol.app.model.Device;
+import lsp.wol.app.utils.AndroidLogger;
 import lsp.wol.app.utils.DeviceSPUtil;
 import lsp.wol.app.utils.SocketClient;
 import lsp.wol.app.viewholder.DeviceListAdapter;
 import lsp.wol.app.views.AddDeviceDialog;
+import lsp.wol.app.views.AddScheduleDialog;
 import lsp.wol.app.model.DeviceEventCallback;
+import lsp.wol.core.model.Device;
+import lsp.wol.core.model.MacAddress;
+import lsp.wol.core.model.WakeResult;
+import lsp.wol.core.model.WakeSchedule;
+import lsp.wol.core.utils.ArpTable;
+import lsp.wol.core.utils.BroadcastHelper;
+import lsp.wol.core.utils.DeviceStatusBoard;
+import lsp.wol.core.utils.DnsCache;
+import lsp.wol.core.utils.LanScanner;
+import lsp.wol.core.utils.WakeOutbox;
+import lsp.wol.core.utils.WakeScheduler;
+import lsp.wol.core.utils.WakeVerifier;
+import lsp.wol.core.utils.WolSender;
 
 
 public class MainActivity extends AppCompatActivity{
@@ -30,22 +67,70 @@ public class MainActivity extends AppCompatActivity{
 
     private DeviceListAdapter mAdapter;
     private final SocketClient socketClient = new SocketClient(this);
+    // 唤醒后检测设备是否开机，未开机时按唤醒的路径重发：默认局域网广播，服务器转发的唤醒经发件箱重发
+    private final WakeVerifier wakeVerifier = new WakeVerifier(new WakeVerifier.Options(),
+            device -> WolSender.wakeAll(Collections.singletonList(device), 3));
+    // 局域网发现的设备放在这个分组
+    private static final String DISCOVERED_GROUP = "局域网发现";
+    private LanScanner lanScanner;
+    // 定时唤醒，进程存活时执行
+    private WakeScheduler wakeScheduler;
+    // 列表中显示的在线状态，任意线程更新，列表每帧刷新一次
+    private final DeviceStatusBoard statusBoard = new DeviceStatusBoard();
+    // 搜索框中的查询，为空时显示全部设备
+    private String searchQuery = "";
+    // 已开始检测的唤醒命令，只在主线程访问
+    private final Set<Long> verifiedEntries = new HashSet<>();
+    // 同一批转发成功的唤醒命令合并成一条提示，只在主线程访问
+    private static final long RELAYED_NOTICE_DELAY_MS = 300;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<WakeOutbox.Entry> relayedEntries = new ArrayList<>();
+    private final Runnable relayedNotice = this::showRelayedNotice;
     private final DeviceEventCallback deviceChangeCallback = new DeviceEventCallback() {
         @Override
         public void onChange(Device device) {
             // 刷新列表
            if (mAdapter!=null)
-               mAdapter.addDevices(DeviceSPUtil.getDeviceList(MainActivity.this));
+               mAdapter.addDevices(DeviceSPUtil.search(MainActivity.this, searchQuery));
         }
 
         @Override
         public void wakeOnLan(Device device) {
-            boolean isSend = socketClient.sendTcpMessage("wol",device.macAddress);
-            if (!isSend){
-                Toast.makeText(MainActivity.this, "网络唤醒消息发送失败", Toast.LENGTH_SHORT).show();
-                // 尝试局域网广播
+            // 未连接时先放入发件箱，连上后发出，服务器一直不可达则局域网广播
+            WakeOutbox.Entry entry = socketClient.wakeOnLan(device.macAddress);
+            if (entry.getState() == WakeOutbox.State.QUEUED) {
+                Toast.makeText(MainActivity.this, "未连接服务器，连接后发送", Toast.LENGTH_SHORT).show();
             }
         }
+
+        @Override
+        public void schedule(Device device) {
+            new AddScheduleDialog(MainActivity.this, device.macAddress.toString(), wakeScheduler, null);
+        }
+    };
+
+    // 网络变化时刷新广播地址缓存，并让长连接立即重连
+    private final ConnectivityManager.NetworkCallback networkCallback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onAvailable(Network network) {
+            BroadcastHelper.shared().invalidate();
+            DnsCache.shared().invalidate();
+            socketClient.onNetworkAvailable(network);
+        }
+
+        @Override
+        public void onLost(Network network) {
+            BroadcastHelper.shared().invalidate();
+            DnsCache.shared().invalidate();
+            socketClient.onNetworkLost(network);
+        }
+
+        @Override
+        public void onLinkPropertiesChanged(Network network, LinkProperties linkProperties) {
+            BroadcastHelper.shared().invalidate();
+            DnsCache.shared().invalidate();
+            socketClient.onLinkPropertiesChanged(network, linkProperties);
+        }
     };
 
 
@@ -53,6 +138,8 @@ public class MainActivity extends AppCompatActivity{
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        // core 模块日志输出到 logcat
+        AndroidLogger.install(this);
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_main);
 
@@ -71,14 +158,14 @@ public class MainActivity extends AppCompatActivity{
         RecyclerView mRecyclerView = findViewById(R.id.recyclerView);
         mRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         mRecyclerView.setItemAnimator(new androidx.recyclerview.widget.DefaultItemAnimator());
-        mAdapter = new DeviceListAdapter(this, deviceChangeCallback);
+        mAdapter = new DeviceListAdapter(this, deviceChangeCallback, statusBoard);
         mRecyclerView.setAdapter(mAdapter);
         // 初始化数据
         if (DeviceSPUtil.getDeviceList(MainActivity.this).isEmpty()){
-            DeviceSPUtil.addDevice(this, new Device("天和华城Windows主机","CC:28:AA:06:77:E9"));
-            DeviceSPUtil.addDevice(this, new Device("天和华成Linux主机","00:E0:4C:A2:00:F3"));
+            DeviceSPUtil.addDevice(this, new Device("天和华城Windows主机", MacAddress.parse("CC:28:AA:06:77:E9")));
+            DeviceSPUtil.addDevice(this, new Device("天和华成Linux主机", MacAddress.parse("00:E0:4C:A2:00:F3")));
         }
-        mAdapter.addDevices(DeviceSPUtil.getDeviceList(MainActivity.this));
+        mAdapter.addDevices(DeviceSPUtil.search(MainActivity.this, searchQuery));
 
         // 浮动按钮
         FloatingActionButton fabAdd = findViewById(R.id.fabAdd);
@@ -88,8 +175,433 @@ public class MainActivity extends AppCompatActivity{
         });
         Log.i(String.valueOf(R.string.app_name), "onCreate: 完成");
 
+        // 调试用：adb shell am start -n lsp.wol.app/.MainActivity --es relay 192.168.1.6:8080,10.0.0.5:8080（空字符串恢复默认）
+        String relay = getIntent().getStringExtra("relay");
+        if (relay != null) {
+            try {
+                socketClient.setServerEndpoint(relay);
+            } catch (IllegalArgumentException e) {
+                Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        }
+        socketClient.setWakeListener(this::onWakeStateChanged);
         socketClient.startConnect();
 
+        wakeScheduler = new WakeScheduler(DeviceSPUtil.getScheduleStore(this),
+                () -> DeviceSPUtil.getDeviceList(this), this::wakeScheduled);
+        wakeScheduler.setListener((schedules, devices) -> runOnUiThread(() -> Toast.makeText(this,
+                "定时唤醒 " + devices.size() + " 台设备", Toast.LENGTH_SHORT).show()));
+        wakeScheduler.start();
+
+        ConnectivityManager cm = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm != null) {
+            cm.registerDefaultNetworkCallback(networkCallback);
+        }
+    }
+
+    // 唤醒命令的投递状态，在后台线程回调
+    private void onWakeStateChanged(WakeOutbox.Entry entry) {
+        switch (entry.getState()) {
+            case FAILED:
+            case DROPPED:
+                statusBoard.cancelWaking(entry.getMacAddress(), entry.getUpdatedAt());
+                break;
+            default:
+                statusBoard.markWaking(entry.getMacAddress(), entry.getCreatedAt());
+                break;
+        }
+        runOnUiThread(() -> {
+            Device device = DeviceSPUtil.getDevice(MainActivity.this, entry.getMacAddress());
+            String name = device != null ? device.name : entry.getMacAddress().toString();
+            switch (entry.getState()) {
+                case RELAYED:
+                case DELIVERED:
+                case LAN_SENT:
+                    if (device != null && verifiedEntries.add(entry.getId())) {
+                        verifyWake(device, entry.getState() == WakeOutbox.State.LAN_SENT);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            switch (entry.getState()) {
+                case RELAYED:
+                    // 服务器回复收到命令的 ESP8266 数量（旧版本服务器不带数量）
+                    if (entry.getReceivers() < 0) {
+                        break;
+                    }
+                    // 一批命令的回复陆续到达，稍等后只提示一次
+                    if (relayedEntries.isEmpty()) {
+                        mainHandler.postDelayed(relayedNotice, RELAYED_NOTICE_DELAY_MS);
+                    }
+                    relayedEntries.add(entry);
+                    break;
+                case DELIVERED:
+                    // ESP8266 发出魔术包后的回执
+                    Toast.makeText(this, name + " 已发送魔术包 "
+                            + (entry.getUpdatedAt() - entry.getCreatedAt()) + "ms", Toast.LENGTH_SHORT).show();
+                    break;
+                case LAN_SENT:
+                    Toast.makeText(this, "服务器不可达，已通过局域网广播唤醒 " + name, Toast.LENGTH_SHORT).show();
+                    break;
+                case FAILED:
+                    Toast.makeText(this, "网络唤醒消息发送失败", Toast.LENGTH_SHORT).show();
+                    break;
+                case DROPPED:
+                    Toast.makeText(this, "待发送的唤醒命令过多，已丢弃 " + name, Toast.LENGTH_SHORT).show();
+                    break;
+                default:
+                    break;
+            }
+        });
+    }
+
+    private void showRelayedNotice() {
+        if (relayedEntries.isEmpty()) {
+            return;
+        }
+        int receivers = 0;
+        for (WakeOutbox.Entry entry : relayedEntries) {
+            receivers = Math.max(receivers, entry.getReceivers());
+        }
+        String text = relayedEntries.size() == 1
+                ? receivers + "台设备收到网络唤醒命令"
+                : relayedEntries.size() + " 条网络唤醒命令已转发给 " + receivers + " 台设备";
+        relayedEntries.clear();
+        Toast.makeText(this, text, Toast.LENGTH_SHORT).show();
+    }
+
+    // 同时到期的设备作为一批交给发件箱：连上服务器时批量转发，不可达或没有 ESP8266 在线时由发件箱局域网广播
+    private void wakeScheduled(List<Device> devices) {
+        List<MacAddress> macAddresses = new ArrayList<>(devices.size());
+        for (Device device : devices) {
+            macAddresses.add(device.macAddress);
+        }
+        socketClient.wakeOnLan(macAddresses);
+    }
+
+    // 检测设备是否开机，显示开机耗时；viaLan 为局域网广播的唤醒，否则经服务器转发
+    private void verifyWake(Device device, boolean viaLan) {
+        if (!canVerify(device, ArpTable.read())) {
+            // 不在同一局域网或查不到地址，检测不到也不能当作未开机
+            statusBoard.cancelWaking(device.macAddress, System.currentTimeMillis());
+            return;
+        }
+        WakeVerifier.Resender resender = viaLan
+                ? it -> WolSender.wakeAll(Collections.singletonList(it), 3)
+                : it -> socketClient.wakeOnLan(it.macAddress);
+        wakeVerifier.verify(device, resender).whenComplete((result, e) -> {
+            // 检测器已关闭（界面已销毁），没有结论
+            if (e != null) {
+                return;
+            }
+            updateStatus(device, result);
+            String text = result.up
+                    ? device.name + " 已开机 " + result.timeToUpMs / 1000 + "s"
+                    : result.isUnknown()
+                    ? device.name + " 无法确认是否开机"
+                    : device.name + " 未开机（已重发 " + result.resends + " 次）";
+            runOnUiThread(() -> Toast.makeText(this, text, Toast.LENGTH_SHORT).show());
+        });
+    }
+
+    /**
+     * 手机能否直接检测设备：配置了域名，或地址（配置的或 ARP 表中的）在手机所在的子网
+     * Android 12 起应用读不到 ARP 表，没有配置地址的设备无法检测
+     */
+    private static boolean canVerify(Device device, ArpTable arp) {
+        InetAddress address = null;
+        if (device.host != null && !device.host.isEmpty()) {
+            if (!DnsCache.isLiteral(device.host)) {
+                return true;
+            }
+            try {
+                address = InetAddress.getByName(device.host);
+            } catch (UnknownHostException ignored) {
+            }
+        } else {
+            address = arp.lookup(device.macAddress);
+        }
+        return address != null && BroadcastHelper.shared().isLocal(address);
+    }
+
+    private void updateStatus(Device device, WakeVerifier.Result result) {
+        if (result.isUnknown()) {
+            statusBoard.cancelWaking(device.macAddress, System.currentTimeMillis());
+        } else if (result.up) {
+            statusBoard.markOnline(device.macAddress, System.currentTimeMillis());
+        } else {
+            statusBoard.markOffline(device.macAddress, System.currentTimeMillis());
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        ConnectivityManager cm = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm != null) {
+            cm.unregisterNetworkCallback(networkCallback);
+        }
+        socketClient.stopConnect();
+        mainHandler.removeCallbacks(relayedNotice);
+        wakeVerifier.close();
+        if (wakeScheduler != null) {
+            wakeScheduler.close();
+        }
+        if (lanScanner != null) {
+            lanScanner.cancel();
+        }
+        super.onDestroy();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_main, menu);
+        // 按名称、MAC 片段或分组搜索，每次输入都刷新列表
+        SearchView searchView = (SearchView) menu.findItem(R.id.action_search).getActionView();
+        searchView.setQueryHint("名称 / MAC / 分组");
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                searchView.clearFocus();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                searchQuery = newText;
+                mAdapter.addDevices(DeviceSPUtil.search(MainActivity.this, searchQuery));
+                return true;
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_wake_group) {
+            showWakeGroupDialog();
+            return true;
+        }
+        if (item.getItemId() == R.id.action_schedule) {
+            showScheduleDialog();
+            return true;
+        }
+        if (item.getItemId() == R.id.action_scan) {
+            scanLan();
+            return true;
+        }
+        if (item.getItemId() == R.id.action_diagnostics) {
+            startActivity(new Intent(this, DiagnosticsActivity.class));
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    // 选择分组后批量发送局域网魔术包
+    private void showWakeGroupDialog() {
+        List<String> groups = DeviceSPUtil.getGroups(this);
+        List<String> items = new ArrayList<>();
+        items.add("全部设备");
+        items.addAll(groups);
+
+        new MaterialAlertDialogBuilder(this)
+                .setTitle("分组唤醒")
+                .setItems(items.toArray(new String[0]), (dialog, which) -> {
+                    List<Device> devices = which == 0
+                            ? DeviceSPUtil.getDeviceList(this)
+                            : DeviceSPUtil.getDevicesInGroup(this, groups.get(which - 1));
+                    long now = System.currentTimeMillis();
+                    for (Device device : devices) {
+                        statusBoard.markWaking(device.macAddress, now);
+                    }
+                    // 多发几轮，降低丢包影响
+                    WolSender.wakeAll(devices, 3).thenAccept(results -> {
+                        List<Device> sent = new ArrayList<>();
+                        for (WakeResult result : results) {
+                            if (result.isSuccess()) sent.add(result.device);
+                        }
+                        int total = results.size();
+                        runOnUiThread(() -> Toast.makeText(this,
+                                "LAN: Magic Packet 已发送 " + sent.size() + "/" + total, Toast.LENGTH_SHORT).show());
+                        verifyGroup(sent);
+                    });
+                })
+                .show();
+    }
+
+    // 定时唤醒列表：点击删除，添加按钮新建
+    private void showScheduleDialog() {
+        List<WakeSchedule> schedules = wakeScheduler.getAll();
+        MaterialAlertDialogBuilder builder = new MaterialAlertDialogBuilder(this)
+                .setTitle("定时唤醒")
+                .setPositiveButton("添加", (dialog, which) ->
+                        new AddScheduleDialog(this, null, wakeScheduler, null))
+                .setNegativeButton("关闭", null);
+        if (schedules.isEmpty()) {
+            builder.setMessage("暂无定时唤醒，可长按设备添加");
+        } else {
+            String[] items = new String[schedules.size()];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = describeSchedule(schedules.get(i));
+            }
+            builder.setItems(items, (dialog, which) -> new MaterialAlertDialogBuilder(this)
+                    .setMessage("删除定时唤醒 " + items[which] + "？")
+                    .setPositiveButton("删除", (d, w) -> wakeScheduler.remove(schedules.get(which).id))
+                    .setNegativeButton("取消", null)
+                    .show());
+        }
+        builder.show();
+    }
+
+    private String describeSchedule(WakeSchedule schedule) {
+        String target;
+        if (schedule.macAddress != null) {
+            Device device = DeviceSPUtil.getDevice(this, schedule.macAddress);
+            target = device != null ? device.name : schedule.macAddress.toString();
+        } else {
+            target = "分组 " + schedule.group;
+        }
+        String when = schedule.isRecurring() ? schedule.cron : formatTime(schedule.at);
+        long next = wakeScheduler.nextRunAt(schedule);
+        return target + "  " + when + (next < 0 ? "  已停用" : "  下次 " + formatTime(next));
+    }
+
+    private static String formatTime(long millis) {
+        return AddScheduleDialog.TIME_FORMAT.format(Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()));
+    }
+
+    // 扫描本机所在的子网，发现的设备边扫描边加入列表（已保存的 MAC 不覆盖）
+    // 发现的主机先记下，每帧在主线程取走一批加入并只刷新一次列表
+    private void scanLan() {
+        if (lanScanner != null) {
+            Toast.makeText(this, "正在扫描", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Toast.makeText(this, "开始扫描局域网", Toast.LENGTH_SHORT).show();
+        Map<MacAddress, Device> added = new LinkedHashMap<>();
+        List<LanScanner.Host> pending = new ArrayList<>();
+        View list = findViewById(R.id.recyclerView);
+        Runnable apply = () -> {
+            List<LanScanner.Host> batch;
+            synchronized (pending) {
+                batch = new ArrayList<>(pending);
+                pending.clear();
+            }
+            if (addDiscovered(batch, added)) {
+                mAdapter.addDevices(DeviceSPUtil.search(MainActivity.this, searchQuery));
+            }
+        };
+        lanScanner = new LanScanner(new LanScanner.Options());
+        lanScanner.scan(new LanScanner.Listener() {
+            @Override
+            public void onFound(LanScanner.Host host) {
+                // 回复了查询或在 ARP 表中，说明在线
+                statusBoard.markOnline(host.macAddress, System.currentTimeMillis());
+                post(host);
+            }
+
+            @Override
+            public void onUpdated(LanScanner.Host host) {
+                post(host);
+            }
+
+            // 上一帧取走之后第一台时安排刷新
+            private void post(LanScanner.Host host) {
+                boolean first;
+                synchronized (pending) {
+                    first = pending.isEmpty();
+                    pending.add(host);
+                }
+                if (first) {
+                    list.postOnAnimation(apply);
+                }
+            }
+        }).whenComplete((hosts, e) -> runOnUiThread(() -> {
+            lanScanner = null;
+            // 还没有取走的主机
+            list.removeCallbacks(apply);
+            apply.run();
+            if (e != null) {
+                Toast.makeText(this, "扫描失败", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            Log.i(String.valueOf(R.string.app_name), "MainActivity scanLan: 发现 " + hosts.size() + " 台，新增 " + added.size() + " 台");
+            Toast.makeText(this, "扫描完成，发现 " + hosts.size() + " 台，新增 " + added.size() + " 台",
+                    Toast.LENGTH_SHORT).show();
+        }));
+    }
+
+    // 在主线程保存一批发现的主机，返回设备列表是否有变化
+    private boolean addDiscovered(List<LanScanner.Host> hosts, Map<MacAddress, Device> added) {
+        boolean changed = false;
+        for (LanScanner.Host host : hosts) {
+            Device device = added.get(host.macAddress);
+            if (device != null) {
+                // 只改本次扫描新增、还在用地址当名称的设备
+                String name = host.getName();
+                if (name != null && device.name.equals(device.host)) {
+                    device.name = name;
+                    DeviceSPUtil.addDevice(this, device);
+                    changed = true;
+                }
+                continue;
+            }
+            if (DeviceSPUtil.getDevice(this, host.macAddress) != null) {
+                continue;
+            }
+            String name = host.getName();
+            device = new Device(name != null ? name : host.address.getHostAddress(),
+                    host.macAddress, DISCOVERED_GROUP);
+            device.host = host.address.getHostAddress();
+            DeviceSPUtil.addDevice(this, device);
+            added.put(host.macAddress, device);
+            changed = true;
+        }
+        return changed;
+    }
+
+    // 分组唤醒后统计开机台数，无法检测的设备不计入
+    private void verifyGroup(List<Device> sent) {
+        ArpTable arp = ArpTable.read();
+        List<Device> devices = new ArrayList<>();
+        for (Device device : sent) {
+            if (canVerify(device, arp)) {
+                devices.add(device);
+            } else {
+                statusBoard.cancelWaking(device.macAddress, System.currentTimeMillis());
+            }
+        }
+        if (devices.isEmpty()) {
+            return;
+        }
+        List<CompletableFuture<WakeVerifier.Result>> futures = wakeVerifier.verifyAll(devices);
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).whenComplete((ignored, e) -> {
+            for (CompletableFuture<WakeVerifier.Result> future : futures) {
+                if (future.isCancelled()) {
+                    // 检测器已关闭（界面已销毁）
+                    return;
+                }
+            }
+            int up = 0;
+            int unknown = 0;
+            long slowest = 0;
+            for (int i = 0; i < futures.size(); i++) {
+                CompletableFuture<WakeVerifier.Result> future = futures.get(i);
+                WakeVerifier.Result result = future.isCompletedExceptionally() ? null : future.getNow(null);
+                if (result != null) {
+                    updateStatus(devices.get(i), result);
+                }
+                if (result != null && result.isUnknown()) {
+                    unknown++;
+                } else if (result != null && result.up) {
+                    up++;
+                    slowest = Math.max(slowest, result.timeToUpMs);
+                }
+            }
+            String text = "已开机 " + up + "/" + (devices.size() - unknown) + "，最慢 " + slowest / 1000 + "s"
+                    + (unknown > 0 ? "，" + unknown + " 台无法确认" : "");
+            runOnUiThread(() -> Toast.makeText(this, text, Toast.LENGTH_LONG).show());
+        });
     }
 
 
@@ -1,6 +1,10 @@
 package lsp.wol.app.model;
 
+import lsp.wol.core.model.Device;
+
 public interface DeviceEventCallback {
     void onChange(Device device);
     void wakeOnLan(Device device);
+    // 为设备添加定时唤醒
+    void schedule(Device device);
 }
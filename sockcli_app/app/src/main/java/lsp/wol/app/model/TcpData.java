@@ -1,8 +0,0 @@
-package lsp.wol.app.model;
-
-public class TcpData {
-    public String cmd;
-    public String data;
-    public String host;
-    public String type = "app";
-}
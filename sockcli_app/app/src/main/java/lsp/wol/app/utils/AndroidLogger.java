@@ -0,0 +1,38 @@
+package lsp.wol.app.utils;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.util.Log;
+
+import lsp.wol.app.R;
+import lsp.wol.core.platform.Logger;
+
+/**
+ * core 模块的日志输出到 logcat
+ */
+public class AndroidLogger implements Logger {
+
+    /**
+     * 应用启动时调用，调试版输出每条消息的收发，正式版只输出连接事件
+     */
+    public static void install(Context context) {
+        boolean debuggable = (context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        lsp.wol.core.platform.Log.setLogger(new AndroidLogger());
+        lsp.wol.core.platform.Log.setLevel(debuggable ? lsp.wol.core.platform.Log.DEBUG : lsp.wol.core.platform.Log.INFO);
+    }
+
+    @Override
+    public void d(String message) {
+        Log.d(String.valueOf(R.string.app_name), message);
+    }
+
+    @Override
+    public void i(String message) {
+        Log.i(String.valueOf(R.string.app_name), message);
+    }
+
+    @Override
+    public void e(String message, Throwable throwable) {
+        Log.e(String.valueOf(R.string.app_name), message, throwable);
+    }
+}
@@ -6,62 +6,167 @@ import android.content.SharedPreferences;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
-import lsp.wol.app.model.Device;
+import lsp.wol.core.model.Device;
+import lsp.wol.core.model.MacAddress;
+import lsp.wol.core.utils.DeviceIndex;
+import lsp.wol.core.utils.DeviceRepository;
+import lsp.wol.core.utils.DeviceStore;
+import lsp.wol.core.utils.MagicPacketCache;
+import lsp.wol.core.utils.ScheduleStore;
 
+/**
+ * 设备列表读写入口
+ * 数据保存在 DeviceStore（内存索引 + 追加日志），首次使用时从旧版 SharedPreferences 迁移
+ */
 public class DeviceSPUtil {
+    // 旧版存储
     private static final String SP_NAME = "device_info";
     private static final String KEY_DEVICE_LIST = "device_list";
-    private static SharedPreferences sp;
+    private static final String STORE_DIR = "devices";
+    private static DeviceStore store;
+    private static ScheduleStore scheduleStore;
+    // 搜索索引，第一次搜索时建立，之后随增删改增量更新
+    private static DeviceIndex index;
     private static Gson gson = new Gson();
 
-    // 初始化SP
-    private static SharedPreferences getSP(Context context) {
-        if (sp == null) {
-            sp = context.getSharedPreferences(SP_NAME, Context.MODE_PRIVATE);
+    // 初始化存储
+    static synchronized DeviceRepository getStore(Context context) {
+        if (store == null) {
+            Context appContext = context.getApplicationContext();
+            DeviceStore newStore = new DeviceStore(new File(appContext.getFilesDir(), STORE_DIR));
+            if (!newStore.exists()) {
+                migrateFromSP(appContext, newStore);
+            }
+            store = newStore;
         }
-        return sp;
+        return store;
     }
+
+    /**
+     * 定时唤醒与设备保存在同一目录
+     */
+    public static synchronized ScheduleStore getScheduleStore(Context context) {
+        if (scheduleStore == null) {
+            scheduleStore = new ScheduleStore(new File(context.getApplicationContext().getFilesDir(), STORE_DIR));
+        }
+        return scheduleStore;
+    }
+
+    private static synchronized DeviceIndex getIndex(Context context) {
+        if (index == null) {
+            DeviceIndex newIndex = new DeviceIndex();
+            newIndex.replaceAll(getStore(context).getAll());
+            index = newIndex;
+        }
+        return index;
+    }
+
+    // 已建立索引时同步修改
+    private static synchronized DeviceIndex indexIfBuilt() {
+        return index;
+    }
+
+    // 旧版数据整体导入后删除
+    private static void migrateFromSP(Context context, DeviceStore newStore) {
+        SharedPreferences sp = context.getSharedPreferences(SP_NAME, Context.MODE_PRIVATE);
+        String json = sp.getString(KEY_DEVICE_LIST, "");
+        if (json.isEmpty()) {
+            return;
+        }
+        List<Device> list = gson.fromJson(json, new TypeToken<List<Device>>() {}.getType());
+        // MAC 格式不正确的旧数据无法发送魔术包，直接丢弃
+        list.removeIf(it -> it.macAddress == null);
+        newStore.replaceAll(list);
+        sp.edit().remove(KEY_DEVICE_LIST).apply();
+    }
+
     /**
      * 保存设备列表
      */
     public static void saveDeviceList(Context context, List<Device> deviceList) {
-        // 将List转为JSON字符串存储
-        String json = gson.toJson(deviceList);
-        getSP(context).edit().putString(KEY_DEVICE_LIST, json).apply();
+        MagicPacketCache.clear();
+        getStore(context).replaceAll(deviceList);
+        DeviceIndex current = indexIfBuilt();
+        if (current != null) {
+            current.replaceAll(deviceList);
+        }
     }
 
     /**
      * 读取设备列表
      */
     public static List<Device> getDeviceList(Context context) {
-        String json = getSP(context).getString(KEY_DEVICE_LIST, "");
-        if (json.isEmpty()) {
-            return new ArrayList<>(); // 空列表，避免空指针
-        }
-        // JSON字符串转回List
-        return gson.fromJson(json, new TypeToken<List<Device>>() {}.getType());
+        return getStore(context).getAll();
     }
 
     /**
-     * 新增单个设备
+     * 指定MAC的设备，不存在返回 null
+     */
+    public static Device getDevice(Context context, MacAddress macAddress) {
+        return getStore(context).get(macAddress);
+    }
+
+    /**
+     * 新增单个设备，已存在相同MAC时替换
      */
     public static void addDevice(Context context, Device device) {
-        List<Device> list = getDeviceList(context);
-        list.add(device);
-        saveDeviceList(context, list);
+        // 保存时编译魔术包，发送时直接使用
+        MagicPacketCache.put(device);
+        getStore(context).upsert(device);
+        DeviceIndex current = indexIfBuilt();
+        if (current != null) {
+            current.put(device);
+        }
     }
 
     /**
      * 删除指定MAC的设备
      */
     public static void deleteDevice(Context context, Device device) {
+        MagicPacketCache.invalidate(device);
+        getStore(context).delete(device.macAddress);
+        DeviceIndex current = indexIfBuilt();
+        if (current != null) {
+            current.remove(device.macAddress);
+        }
+    }
+
+    /**
+     * 按名称、MAC 片段或分组搜索设备，多个词用空格分隔；查询为空时返回全部设备
+     */
+    public static List<Device> search(Context context, String query) {
+        if (query == null || query.trim().isEmpty()) {
+            return getDeviceList(context);
+        }
+        return getIndex(context).search(query);
+    }
+
+    /**
+     * 所有分组名称，按首次出现的顺序
+     */
+    public static List<String> getGroups(Context context) {
+        Set<String> groups = new LinkedHashSet<>();
+        for (Device device : getDeviceList(context)) {
+            if (device.group != null && !device.group.isEmpty()) {
+                groups.add(device.group);
+            }
+        }
+        return new ArrayList<>(groups);
+    }
+
+    /**
+     * 指定分组的设备
+     */
+    public static List<Device> getDevicesInGroup(Context context, String group) {
         List<Device> list = getDeviceList(context);
-        list.removeIf(it -> it.name.equals(device.name)
-                && it.macAddress.equals(device.macAddress) );
-        saveDeviceList(context, list);
+        list.removeIf(it -> !group.equals(it.group));
+        return list;
     }
 
 }
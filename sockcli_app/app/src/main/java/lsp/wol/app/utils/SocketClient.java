@@ -2,7 +2,10 @@ package lsp.wol.app.utils;
 
 import android.app.Activity;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
+import android.net.LinkAddress;
+import android.net.LinkProperties;
 import android.net.Network;
 import android.net.NetworkCapabilities;
 import android.util.Log;
@@ -11,42 +14,114 @@ import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
 
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
-import com.google.gson.Gson;
 
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.InetAddress;
+import java.io.File;
 import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.net.SocketAddress;
-import java.net.SocketException;
-import java.net.SocketTimeoutException;
-import java.nio.charset.StandardCharsets;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
-import lsp.wol.app.R;
-import lsp.wol.app.model.TcpData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
+import lsp.wol.app.R;
+import lsp.wol.core.metrics.MetricsRegistry;
+import lsp.wol.core.model.Command;
+import lsp.wol.core.model.Device;
+import lsp.wol.core.model.MacAddress;
+import lsp.wol.core.model.TcpData;
+import lsp.wol.core.model.WakeResult;
+import lsp.wol.core.platform.NetworkMonitor;
+import lsp.wol.core.utils.EndpointSelector;
+import lsp.wol.core.utils.HeartbeatScheduler;
+import lsp.wol.core.utils.LatencyStats;
+import lsp.wol.core.utils.NioTransportEngine;
+import lsp.wol.core.utils.PendingRequest;
+import lsp.wol.core.utils.RelayClient;
+import lsp.wol.core.utils.TransportEngine;
+import lsp.wol.core.utils.WakeOutbox;
+import lsp.wol.core.utils.WolSender;
+import lsp.wol.core.utils.WriteStats;
+
+/**
+ * 中继服务器长连接的 Android 端：网络状态来自 ConnectivityManager，服务器主动推送的消息用弹窗提示
+ * 协议与连接管理在 core 模块的 RelayClient
+ */
 public class SocketClient {
-    private static final String SERVER_HOST = "espsock.devtask.cn";
-//    private static final String SERVER_HOST = "192.168.1.6";
     private static final int SERVER_PORT = 8080;
-    private static Gson gson = new Gson();
-
-    private String localIp = "";  // 存储本地IP
-    private Socket socket;
-    private OutputStream outputStream;
-    private InputStream inputStream;
-    private byte[] buffer = new byte[1024]; // 1KB缓冲区
-    // 消息队列（线程安全）
-    private final BlockingQueue<TcpData> sendQueue = new LinkedBlockingQueue<>();
-    private volatile boolean isRunning = false;
-    private long lastHeartbeatTime = 0;// 最后心跳时间
+    // 公网中继；局域网中继只用于调试，通过 --es relay 指定（可以写多个，竞速连接后按往返延迟选择）
+    private static final String SERVER_ENDPOINTS = "espsock.devtask.cn:8080";
+    // 自定义服务器列表（本机中继、压测环境），未设置时使用 SERVER_ENDPOINTS
+    private static final String SP_NAME = "server_info";
+    private static final String KEY_ENDPOINTS = "endpoints";
+    // 旧版本保存的单个服务器
+    private static final String KEY_HOST = "host";
+    private static final String KEY_PORT = "port";
+    // 唤醒命令发件箱目录
+    private static final String OUTBOX_DIR = "outbox";
+
     private final Activity activity;
+    private final RelayClient relayClient;
+    // Activity 创建后才能访问文件目录，startConnect 时打开
+    private WakeOutbox outbox;
+    private WakeOutbox.Listener wakeListener;
+
+    private final NetworkMonitor networkMonitor = new NetworkMonitor() {
+        @Override
+        public boolean isNetworkAvailable() {
+            return checkNetworkPermission();
+        }
+
+        @Override
+        public Object activeNetwork() {
+            ConnectivityManager cm = (ConnectivityManager)
+                    activity.getSystemService(Context.CONNECTIVITY_SERVICE);
+            return cm == null ? null : cm.getActiveNetwork();
+        }
+    };
+
+    private final RelayClient.Listener relayListener = new RelayClient.Listener() {
+        @Override
+        public void onConnected(String host, String localIp) {
+            // 离线期间提交的唤醒命令一次性发出
+            WakeOutbox current = outbox;
+            if (current != null) {
+                current.flush();
+            }
+            activity.runOnUiThread(() -> {
+                Toast.makeText(activity, "已连接服务器:"+ host, Toast.LENGTH_SHORT).show();
+            });
+        }
+
+        @Override
+        public void onMessage(TcpData tcpData) {
+            if (tcpData.command() == Command.WOL_DEVICE_SIZE) {
+                activity.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        AlertDialog alert = new MaterialAlertDialogBuilder(activity)
+                                .setMessage( tcpData.data+"台设备收到网络唤醒命令")
+                                .setPositiveButton("确定", null)
+                                .setCancelable(false)
+                                .create();
+                        alert.show();
+                    }
+                });
+                return;
+            }
+            activity.runOnUiThread(() -> {
+                Toast.makeText(activity, "收到TCP消息:"+ tcpData.cmd+" : " + tcpData.data, Toast.LENGTH_LONG).show();
+            });
+        }
+    };
 
     public SocketClient(Activity activity) {
+        this(activity, NioTransportEngine::new);
+    }
+
+    public SocketClient(Activity activity, Supplier<TransportEngine> engineFactory) {
         this.activity = activity;
+        this.relayClient = new RelayClient(EndpointSelector.parse(SERVER_ENDPOINTS, SERVER_PORT),
+                engineFactory, networkMonitor, relayListener);
     }
 
     // 检查网络权限
@@ -71,243 +146,226 @@ public class SocketClient {
                 capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
     }
 
-    //开始连接 循环
+    //开始连接 断开后由重连调度重新连接
     public void startConnect(){
-        Thread thread = new Thread(() -> {
-            while (true){
-                try {
-                    if (checkNetworkPermission()){
-                        // 清理
-                        cleanup();
-                        // 连接
-                        doConnect();
-                        // 处理
-                        connectionLoop();
-                    }else {
-                        activity.runOnUiThread(() -> {
-                            Toast.makeText(activity, "无网络连接权限", Toast.LENGTH_SHORT).show();
-                        });
-                    }
-                    Thread.sleep(30000);
-                } catch (Exception e) {
-                    Log.e(String.valueOf(R.string.app_name), "SocketClient startConnect", e);
-                }
-            }
-        });
-        thread.setDaemon(true);
-        thread.start();
+        if (outbox == null) {
+            outbox = new WakeOutbox(new File(activity.getFilesDir(), OUTBOX_DIR), outboxRelay, this::wakeOverLan);
+            outbox.setListener(wakeListener);
+        }
+        outbox.start();
+        relayClient.setEndpoints(EndpointSelector.parse(loadEndpoints(), SERVER_PORT));
+        relayClient.start();
     }
 
-    private void doConnect() {
-        try {
-            if (isRunning) return;
-
-            Log.i(String.valueOf(R.string.app_name), "SocketClient doConnect: " + SERVER_HOST + ":" + SERVER_PORT);
-            // 创建 TCP Socket
-            socket = new Socket();
-            // 1秒超时
-            socket.setSoTimeout(1000);
-            socket.setKeepAlive(true);
-            socket.setTcpNoDelay(true);
-            // 服务器
-            InetAddress address = InetAddress.getByName(SERVER_HOST);
-            SocketAddress socketAddress = new InetSocketAddress(address, SERVER_PORT);
-
-            // 5秒连接超时
-            socket.connect(socketAddress, 5000);
-            localIp = socket.getLocalAddress().getHostAddress();
-            Log.i(String.valueOf(R.string.app_name), "SocketClient doConnect: TCP Socket 连接成功 本地IP="+localIp );
-
-            // 获取输入流
-            inputStream = socket.getInputStream();
-            // 获取输出流
-            outputStream = socket.getOutputStream();
-
-            isRunning = true;
-
-            activity.runOnUiThread(() -> {
-                Toast.makeText(activity, "已连接服务器:"+ SERVER_HOST, Toast.LENGTH_SHORT).show();
-            });
-        } catch (Exception e) {
-            Log.e(String.valueOf(R.string.app_name), "SocketClient doConnect", e);
+    private final WakeOutbox.Relay outboxRelay = new WakeOutbox.Relay() {
+        @Override
+        public boolean isConnected() {
+            return relayClient.isConnected();
         }
 
+        @Override
+        public List<PendingRequest> wakeAll(List<MacAddress> macAddresses) {
+            return relayClient.wakeAll(macAddresses);
+        }
+    };
+
+    // 服务器不可达时局域网广播，已保存的设备带上 SecureOn 密码
+    private CompletableFuture<List<WakeResult>> wakeOverLan(List<MacAddress> macAddresses) {
+        // 按 MAC 查索引，不展开整个设备列表（调用方持有发件箱的锁）
+        List<Device> devices = new ArrayList<>(macAddresses.size());
+        for (MacAddress macAddress : macAddresses) {
+            Device device = DeviceSPUtil.getDevice(activity, macAddress);
+            devices.add(device != null ? device : new Device(macAddress.toString(), macAddress));
+        }
+        return WolSender.wakeAll(devices, 3);
     }
 
+    private String loadEndpoints() {
+        SharedPreferences sp = activity.getSharedPreferences(SP_NAME, Context.MODE_PRIVATE);
+        String saved = sp.getString(KEY_ENDPOINTS, null);
+        if (saved != null) {
+            return saved;
+        }
+        String host = sp.getString(KEY_HOST, null);
+        return host == null ? SERVER_ENDPOINTS : host + ":" + sp.getInt(KEY_PORT, SERVER_PORT);
+    }
 
+    /**
+     * 修改服务器列表并保存，已连接时按新列表重连
+     * @param endpoints host[:port]，多个用逗号分隔；为空恢复默认服务器
+     * @throws IllegalArgumentException 地址或端口不正确
+     */
+    public void setServerEndpoint(String endpoints) {
+        SharedPreferences sp = activity.getSharedPreferences(SP_NAME, Context.MODE_PRIVATE);
+        if (endpoints == null || endpoints.trim().isEmpty()) {
+            sp.edit().remove(KEY_ENDPOINTS).remove(KEY_HOST).remove(KEY_PORT).apply();
+            relayClient.setEndpoints(EndpointSelector.parse(SERVER_ENDPOINTS, SERVER_PORT));
+            return;
+        }
+        List<InetSocketAddress> parsed = EndpointSelector.parse(endpoints, SERVER_PORT);
+        sp.edit().putString(KEY_ENDPOINTS, EndpointSelector.format(parsed)).remove(KEY_HOST).remove(KEY_PORT).apply();
+        relayClient.setEndpoints(parsed);
+    }
 
     /**
-     * 清理资源
+     * 当前连接的服务器 host:port，未连接时为首选服务器
      */
-    private void cleanup() {
-        isRunning = false;
-        try {
-            if (inputStream != null) {
-                inputStream.close();
+    public String getServerEndpoint() {
+        return relayClient.getHost() + ":" + relayClient.getPort();
+    }
 
-            }
-        } catch (Exception e) {
-            Log.e(String.valueOf(R.string.app_name), "SocketClient cleanup", e);
-        }finally {
-            inputStream = null;
-        }
-        try {
-            if (outputStream != null) {
-                outputStream.close();
+    /**
+     * 各服务器的往返延迟与失败次数，从优到劣
+     */
+    public List<EndpointSelector.Endpoint> getServerRanking() {
+        return relayClient.getEndpointSelector().ranked();
+    }
 
-            }
-        } catch (Exception e) {
-            Log.e(String.valueOf(R.string.app_name), "SocketClient cleanup", e);
-        }finally {
-            outputStream = null;
+    //停止连接
+    public void stopConnect(){
+        relayClient.stop();
+        if (outbox != null) {
+            outbox.close();
         }
-        try {
-            if (socket != null) {
-                socket.shutdownOutput();
-                socket.shutdownInput();
-                socket.close();
+    }
 
-            }
-        } catch (Exception e) {
-            Log.e(String.valueOf(R.string.app_name), "SocketClient cleanup", e);
-        }finally {
-            socket = null;
+    /**
+     * 网络可用，立即重连（正在退避等待时不再等待）
+     * 默认网络换成另一个网络时当前连接绑定在旧网络上，断开重连
+     */
+    public void onNetworkAvailable(Network network) {
+        Object current = relayClient.getConnectedNetwork();
+        if (current != null && !current.equals(network)) {
+            Log.i(String.valueOf(R.string.app_name), "SocketClient onNetworkAvailable: 网络切换，重新连接");
+            relayClient.restart();
+        } else {
+            relayClient.signal();
         }
     }
 
-    private void doHeartbeat() {
-        if (isRunning && socket != null && !socket.isClosed()
-                && System.currentTimeMillis() - lastHeartbeatTime > 20 * 1000L){
-
-            TcpData tcpData = new TcpData();
-            tcpData.cmd = "heartbeat";
-            tcpData.data = String.valueOf(System.currentTimeMillis());
-            tcpData.host = localIp;
-            doSendBytes(gson.toJson(tcpData));
-            lastHeartbeatTime = System.currentTimeMillis();
+    /**
+     * 当前连接所在的网络断开，不等心跳超时立即断开
+     */
+    public void onNetworkLost(Network network) {
+        if (network.equals(relayClient.getConnectedNetwork())) {
+            Log.i(String.valueOf(R.string.app_name), "SocketClient onNetworkLost: 网络断开");
+            relayClient.restart();
         }
     }
 
-    private boolean doSendHandle() {
-        // 判断是否存在需要发送的消息
-        boolean flag = false;
-        while (!sendQueue.isEmpty()){
-            TcpData tcpData = sendQueue.poll();
-            if (tcpData!=null){
-                doSendBytes(gson.toJson(tcpData));
-                flag = true;
+    /**
+     * 当前网络的地址变化（如重新获取了IP），连接使用的本地地址已失效时重连
+     */
+    public void onLinkPropertiesChanged(Network network, LinkProperties linkProperties) {
+        if (!relayClient.isConnected() || !network.equals(relayClient.getConnectedNetwork())) {
+            return;
+        }
+        String localIp = relayClient.getLocalIp();
+        for (LinkAddress linkAddress : linkProperties.getLinkAddresses()) {
+            if (linkAddress.getAddress().getHostAddress().equals(localIp)) {
+                return;
             }
         }
-        return flag;
+        Log.i(String.valueOf(R.string.app_name), "SocketClient onLinkPropertiesChanged: 本地IP已变化，重新连接");
+        relayClient.restart();
     }
 
-    private void doSendBytes(String message) {
-        if (outputStream!=null && isRunning && !socket.isClosed() && socket.isConnected()) {
-            try {
-                byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
-                outputStream.write(bytes);
-                outputStream.flush();
-                Log.i(String.valueOf(R.string.app_name), "SocketClient doSendBytes 发送消息= "+ message);
-
-            } catch (SocketException e){
-                Log.i(String.valueOf(R.string.app_name), "SocketClient doSendBytes SocketException= "+ e);
-                cleanup();
-            } catch (Exception e) {
-                Log.e(String.valueOf(R.string.app_name), "SocketClient doSendBytes", e);
-            }
+    public boolean sendTcpMessage(String cmd ,String data){
+        MacAddress macAddress = Command.fromWireName(cmd) == Command.WOL ? MacAddress.tryParse(data) : null;
+        if (macAddress != null && outbox != null) {
+            // 唤醒命令离线时也接受，连上后发出
+            wakeOnLan(macAddress);
+            return true;
         }
+        if (!relayClient.isConnected()) {
+            activity.runOnUiThread(() -> {
+                Toast.makeText(activity, "未连接服务器", Toast.LENGTH_SHORT).show();
+            });
+            return false;
+        }
+        return !request(cmd, data).reply().isCompletedExceptionally();
     }
 
-    private void doReceive(){
-        if (inputStream!=null && isRunning && socket != null && !socket.isClosed()){
-            try{
-                socket.setSoTimeout(300);
-                // 阻塞读取，有数据时才会继续
-                int bytesRead = inputStream.read(buffer);
-
-                if (bytesRead > 0 ){
-                    String message = new String(buffer, 0, bytesRead, StandardCharsets.UTF_8);
-                    Log.i(String.valueOf(R.string.app_name), "SocketClient doReceive: 收到消息= "+message );
-
-                    if (bytesRead>1024){
-                        Log.i(String.valueOf(R.string.app_name), "SocketClient doReceive 数据包超长= "+ message);
-                    }else{
-                        onProcessData(message);
-                    }
-                }
-            } catch (SocketTimeoutException ig){
-//                Log.e(String.valueOf(R.string.app_name), "SocketClient doReceive socket timeout", e);
-            }
-//            catch (SocketException e){
-//                Log.i(String.valueOf(R.string.app_name), "SocketClient doReceive SocketException= "+ e);
-//                cleanup();
-//            }
-            catch (Exception e){
-                Log.e(String.valueOf(R.string.app_name), "SocketClient doReceive", e);
-                cleanup();
-            }
-        }
+    /**
+     * 发送请求，返回的 PendingRequest 在收到回复（或回执）时完成
+     * 回调在连接线程执行，更新界面需切回主线程
+     */
+    public PendingRequest request(String cmd, String data) {
+        return relayClient.request(cmd, data);
+    }
+
+    /**
+     * 通过服务器转发给 ESP8266 唤醒设备
+     * reply 为收到命令的 ESP8266 数量，receipt 为 ESP8266 的回执
+     */
+    public PendingRequest wake(MacAddress macAddress) {
+        return relayClient.wake(macAddress);
     }
 
-    private void connectionLoop() {
-        int loopIndex = 0;
-        while (isRunning && socket != null && !socket.isClosed() && socket.isConnected()){
+    /**
+     * 通过发件箱唤醒：已连接立即发出，否则等连上后批量发出，服务器不可达超过期限改为局域网广播
+     * 状态变化通过 setWakeListener 通知
+     */
+    public WakeOutbox.Entry wakeOnLan(MacAddress macAddress) {
+        return outbox.enqueue(macAddress);
+    }
 
-            // 接收消息
-            doReceive();
-            // 非心跳消息发送
-            if (!doSendHandle()){
-                // 心跳发送
-                doHeartbeat();
-            }
-            loopIndex++;
+    /**
+     * 一次唤醒多台设备，作为一批发出（定时唤醒同时到期的设备）
+     */
+    public List<WakeOutbox.Entry> wakeOnLan(List<MacAddress> macAddresses) {
+        return outbox.enqueueAll(macAddresses);
+    }
 
-            //Log.i(String.valueOf(R.string.app_name), "SocketClient connectionLoop: index= " + loopIndex );
+    /**
+     * 唤醒命令状态变化，在后台线程回调，更新界面需切回主线程
+     */
+    public void setWakeListener(WakeOutbox.Listener listener) {
+        wakeListener = listener;
+        if (outbox != null) {
+            outbox.setListener(listener);
         }
     }
 
+    /**
+     * 发件箱中的唤醒命令，按提交顺序
+     */
+    public List<WakeOutbox.Entry> getWakeEntries() {
+        return outbox == null ? new ArrayList<>() : outbox.getEntries();
+    }
 
+    /**
+     * 发送统计：批次大小与发送延迟
+     */
+    public WriteStats getWriteStats() {
+        return relayClient.getWriteStats();
+    }
 
-    public boolean sendTcpMessage(String cmd ,String data){
-        if (!isRunning ) {
-            activity.runOnUiThread(() -> {
-                Toast.makeText(activity, "未连接服务器", Toast.LENGTH_SHORT).show();
-            });
-            return false;
-        }
+    /**
+     * 按命令的往返延迟统计
+     */
+    public Map<String, LatencyStats> getLatencyStats() {
+        return relayClient.getLatencyStats();
+    }
 
-        TcpData tcpData = new TcpData();
-        tcpData.cmd = cmd;
-        tcpData.data = data == null? "" : data;
-        tcpData.host = localIp;
-        try {
-            return sendQueue.offer(tcpData,100, TimeUnit.MILLISECONDS);
-        } catch (Exception e) {
-            return false;
-        }
+    /**
+     * 心跳次数、学到的周期与往返延迟
+     */
+    public HeartbeatScheduler getHeartbeatStats() {
+        return relayClient.getHeartbeatStats();
     }
 
-    private void onProcessData(String tcpDataJson) {
-        TcpData tcpData = gson.fromJson(tcpDataJson, TcpData.class);
-        if (tcpData.cmd.equals("heartbeat")){
-            lastHeartbeatTime = System.currentTimeMillis();
-        }else if (tcpData.cmd.equals("wol_rec_dev_size")) {
-            activity.runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    AlertDialog alert = new MaterialAlertDialogBuilder(activity)
-                            .setMessage( tcpData.data+"台设备收到网络唤醒命令")
-                            .setPositiveButton("确定", null)
-                            .setCancelable(false)
-                            .create();
-                    alert.show();
-                }
-            });
-        } else{
-            activity.runOnUiThread(() -> {
-                Toast.makeText(activity, "收到TCP消息:"+ tcpData.cmd+" : " + tcpData.data, Toast.LENGTH_LONG).show();
-            });
-        }
+    /**
+     * 断开到重新连上的耗时分布
+     */
+    public LatencyStats getReconnectStats() {
+        return relayClient.getReconnectStats();
+    }
 
+    /**
+     * 连接、流量、队列、心跳往返与局域网发包指标（进程内汇总）
+     */
+    public MetricsRegistry.Snapshot getMetrics() {
+        return MetricsRegistry.shared().snapshot();
     }
 }
@@ -1,6 +1,7 @@
 package lsp.wol.app.viewholder;
 
 import android.content.Context;
+import android.graphics.Color;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
@@ -10,18 +11,31 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
 import lsp.wol.app.R;
-import lsp.wol.app.model.Device;
+import lsp.wol.core.model.Device;
 import lsp.wol.app.model.DeviceEventCallback;
 import lsp.wol.app.utils.DeviceSPUtil;
-import lsp.wol.app.utils.WolSender;
+import lsp.wol.core.utils.DeviceStatusBoard;
+import lsp.wol.core.utils.WolSender;
 import lsp.wol.app.views.AddDeviceDialog;
 
 public class DeviceItemViewHolder extends RecyclerView.ViewHolder {
+    private static final DateTimeFormatter WAKE_TIME_FORMAT = DateTimeFormatter.ofPattern("MM-dd HH:mm");
+    private static final int COLOR_ONLINE = Color.parseColor("#69c3a8");
+    private static final int COLOR_WAKING = Color.parseColor("#f0a030");
+    private static final int COLOR_OFFLINE = Color.GRAY;
+
     private Device device;
+    // 当前显示的状态，没变时不重新设置文字
+    private DeviceStatusBoard.Status status;
 
     private final TextView deviceName;
     private final TextView deviceMacAddress;
+    private final TextView deviceStatus;
     private final Button editButton;
     private final Button deleteButton;
     private final Button sendWolButtonEsp8266;
@@ -33,6 +47,7 @@ public class DeviceItemViewHolder extends RecyclerView.ViewHolder {
         this.callback = callback;
         deviceName = itemView.findViewById(R.id.device_name);
         deviceMacAddress = itemView.findViewById(R.id.device_mac);
+        deviceStatus = itemView.findViewById(R.id.device_status);
         editButton = itemView.findViewById(R.id.edit);
         deleteButton = itemView.findViewById(R.id.delete);
         sendWolButtonEsp8266 = itemView.findViewById(R.id.send_wol_esp8266);
@@ -66,12 +81,53 @@ public class DeviceItemViewHolder extends RecyclerView.ViewHolder {
             WolSender.sendMagicPacket(device);
             Toast.makeText(view.getContext(),device.macAddress+" -> LAN: Magic Packet ",Toast.LENGTH_SHORT).show();
         });
+
+        itemView.setOnLongClickListener(view -> {
+            // 定时唤醒
+            Log.i(String.valueOf(R.string.app_name), "onLongClick: 定时唤醒");
+            callback.schedule(device);
+            return true;
+        });
     }
 
-    public synchronized void buildDevice(Device device) {
+    // 只在主线程绑定
+    public void buildDevice(Device device) {
         this.device = device;
         deviceName.setText(device.name);
-        deviceMacAddress.setText(device.macAddress);
+        deviceMacAddress.setText(device.macAddress.toString());
+    }
+
+    // 在线状态与上次唤醒时间，状态变化时单独刷新
+    public void bindStatus(DeviceStatusBoard.Status status) {
+        if (status == this.status) {
+            return;
+        }
+        this.status = status;
+        String text;
+        int color;
+        switch (status.state) {
+            case ONLINE:
+                text = "在线";
+                color = COLOR_ONLINE;
+                break;
+            case WAKING:
+                text = "唤醒中";
+                color = COLOR_WAKING;
+                break;
+            case OFFLINE:
+                text = "离线";
+                color = COLOR_OFFLINE;
+                break;
+            default:
+                text = "未知";
+                color = COLOR_OFFLINE;
+                break;
+        }
+        if (status.lastWakeAt > 0) {
+            text += " · 上次唤醒 " + WAKE_TIME_FORMAT.format(Instant.ofEpochMilli(status.lastWakeAt).atZone(ZoneId.systemDefault()));
+        }
+        deviceStatus.setText(text);
+        deviceStatus.setTextColor(color);
     }
 
 
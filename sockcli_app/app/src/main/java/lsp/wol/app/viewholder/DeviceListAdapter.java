@@ -1,7 +1,6 @@
 package lsp.wol.app.viewholder;
 
 import android.content.Context;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,12 +11,20 @@ import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.List;
+import java.util.Objects;
 
 import lsp.wol.app.R;
-import lsp.wol.app.model.Device;
+import lsp.wol.core.model.Device;
 import lsp.wol.app.model.DeviceEventCallback;
+import lsp.wol.core.model.MacAddress;
+import lsp.wol.core.platform.Log;
+import lsp.wol.core.utils.DeviceStatusBoard;
+import lsp.wol.core.utils.LongObjectMap;
 
 public class DeviceListAdapter  extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+    // 只刷新状态一行的局部绑定
+    static final Object PAYLOAD_STATUS = new Object();
+
     private final AsyncListDiffer<Device> listDiffer = new AsyncListDiffer<>(this, new DiffUtil.ItemCallback<>(){
         @Override
         public boolean areItemsTheSame(@NonNull Device oldItem, @NonNull Device newItem) {
@@ -29,25 +36,67 @@ public class DeviceListAdapter  extends RecyclerView.Adapter<RecyclerView.ViewHo
         public boolean areContentsTheSame(@NonNull Device oldItem, @NonNull Device newItem) {
             // 所有属性都相同，才认为内容没变化
             return oldItem.name.equals(newItem.name)
-                    && oldItem.macAddress.equals(oldItem.macAddress);
+                    && oldItem.macAddress.equals(newItem.macAddress)
+                    && Objects.equals(oldItem.group, newItem.group)
+                    && Objects.equals(oldItem.secureOn, newItem.secureOn)
+                    && Objects.equals(oldItem.host, newItem.host);
         }
     });
 
     private Context mContext;
     private DeviceEventCallback callback;
+    private final DeviceStatusBoard statusBoard;
+    // MAC -> 列表位置，列表提交后重建，只在主线程访问
+    private final LongObjectMap<Integer> positions = new LongObjectMap<>();
+    // 状态变化合并到下一帧，只刷新变化的行
+    private final Runnable applyStatus = this::applyStatus;
 
-    public DeviceListAdapter(Context context, DeviceEventCallback callback) {
+    public DeviceListAdapter(Context context, DeviceEventCallback callback, DeviceStatusBoard statusBoard) {
         this.mContext = context;
         this.callback = callback;
+        this.statusBoard = statusBoard;
+        // MAC 作为稳定 id，刷新时复用同一行
+        setHasStableIds(true);
+        listDiffer.addListListener((previous, current) -> {
+            positions.clear();
+            for (int i = 0; i < current.size(); i++) {
+                positions.put(current.get(i).macAddress.toLong(), i);
+            }
+        });
     }
 
     // 绑定数据
     public void addDevices(List<Device> list){
-        Log.i(String.valueOf(R.string.app_name), "addDevices: 添加数据条数 "+ list.size());
+        Log.d("DeviceListAdapter addDevices: 添加数据条数 {}", list.size());
 
         listDiffer.submitList(list);
     }
 
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        // 状态在任意线程变化，在下一帧统一刷新
+        statusBoard.setListener(() -> recyclerView.postOnAnimation(applyStatus));
+        // 未挂载期间的变化
+        recyclerView.postOnAnimation(applyStatus);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        statusBoard.setListener(null);
+        recyclerView.removeCallbacks(applyStatus);
+        super.onDetachedFromRecyclerView(recyclerView);
+    }
+
+    private void applyStatus() {
+        for (MacAddress macAddress : statusBoard.drain()) {
+            Integer position = positions.get(macAddress.toLong());
+            if (position != null) {
+                notifyItemChanged(position, PAYLOAD_STATUS);
+            }
+        }
+    }
+
     // 创建 ViewHolder
     @NonNull
     @Override
@@ -64,6 +113,23 @@ public class DeviceListAdapter  extends RecyclerView.Adapter<RecyclerView.ViewHo
         DeviceItemViewHolder deviceItemViewHolder = (DeviceItemViewHolder) holder;
         Device device = listDiffer.getCurrentList().get(position);
         deviceItemViewHolder.buildDevice(device);
+        deviceItemViewHolder.bindStatus(statusBoard.get(device.macAddress));
+    }
+
+    // 只有状态变化时不重新绑定名称、MAC 和按钮
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        Device device = listDiffer.getCurrentList().get(position);
+        ((DeviceItemViewHolder) holder).bindStatus(statusBoard.get(device.macAddress));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return listDiffer.getCurrentList().get(position).macAddress.toLong();
     }
 
     @Override
@@ -11,14 +11,18 @@ import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
 
 import lsp.wol.app.R;
-import lsp.wol.app.model.Device;
+import lsp.wol.core.model.Device;
 import lsp.wol.app.model.DeviceEventCallback;
+import lsp.wol.core.model.MacAddress;
 import lsp.wol.app.utils.DeviceSPUtil;
 
 public class AddDeviceDialog  extends AlertDialog {
     // 输入控件
     private EditText etName;
     private EditText etMac;
+    private EditText etGroup;
+    private EditText etSecureOn;
+    private EditText etHost;
 
     public AddDeviceDialog(Context context, String title, Device oldDevice, DeviceEventCallback callback) {
         super(context);
@@ -27,6 +31,9 @@ public class AddDeviceDialog  extends AlertDialog {
                 .inflate(R.layout.dialog_add_device, null);
         etName = dialogView.findViewById(R.id.etName);
         etMac = dialogView.findViewById(R.id.etMac);
+        etGroup = dialogView.findViewById(R.id.etGroup);
+        etSecureOn = dialogView.findViewById(R.id.etSecureOn);
+        etHost = dialogView.findViewById(R.id.etHost);
 
         setTitle(title);
         setView(dialogView);
@@ -36,6 +43,9 @@ public class AddDeviceDialog  extends AlertDialog {
         setButton(BUTTON_POSITIVE, "保存", (dialog, which) -> {
             String name = etName.getText().toString().trim();
             String mac = etMac.getText().toString().trim();
+            String group = etGroup.getText().toString().trim();
+            String secureOn = etSecureOn.getText().toString().trim();
+            String host = etHost.getText().toString().trim();
 
             // 输入校验
             if (name.isEmpty() || mac.isEmpty()) {
@@ -43,26 +53,35 @@ public class AddDeviceDialog  extends AlertDialog {
                 return;
             }
 
-            // 输入的mac自动变成 aa:bb:cc 大写格式
-            String cleanText = cleanMacText(mac.toString());
-            String formattedText = formatMacText(cleanText);
-            if (formattedText.length() > 17) {
-                formattedText = formattedText.substring(0, 17);
-            }
-            mac = formattedText;
-
-            if (!isMacValid(mac)){
+            // 输入的mac只取十六进制字符解析，保存为 AA:BB:CC 大写格式
+            MacAddress macAddress = MacAddress.tryParseLenient(mac);
+            if (macAddress == null){
                 Toast.makeText(getContext(), "MAC格式不正确", Toast.LENGTH_SHORT).show();
                 return;
             }
 
-            Device newDevice = new Device(name, mac);
+            // SecureOn 密码 可选，格式同 MAC
+            if (!secureOn.isEmpty()) {
+                MacAddress password = MacAddress.tryParseLenient(secureOn);
+                if (password == null) {
+                    Toast.makeText(getContext(), "SecureOn密码格式不正确", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                secureOn = password.toString();
+            }
+
+            Device newDevice = new Device(name, macAddress, group.isEmpty() ? null : group);
+            newDevice.secureOn = secureOn.isEmpty() ? null : secureOn;
+            newDevice.host = host.isEmpty() ? null : host;
 
 
             // 删除设备
             if (oldDevice!=null){
                 if (oldDevice.macAddress.equals(newDevice.macAddress)
-                        && oldDevice.name.equals(newDevice.name)){
+                        && oldDevice.name.equals(newDevice.name)
+                        && TextUtils.equals(oldDevice.group, newDevice.group)
+                        && TextUtils.equals(oldDevice.secureOn, newDevice.secureOn)
+                        && TextUtils.equals(oldDevice.host, newDevice.host)){
                     return;
                 }
 
@@ -72,7 +91,7 @@ public class AddDeviceDialog  extends AlertDialog {
 
            // 保存设备
 
-            DeviceSPUtil.addDevice(context, new Device(name,mac));
+            DeviceSPUtil.addDevice(context, newDevice);
             Log.i(String.valueOf(R.string.app_name), "AddDeviceDialog: 添加设备: "+ newDevice.name+" "+ newDevice.macAddress);
             callback.onChange(newDevice);
 
@@ -88,7 +107,10 @@ public class AddDeviceDialog  extends AlertDialog {
 
         if (oldDevice!=null){
             etName.setText(oldDevice.name);
-            etMac.setText(oldDevice.macAddress);
+            etMac.setText(oldDevice.macAddress.toString());
+            etGroup.setText(oldDevice.group);
+            etSecureOn.setText(oldDevice.secureOn);
+            etHost.setText(oldDevice.host);
         }
         setCancelable(false);
 
@@ -96,47 +118,4 @@ public class AddDeviceDialog  extends AlertDialog {
 
     }
 
-    /**
-     * 清洗MAC文本：只保留十六进制字符，转大写
-     * @param text 原始输入文本
-     * @return 清洗后的纯十六进制大写字符串
-     */
-    private static String cleanMacText(String text) {
-        if (TextUtils.isEmpty(text)) return "";
-        // 正则匹配十六进制字符（0-9, a-f, A-F），其余过滤
-        return text.replaceAll("[^0-9a-fA-F]", "")
-                .toUpperCase();
-    }
-    /**
-     * 格式化清洗后的MAC文本：每2个字符加分隔符
-     * @param cleanText 清洗后的纯十六进制字符串
-     * @return 格式化后的MAC字符串（如 AA:BB:CC）
-     */
-    private static String formatMacText(String cleanText) {
-        StringBuilder sb = new StringBuilder();
-        int length = cleanText.length();
-
-        for (int i = 0; i < length; i++) {
-            sb.append(cleanText.charAt(i));
-            // 每2个字符加分隔符（最后一组不加）
-            if ((i + 1) % 2 == 0 && i != length - 1) {
-                sb.append(":");
-            }
-        }
-
-        return sb.toString();
-    }
-
-    /**
-     * 校验MAC地址是否合法（格式化后长度为17）
-     * @param mac 格式化后的MAC字符串
-     * @return true=合法，false=不合法
-     */
-    public static boolean isMacValid(String mac) {
-        if (TextUtils.isEmpty(mac)) return false;
-        // 正则校验：AA:BB:CC:DD:EE:FF 格式
-        String macRegex = "^([0-9A-F]{2}:){5}[0-9A-F]{2}$";
-        return mac.matches(macRegex);
-    }
-
 }
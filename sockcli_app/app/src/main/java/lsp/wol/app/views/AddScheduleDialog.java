@@ -0,0 +1,96 @@
+package lsp.wol.app.views;
+
+import android.content.Context;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AlertDialog;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import lsp.wol.app.R;
+import lsp.wol.core.model.MacAddress;
+import lsp.wol.core.model.WakeSchedule;
+import lsp.wol.core.utils.WakeScheduler;
+
+public class AddScheduleDialog extends AlertDialog {
+    // 一次性唤醒的时间格式
+    public static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    // 输入控件
+    private EditText etTarget;
+    private EditText etWhen;
+
+    /**
+     * @param target 预填的目标（设备 MAC 或分组），可为空
+     * @param onSaved 保存后回调，可为空
+     */
+    public AddScheduleDialog(Context context, String target, WakeScheduler scheduler, Runnable onSaved) {
+        super(context);
+        // 加载对话框布局
+        View dialogView = LayoutInflater.from(getContext())
+                .inflate(R.layout.dialog_add_schedule, null);
+        etTarget = dialogView.findViewById(R.id.etTarget);
+        etWhen = dialogView.findViewById(R.id.etWhen);
+
+        setTitle("添加定时唤醒");
+        setView(dialogView);
+
+        // 确定按钮逻辑
+        setButton(BUTTON_POSITIVE, "保存", (dialog, which) -> {
+            String text = etTarget.getText().toString().trim();
+            String when = etWhen.getText().toString().trim();
+
+            // 输入校验
+            if (text.isEmpty() || when.isEmpty()) {
+                Toast.makeText(getContext(), "目标和时间不能为空", Toast.LENGTH_SHORT).show();
+                return;
+            }
+
+            // 能解析成 MAC 的按设备，否则按分组名称
+            MacAddress macAddress = MacAddress.tryParseLenient(text);
+            String group = macAddress == null ? text : null;
+
+            WakeSchedule schedule;
+            try {
+                long at = LocalDateTime.parse(when, TIME_FORMAT).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                schedule = WakeSchedule.once(macAddress, group, at);
+            } catch (DateTimeParseException e) {
+                schedule = WakeSchedule.cron(macAddress, group, when);
+            }
+
+            // 保存定时唤醒
+            try {
+                scheduler.add(schedule);
+            } catch (IllegalArgumentException e) {
+                Toast.makeText(getContext(), e.getMessage(), Toast.LENGTH_SHORT).show();
+                return;
+            }
+            Log.i(String.valueOf(R.string.app_name), "AddScheduleDialog: 添加定时唤醒: " + schedule);
+            if (onSaved != null) {
+                onSaved.run();
+            }
+
+            // 关闭对话框
+            dismiss();
+        });
+
+        // 取消按钮逻辑
+        setButton(BUTTON_NEGATIVE, "取消", (dialog, which) -> {
+            // 关闭对话框
+            dismiss();
+        });
+
+        etTarget.setText(target);
+        setCancelable(false);
+
+        show();
+    }
+
+}
@@ -0,0 +1,65 @@
+package lsp.wol.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import lsp.wol.core.utils.BroadcastHelper;
+
+/**
+ * 广播地址查找
+ * cached 为有效期内的读取；refresh 每次重新过滤网卡列表；system 每次枚举本机网卡（原实现每次发送都这样做）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class BroadcastLookupBenchmark {
+
+    private BroadcastHelper cached;
+    private BroadcastHelper refresh;
+    private BroadcastHelper system;
+
+    @Setup
+    public void setUp() throws UnknownHostException {
+        // 手机上常见的网卡：蜂窝、Wi-Fi、VPN
+        List<BroadcastHelper.Subnet> subnets = List.of(
+                subnet("rmnet_data0", "10.12.0.7", "10.12.0.255", 24),
+                subnet("wlan0", "192.168.1.23", "192.168.1.255", 24),
+                subnet("tun0", "10.8.0.2", "10.8.0.255", 24));
+        cached = new BroadcastHelper(() -> subnets, System::currentTimeMillis, Long.MAX_VALUE);
+        refresh = new BroadcastHelper(() -> subnets, System::currentTimeMillis, 0);
+        system = new BroadcastHelper();
+    }
+
+    private static BroadcastHelper.Subnet subnet(String name, String address, String broadcast, int prefix)
+            throws UnknownHostException {
+        return new BroadcastHelper.Subnet(name, InetAddress.getByName(address),
+                InetAddress.getByName(broadcast), prefix);
+    }
+
+    @Benchmark
+    public Optional<InetAddress> cached() {
+        return cached.getBroadcastAddress();
+    }
+
+    @Benchmark
+    public Optional<InetAddress> refresh() {
+        return refresh.getBroadcastAddress();
+    }
+
+    @Benchmark
+    public Optional<InetAddress> system() {
+        system.invalidate();
+        return system.getBroadcastAddress();
+    }
+}
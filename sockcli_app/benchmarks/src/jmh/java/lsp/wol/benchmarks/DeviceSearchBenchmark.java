@@ -0,0 +1,80 @@
+package lsp.wol.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import lsp.wol.core.model.Device;
+import lsp.wol.core.model.MacAddress;
+import lsp.wol.core.utils.DeviceIndex;
+
+/**
+ * 搜索框每次输入的查询：名称子串、MAC 片段、分组，5 万台设备
+ * legacy 为逐台设备转小写后比较子串；typing 为逐字输入 "build-win-42" 的 12 次查询总耗时
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class DeviceSearchBenchmark {
+
+    private static final String TYPED = "build-win-42";
+
+    @Param({"win-42", "cc:28", "分组7"})
+    public String query;
+
+    private final List<Device> devices = new ArrayList<>();
+    private DeviceIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        for (int i = 0; i < 50_000; i++) {
+            devices.add(new Device("build-" + (random.nextBoolean() ? "win" : "linux") + "-" + i,
+                    MacAddress.of(random.nextLong() & 0xFFFFFFFFFFFFL), "分组" + (i % 50)));
+        }
+        index = new DeviceIndex();
+        index.replaceAll(devices);
+    }
+
+    @Benchmark
+    public int legacyScan() {
+        String term = query.toLowerCase(Locale.ROOT);
+        String hex = term.replace(":", "");
+        int n = 0;
+        for (Device device : devices) {
+            if (device.name.toLowerCase(Locale.ROOT).contains(term)
+                    || (device.group != null && device.group.toLowerCase(Locale.ROOT).contains(term))
+                    || device.macAddress.toString().replace(":", "").toLowerCase(Locale.ROOT).contains(hex)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @Benchmark
+    public int indexed() {
+        // 先查一个不存在的词，避免沿用上次结果
+        index.search("zzz");
+        return index.search(query).size();
+    }
+
+    @Benchmark
+    public int typing() {
+        int n = 0;
+        for (int i = 1; i <= TYPED.length(); i++) {
+            n += index.search(TYPED.substring(0, i)).size();
+        }
+        return n;
+    }
+}
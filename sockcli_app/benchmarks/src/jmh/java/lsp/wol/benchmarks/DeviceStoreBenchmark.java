@@ -0,0 +1,116 @@
+package lsp.wol.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import lsp.wol.core.model.Device;
+import lsp.wol.core.model.MacAddress;
+import lsp.wol.core.utils.DeviceStore;
+
+/**
+ * 设备列表的读取、添加与删除，设备数逐级增大
+ * legacy 为原 DeviceSPUtil：整个列表存成一个 JSON 字符串，每次添加或删除都整体反序列化再序列化
+ * （SharedPreferences 的异步写盘不计入）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class DeviceStoreBenchmark {
+
+    private static final Type LIST_TYPE = new TypeToken<List<Device>>() {}.getType();
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private final Gson gson = new Gson();
+    private File dir;
+    private DeviceStore store;
+    private String legacyJson;
+    private Device extra;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Device> devices = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Device device = new Device("设备" + i, MacAddress.of(0x020000000000L | i), "分组" + (i % 8));
+            if (i % 4 == 0) {
+                device.secureOn = "11:22:33:44:55:66";
+            }
+            devices.add(device);
+        }
+        extra = new Device("新设备", MacAddress.of(0x0AFFFFFFFFFFL), null);
+
+        dir = Files.createTempDirectory("device-store").toFile();
+        new DeviceStore(dir).replaceAll(devices);
+        store = new DeviceStore(dir);
+        store.size();
+        legacyJson = gson.toJson(devices);
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    /**
+     * 冷启动：打开存储并建立索引，设备按需解码
+     */
+    @Benchmark
+    public int coldOpen() {
+        return new DeviceStore(dir).size();
+    }
+
+    /**
+     * 冷启动后读出全部设备（列表界面首次显示）
+     */
+    @Benchmark
+    public List<Device> coldLoadAll() {
+        return new DeviceStore(dir).getAll();
+    }
+
+    @Benchmark
+    public boolean addDeleteCycle() {
+        store.upsert(extra);
+        return store.delete(extra.macAddress);
+    }
+
+    @Benchmark
+    public List<Device> legacyLoadAll() {
+        return gson.fromJson(legacyJson, LIST_TYPE);
+    }
+
+    @Benchmark
+    public String legacyAddDeleteCycle() {
+        List<Device> list = gson.fromJson(legacyJson, LIST_TYPE);
+        list.add(extra);
+        String saved = gson.toJson(list);
+
+        list = gson.fromJson(saved, LIST_TYPE);
+        list.removeIf(it -> it.name.equals(extra.name) && it.macAddress.equals(extra.macAddress));
+        return gson.toJson(list);
+    }
+}
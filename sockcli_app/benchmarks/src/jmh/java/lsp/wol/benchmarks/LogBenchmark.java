@@ -0,0 +1,62 @@
+package lsp.wol.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import lsp.wol.core.platform.Log;
+import lsp.wol.core.platform.Logger;
+
+/**
+ * 每条消息收发的调试日志：concat 为原来的字符串拼接，param 为参数化调用
+ * off 时输出与缓冲区都关闭，ring 时只记录到环形缓冲区，output 时格式化后交给 Logger（不输出）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class LogBenchmark {
+
+    @Param({"off", "ring", "output"})
+    public String mode;
+
+    private String cmd = "heartbeat";
+    private String data = "1718000000000";
+    private int count = 12;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Log.setLogger(Logger.NONE);
+        Log.setLevel("output".equals(mode) ? Log.DEBUG : Log.OFF);
+        Log.setRingLevel("ring".equals(mode) ? Log.DEBUG : Log.OFF);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Log.setLevel(Log.INFO);
+        Log.setRingLevel(Log.INFO);
+    }
+
+    @Benchmark
+    public void concat() {
+        Log.d("RelayClient doReceive: 收到消息= " + cmd + " " + data);
+    }
+
+    @Benchmark
+    public void param() {
+        Log.d("RelayClient doReceive: 收到消息= {} {}", cmd, data);
+    }
+
+    @Benchmark
+    public void paramLong() {
+        Log.d("RelayClient doSendHandle 发送消息条数= {}", count);
+    }
+}
@@ -0,0 +1,48 @@
+package lsp.wol.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import lsp.wol.core.model.MacAddress;
+
+/**
+ * 添加设备对话框的 MAC 输入处理：清洗、校验并格式化为 AA:BB:CC:DD:EE:FF
+ * legacy 为原 AddDeviceDialog.cleanMacText：正则过滤非十六进制字符后转大写
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class MacInputBenchmark {
+
+    // 规范格式、小写无分隔、手工输入的杂乱格式、非法输入
+    @Param({"CC:28:AA:06:77:E9", "cc28aa0677e9", " cc 28.aa:06 77-e9 ", "CC:28:AA:06:77"})
+    public String input;
+
+    @Benchmark
+    public String legacyCleanFormat() {
+        String cleaned = input.replaceAll("[^0-9a-fA-F]", "").toUpperCase();
+        MacAddress macAddress = MacAddress.tryParse(cleaned);
+        return macAddress == null ? null : macAddress.toString();
+    }
+
+    @Benchmark
+    public String lenientFormat() {
+        MacAddress macAddress = MacAddress.tryParseLenient(input);
+        return macAddress == null ? null : macAddress.toString();
+    }
+
+    /**
+     * 只校验（输入框实时提示），不分配
+     */
+    @Benchmark
+    public boolean lenientValidate() {
+        return MacAddress.parseLenientLong(input) >= 0;
+    }
+}
@@ -0,0 +1,90 @@
+package lsp.wol.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import lsp.wol.core.model.MacAddress;
+import lsp.wol.core.utils.MagicPacket;
+
+/**
+ * 魔术包构造
+ * legacy 为原 PacketBuilder.buildMagicPacket：每次拆分 MAC 文本、分配数组并解析广播地址
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class MagicPacketBenchmark {
+
+    private static final String BROADCAST = "192.168.1.255";
+    private static final int PORT = 9;
+
+    private String macText;
+    private MacAddress macAddress;
+    private MagicPacket compiled;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        macText = "CC:28:AA:06:77:E9";
+        macAddress = MacAddress.parse(macText);
+        compiled = MagicPacket.compile(macAddress, null);
+        buffer = ByteBuffer.allocateDirect(MagicPacket.BASE_LENGTH + MagicPacket.SECURE_ON_LENGTH);
+    }
+
+    @Benchmark
+    public DatagramPacket legacyBuild() throws UnknownHostException {
+        return legacyBuildMagicPacket(BROADCAST, macText, PORT);
+    }
+
+    @Benchmark
+    public MagicPacket compile() {
+        return MagicPacket.compile(macAddress, null);
+    }
+
+    @Benchmark
+    public MagicPacket compileWithSecureOn() {
+        return MagicPacket.compile(macAddress, "11:22:33:44:55:66");
+    }
+
+    /**
+     * 发送热路径：预编译的包写入复用的缓冲区，不应有分配
+     */
+    @Benchmark
+    public int writeCompiled() {
+        buffer.clear();
+        compiled.writeTo(buffer);
+        return buffer.position();
+    }
+
+    private static DatagramPacket legacyBuildMagicPacket(String broadcastAddress, String macAddress, int port)
+            throws UnknownHostException {
+        byte[] macBytes = new byte[6];
+        String[] hex = macAddress.split("(\\:|\\-)");
+        if (hex.length != 6) {
+            throw new IllegalArgumentException("Invalid MAC address.");
+        }
+        for (int i = 0; i < 6; i++) {
+            macBytes[i] = (byte) Integer.parseInt(hex[i], 16);
+        }
+        byte[] bytes = new byte[6 + (16 * macBytes.length)];
+        for (int i = 0; i < 6; i++) {
+            bytes[i] = (byte) 0xff;
+        }
+        for (int i = 0; i < 16; i++) {
+            System.arraycopy(macBytes, 0, bytes, (i + 1) * 6, macBytes.length);
+        }
+        InetAddress address = InetAddress.getByName(broadcastAddress);
+        return new DatagramPacket(bytes, bytes.length, address, port);
+    }
+}
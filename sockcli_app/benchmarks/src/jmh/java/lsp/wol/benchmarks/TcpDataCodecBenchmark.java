@@ -0,0 +1,92 @@
+package lsp.wol.benchmarks;
+
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import lsp.wol.core.model.Command;
+import lsp.wol.core.model.TcpData;
+import lsp.wol.core.utils.TcpDataCodec;
+
+/**
+ * TcpData 编解码
+ * gson 为原 SocketClient 的做法：toJson 后转字节，读到的字节转字符串后 fromJson
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class TcpDataCodecBenchmark {
+
+    private final Gson gson = new Gson();
+    private final TcpDataCodec jsonCodec = new TcpDataCodec();
+    private final TcpDataCodec binaryCodec = new TcpDataCodec();
+    private final ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+    private TcpData message;
+    private byte[] jsonBytes;
+    private byte[] binaryBytes;
+
+    @Setup
+    public void setUp() {
+        binaryCodec.setEncoding(TcpDataCodec.Encoding.BINARY);
+        message = new TcpData(Command.WOL, "CC:28:AA:06:77:E9");
+        message.host = "192.168.1.23";
+        message.id = "1a2b";
+        jsonBytes = encode(jsonCodec);
+        binaryBytes = encode(binaryCodec);
+    }
+
+    private byte[] encode(TcpDataCodec codec) {
+        buffer.clear();
+        codec.encode(message, buffer);
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] gsonEncode() {
+        return gson.toJson(message).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public TcpData gsonDecode() {
+        return gson.fromJson(new String(jsonBytes, StandardCharsets.UTF_8), TcpData.class);
+    }
+
+    @Benchmark
+    public int jsonEncode() {
+        buffer.clear();
+        jsonCodec.encode(message, buffer);
+        return buffer.position();
+    }
+
+    @Benchmark
+    public TcpData jsonDecode() throws IOException {
+        return jsonCodec.decode(jsonBytes, 0, jsonBytes.length);
+    }
+
+    @Benchmark
+    public int binaryEncode() {
+        buffer.clear();
+        binaryCodec.encode(message, buffer);
+        return buffer.position();
+    }
+
+    @Benchmark
+    public TcpData binaryDecode() throws IOException {
+        return binaryCodec.decode(binaryBytes, 0, binaryBytes.length);
+    }
+}
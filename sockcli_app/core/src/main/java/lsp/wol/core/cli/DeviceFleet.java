@@ -0,0 +1,299 @@
+package lsp.wol.core.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lsp.wol.core.model.Command;
+import lsp.wol.core.model.TcpData;
+import lsp.wol.core.platform.Log;
+import lsp.wol.core.utils.FrameCodec;
+import lsp.wol.core.utils.TcpDataCodec;
+
+/**
+ * 模拟的 ESP8266 设备：所有连接共用一个 Selector 线程，每台设备只占一个连接和少量缓冲区
+ * 行为同固件：连上后每 10 秒发心跳；收到 wol 回执 wol_rec_dev_recp（数据为收到的 MAC），不真正发送魔术包
+ */
+class DeviceFleet implements Closeable {
+
+    static final long HEARTBEAT_INTERVAL_MS = 10 * 1000L;
+    private static final String TYPE_ESP8266 = "esp8266";
+
+    private static final class Device {
+        final SocketChannel channel;
+        final String host;
+        final FrameCodec frames = new FrameCodec(256, 4096);
+        final ArrayDeque<ByteBuffer> outbox = new ArrayDeque<>();
+        SelectionKey key;
+        boolean ready;
+        long lastSent;
+
+        Device(SocketChannel channel, String host) {
+            this.channel = channel;
+            this.host = host;
+        }
+    }
+
+    private final InetSocketAddress relay;
+    private final int size;
+    private final List<Device> devices = new ArrayList<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(1024);
+    private final ByteBuffer encodeBuffer = ByteBuffer.allocate(1024);
+    private final TcpDataCodec codec = new TcpDataCodec();
+    private Selector selector;
+    private Thread thread;
+    private volatile boolean running;
+
+    // 统计
+    private volatile int connected;
+    private volatile int ready;
+    private volatile int closed;
+    private final AtomicLong wakesReceived = new AtomicLong();
+    private volatile long firstWakeNanos;
+    private volatile long lastWakeNanos;
+
+    DeviceFleet(InetSocketAddress relay, int size) {
+        this.relay = relay;
+        this.size = size;
+    }
+
+    /**
+     * 发起全部连接后立即返回，awaitReady 等待全部注册完成
+     */
+    void start() throws IOException {
+        selector = Selector.open();
+        for (int i = 0; i < size; i++) {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            // 内网地址 10.x.y.z，仅用于消息中的 host 字段
+            Device device = new Device(channel, "10." + ((i >> 16) & 0xff) + "." + ((i >> 8) & 0xff) + "." + (i & 0xff));
+            devices.add(device);
+            if (channel.connect(relay)) {
+                device.key = channel.register(selector, SelectionKey.OP_READ, device);
+                onConnected(device);
+            } else {
+                device.key = channel.register(selector, SelectionKey.OP_CONNECT, device);
+            }
+        }
+        running = true;
+        thread = new Thread(this::loop, "DeviceFleet");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 等待所有设备收到第一次心跳回复（服务器已记录设备类型）
+     * @return 是否在超时前全部就绪
+     */
+    boolean awaitReady(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (ready + closed < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return ready == size;
+    }
+
+    private void loop() {
+        long nextHeartbeatCheck = 0;
+        try {
+            while (running) {
+                selector.select(1000);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Device device = (Device) key.attachment();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isConnectable()) {
+                        finishConnect(device);
+                        continue;
+                    }
+                    if (key.isWritable()) {
+                        flush(device);
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        read(device);
+                    }
+                }
+                // 每秒检查一次心跳，不随每个事件遍历所有设备
+                long now = System.currentTimeMillis();
+                if (now >= nextHeartbeatCheck) {
+                    heartbeat(now);
+                    nextHeartbeatCheck = now + 1000;
+                }
+            }
+        } catch (IOException e) {
+            Log.e("DeviceFleet loop", e);
+        } finally {
+            for (Device device : devices) {
+                try {
+                    device.channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void finishConnect(Device device) {
+        try {
+            device.channel.finishConnect();
+            device.key.interestOps(SelectionKey.OP_READ);
+            onConnected(device);
+        } catch (IOException e) {
+            Log.i("DeviceFleet finishConnect: {}", e.getMessage());
+            close(device);
+        }
+    }
+
+    private void onConnected(Device device) {
+        connected++;
+        // 第一条消息带上类型，服务器之后才会转发 wol
+        send(device, Command.HEARTBEAT, String.valueOf(System.currentTimeMillis()));
+    }
+
+    private void read(Device device) {
+        try {
+            readBuffer.clear();
+            if (device.channel.read(readBuffer) < 0) {
+                close(device);
+                return;
+            }
+            readBuffer.flip();
+            device.frames.decode(readBuffer, (array, offset, length) -> {
+                try {
+                    onMessage(device, codec.decode(array, offset, length));
+                } catch (IOException e) {
+                    Log.i("DeviceFleet read: 无法解析 {}", e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            close(device);
+        }
+    }
+
+    private void onMessage(Device device, TcpData message) {
+        Command command = message.command();
+        if (command == Command.HEARTBEAT && !device.ready) {
+            device.ready = true;
+            ready++;
+        } else if (command == Command.WOL) {
+            long now = System.nanoTime();
+            if (wakesReceived.getAndIncrement() == 0) {
+                firstWakeNanos = now;
+            }
+            lastWakeNanos = now;
+            send(device, Command.WOL_RECEIPT, message.data);
+        }
+    }
+
+    private void heartbeat(long now) {
+        for (int i = 0, n = devices.size(); i < n; i++) {
+            Device device = devices.get(i);
+            if (device.channel.isConnected() && now - device.lastSent >= HEARTBEAT_INTERVAL_MS) {
+                send(device, Command.HEARTBEAT, String.valueOf(now));
+            }
+        }
+    }
+
+    private void send(Device device, Command command, String data) {
+        TcpData tcpData = new TcpData(command, data);
+        tcpData.host = device.host;
+        tcpData.type = TYPE_ESP8266;
+        encodeBuffer.clear();
+        codec.encode(tcpData, encodeBuffer);
+        encodeBuffer.flip();
+        ByteBuffer message = ByteBuffer.allocate(encodeBuffer.remaining());
+        message.put(encodeBuffer).flip();
+        device.outbox.add(message);
+        device.lastSent = System.currentTimeMillis();
+        flush(device);
+    }
+
+    private void flush(Device device) {
+        try {
+            while (!device.outbox.isEmpty()) {
+                ByteBuffer head = device.outbox.peek();
+                device.channel.write(head);
+                if (head.hasRemaining()) {
+                    device.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                device.outbox.poll();
+            }
+            device.key.interestOps(SelectionKey.OP_READ);
+        } catch (IOException e) {
+            close(device);
+        }
+    }
+
+    private void close(Device device) {
+        if (!device.channel.isOpen()) {
+            return;
+        }
+        closed++;
+        device.outbox.clear();
+        device.key.cancel();
+        try {
+            device.channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    int getConnected() {
+        return connected;
+    }
+
+    int getReady() {
+        return ready;
+    }
+
+    int getClosed() {
+        return closed;
+    }
+
+    /**
+     * 所有设备收到的 wol 命令总数
+     */
+    long getWakesReceived() {
+        return wakesReceived.get();
+    }
+
+    /**
+     * 第一条到最后一条 wol 之间的时长 纳秒
+     */
+    long getWakeSpanNanos() {
+        return wakesReceived.get() < 2 ? 0 : lastWakeNanos - firstWakeNanos;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (thread != null) {
+            try {
+                thread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
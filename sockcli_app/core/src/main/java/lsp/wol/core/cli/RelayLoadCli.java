@@ -0,0 +1,389 @@
+package lsp.wol.core.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lsp.wol.core.model.Command;
+import lsp.wol.core.model.MacAddress;
+import lsp.wol.core.model.TcpData;
+import lsp.wol.core.platform.Log;
+import lsp.wol.core.platform.Logger;
+import lsp.wol.core.platform.NetworkMonitor;
+import lsp.wol.core.utils.LatencyStats;
+import lsp.wol.core.utils.LocalRelay;
+import lsp.wol.core.utils.PendingRequest;
+import lsp.wol.core.utils.RelayClient;
+
+/**
+ * 中继压测：模拟大量 app 与 ESP8266 客户端，测量唤醒下发吞吐量、端到端延迟与每个连接的内存
+ * app 使用真实的 RelayClient（与 App 相同的连接栈），ESP8266 由 DeviceFleet 在一个线程中模拟
+ * 不指定 --relay 时在进程内启动 LocalRelay；--serve 只运行 LocalRelay，供 App 或其它机器连接
+ */
+public class RelayLoadCli {
+
+    static final String USAGE = "用法: relay-load [选项]\n"
+            + "  --relay host[:port]   压测已有的中继服务器；默认在进程内启动 LocalRelay\n"
+            + "  --serve [port]        只运行 LocalRelay（默认端口 " + LocalRelay.DEFAULT_PORT + "），Ctrl+C 退出\n"
+            + "  --max-connections n   LocalRelay 最大连接数，默认 " + LocalRelay.MAX_CONNECTIONS
+            + "（压测时至少为总连接数）\n"
+            + "  --strict              LocalRelay 按 sockser 的方式每次读取只解析一条消息\n"
+            + "  --apps n              app 连接数，默认 10\n"
+            + "  --devices n           ESP8266 连接数，默认 100\n"
+            + "  --wakes n             唤醒请求总数，默认 1000\n"
+            + "  --window n            每个 app 同时等待回执的请求数，默认 1\n"
+            + "  --connect-timeout ms  等待全部连接就绪的超时，默认 30000\n"
+            + "  --verbose             输出连接日志\n";
+
+    static final class Options {
+        String relayHost;
+        int relayPort = LocalRelay.DEFAULT_PORT;
+        int servePort = -1;
+        int maxConnections = -1;
+        boolean strict;
+        int apps = 10;
+        int devices = 100;
+        int wakes = 1000;
+        int window = 1;
+        long connectTimeoutMs = 30_000;
+        boolean verbose;
+
+        /**
+         * @throws IllegalArgumentException 参数不正确
+         */
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--relay": {
+                        String value = value(args, ++i, arg);
+                        int colon = value.lastIndexOf(':');
+                        if (colon > 0) {
+                            options.relayHost = value.substring(0, colon);
+                            options.relayPort = positive(value.substring(colon + 1), arg);
+                        } else {
+                            options.relayHost = value;
+                        }
+                        break;
+                    }
+                    case "--serve":
+                        options.servePort = LocalRelay.DEFAULT_PORT;
+                        if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                            options.servePort = positive(args[++i], arg);
+                        }
+                        break;
+                    case "--max-connections":
+                        options.maxConnections = positive(value(args, ++i, arg), arg);
+                        break;
+                    case "--strict":
+                        options.strict = true;
+                        break;
+                    case "--apps":
+                        options.apps = positive(value(args, ++i, arg), arg);
+                        break;
+                    case "--devices":
+                        options.devices = nonNegative(value(args, ++i, arg), arg);
+                        break;
+                    case "--wakes":
+                        options.wakes = positive(value(args, ++i, arg), arg);
+                        break;
+                    case "--window":
+                        options.window = positive(value(args, ++i, arg), arg);
+                        break;
+                    case "--connect-timeout":
+                        options.connectTimeoutMs = positive(value(args, ++i, arg), arg);
+                        break;
+                    case "--verbose":
+                        options.verbose = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("未知参数: " + arg);
+                }
+            }
+            if (options.relayHost != null && options.servePort > 0) {
+                throw new IllegalArgumentException("--relay 与 --serve 不能同时使用");
+            }
+            return options;
+        }
+
+        private static String value(String[] args, int index, String name) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException(name + " 缺少参数值");
+            }
+            return args[index];
+        }
+
+        private static int positive(String value, String name) {
+            int number = nonNegative(value, name);
+            if (number == 0) {
+                throw new IllegalArgumentException(name + " 必须大于0: " + value);
+            }
+            return number;
+        }
+
+        private static int nonNegative(String value, String name) {
+            int number;
+            try {
+                number = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(name + " 不是数字: " + value);
+            }
+            if (number < 0) {
+                throw new IllegalArgumentException(name + " 不能小于0: " + value);
+            }
+            return number;
+        }
+    }
+
+    private final Options options;
+    private final PrintStream out;
+
+    private final AtomicLong replies = new AtomicLong();
+    private final AtomicLong receipts = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    // 回复中的 ESP8266 数量之和，即应下发的条数
+    private final AtomicLong expectedDeliveries = new AtomicLong();
+
+    RelayLoadCli(Options options, PrintStream out) {
+        this.options = options;
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+        Log.setLogger(options.verbose ? Logger.STDERR : Logger.NONE);
+        // --verbose 时输出每条消息的收发
+        Log.setLevel(options.verbose ? Log.DEBUG : Log.OFF);
+        RelayLoadCli cli = new RelayLoadCli(options, System.out);
+        if (options.servePort > 0) {
+            cli.serve();
+            return;
+        }
+        System.exit(cli.run());
+    }
+
+    private LocalRelay newRelay(int port, int defaultMaxConnections) {
+        LocalRelay relay = new LocalRelay(port,
+                options.maxConnections > 0 ? options.maxConnections : defaultMaxConnections,
+                LocalRelay.HEARTBEAT_TIMEOUT_MS, LocalRelay.HEARTBEAT_CHECK_INTERVAL_MS);
+        relay.setStrictReads(options.strict);
+        return relay;
+    }
+
+    /**
+     * 前台运行 LocalRelay，每 10 秒输出一次统计
+     */
+    void serve() throws IOException, InterruptedException {
+        LocalRelay relay = newRelay(options.servePort, LocalRelay.MAX_CONNECTIONS);
+        relay.start();
+        out.println("LocalRelay 监听端口 " + relay.getPort());
+        while (relay.isRunning()) {
+            Thread.sleep(LocalRelay.HEARTBEAT_CHECK_INTERVAL_MS);
+            out.println(relay);
+        }
+    }
+
+    /**
+     * @return 退出码：0 全部成功，1 有请求失败，2 连接未能全部就绪
+     */
+    int run() throws IOException, InterruptedException {
+        LocalRelay localRelay = null;
+        InetSocketAddress target;
+        if (options.relayHost == null) {
+            localRelay = newRelay(0, options.apps + options.devices + 16);
+            localRelay.start();
+            target = new InetSocketAddress("127.0.0.1", localRelay.getPort());
+            out.println("中继 " + target.getHostString() + ":" + target.getPort() + "（进程内 LocalRelay"
+                    + (options.strict ? "，按 sockser 方式解析" : "") + "）");
+        } else {
+            target = new InetSocketAddress(options.relayHost, options.relayPort);
+            out.println("中继 " + options.relayHost + ":" + options.relayPort);
+        }
+
+        DeviceFleet fleet = new DeviceFleet(target, options.devices);
+        List<RelayClient> apps = new ArrayList<>(options.apps);
+        try {
+            // ESP8266
+            long heapBefore = usedHeap();
+            long start = System.nanoTime();
+            fleet.start();
+            boolean devicesReady = fleet.awaitReady(options.connectTimeoutMs);
+            out.printf(Locale.ROOT, "esp8266 就绪 %d/%d 耗时 %dms 每连接堆内存 %s%n",
+                    fleet.getReady(), options.devices, elapsedMs(start),
+                    perConnection(usedHeap() - heapBefore, fleet.getReady()));
+            if (!devicesReady) {
+                out.println("ESP8266 未能全部连接（断开 " + fleet.getClosed() + "），检查服务器最大连接数");
+                return 2;
+            }
+
+            // app
+            heapBefore = usedHeap();
+            int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+            start = System.nanoTime();
+            int appsReady = connectApps(target, apps);
+            int threads = ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore;
+            out.printf(Locale.ROOT, "app     就绪 %d/%d 耗时 %dms 每连接堆内存 %s 线程 %.1f%n",
+                    appsReady, options.apps, elapsedMs(start),
+                    perConnection(usedHeap() - heapBefore, appsReady), (double) threads / Math.max(appsReady, 1));
+            if (appsReady < options.apps) {
+                return 2;
+            }
+
+            wakeAll(apps, fleet);
+            if (localRelay != null) {
+                out.println("LocalRelay " + localRelay);
+            }
+        } finally {
+            for (RelayClient app : apps) {
+                app.stop();
+            }
+            fleet.close();
+            if (localRelay != null) {
+                localRelay.close();
+            }
+        }
+        return failed.get() > 0 ? 1 : 0;
+    }
+
+    private int connectApps(InetSocketAddress target, List<RelayClient> apps) throws InterruptedException {
+        AtomicInteger connected = new AtomicInteger();
+        for (int i = 0; i < options.apps; i++) {
+            AtomicInteger once = new AtomicInteger();
+            RelayClient app = new RelayClient(target.getHostString(), target.getPort(), NetworkMonitor.ALWAYS,
+                    new RelayClient.Listener() {
+                        @Override
+                        public void onConnected(String host, String localIp) {
+                            if (once.getAndIncrement() == 0) {
+                                connected.incrementAndGet();
+                            }
+                        }
+                    });
+            apps.add(app);
+            app.start();
+        }
+        long deadline = System.currentTimeMillis() + options.connectTimeoutMs;
+        while (connected.get() < options.apps && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return connected.get();
+    }
+
+    /**
+     * 按 app 轮流发出唤醒请求，每个 app 同时等待的请求不超过窗口
+     * 有 ESP8266 时等回执（app → 中继 → ESP8266 → 中继 → app），否则只等回复
+     */
+    private void wakeAll(List<RelayClient> apps, DeviceFleet fleet) throws InterruptedException {
+        boolean awaitReceipt = options.devices > 0;
+        List<Semaphore> windows = new ArrayList<>(apps.size());
+        for (int i = 0; i < apps.size(); i++) {
+            windows.add(new Semaphore(options.window));
+        }
+        long deliveredBefore = fleet.getWakesReceived();
+        long start = System.nanoTime();
+        for (int i = 0; i < options.wakes; i++) {
+            int index = i % apps.size();
+            Semaphore window = windows.get(index);
+            window.acquire();
+            // 本地管理的单播地址，每次请求不同，回执可以准确匹配
+            PendingRequest request = apps.get(index).wake(MacAddress.of(0x020000000000L | i));
+            request.reply().whenComplete((reply, e) -> {
+                if (e == null && !"0".equals(reply.data)) {
+                    replies.incrementAndGet();
+                    try {
+                        expectedDeliveries.addAndGet(Long.parseLong(reply.data));
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            });
+            CompletableFuture<TcpData> done = awaitReceipt ? request.receipt() : request.reply();
+            done.whenComplete((tcpData, e) -> {
+                if (e != null) {
+                    failed.incrementAndGet();
+                } else if (awaitReceipt) {
+                    receipts.incrementAndGet();
+                }
+                window.release();
+            });
+        }
+        for (Semaphore window : windows) {
+            window.acquire(options.window);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        // 每次唤醒只等第一条回执，发给其它 ESP8266 的命令可能还在路上，稍等再统计下发条数
+        long settleDeadline = System.currentTimeMillis() + 2000;
+        while (fleet.getWakesReceived() - deliveredBefore < expectedDeliveries.get()
+                && System.currentTimeMillis() < settleDeadline) {
+            Thread.sleep(5);
+        }
+        report(apps, elapsedNanos, fleet.getWakesReceived() - deliveredBefore);
+    }
+
+    private void report(List<RelayClient> apps, long elapsedNanos, long delivered) {
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+        out.printf(Locale.ROOT, "唤醒 %d 回复 %d 回执 %d 失败 %d 耗时 %.3fs 速率 %.0f 次/s%n",
+                options.wakes, replies.get(), receipts.get(), failed.get(), seconds, options.wakes / seconds);
+        out.printf(Locale.ROOT, "下发 %d 条 速率 %.0f 条/s%n", delivered, delivered / seconds);
+        LatencyStats reply = new LatencyStats();
+        LatencyStats receipt = new LatencyStats();
+        for (RelayClient app : apps) {
+            LatencyStats appReply = app.getLatencyStats().get(Command.WOL.wireName);
+            if (appReply != null) {
+                reply.addAll(appReply);
+            }
+            LatencyStats appReceipt = app.getLatencyStats().get(Command.WOL_RECEIPT.wireName);
+            if (appReceipt != null) {
+                receipt.addAll(appReceipt);
+            }
+        }
+        out.println("回复延迟 " + reply + percentiles(reply));
+        if (options.devices > 0) {
+            out.println("回执延迟 " + receipt + percentiles(receipt));
+        }
+    }
+
+    private static String percentiles(LatencyStats stats) {
+        return String.format(Locale.ROOT, " p90<=%.0fms p999<=%.0fms",
+                stats.getPercentileMs(0.9), stats.getPercentileMs(0.999));
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static String perConnection(long bytes, int connections) {
+        if (connections == 0) {
+            return "-";
+        }
+        return String.format(Locale.ROOT, "%.1fKB", Math.max(bytes, 0) / 1024.0 / connections);
+    }
+
+    /**
+     * GC 后的已用堆内存，只是估算
+     */
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,443 @@
+package lsp.wol.core.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lsp.wol.core.model.Command;
+import lsp.wol.core.model.Device;
+import lsp.wol.core.model.MacAddress;
+import lsp.wol.core.model.TcpData;
+import lsp.wol.core.model.WakeResult;
+import lsp.wol.core.platform.Log;
+import lsp.wol.core.platform.Logger;
+import lsp.wol.core.platform.NetworkMonitor;
+import lsp.wol.core.utils.BroadcastHelper;
+import lsp.wol.core.utils.LatencyStats;
+import lsp.wol.core.utils.PendingRequest;
+import lsp.wol.core.utils.RelayClient;
+import lsp.wol.core.utils.WolSender;
+
+/**
+ * 命令行批量唤醒
+ * 从文件或标准输入逐行读取 "MAC [SecureOn密码]"，通过局域网广播、中继服务器或两者同时唤醒，
+ * 边读边发，不需要把整个列表读进内存；结束后输出吞吐量
+ * 失败的设备逐行输出到标准输出 "FAIL <MAC> <方式> <原因>"，统计输出到标准错误
+ */
+public class WakeCli {
+
+    static final String USAGE = "用法: wol [选项] [文件|-]\n"
+            + "  --via lan|relay|both  唤醒方式，默认 lan\n"
+            + "  --relay host[:port]   中继服务器，默认 " + Options.DEFAULT_RELAY_HOST + ":" + Options.DEFAULT_RELAY_PORT + "\n"
+            + "  --broadcast addr      局域网广播地址，可重复；默认自动获取本机各子网\n"
+            + "  --port n              魔术包端口，默认 9\n"
+            + "  --threads n           局域网发送线程数，默认 4\n"
+            + "  --batch n             局域网每批设备数，默认 256\n"
+            + "  --bursts n            局域网每批重复发送轮数，默认 1\n"
+            + "  --window n            中继同时等待回复的请求数，默认 1（旧版服务器每次读取只解析一条消息）\n"
+            + "  --receipts            等待 ESP8266 回执\n"
+            + "  --connect-timeout ms  连接中继超时，默认 10000\n"
+            + "  --verbose             输出连接日志\n";
+
+    enum Via {
+        LAN, RELAY, BOTH;
+
+        boolean lan() {
+            return this != RELAY;
+        }
+
+        boolean relay() {
+            return this != LAN;
+        }
+    }
+
+    static final class Options {
+        static final String DEFAULT_RELAY_HOST = "espsock.devtask.cn";
+        static final int DEFAULT_RELAY_PORT = 8080;
+
+        Via via = Via.LAN;
+        String relayHost = DEFAULT_RELAY_HOST;
+        int relayPort = DEFAULT_RELAY_PORT;
+        List<InetAddress> broadcasts = new ArrayList<>();
+        int port = WolSender.WOL_PORT;
+        int threads = 4;
+        int batch = 256;
+        int bursts = 1;
+        int window = 1;
+        boolean receipts;
+        long connectTimeoutMs = 10_000;
+        boolean verbose;
+        // null 或 "-" 为标准输入
+        String input;
+
+        /**
+         * @throws IllegalArgumentException 参数不正确
+         */
+        static Options parse(String[] args) throws IOException {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--via":
+                        options.via = Via.valueOf(value(args, ++i, arg).toUpperCase(Locale.ROOT));
+                        break;
+                    case "--relay": {
+                        String value = value(args, ++i, arg);
+                        int colon = value.lastIndexOf(':');
+                        if (colon > 0) {
+                            options.relayHost = value.substring(0, colon);
+                            options.relayPort = positive(value.substring(colon + 1), arg);
+                        } else {
+                            options.relayHost = value;
+                        }
+                        break;
+                    }
+                    case "--broadcast":
+                        options.broadcasts.add(InetAddress.getByName(value(args, ++i, arg)));
+                        break;
+                    case "--port":
+                        options.port = positive(value(args, ++i, arg), arg);
+                        break;
+                    case "--threads":
+                        options.threads = positive(value(args, ++i, arg), arg);
+                        break;
+                    case "--batch":
+                        options.batch = positive(value(args, ++i, arg), arg);
+                        break;
+                    case "--bursts":
+                        options.bursts = positive(value(args, ++i, arg), arg);
+                        break;
+                    case "--window":
+                        options.window = positive(value(args, ++i, arg), arg);
+                        break;
+                    case "--receipts":
+                        options.receipts = true;
+                        break;
+                    case "--connect-timeout":
+                        options.connectTimeoutMs = positive(value(args, ++i, arg), arg);
+                        break;
+                    case "--verbose":
+                        options.verbose = true;
+                        break;
+                    default:
+                        if (arg.startsWith("--") || options.input != null) {
+                            throw new IllegalArgumentException("未知参数: " + arg);
+                        }
+                        options.input = arg;
+                        break;
+                }
+            }
+            return options;
+        }
+
+        private static String value(String[] args, int index, String name) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException(name + " 缺少参数值");
+            }
+            return args[index];
+        }
+
+        private static int positive(String value, String name) {
+            int number;
+            try {
+                number = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(name + " 不是数字: " + value);
+            }
+            if (number <= 0) {
+                throw new IllegalArgumentException(name + " 必须大于0: " + value);
+            }
+            return number;
+        }
+    }
+
+    private final Options options;
+    private final PrintStream out;
+    private final PrintStream err;
+
+    // 统计
+    private final AtomicLong lanDevices = new AtomicLong();
+    private final AtomicLong lanPackets = new AtomicLong();
+    private final AtomicLong lanFailed = new AtomicLong();
+    private final AtomicLong relayDevices = new AtomicLong();
+    private final AtomicLong relayReplies = new AtomicLong();
+    private final AtomicLong relayFailed = new AtomicLong();
+    private final AtomicLong relayReceipts = new AtomicLong();
+    private long invalidLines;
+
+    WakeCli(Options options, PrintStream out, PrintStream err) {
+        this.options = options;
+        this.out = out;
+        this.err = err;
+    }
+
+    public static void main(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+        Log.setLogger(options.verbose ? Logger.STDERR : Logger.NONE);
+        // --verbose 时输出每条消息的收发
+        Log.setLevel(options.verbose ? Log.DEBUG : Log.OFF);
+        int code;
+        try (Reader reader = options.input == null || "-".equals(options.input)
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(Paths.get(options.input), StandardCharsets.UTF_8)) {
+            code = new WakeCli(options, System.out, System.err).run(reader);
+        } catch (IOException e) {
+            System.err.println("读取失败: " + e.getMessage());
+            code = 2;
+        }
+        System.exit(code);
+    }
+
+    /**
+     * @return 退出码：0 全部成功，1 有设备失败，2 无法连接中继
+     */
+    int run(Reader input) throws IOException {
+        RelayClient relay = null;
+        if (options.via.relay()) {
+            relay = connectRelay();
+            if (relay == null) {
+                return 2;
+            }
+        }
+        List<InetSocketAddress> targets = options.via.lan() ? lanTargets() : null;
+        ThreadPoolExecutor lanExecutor = null;
+        if (targets != null) {
+            // 队列满时由读取线程自己发送，读取速度跟随发送速度
+            lanExecutor = new ThreadPoolExecutor(options.threads, options.threads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(options.threads * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+        Semaphore window = new Semaphore(options.window);
+        Semaphore receiptsDone = new Semaphore(0);
+        long receiptsExpected = 0;
+
+        long start = System.nanoTime();
+        try {
+            BufferedReader reader = input instanceof BufferedReader
+                    ? (BufferedReader) input : new BufferedReader(input);
+            List<Device> batch = new ArrayList<>(options.batch);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Device device = parseLine(line);
+                if (device == null) {
+                    continue;
+                }
+                if (lanExecutor != null) {
+                    batch.add(device);
+                    if (batch.size() >= options.batch) {
+                        submitLan(lanExecutor, batch, targets);
+                        batch = new ArrayList<>(options.batch);
+                    }
+                }
+                if (relay != null) {
+                    if (wakeViaRelay(relay, device, window, receiptsDone)) {
+                        receiptsExpected++;
+                    }
+                }
+            }
+            if (lanExecutor != null && !batch.isEmpty()) {
+                submitLan(lanExecutor, batch, targets);
+            }
+            if (lanExecutor != null) {
+                lanExecutor.shutdown();
+                lanExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            }
+            if (relay != null) {
+                // 等最后一批回复与回执（超时由 RelayClient 处理）
+                window.acquire(options.window);
+                receiptsDone.acquire((int) Math.min(receiptsExpected, Integer.MAX_VALUE));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (lanExecutor != null) {
+                lanExecutor.shutdownNow();
+            }
+            if (relay != null) {
+                relay.stop();
+            }
+        }
+        report(System.nanoTime() - start, relay);
+        return lanFailed.get() + relayFailed.get() > 0 ? 1 : 0;
+    }
+
+    /**
+     * 解析一行 "MAC [SecureOn密码]"，空行与 # 注释返回 null
+     */
+    private Device parseLine(String line) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return null;
+        }
+        String[] parts = trimmed.split("\\s+");
+        MacAddress mac = MacAddress.tryParse(parts[0]);
+        if (mac == null) {
+            invalidLines++;
+            synchronized (out) {
+                out.println("FAIL " + parts[0] + " input 无效的MAC地址");
+            }
+            return null;
+        }
+        Device device = new Device(mac.toString(), mac);
+        if (parts.length > 1) {
+            device.secureOn = parts[1];
+        }
+        return device;
+    }
+
+    private List<InetSocketAddress> lanTargets() {
+        List<InetAddress> addresses = new ArrayList<>(options.broadcasts);
+        if (addresses.isEmpty()) {
+            addresses.addAll(BroadcastHelper.shared().getBroadcastAddresses());
+            try {
+                addresses.add(InetAddress.getByName("255.255.255.255"));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        List<InetSocketAddress> targets = new ArrayList<>(addresses.size());
+        for (InetAddress address : addresses) {
+            targets.add(new InetSocketAddress(address, options.port));
+        }
+        return targets;
+    }
+
+    private void submitLan(ThreadPoolExecutor executor, List<Device> batch, List<InetSocketAddress> targets) {
+        executor.execute(() -> {
+            for (WakeResult result : WolSender.sendTo(batch, targets, options.bursts)) {
+                lanDevices.incrementAndGet();
+                lanPackets.addAndGet(result.packetsSent);
+                if (!result.isSuccess()) {
+                    lanFailed.incrementAndGet();
+                    fail(result.device.macAddress, "lan", result.error);
+                }
+            }
+        });
+    }
+
+    private RelayClient connectRelay() {
+        CountDownLatch connected = new CountDownLatch(1);
+        RelayClient relay = new RelayClient(options.relayHost, options.relayPort, NetworkMonitor.ALWAYS,
+                new RelayClient.Listener() {
+                    @Override
+                    public void onConnected(String host, String localIp) {
+                        connected.countDown();
+                    }
+                });
+        relay.start();
+        try {
+            if (connected.await(options.connectTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return relay;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        relay.stop();
+        err.println("无法连接中继服务器 " + options.relayHost + ":" + options.relayPort);
+        return null;
+    }
+
+    /**
+     * 发出唤醒请求，同时等待回复的请求数不超过窗口
+     * @return 是否需要等待回执
+     */
+    private boolean wakeViaRelay(RelayClient relay, Device device, Semaphore window, Semaphore receiptsDone)
+            throws InterruptedException {
+        window.acquire();
+        relayDevices.incrementAndGet();
+        PendingRequest request = relay.wake(device.macAddress);
+        request.reply().whenComplete((reply, e) -> {
+            if (e != null) {
+                relayFailed.incrementAndGet();
+                fail(device.macAddress, "relay", e);
+            } else if ("0".equals(reply.data)) {
+                relayFailed.incrementAndGet();
+                fail(device.macAddress, "relay", "没有在线的ESP8266");
+            } else {
+                relayReplies.incrementAndGet();
+            }
+            window.release();
+        });
+        if (!options.receipts || request.receipt() == null) {
+            return false;
+        }
+        request.receipt().whenComplete((receipt, e) -> {
+            if (e == null) {
+                relayReceipts.incrementAndGet();
+            } else if (replySucceeded(request)) {
+                // 回复失败时已经计过一次
+                relayFailed.incrementAndGet();
+                fail(device.macAddress, "receipt", e);
+            }
+            receiptsDone.release();
+        });
+        return true;
+    }
+
+    private static boolean replySucceeded(PendingRequest request) {
+        if (request.reply().isCompletedExceptionally()) {
+            return false;
+        }
+        TcpData reply = request.reply().getNow(null);
+        return reply != null && !"0".equals(reply.data);
+    }
+
+    private void fail(MacAddress mac, String via, Object reason) {
+        if (reason instanceof Throwable) {
+            Throwable cause = (Throwable) reason;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            reason = cause.getClass().getSimpleName() + (cause.getMessage() == null ? "" : " " + cause.getMessage());
+        }
+        synchronized (out) {
+            out.println("FAIL " + mac + " " + via + " " + reason);
+        }
+    }
+
+    private void report(long elapsedNanos, RelayClient relay) {
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+        err.printf(Locale.ROOT, "耗时 %.3fs 无效行 %d%n", seconds, invalidLines);
+        if (options.via.lan()) {
+            err.printf(Locale.ROOT, "lan   设备 %d 魔术包 %d 失败 %d 速率 %.0f 台/s%n",
+                    lanDevices.get(), lanPackets.get(), lanFailed.get(), lanDevices.get() / seconds);
+        }
+        if (relay != null) {
+            err.printf(Locale.ROOT, "relay 设备 %d 回复 %d 失败 %d 速率 %.0f 台/s%n",
+                    relayDevices.get(), relayReplies.get(), relayFailed.get(), relayDevices.get() / seconds);
+            Map<String, LatencyStats> latency = relay.getLatencyStats();
+            LatencyStats wol = latency.get(Command.WOL.wireName);
+            if (wol != null) {
+                err.println("relay 回复延迟 " + wol);
+            }
+            if (options.receipts) {
+                LatencyStats receipt = latency.get(Command.WOL_RECEIPT.wireName);
+                err.println("relay 回执 " + relayReceipts.get() + (receipt == null ? "" : " 延迟 " + receipt));
+            }
+        }
+    }
+}
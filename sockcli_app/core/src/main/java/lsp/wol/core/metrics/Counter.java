@@ -0,0 +1,26 @@
+package lsp.wol.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 只增计数器，多线程并发累加不互相竞争
+ */
+public final class Counter {
+
+    private final LongAdder value = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long delta) {
+        value.add(delta);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
@@ -0,0 +1,26 @@
+package lsp.wol.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 当前值（例如队列长度），多个实例共用时用 add 增减，汇总为总量
+ */
+public final class Gauge {
+
+    private final AtomicLong value = new AtomicLong();
+
+    Gauge() {
+    }
+
+    public void set(long newValue) {
+        value.set(newValue);
+    }
+
+    public void add(long delta) {
+        value.addAndGet(delta);
+    }
+
+    public long get() {
+        return value.get();
+    }
+}
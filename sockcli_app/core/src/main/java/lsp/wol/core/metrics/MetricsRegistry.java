@@ -0,0 +1,197 @@
+package lsp.wol.core.metrics;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指标注册表：按名称取得计数器、当前值与直方图
+ * 取得后的指标对象应缓存在字段中，热路径上只有原子操作，不查表、不加锁
+ */
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry SHARED = new MetricsRegistry();
+
+    private final Map<String, Object> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * 进程内共用的注册表，诊断页面与导出读取它
+     */
+    public static MetricsRegistry shared() {
+        return SHARED;
+    }
+
+    public Counter counter(String name) {
+        return get(name, Counter.class);
+    }
+
+    public Gauge gauge(String name) {
+        return get(name, Gauge.class);
+    }
+
+    public Histogram histogram(String name) {
+        return get(name, Histogram.class);
+    }
+
+    private <T> T get(String name, Class<T> type) {
+        Object metric = metrics.get(name);
+        if (metric == null) {
+            metric = metrics.computeIfAbsent(name, key -> create(type));
+        }
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException(name + " 已注册为 " + metric.getClass().getSimpleName());
+        }
+        return type.cast(metric);
+    }
+
+    private static Object create(Class<?> type) {
+        if (type == Counter.class) {
+            return new Counter();
+        }
+        if (type == Gauge.class) {
+            return new Gauge();
+        }
+        return new Histogram();
+    }
+
+    /**
+     * 所有指标当前值的快照，按名称排序
+     */
+    public Snapshot snapshot() {
+        Map<String, Long> counters = new TreeMap<>();
+        Map<String, Long> gauges = new TreeMap<>();
+        Map<String, Histogram.Snapshot> histograms = new TreeMap<>();
+        for (Map.Entry<String, Object> entry : metrics.entrySet()) {
+            Object metric = entry.getValue();
+            if (metric instanceof Counter) {
+                counters.put(entry.getKey(), ((Counter) metric).get());
+            } else if (metric instanceof Gauge) {
+                gauges.put(entry.getKey(), ((Gauge) metric).get());
+            } else {
+                histograms.put(entry.getKey(), ((Histogram) metric).snapshot());
+            }
+        }
+        return new Snapshot(System.currentTimeMillis(), counters, gauges, histograms);
+    }
+
+    /**
+     * 某一时刻的指标值
+     */
+    public static final class Snapshot {
+        private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+        private final long timestamp;
+        private final Map<String, Long> counters;
+        private final Map<String, Long> gauges;
+        private final Map<String, Histogram.Snapshot> histograms;
+
+        Snapshot(long timestamp, Map<String, Long> counters, Map<String, Long> gauges,
+                 Map<String, Histogram.Snapshot> histograms) {
+            this.timestamp = timestamp;
+            this.counters = Collections.unmodifiableMap(counters);
+            this.gauges = Collections.unmodifiableMap(gauges);
+            this.histograms = Collections.unmodifiableMap(histograms);
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public Map<String, Long> getCounters() {
+            return counters;
+        }
+
+        public Map<String, Long> getGauges() {
+            return gauges;
+        }
+
+        /**
+         * 直方图的值为纳秒
+         */
+        public Map<String, Histogram.Snapshot> getHistograms() {
+            return histograms;
+        }
+
+        /**
+         * 导出为 JSON，直方图单位为纳秒
+         */
+        public String toJson() {
+            StringWriter out = new StringWriter();
+            try (JsonWriter writer = new JsonWriter(out)) {
+                writer.setIndent("  ");
+                writer.beginObject();
+                writer.name("timestamp").value(timestamp);
+                writer.name("counters").beginObject();
+                for (Map.Entry<String, Long> entry : counters.entrySet()) {
+                    writer.name(entry.getKey()).value(entry.getValue());
+                }
+                writer.endObject();
+                writer.name("gauges").beginObject();
+                for (Map.Entry<String, Long> entry : gauges.entrySet()) {
+                    writer.name(entry.getKey()).value(entry.getValue());
+                }
+                writer.endObject();
+                writer.name("histograms").beginObject();
+                for (Map.Entry<String, Histogram.Snapshot> entry : histograms.entrySet()) {
+                    Histogram.Snapshot histogram = entry.getValue();
+                    writer.name(entry.getKey()).beginObject();
+                    writer.name("unit").value("ns");
+                    writer.name("count").value(histogram.getCount());
+                    writer.name("mean").value(Math.round(histogram.getMean()));
+                    writer.name("max").value(histogram.getMax());
+                    for (double percentile : PERCENTILES) {
+                        writer.name("p" + formatPercentile(percentile)).value(histogram.getValueAtPercentile(percentile));
+                    }
+                    writer.endObject();
+                }
+                writer.endObject();
+                writer.endObject();
+            } catch (IOException e) {
+                // StringWriter 不会抛出
+                throw new IllegalStateException(e);
+            }
+            return out.toString();
+        }
+
+        private static String formatPercentile(double percentile) {
+            // 99.9 -> 999
+            return percentile == Math.rint(percentile)
+                    ? String.valueOf((long) percentile)
+                    : String.valueOf(percentile).replace(".", "");
+        }
+
+        /**
+         * 便于阅读的多行文本，直方图显示为毫秒
+         */
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for (Map.Entry<String, Long> entry : counters.entrySet()) {
+                text.append(entry.getKey()).append(" = ").append(entry.getValue()).append('\n');
+            }
+            for (Map.Entry<String, Long> entry : gauges.entrySet()) {
+                text.append(entry.getKey()).append(" = ").append(entry.getValue()).append('\n');
+            }
+            for (Map.Entry<String, Histogram.Snapshot> entry : histograms.entrySet()) {
+                Histogram.Snapshot histogram = entry.getValue();
+                text.append(entry.getKey()).append(String.format(Locale.ROOT,
+                        " count=%d avg=%.3fms p50=%.3fms p99=%.3fms max=%.3fms",
+                        histogram.getCount(), toMs(histogram.getMean()),
+                        toMs(histogram.getValueAtPercentile(50)), toMs(histogram.getValueAtPercentile(99)),
+                        toMs(histogram.getMax()))).append('\n');
+            }
+            return text.toString();
+        }
+
+        private static double toMs(double nanos) {
+            return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
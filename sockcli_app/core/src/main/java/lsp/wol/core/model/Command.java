@@ -0,0 +1,74 @@
+package lsp.wol.core.model;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 协议命令
+ * code 为紧凑二进制编码中的命令字节，一经发布不能修改
+ */
+public enum Command {
+    UNKNOWN(0, null),
+    HEARTBEAT(1, "heartbeat"),
+    WOL(2, "wol"),
+    WOL_DEVICE_SIZE(3, "wol_rec_dev_size"),
+    WOL_RECEIPT(4, "wol_rec_dev_recp"),
+    NET_IP(5, "net_ip"),
+    // 分帧模式协商
+    FRAME(6, "frame"),
+    // 消息编码协商
+    CODEC(7, "codec");
+
+    private static final Command[] VALUES = values();
+
+    public final int code;
+    public final String wireName;
+    private final byte[] wireBytes;
+
+    Command(int code, String wireName) {
+        this.code = code;
+        this.wireName = wireName;
+        this.wireBytes = wireName == null ? null : wireName.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public static Command fromWireName(String name) {
+        if (name != null) {
+            for (Command command : VALUES) {
+                if (name.equals(command.wireName)) {
+                    return command;
+                }
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * 直接按字节匹配命令名，不创建字符串
+     */
+    public static Command fromWireBytes(byte[] array, int offset, int length) {
+        for (Command command : VALUES) {
+            byte[] bytes = command.wireBytes;
+            if (bytes != null && bytes.length == length && regionEquals(bytes, array, offset)) {
+                return command;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    public static Command fromCode(int code) {
+        for (Command command : VALUES) {
+            if (command.code == code) {
+                return command;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    private static boolean regionEquals(byte[] expected, byte[] array, int offset) {
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i] != array[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
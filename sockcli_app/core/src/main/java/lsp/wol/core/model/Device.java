@@ -0,0 +1,26 @@
+package lsp.wol.core.model;
+
+public class Device {
+    public String name;
+    public MacAddress macAddress;
+    // 分组 可为空
+    public String group;
+    // SecureOn 密码 格式同 MAC 可为空
+    public String secureOn;
+    // IP 或主机名 可为空，唤醒后检测是否开机；为空时按 MAC 查 ARP 表
+    public String host;
+
+    public Device() {
+    }
+
+    public Device(String name, MacAddress macAddress) {
+        this.name = name;
+        this.macAddress = macAddress;
+    }
+
+    public Device(String name, MacAddress macAddress, String group) {
+        this.name = name;
+        this.macAddress = macAddress;
+        this.group = group;
+    }
+}
@@ -0,0 +1,235 @@
+package lsp.wol.core.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * MAC 地址
+ * 低 48 位保存 6 个字节，比较与哈希只需一次 long 运算
+ * 不可变，可在多个线程间共享
+ * JSON 中仍以 "AA:BB:CC:DD:EE:FF" 文本表示，兼容旧版数据
+ */
+@JsonAdapter(MacAddress.GsonAdapter.class)
+public final class MacAddress {
+
+    public static final int LENGTH = 6;
+    public static final long MASK = 0xFFFF_FFFF_FFFFL;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final long value;
+    // 文本形式，第一次 toString 时生成
+    private String text;
+
+    private MacAddress(long value) {
+        this.value = value;
+    }
+
+    public static MacAddress of(long value) {
+        if ((value & ~MASK) != 0) {
+            throw new IllegalArgumentException("MAC address out of range: " + Long.toHexString(value));
+        }
+        return new MacAddress(value);
+    }
+
+    /**
+     * 解析 MAC 文本
+     * @throws IllegalArgumentException 格式不正确
+     */
+    public static MacAddress parse(CharSequence text) {
+        long value = parseLong(text);
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid MAC address: " + text);
+        }
+        return new MacAddress(value);
+    }
+
+    /**
+     * 解析 MAC 文本，格式不正确返回 null
+     */
+    public static MacAddress tryParse(CharSequence text) {
+        long value = parseLong(text);
+        return value < 0 ? null : new MacAddress(value);
+    }
+
+    /**
+     * 解析手工输入的 MAC 文本：忽略所有非十六进制字符（空格、点号、全角冒号等）
+     * 与先过滤再 tryParse 结果相同，但不生成中间字符串
+     * @return 十六进制字符不是正好 12 个时返回 null
+     */
+    public static MacAddress tryParseLenient(CharSequence text) {
+        long value = parseLenientLong(text);
+        return value < 0 ? null : new MacAddress(value);
+    }
+
+    /**
+     * 同 tryParseLenient
+     * @return 48 位数值，格式不正确返回 -1
+     */
+    public static long parseLenientLong(CharSequence text) {
+        if (text == null) {
+            return -1;
+        }
+        int nibbles = 0;
+        long value = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'a' && c <= 'f') {
+                digit = c - 'a' + 10;
+            } else if (c >= 'A' && c <= 'F') {
+                digit = c - 'A' + 10;
+            } else {
+                continue;
+            }
+            if (nibbles == 12) {
+                return -1;
+            }
+            value = (value << 4) | digit;
+            nibbles++;
+        }
+        return nibbles == 12 ? value : -1;
+    }
+
+    public static boolean isValid(CharSequence text) {
+        return parseLong(text) >= 0;
+    }
+
+    /**
+     * 解析 6 字节十六进制文本，支持 ':' '-' 分隔或不分隔，不使用正则
+     * 分隔符只能出现在两个十六进制字符之后
+     * @return 48 位数值，格式不正确返回 -1
+     */
+    public static long parseLong(CharSequence text) {
+        if (text == null) {
+            return -1;
+        }
+        int nibbles = 0;
+        long value = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'a' && c <= 'f') {
+                digit = c - 'a' + 10;
+            } else if (c >= 'A' && c <= 'F') {
+                digit = c - 'A' + 10;
+            } else if ((c == ':' || c == '-') && nibbles % 2 == 0 && nibbles > 0 && nibbles < 12) {
+                continue;
+            } else {
+                return -1;
+            }
+            if (nibbles == 12) {
+                return -1;
+            }
+            value = (value << 4) | digit;
+            nibbles++;
+        }
+        return nibbles == 12 ? value : -1;
+    }
+
+    /**
+     * 从 6 个字节读取
+     */
+    public static MacAddress fromBytes(byte[] in, int offset) {
+        long value = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            value = (value << 8) | (in[offset + i] & 0xff);
+        }
+        return new MacAddress(value);
+    }
+
+    /**
+     * 从缓冲区指定位置读取 6 个字节，不改变 position
+     */
+    public static MacAddress fromBuffer(ByteBuffer in, int offset) {
+        long value = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            value = (value << 8) | (in.get(offset + i) & 0xff);
+        }
+        return new MacAddress(value);
+    }
+
+    public long toLong() {
+        return value;
+    }
+
+    /**
+     * 写入 6 个字节
+     */
+    public void writeTo(byte[] out, int offset) {
+        for (int i = 0; i < LENGTH; i++) {
+            out[offset + i] = (byte) (value >>> (40 - i * 8));
+        }
+    }
+
+    public void writeTo(ByteBuffer out) {
+        for (int shift = 40; shift >= 0; shift -= 8) {
+            out.put((byte) (value >>> shift));
+        }
+    }
+
+    /**
+     * 格式 AA:BB:CC:DD:EE:FF
+     */
+    @Override
+    public String toString() {
+        String result = text;
+        if (result == null) {
+            char[] chars = new char[17];
+            for (int i = 0; i < LENGTH; i++) {
+                int b = (int) (value >>> (40 - i * 8)) & 0xff;
+                chars[i * 3] = HEX[b >>> 4];
+                chars[i * 3 + 1] = HEX[b & 0x0f];
+                if (i < LENGTH - 1) {
+                    chars[i * 3 + 2] = ':';
+                }
+            }
+            result = new String(chars);
+            text = result;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof MacAddress && ((MacAddress) o).value == value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(value);
+    }
+
+    /**
+     * 旧版 JSON 中 MAC 为文本，格式不正确的读为 null
+     */
+    static final class GsonAdapter extends TypeAdapter<MacAddress> {
+        @Override
+        public void write(JsonWriter out, MacAddress mac) throws IOException {
+            if (mac == null) {
+                out.nullValue();
+            } else {
+                out.value(mac.toString());
+            }
+        }
+
+        @Override
+        public MacAddress read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return tryParse(in.nextString());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package lsp.wol.core.model;
+
+public class TcpData {
+    public String cmd;
+    public String data;
+    public String host;
+    public String type = "app";
+    // 请求编号，服务器回复时可原样带回，旧版服务器不带
+    public String id;
+    // 入队时间 System.nanoTime()，不参与序列化
+    public transient long queuedAt;
+    // cmd 对应的命令，第一次使用时查找；cmd 被重新赋值后重新查找
+    private transient Command command;
+    private transient String commandOf;
+
+    public TcpData() {
+    }
+
+    public TcpData(Command command, String data) {
+        this.command = command;
+        this.cmd = command.wireName;
+        this.commandOf = cmd;
+        this.data = data;
+    }
+
+    public Command command() {
+        if (command == null || commandOf != cmd) {
+            command = Command.fromWireName(cmd);
+            commandOf = cmd;
+        }
+        return command;
+    }
+
+    /**
+     * 解码时使用，cmd 为已知命令时不再单独保存字符串
+     */
+    public void setCommand(Command command, String cmd) {
+        this.command = command;
+        this.cmd = command == Command.UNKNOWN ? cmd : command.wireName;
+        this.commandOf = this.cmd;
+    }
+}
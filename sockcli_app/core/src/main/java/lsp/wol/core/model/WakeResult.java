@@ -0,0 +1,22 @@
+package lsp.wol.core.model;
+
+/**
+ * 单台设备的局域网唤醒结果
+ */
+public class WakeResult {
+    public final Device device;
+    // 成功发出的魔术包数量
+    public int packetsSent;
+    // 发送失败次数
+    public int failures;
+    // 最后一次错误（MAC 不合法时不会发送任何包）
+    public Exception error;
+
+    public WakeResult(Device device) {
+        this.device = device;
+    }
+
+    public boolean isSuccess() {
+        return packetsSent > 0;
+    }
+}
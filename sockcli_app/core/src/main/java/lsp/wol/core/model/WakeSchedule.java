@@ -0,0 +1,47 @@
+package lsp.wol.core.model;
+
+/**
+ * 定时唤醒
+ * 目标为单台设备（macAddress）或一个分组（group），二选一；
+ * cron 不为空时按 cron 周期执行，否则在 at 执行一次，执行后自动停用
+ */
+public class WakeSchedule {
+    public long id;
+    public MacAddress macAddress;
+    public String group;
+    // 5 段 cron：分 时 日 月 周，例如 "30 7 * * 1-5"
+    public String cron;
+    // 一次性执行时间 毫秒时间戳
+    public long at;
+    public boolean enabled = true;
+    // 上次执行时间 毫秒时间戳，没有执行过为 0
+    public long lastRunAt;
+
+    public WakeSchedule() {
+    }
+
+    public static WakeSchedule cron(MacAddress macAddress, String group, String cron) {
+        WakeSchedule schedule = new WakeSchedule();
+        schedule.macAddress = macAddress;
+        schedule.group = group;
+        schedule.cron = cron;
+        return schedule;
+    }
+
+    public static WakeSchedule once(MacAddress macAddress, String group, long at) {
+        WakeSchedule schedule = new WakeSchedule();
+        schedule.macAddress = macAddress;
+        schedule.group = group;
+        schedule.at = at;
+        return schedule;
+    }
+
+    public boolean isRecurring() {
+        return cron != null && !cron.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return (isRecurring() ? cron : "@" + at) + " -> " + (macAddress != null ? macAddress : "group:" + group);
+    }
+}
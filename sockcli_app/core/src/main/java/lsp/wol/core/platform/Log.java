@@ -0,0 +1,214 @@
+package lsp.wol.core.platform;
+
+/**
+ * core 模块统一的日志入口，平台启动时通过 setLogger 替换输出
+ * 消息模板中的 {} 依次替换为参数，只在需要输出时才格式化；级别低于阈值时只有一次 volatile 读取
+ * 输出与环形缓冲区各有级别，缓冲区保存最近的事件，出问题时 dump 查看
+ */
+public final class Log {
+
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int ERROR = 6;
+    public static final int OFF = 8;
+
+    /**
+     * 编译期级别，低于它的调用在编译时被删除（改为 INFO 可去掉全部 d 调用）
+     */
+    public static final int COMPILE_LEVEL = DEBUG;
+
+    private static final LogRing RING = new LogRing(512);
+
+    private static volatile Logger logger = Logger.STDERR;
+    private static volatile int level = INFO;
+    private static volatile int ringLevel = INFO;
+    // min(level, ringLevel)，热路径只读这一个值
+    private static volatile int threshold = INFO;
+
+    private Log() {
+    }
+
+    public static void setLogger(Logger newLogger) {
+        logger = newLogger == null ? Logger.NONE : newLogger;
+    }
+
+    /**
+     * 输出到 Logger 的最低级别
+     */
+    public static void setLevel(int newLevel) {
+        level = newLevel;
+        threshold = Math.min(level, ringLevel);
+    }
+
+    public static int getLevel() {
+        return level;
+    }
+
+    /**
+     * 记录到环形缓冲区的最低级别
+     */
+    public static void setRingLevel(int newLevel) {
+        ringLevel = newLevel;
+        threshold = Math.min(level, ringLevel);
+    }
+
+    public static int getRingLevel() {
+        return ringLevel;
+    }
+
+    /**
+     * 该级别的日志是否会输出或记录，拼接开销较大的参数前可先判断
+     */
+    public static boolean isLoggable(int logLevel) {
+        return logLevel >= COMPILE_LEVEL && logLevel >= threshold;
+    }
+
+    /**
+     * 最近日志事件
+     */
+    public static LogRing ring() {
+        return RING;
+    }
+
+    public static void d(String message) {
+        if (COMPILE_LEVEL <= DEBUG && threshold <= DEBUG) {
+            log(DEBUG, message, null, 0, 0, null, null, null, null, 0, 0);
+        }
+    }
+
+    public static void d(String template, Object a) {
+        if (COMPILE_LEVEL <= DEBUG && threshold <= DEBUG) {
+            log(DEBUG, template, null, 1, 0, a, null, null, null, 0, 0);
+        }
+    }
+
+    public static void d(String template, Object a, Object b) {
+        if (COMPILE_LEVEL <= DEBUG && threshold <= DEBUG) {
+            log(DEBUG, template, null, 2, 0, a, b, null, null, 0, 0);
+        }
+    }
+
+    public static void d(String template, Object a, Object b, Object c) {
+        if (COMPILE_LEVEL <= DEBUG && threshold <= DEBUG) {
+            log(DEBUG, template, null, 3, 0, a, b, c, null, 0, 0);
+        }
+    }
+
+    public static void d(String template, long a) {
+        if (COMPILE_LEVEL <= DEBUG && threshold <= DEBUG) {
+            log(DEBUG, template, null, 1, 0b1, null, null, null, null, a, 0);
+        }
+    }
+
+    public static void d(String template, Object a, long b) {
+        if (COMPILE_LEVEL <= DEBUG && threshold <= DEBUG) {
+            log(DEBUG, template, null, 2, 0b10, a, null, null, null, 0, b);
+        }
+    }
+
+    public static void i(String message) {
+        if (COMPILE_LEVEL <= INFO && threshold <= INFO) {
+            log(INFO, message, null, 0, 0, null, null, null, null, 0, 0);
+        }
+    }
+
+    public static void i(String template, Object a) {
+        if (COMPILE_LEVEL <= INFO && threshold <= INFO) {
+            log(INFO, template, null, 1, 0, a, null, null, null, 0, 0);
+        }
+    }
+
+    public static void i(String template, Object a, Object b) {
+        if (COMPILE_LEVEL <= INFO && threshold <= INFO) {
+            log(INFO, template, null, 2, 0, a, b, null, null, 0, 0);
+        }
+    }
+
+    public static void i(String template, Object a, Object b, Object c) {
+        if (COMPILE_LEVEL <= INFO && threshold <= INFO) {
+            log(INFO, template, null, 3, 0, a, b, c, null, 0, 0);
+        }
+    }
+
+    public static void i(String template, Object a, Object b, Object c, Object d) {
+        if (COMPILE_LEVEL <= INFO && threshold <= INFO) {
+            log(INFO, template, null, 4, 0, a, b, c, d, 0, 0);
+        }
+    }
+
+    public static void i(String template, long a) {
+        if (COMPILE_LEVEL <= INFO && threshold <= INFO) {
+            log(INFO, template, null, 1, 0b1, null, null, null, null, a, 0);
+        }
+    }
+
+    public static void i(String template, Object a, long b) {
+        if (COMPILE_LEVEL <= INFO && threshold <= INFO) {
+            log(INFO, template, null, 2, 0b10, a, null, null, null, 0, b);
+        }
+    }
+
+    public static void e(String message, Throwable throwable) {
+        if (threshold <= ERROR) {
+            log(ERROR, message, throwable, 0, 0, null, null, null, null, 0, 0);
+        }
+    }
+
+    private static void log(int logLevel, String template, Throwable throwable, int argCount, int longMask,
+                            Object a, Object b, Object c, Object d, long x, long y) {
+        if (logLevel >= ringLevel) {
+            RING.record(logLevel, template, throwable, argCount, longMask, a, b, c, d, x, y);
+        }
+        if (logLevel < level) {
+            return;
+        }
+        String message = template;
+        if (argCount > 0) {
+            Object[] args = {a, b, c, d};
+            if ((longMask & 0b1) != 0) {
+                args[0] = x;
+            }
+            if ((longMask & 0b10) != 0) {
+                args[1] = y;
+            }
+            message = format(new StringBuilder(template.length() + 32), template, args, argCount).toString();
+        }
+        Logger current = logger;
+        if (logLevel >= ERROR) {
+            current.e(message, throwable);
+        } else if (logLevel >= INFO) {
+            current.i(message);
+        } else {
+            current.d(message);
+        }
+    }
+
+    /**
+     * 依次用参数替换模板中的 {}，多余的 {} 原样保留
+     */
+    static StringBuilder format(StringBuilder out, String template, Object[] args, int argCount) {
+        int from = 0;
+        for (int i = 0; i < argCount; i++) {
+            int at = template.indexOf("{}", from);
+            if (at < 0) {
+                break;
+            }
+            out.append(template, from, at).append(args[i]);
+            from = at + 2;
+        }
+        return out.append(template, from, template.length());
+    }
+
+    static String levelName(int logLevel) {
+        switch (logLevel) {
+            case DEBUG:
+                return "D";
+            case INFO:
+                return "I";
+            case ERROR:
+                return "E";
+            default:
+                return String.valueOf(logLevel);
+        }
+    }
+}
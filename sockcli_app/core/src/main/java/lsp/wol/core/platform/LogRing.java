@@ -0,0 +1,142 @@
+package lsp.wol.core.platform;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 最近日志事件的环形缓冲区：只保存模板与参数的引用，格式化推迟到 dump 时
+ * 写入不加锁、不分配内存（long 参数不装箱），写满后覆盖最旧的事件；dump 跳过正在被覆盖的槽位
+ */
+public final class LogRing {
+
+    static final int MAX_ARGS = 4;
+
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong();
+    // 每个槽位写完后发布的序号，写入过程中为 -1
+    private final AtomicLongArray published;
+    private final long[] times;
+    private final int[] levels;
+    private final String[] templates;
+    private final Object[] refs;
+    private final long[] numbers;
+    // 第 i 位为 1 表示第 i 个参数是 long，存放在 numbers 中
+    private final int[] longMasks;
+    private final int[] argCounts;
+    private final Throwable[] throwables;
+
+    /**
+     * @param capacity 保存的事件数，向上取到 2 的幂
+     */
+    public LogRing(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity " + capacity);
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        mask = size - 1;
+        published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        times = new long[size];
+        levels = new int[size];
+        templates = new String[size];
+        refs = new Object[size * MAX_ARGS];
+        numbers = new long[size * MAX_ARGS];
+        longMasks = new int[size];
+        argCounts = new int[size];
+        throwables = new Throwable[size];
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    void record(int level, String template, Throwable throwable, int argCount, int longMask,
+                Object a, Object b, Object c, Object d, long x, long y) {
+        long seq = cursor.getAndIncrement();
+        int slot = (int) (seq & mask);
+        published.set(slot, -1);
+        times[slot] = System.currentTimeMillis();
+        levels[slot] = level;
+        templates[slot] = template;
+        throwables[slot] = throwable;
+        argCounts[slot] = argCount;
+        longMasks[slot] = longMask;
+        int base = slot * MAX_ARGS;
+        refs[base] = a;
+        refs[base + 1] = b;
+        refs[base + 2] = c;
+        refs[base + 3] = d;
+        // long 参数只会出现在前两个位置
+        numbers[base] = x;
+        numbers[base + 1] = y;
+        // 发布：之前的写入对读取方可见
+        published.lazySet(slot, seq);
+    }
+
+    /**
+     * 已记录的事件总数（含被覆盖的）
+     */
+    public long getRecorded() {
+        return cursor.get();
+    }
+
+    /**
+     * 格式化当前保存的事件，从旧到新，每行 “时间 级别 消息”
+     */
+    public List<String> dump() {
+        long end = cursor.get();
+        long start = Math.max(0, end - capacity());
+        List<String> lines = new ArrayList<>((int) (end - start));
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS", Locale.ROOT);
+        Object[] args = new Object[MAX_ARGS];
+        for (long seq = start; seq < end; seq++) {
+            int slot = (int) (seq & mask);
+            if (published.get(slot) != seq) {
+                continue;
+            }
+            long time = times[slot];
+            int level = levels[slot];
+            String template = templates[slot];
+            Throwable throwable = throwables[slot];
+            int argCount = argCounts[slot];
+            int longMask = longMasks[slot];
+            int base = slot * MAX_ARGS;
+            for (int i = 0; i < argCount; i++) {
+                args[i] = (longMask & (1 << i)) != 0 ? (Object) numbers[base + i] : refs[base + i];
+            }
+            // 读取期间被覆盖则丢弃
+            if (published.get(slot) != seq) {
+                continue;
+            }
+            StringBuilder line = new StringBuilder();
+            line.append(timeFormat.format(new Date(time))).append(' ').append(Log.levelName(level)).append(' ');
+            Log.format(line, template, args, argCount);
+            if (throwable != null) {
+                line.append(": ").append(throwable);
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * 清空（测试与重新开始记录时使用）
+     */
+    public void clear() {
+        cursor.set(0);
+        for (int i = 0; i <= mask; i++) {
+            published.set(i, -1);
+            templates[i] = null;
+            throwables[i] = null;
+        }
+        Arrays.fill(refs, null);
+    }
+}
@@ -0,0 +1,46 @@
+package lsp.wol.core.platform;
+
+/**
+ * 日志输出，由运行平台提供（Android 使用 android.util.Log，命令行输出到标准错误）
+ */
+public interface Logger {
+
+    /**
+     * 调试信息，默认与 i 相同
+     */
+    default void d(String message) {
+        i(message);
+    }
+
+    void i(String message);
+
+    void e(String message, Throwable throwable);
+
+    /**
+     * 输出到标准错误
+     */
+    Logger STDERR = new Logger() {
+        @Override
+        public void i(String message) {
+            System.err.println(message);
+        }
+
+        @Override
+        public void e(String message, Throwable throwable) {
+            System.err.println(message + ": " + throwable);
+        }
+    };
+
+    /**
+     * 不输出
+     */
+    Logger NONE = new Logger() {
+        @Override
+        public void i(String message) {
+        }
+
+        @Override
+        public void e(String message, Throwable throwable) {
+        }
+    };
+}
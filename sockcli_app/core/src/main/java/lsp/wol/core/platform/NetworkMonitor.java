@@ -0,0 +1,32 @@
+package lsp.wol.core.platform;
+
+/**
+ * 网络状态，由运行平台提供
+ */
+public interface NetworkMonitor {
+
+    /**
+     * 是否有可用网络，无网络时不尝试连接
+     */
+    boolean isNetworkAvailable();
+
+    /**
+     * 当前网络的标识，网络切换后不同；无法区分时返回 null
+     */
+    Object activeNetwork();
+
+    /**
+     * 总是可用（命令行、测试）
+     */
+    NetworkMonitor ALWAYS = new NetworkMonitor() {
+        @Override
+        public boolean isNetworkAvailable() {
+            return true;
+        }
+
+        @Override
+        public Object activeNetwork() {
+            return null;
+        }
+    };
+}
@@ -0,0 +1,170 @@
+package lsp.wol.core.utils;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import lsp.wol.core.model.MacAddress;
+
+/**
+ * 系统 ARP 表（/proc/net/arp，读不到时用 ip neigh）的快照：MAC 与 IPv4 地址互查
+ * 只保留已完成解析的条目；较新的 Android 不允许普通应用读取，读取失败时为空表
+ */
+public final class ArpTable {
+
+    static final String PROC_ARP = "/proc/net/arp";
+    // ATF_COM：已解析出硬件地址
+    private static final int FLAG_COMPLETE = 0x2;
+
+    /**
+     * 数据来源，测试时可替换
+     */
+    public interface Source {
+        Reader open() throws IOException;
+    }
+
+    private static final ArpTable EMPTY = new ArpTable(new LongObjectMap<>(), new HashMap<>());
+
+    private final LongObjectMap<InetAddress> byMac;
+    private final Map<InetAddress, MacAddress> byAddress;
+
+    private ArpTable(LongObjectMap<InetAddress> byMac, Map<InetAddress, MacAddress> byAddress) {
+        this.byMac = byMac;
+        this.byAddress = byAddress;
+    }
+
+    /**
+     * 读取系统 ARP 表
+     */
+    public static ArpTable read() {
+        try (Reader reader = new FileReader(PROC_ARP)) {
+            return parse(reader);
+        } catch (IOException e) {
+            return readNeighbors();
+        }
+    }
+
+    // ip neigh show 的输出
+    private static ArpTable readNeighbors() {
+        Process process = null;
+        try {
+            process = new ProcessBuilder("ip", "-4", "neigh", "show").redirectErrorStream(true).start();
+            try (Reader reader = new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)) {
+                return parseNeighbors(reader);
+            }
+        } catch (IOException e) {
+            return EMPTY;
+        } finally {
+            if (process != null) {
+                process.destroy();
+            }
+        }
+    }
+
+    public static ArpTable read(Source source) {
+        try (Reader reader = source.open()) {
+            return parse(reader);
+        } catch (IOException e) {
+            return EMPTY;
+        }
+    }
+
+    /**
+     * 解析 /proc/net/arp 格式：标题行 + 每行 “IP 硬件类型 标志 MAC 掩码 网卡”
+     */
+    static ArpTable parse(Reader reader) throws IOException {
+        LongObjectMap<InetAddress> byMac = new LongObjectMap<>();
+        Map<InetAddress, MacAddress> byAddress = new HashMap<>();
+        BufferedReader lines = new BufferedReader(reader);
+        // 标题行
+        String line = lines.readLine();
+        while ((line = lines.readLine()) != null) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length < 4) {
+                continue;
+            }
+            int flags;
+            try {
+                flags = Integer.decode(parts[2]);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            long mac = MacAddress.parseLong(parts[3]);
+            if ((flags & FLAG_COMPLETE) == 0 || mac <= 0 || !DnsCache.isLiteral(parts[0])) {
+                continue;
+            }
+            InetAddress address;
+            try {
+                // IP 字面量不会触发 DNS 查询
+                address = InetAddress.getByName(parts[0]);
+            } catch (UnknownHostException e) {
+                continue;
+            }
+            byMac.put(mac, address);
+            byAddress.put(address, MacAddress.of(mac));
+        }
+        return new ArpTable(byMac, byAddress);
+    }
+
+    /**
+     * 解析 ip neigh 格式：“IP dev 网卡 lladdr MAC 状态”，没有 lladdr 的（INCOMPLETE、FAILED）跳过
+     */
+    static ArpTable parseNeighbors(Reader reader) throws IOException {
+        LongObjectMap<InetAddress> byMac = new LongObjectMap<>();
+        Map<InetAddress, MacAddress> byAddress = new HashMap<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            String[] parts = line.trim().split("\\s+");
+            long mac = -1;
+            for (int i = 1; i + 1 < parts.length; i++) {
+                if (parts[i].equals("lladdr")) {
+                    mac = MacAddress.parseLong(parts[i + 1]);
+                }
+            }
+            if (mac <= 0 || !DnsCache.isLiteral(parts[0])) {
+                continue;
+            }
+            InetAddress address = InetAddress.getByName(parts[0]);
+            if (address instanceof Inet4Address) {
+                byMac.put(mac, address);
+                byAddress.put(address, MacAddress.of(mac));
+            }
+        }
+        return new ArpTable(byMac, byAddress);
+    }
+
+    /**
+     * 全部条目 地址 -> MAC
+     */
+    public Map<InetAddress, MacAddress> asMap() {
+        return Collections.unmodifiableMap(byAddress);
+    }
+
+    /**
+     * MAC 对应的 IPv4 地址，没有返回 null
+     */
+    public InetAddress lookup(MacAddress macAddress) {
+        return byMac.get(macAddress.toLong());
+    }
+
+    /**
+     * 地址对应的 MAC，没有返回 null
+     */
+    public MacAddress lookup(InetAddress address) {
+        return byAddress.get(address);
+    }
+
+    public int size() {
+        return byMac.size();
+    }
+}
@@ -0,0 +1,58 @@
+package lsp.wol.core.utils;
+
+import java.util.Random;
+
+/**
+ * 带抖动的指数退避
+ * 第 n 次连续失败后等待 initial * 2^(n-1)（不超过 max），其中一半固定、一半随机，
+ * 避免大量客户端在服务器重启后同时重连
+ */
+public class Backoff {
+
+    private final long initialMs;
+    private final long maxMs;
+    private final Random random;
+
+    public Backoff(long initialMs, long maxMs) {
+        this(initialMs, maxMs, new Random());
+    }
+
+    Backoff(long initialMs, long maxMs, Random random) {
+        if (initialMs <= 0 || maxMs < initialMs) {
+            throw new IllegalArgumentException("initialMs=" + initialMs + " maxMs=" + maxMs);
+        }
+        this.initialMs = initialMs;
+        this.maxMs = maxMs;
+        this.random = random;
+    }
+
+    /**
+     * 不加抖动的等待上限
+     * @param failures 连续失败次数，从1开始
+     */
+    public long ceilingMs(int failures) {
+        if (failures <= 0) {
+            return 0;
+        }
+        // 达到 maxMs 后不再翻倍，避免溢出
+        long delay = initialMs;
+        for (int i = 1; i < failures && delay < maxMs; i++) {
+            delay <<= 1;
+        }
+        return Math.min(delay, maxMs);
+    }
+
+    /**
+     * 第 failures 次连续失败后的等待时间 毫秒，在 [ceiling/2, ceiling] 之间
+     */
+    public long delayMs(int failures) {
+        long ceiling = ceilingMs(failures);
+        if (ceiling == 0) {
+            return 0;
+        }
+        long half = ceiling / 2;
+        synchronized (random) {
+            return half + (long) (random.nextDouble() * (ceiling - half + 1));
+        }
+    }
+}
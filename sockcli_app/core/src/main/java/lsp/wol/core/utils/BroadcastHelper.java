@@ -0,0 +1,218 @@
+package lsp.wol.core.utils;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * 广播地址解析
+ * 缓存所有可用网卡的 IPv4 子网，网络变化（invalidate）或超过有效期后才重新读取网卡
+ */
+public class BroadcastHelper {
+
+    // wlan/eth/tun 为 Android 网卡命名，en/wl 为 Linux 可预测命名
+    private static final List<String> INTERFACE_LIST = List.of("wlan", "eth", "tun", "en", "wl");
+    private static final long DEFAULT_TTL_MS = 60 * 1000L;
+
+    private static final BroadcastHelper SHARED = new BroadcastHelper();
+
+    /**
+     * 网卡上的一个 IPv4 子网
+     */
+    public static final class Subnet {
+        public final String interfaceName;
+        public final InetAddress address;
+        public final InetAddress broadcast;
+        public final int prefixLength;
+
+        public Subnet(String interfaceName, InetAddress address, InetAddress broadcast, int prefixLength) {
+            this.interfaceName = interfaceName;
+            this.address = address;
+            this.broadcast = broadcast;
+            this.prefixLength = prefixLength;
+        }
+
+        /**
+         * 地址是否在这个子网内
+         */
+        public boolean contains(InetAddress other) {
+            byte[] a = address.getAddress();
+            byte[] b = other.getAddress();
+            if (a.length != b.length || prefixLength <= 0) {
+                return false;
+            }
+            for (int bit = 0; bit < prefixLength && bit < a.length * 8; bit++) {
+                int mask = 0x80 >>> (bit % 8);
+                if ((a[bit / 8] & mask) != (b[bit / 8] & mask)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return interfaceName + " " + address.getHostAddress() + "/" + prefixLength
+                    + " -> " + broadcast.getHostAddress();
+        }
+    }
+
+    /**
+     * 网卡数据来源，测试时可替换
+     */
+    public interface InterfaceSource {
+        List<Subnet> getSubnets() throws SocketException;
+    }
+
+    // 缓存快照，整体替换，读取无需加锁
+    private static final class Snapshot {
+        final long loadedAt;
+        final List<Subnet> subnets;
+        final List<InetAddress> broadcasts;
+
+        Snapshot(long loadedAt, List<Subnet> subnets, List<InetAddress> broadcasts) {
+            this.loadedAt = loadedAt;
+            this.subnets = subnets;
+            this.broadcasts = broadcasts;
+        }
+    }
+
+    private final InterfaceSource source;
+    private final LongSupplier clock;
+    private final long ttlMs;
+    private volatile Snapshot snapshot;
+
+    public BroadcastHelper() {
+        this(BroadcastHelper::readNetworkInterfaces, System::currentTimeMillis, DEFAULT_TTL_MS);
+    }
+
+    public BroadcastHelper(InterfaceSource source, LongSupplier clock, long ttlMs) {
+        this.source = source;
+        this.clock = clock;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * 全局共享实例，网络变化时调用 invalidate
+     */
+    public static BroadcastHelper shared() {
+        return SHARED;
+    }
+
+    private static boolean isAllowedInterfaceName(String name) {
+        for (String prefix : INTERFACE_LIST) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Subnet> readNetworkInterfaces() throws SocketException {
+        List<Subnet> subnets = new ArrayList<>();
+        Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+        if (interfaces == null) {
+            return subnets;
+        }
+        for (NetworkInterface networkInterface : Collections.list(interfaces)) {
+            if (!networkInterface.isUp() || networkInterface.isLoopback()) {
+                continue;
+            }
+            for (InterfaceAddress interfaceAddress : networkInterface.getInterfaceAddresses()) {
+                InetAddress broadcast = interfaceAddress.getBroadcast();
+                if (broadcast != null) {
+                    subnets.add(new Subnet(networkInterface.getName(), interfaceAddress.getAddress(),
+                            broadcast, interfaceAddress.getNetworkPrefixLength()));
+                }
+            }
+        }
+        return subnets;
+    }
+
+    /**
+     * 网络变化时调用，下次读取时重新获取网卡信息
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    /**
+     * 所有可用的 IPv4 子网
+     */
+    public List<Subnet> getSubnets() {
+        return load().subnets;
+    }
+
+    /**
+     * 地址是否在本机某个可用子网内（局域网广播和直接检测能到达）
+     */
+    public boolean isLocal(InetAddress address) {
+        for (Subnet subnet : getSubnets()) {
+            if (subnet.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 所有可用子网的广播地址（去重）
+     */
+    public List<InetAddress> getBroadcastAddresses() {
+        return load().broadcasts;
+    }
+
+    /**
+     * 第一个可用的广播地址
+     */
+    public final Optional<InetAddress> getBroadcastAddress() {
+        List<InetAddress> broadcasts = getBroadcastAddresses();
+        return broadcasts.isEmpty() ? Optional.empty() : Optional.of(broadcasts.get(0));
+    }
+
+    private Snapshot load() {
+        Snapshot current = snapshot;
+        long now = clock.getAsLong();
+        if (current != null && now - current.loadedAt < ttlMs) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current != null && now - current.loadedAt < ttlMs) {
+                return current;
+            }
+            current = refresh(now);
+            snapshot = current;
+            return current;
+        }
+    }
+
+    private Snapshot refresh(long now) {
+        List<Subnet> subnets = new ArrayList<>();
+        List<InetAddress> broadcasts = new ArrayList<>();
+        try {
+            for (Subnet subnet : source.getSubnets()) {
+                if (!isAllowedInterfaceName(subnet.interfaceName)
+                        || !(subnet.broadcast instanceof Inet4Address)) {
+                    continue;
+                }
+                subnets.add(subnet);
+                if (!broadcasts.contains(subnet.broadcast)) {
+                    broadcasts.add(subnet.broadcast);
+                }
+            }
+        } catch (SocketException e) {
+            // 读取失败时返回空列表，有效期内不再重试
+        }
+        return new Snapshot(now, Collections.unmodifiableList(subnets), Collections.unmodifiableList(broadcasts));
+    }
+
+}
@@ -0,0 +1,181 @@
+package lsp.wol.core.utils;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 5 段 cron 表达式：分(0-59) 时(0-23) 日(1-31) 月(1-12) 周(0-7，0 和 7 都是周日)
+ * 每段支持 *、数字、范围 a-b、步长 * /n 或 a-b/n、逗号列表；另支持 @hourly @daily @weekly @monthly @yearly
+ * 日与周都不是 * 时两者满足其一即可（与 crontab 相同）；每段解析成位图，匹配只需位运算
+ */
+public final class CronExpression {
+
+    // 最多向后查找的年数，2 月 30 日这类永远不会匹配的表达式返回空
+    private static final int MAX_YEARS = 5;
+
+    private final String expression;
+    private final long minutes;
+    private final long hours;
+    private final long daysOfMonth;
+    private final long months;
+    private final long daysOfWeek;
+    private final boolean anyDayOfMonth;
+    private final boolean anyDayOfWeek;
+
+    private CronExpression(String expression, String[] fields) {
+        this.expression = expression;
+        this.minutes = parseField(fields[0], 0, 59);
+        this.hours = parseField(fields[1], 0, 23);
+        this.daysOfMonth = parseField(fields[2], 1, 31);
+        this.months = parseField(fields[3], 1, 12);
+        long dow = parseField(fields[4], 0, 7);
+        // 7 与 0 都表示周日
+        this.daysOfWeek = (dow & (1L << 7)) != 0 ? (dow | 1) & ~(1L << 7) : dow;
+        this.anyDayOfMonth = fields[2].startsWith("*");
+        this.anyDayOfWeek = fields[4].startsWith("*");
+    }
+
+    /**
+     * @throws IllegalArgumentException 格式不正确
+     */
+    public static CronExpression parse(String expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("cron 表达式为空");
+        }
+        String trimmed = expression.trim();
+        String[] fields = expand(trimmed).split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("cron 表达式应为 5 段：分 时 日 月 周 " + expression);
+        }
+        return new CronExpression(trimmed, fields);
+    }
+
+    private static String expand(String expression) {
+        switch (expression) {
+            case "@hourly":
+                return "0 * * * *";
+            case "@daily":
+                return "0 0 * * *";
+            case "@weekly":
+                return "0 0 * * 0";
+            case "@monthly":
+                return "0 0 1 * *";
+            case "@yearly":
+                return "0 0 1 1 *";
+            default:
+                return expression;
+        }
+    }
+
+    private static long parseField(String field, int min, int max) {
+        long bits = 0;
+        for (String part : field.split(",")) {
+            int step = 1;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = parseNumber(part.substring(slash + 1), 1, max, part);
+                part = part.substring(0, slash);
+            }
+            int from;
+            int to;
+            if (part.equals("*")) {
+                from = min;
+                to = max;
+            } else {
+                int dash = part.indexOf('-');
+                if (dash > 0) {
+                    from = parseNumber(part.substring(0, dash), min, max, part);
+                    to = parseNumber(part.substring(dash + 1), min, max, part);
+                } else {
+                    from = parseNumber(part, min, max, part);
+                    // 5/15 表示从 5 开始每 15 个
+                    to = slash >= 0 ? max : from;
+                }
+                if (from > to) {
+                    throw new IllegalArgumentException("cron 范围不正确 " + part);
+                }
+            }
+            for (int i = from; i <= to; i += step) {
+                bits |= 1L << i;
+            }
+        }
+        return bits;
+    }
+
+    private static int parseNumber(String text, int min, int max, String part) {
+        int value;
+        try {
+            value = Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("cron 字段不正确 " + part);
+        }
+        if (value < min || value > max) {
+            throw new IllegalArgumentException("cron 取值超出范围 " + part);
+        }
+        return value;
+    }
+
+    private boolean dayMatches(ZonedDateTime time) {
+        boolean dom = (daysOfMonth & (1L << time.getDayOfMonth())) != 0;
+        boolean dow = (daysOfWeek & (1L << (time.getDayOfWeek().getValue() % 7))) != 0;
+        if (anyDayOfMonth || anyDayOfWeek) {
+            return dom && dow;
+        }
+        return dom || dow;
+    }
+
+    // bits 中不小于 from 的最小位，没有返回 -1
+    private static int nextBit(long bits, int from) {
+        long rest = bits >>> from;
+        return rest == 0 ? -1 : from + Long.numberOfTrailingZeros(rest);
+    }
+
+    /**
+     * after 之后（不含）第一个匹配的时间，精确到分钟；找不到返回 null
+     */
+    public ZonedDateTime next(ZonedDateTime after) {
+        ZonedDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        ZonedDateTime limit = time.plusYears(MAX_YEARS);
+        while (time.isBefore(limit)) {
+            if ((months & (1L << time.getMonthValue())) == 0) {
+                time = time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1).plusMonths(1);
+                continue;
+            }
+            if (!dayMatches(time)) {
+                time = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+                continue;
+            }
+            int hour = nextBit(hours, time.getHour());
+            if (hour < 0) {
+                time = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+                continue;
+            }
+            if (hour != time.getHour()) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(hour - time.getHour());
+                continue;
+            }
+            int minute = nextBit(minutes, time.getMinute());
+            if (minute < 0) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+                continue;
+            }
+            return time.plusMinutes(minute - time.getMinute());
+        }
+        return null;
+    }
+
+    /**
+     * afterMs 之后第一个匹配的毫秒时间戳，找不到返回 -1
+     */
+    public long next(long afterMs, ZoneId zone) {
+        ZonedDateTime next = next(Instant.ofEpochMilli(afterMs).atZone(zone));
+        return next == null ? -1 : next.toInstant().toEpochMilli();
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -0,0 +1,193 @@
+package lsp.wol.core.utils;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import lsp.wol.core.model.Device;
+import lsp.wol.core.model.MacAddress;
+
+/**
+ * 设备记录的二进制格式（版本 1）
+ *
+ * 快照文件头：
+ *   int   魔数 "WOLD"
+ *   byte  版本
+ *   byte  保留
+ *   int   记录数
+ *
+ * 记录：
+ *   u16   记录体长度（不含这 2 字节），读取时按长度跳过不认识的字段
+ *   6B    MAC
+ *   u16   名称长度 + UTF-8 名称
+ *   扩展字段若干：u8 标签 + u16 长度 + 内容
+ *     1 分组 UTF-8
+ *     2 SecureOn 密码 6 字节
+ *     3 地址（IP 或主机名）UTF-8
+ */
+final class DeviceBinaryFormat {
+
+    static final int MAGIC = 0x574F4C44; // "WOLD"
+    static final byte VERSION = 1;
+    static final int HEADER_LENGTH = 4 + 1 + 1 + 4;
+
+    static final int TAG_GROUP = 1;
+    static final int TAG_SECURE_ON = 2;
+    static final int TAG_HOST = 3;
+
+    private DeviceBinaryFormat() {
+    }
+
+    static void writeHeader(ByteBuffer out, int count) {
+        out.putInt(MAGIC);
+        out.put(VERSION);
+        out.put((byte) 0);
+        out.putInt(count);
+    }
+
+    /**
+     * 校验文件头
+     * @return 记录数
+     */
+    static int readHeader(ByteBuffer in) throws IOException {
+        if (in.remaining() < HEADER_LENGTH || in.getInt() != MAGIC) {
+            throw new IOException("not a device file");
+        }
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IOException("unsupported device file version " + version);
+        }
+        in.get();
+        return in.getInt();
+    }
+
+    /**
+     * 编码一条记录（含长度前缀）
+     * @throws IllegalArgumentException 密码格式不正确
+     */
+    static byte[] encodeRecord(Device device) {
+        byte[] name = device.name == null ? new byte[0] : device.name.getBytes(StandardCharsets.UTF_8);
+        byte[] group = device.group == null ? null : device.group.getBytes(StandardCharsets.UTF_8);
+        byte[] host = device.host == null ? null : device.host.getBytes(StandardCharsets.UTF_8);
+        int bodyLength = 6 + 2 + name.length
+                + (group == null ? 0 : 3 + group.length)
+                + (device.secureOn == null ? 0 : 3 + 6)
+                + (host == null ? 0 : 3 + host.length);
+        if (bodyLength > 0xffff) {
+            throw new IllegalArgumentException("device record too large");
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(2 + bodyLength);
+        out.putShort((short) bodyLength);
+        device.macAddress.writeTo(out);
+        out.putShort((short) name.length);
+        out.put(name);
+        if (group != null) {
+            out.put((byte) TAG_GROUP);
+            out.putShort((short) group.length);
+            out.put(group);
+        }
+        if (device.secureOn != null) {
+            out.put((byte) TAG_SECURE_ON);
+            out.putShort((short) 6);
+            putSixBytes(out, device.secureOn);
+        }
+        if (host != null) {
+            out.put((byte) TAG_HOST);
+            out.putShort((short) host.length);
+            out.put(host);
+        }
+        return out.array();
+    }
+
+    /**
+     * 只编码 MAC 的记录（删除日志使用）
+     */
+    static byte[] encodeKeyRecord(MacAddress macAddress) {
+        ByteBuffer out = ByteBuffer.allocate(2 + 6 + 2);
+        out.putShort((short) (6 + 2));
+        macAddress.writeTo(out);
+        out.putShort((short) 0);
+        return out.array();
+    }
+
+    private static void putSixBytes(ByteBuffer out, String text) {
+        long value = MacAddress.parseLong(text);
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid SecureOn password: " + text);
+        }
+        MacAddress.of(value).writeTo(out);
+    }
+
+    /**
+     * 读取一条记录的起始位置并跳到下一条
+     * @return 记录体起始位置，数据不完整返回 -1
+     */
+    static int skipRecord(ByteBuffer in) {
+        if (in.remaining() < 2) {
+            return -1;
+        }
+        int bodyLength = in.getShort() & 0xffff;
+        if (bodyLength < 8 || in.remaining() < bodyLength) {
+            return -1;
+        }
+        int body = in.position();
+        in.position(body + bodyLength);
+        return body;
+    }
+
+    /**
+     * 读取记录体中的 MAC
+     */
+    static MacAddress readMac(ByteBuffer in, int body) {
+        return MacAddress.fromBuffer(in, body);
+    }
+
+    /**
+     * 解码整条记录（名称与扩展字段）
+     */
+    static Device decodeRecord(ByteBuffer in, int body) throws IOException {
+        try {
+            int end = body + (in.getShort(body - 2) & 0xffff);
+            Device device = new Device();
+            device.macAddress = MacAddress.fromBuffer(in, body);
+            int pos = body + 6;
+            int nameLength = in.getShort(pos) & 0xffff;
+            pos += 2;
+            device.name = readUtf8(in, pos, nameLength);
+            pos += nameLength;
+            while (pos + 3 <= end) {
+                int tag = in.get(pos) & 0xff;
+                int length = in.getShort(pos + 1) & 0xffff;
+                pos += 3;
+                if (tag == TAG_GROUP) {
+                    device.group = readUtf8(in, pos, length);
+                } else if (tag == TAG_SECURE_ON && length == 6) {
+                    device.secureOn = MacAddress.fromBuffer(in, pos).toString();
+                } else if (tag == TAG_HOST) {
+                    device.host = readUtf8(in, pos, length);
+                }
+                // 不认识的字段跳过
+                pos += length;
+            }
+            if (pos > end) {
+                throw new IOException("corrupted device record");
+            }
+            return device;
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("corrupted device record", e);
+        }
+    }
+
+    private static String readUtf8(ByteBuffer in, int offset, int length) {
+        if (in.hasArray()) {
+            return new String(in.array(), in.arrayOffset() + offset, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer slice = in.duplicate();
+        slice.position(offset);
+        slice.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,346 @@
+package lsp.wol.core.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import lsp.wol.core.model.Device;
+import lsp.wol.core.model.MacAddress;
+
+/**
+ * 设备搜索的内存索引：名称、分组按字符 n-gram（1~3 个字符）建倒排表，MAC 的 12 位十六进制另建一份
+ * 查询取最短的倒排表作为候选再逐个核对子串，不扫描全部设备；输入在上一次查询后追加字符时只在上次结果里过滤
+ * 增删改都是增量的：修改在原位置追加新的 n-gram，旧的留在倒排表里由核对排除，过期条目过多时重建
+ *
+ * 查询按空格分成多个词，每个词都要命中名称、分组的子串或 MAC 片段（可带 : - . 分隔符），不区分大小写
+ */
+public class DeviceIndex {
+
+    private static final int GRAM = 3;
+    // MAC 的 n-gram 与文字的 n-gram 分开
+    private static final long MAC_GRAM = 1L << 62;
+
+    // 倒排表：设备位置，按追加顺序
+    private static final class Postings {
+        int[] slots = new int[4];
+        int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+    }
+
+    private final LongObjectMap<Postings> grams = new LongObjectMap<>();
+    // MAC -> 位置
+    private final LongObjectMap<Integer> slotByMac = new LongObjectMap<>();
+    // 按位置保存，删除后为 null
+    private Device[] devices = new Device[16];
+    private String[] texts = new String[16];
+    private String[] macs = new String[16];
+    private int used;
+    private int live;
+    // 倒排表中已失效的条目数
+    private int stale;
+    private int postings;
+    // 每个位置最近一次被哪次查询取到，用于去重
+    private int[] seen = new int[16];
+    private int stamp;
+
+    // 上次查询，追加字符时在其结果里过滤
+    private String lastQuery;
+    private int[] lastResult;
+    private int version;
+    private int lastVersion = -1;
+
+    /**
+     * 新增或替换同 MAC 的设备，位置不变
+     */
+    public synchronized void put(Device device) {
+        long key = device.macAddress.toLong();
+        String text = normalize(device.name) + '\n' + normalize(device.group);
+        Integer existing = slotByMac.get(key);
+        version++;
+        if (existing != null) {
+            int slot = existing;
+            String old = texts[slot];
+            devices[slot] = device;
+            if (!old.equals(text)) {
+                texts[slot] = text;
+                // 旧文字没有的 n-gram 才追加，旧的由核对排除
+                addGrams(text, old, slot, 0);
+                stale += old.length();
+                compactIfNeeded();
+            }
+            return;
+        }
+        int slot = used++;
+        if (slot == devices.length) {
+            int capacity = slot * 2;
+            devices = Arrays.copyOf(devices, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            macs = Arrays.copyOf(macs, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+        }
+        devices[slot] = device;
+        texts[slot] = text;
+        macs[slot] = hex(key);
+        slotByMac.put(key, slot);
+        live++;
+        addGrams(text, null, slot, 0);
+        addGrams(macs[slot], null, slot, MAC_GRAM);
+    }
+
+    /**
+     * @return 是否存在并已删除
+     */
+    public synchronized boolean remove(MacAddress macAddress) {
+        Integer slot = slotByMac.remove(macAddress.toLong());
+        if (slot == null) {
+            return false;
+        }
+        version++;
+        stale += texts[slot].length() + macs[slot].length();
+        devices[slot] = null;
+        texts[slot] = null;
+        macs[slot] = null;
+        live--;
+        compactIfNeeded();
+        return true;
+    }
+
+    /**
+     * 用给定列表重建
+     */
+    public synchronized void replaceAll(List<Device> list) {
+        clear();
+        for (Device device : list) {
+            put(device);
+        }
+    }
+
+    private void clear() {
+        grams.clear();
+        slotByMac.clear();
+        Arrays.fill(devices, 0, used, null);
+        Arrays.fill(texts, 0, used, null);
+        Arrays.fill(macs, 0, used, null);
+        used = 0;
+        live = 0;
+        stale = 0;
+        postings = 0;
+        version++;
+    }
+
+    public synchronized int size() {
+        return live;
+    }
+
+    /**
+     * 匹配的设备，按添加顺序；查询为空时返回全部设备
+     */
+    public synchronized List<Device> search(String query) {
+        String[] terms = normalize(query).trim().split("\\s+");
+        if (terms[0].isEmpty()) {
+            return collect(null, 0);
+        }
+        String[] hexTerms = new String[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            hexTerms[i] = hexFragment(terms[i]);
+        }
+
+        int[] candidates;
+        int count;
+        String normalized = String.join(" ", terms);
+        stamp++;
+        if (lastResult != null && lastVersion == version && normalized.startsWith(lastQuery)) {
+            // 继续输入：结果只会变少
+            candidates = lastResult;
+            count = lastResult.length;
+        } else {
+            candidates = candidates(terms, hexTerms);
+            count = candidates.length;
+        }
+
+        int[] result = new int[count];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            int slot = candidates[i];
+            if (devices[slot] == null || seen[slot] == stamp) {
+                continue;
+            }
+            seen[slot] = stamp;
+            if (matchesAll(slot, terms, hexTerms)) {
+                result[n++] = slot;
+            }
+        }
+        result = Arrays.copyOf(result, n);
+        lastQuery = normalized;
+        lastResult = result;
+        lastVersion = version;
+        return collect(result, n);
+    }
+
+    // 命中的位置按添加顺序排列后取出设备；结果多时按位置顺序扫描标记，省去排序
+    private List<Device> collect(int[] slots, int n) {
+        List<Device> list = new ArrayList<>(slots == null ? live : n);
+        if (slots == null) {
+            for (int i = 0; i < used; i++) {
+                if (devices[i] != null) {
+                    list.add(devices[i]);
+                }
+            }
+        } else if (n > used / 8) {
+            int mark = ++stamp;
+            for (int i = 0; i < n; i++) {
+                seen[slots[i]] = mark;
+            }
+            for (int i = 0; i < used; i++) {
+                if (seen[i] == mark) {
+                    list.add(devices[i]);
+                }
+            }
+        } else {
+            int[] sorted = Arrays.copyOf(slots, n);
+            Arrays.sort(sorted);
+            for (int slot : sorted) {
+                list.add(devices[slot]);
+            }
+        }
+        return list;
+    }
+
+    // 候选取自候选最少的词：文字与 MAC 各取该词最短的倒排表
+    private int[] candidates(String[] terms, String[] hexTerms) {
+        Postings text = null;
+        Postings mac = null;
+        int best = Integer.MAX_VALUE;
+        for (int i = 0; i < terms.length; i++) {
+            Postings termText = shortest(terms[i], 0);
+            Postings termMac = hexTerms[i] == null || hexTerms[i].isEmpty() ? null : shortest(hexTerms[i], MAC_GRAM);
+            int size = (termText == null ? 0 : termText.size) + (termMac == null ? 0 : termMac.size);
+            if (size < best) {
+                best = size;
+                text = termText;
+                mac = termMac;
+            }
+        }
+        int textSize = text == null ? 0 : text.size;
+        int macSize = mac == null ? 0 : mac.size;
+        int[] slots = new int[textSize + macSize];
+        if (text != null) {
+            System.arraycopy(text.slots, 0, slots, 0, textSize);
+        }
+        if (mac != null) {
+            System.arraycopy(mac.slots, 0, slots, textSize, macSize);
+        }
+        return slots;
+    }
+
+    // 词的所有 n-gram 中最短的倒排表，有 n-gram 不存在时返回 null（不可能命中）
+    private Postings shortest(String term, long kind) {
+        Postings best = null;
+        int length = Math.min(GRAM, term.length());
+        for (int i = 0; i + length <= term.length(); i++) {
+            Postings postings = grams.get(key(term, i, length) | kind);
+            if (postings == null) {
+                return null;
+            }
+            if (best == null || postings.size < best.size) {
+                best = postings;
+            }
+        }
+        return best;
+    }
+
+    private boolean matchesAll(int slot, String[] terms, String[] hexTerms) {
+        for (int i = 0; i < terms.length; i++) {
+            boolean match = texts[slot].contains(terms[i])
+                    || (hexTerms[i] != null && !hexTerms[i].isEmpty() && macs[slot].contains(hexTerms[i]));
+            if (!match) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 追加 text 的全部 1~3 字符 n-gram，old 中已有的跳过
+    private void addGrams(String text, String old, int slot, long kind) {
+        for (int length = 1; length <= GRAM; length++) {
+            for (int i = 0; i + length <= text.length(); i++) {
+                // 不跨越名称与分组之间的换行
+                int newline = text.indexOf('\n', i);
+                if (newline >= 0 && newline < i + length) {
+                    continue;
+                }
+                long key = key(text, i, length) | kind;
+                if (old != null && old.contains(text.substring(i, i + length))) {
+                    continue;
+                }
+                Postings list = grams.get(key);
+                if (list == null) {
+                    list = new Postings();
+                    grams.put(key, list);
+                }
+                // 同一段文字里重复的 n-gram 只记一次
+                if (list.size > 0 && list.slots[list.size - 1] == slot) {
+                    continue;
+                }
+                list.add(slot);
+                postings++;
+            }
+        }
+    }
+
+    // 过期条目超过有效条目时按当前设备重建
+    private void compactIfNeeded() {
+        if (stale <= Math.max(1024, postings - stale)) {
+            return;
+        }
+        List<Device> current = new ArrayList<>(live);
+        for (int i = 0; i < used; i++) {
+            if (devices[i] != null) {
+                current.add(devices[i]);
+            }
+        }
+        replaceAll(current);
+    }
+
+    private static long key(String text, int start, int length) {
+        long key = length;
+        for (int i = 0; i < length; i++) {
+            key = key << 16 | text.charAt(start + i);
+        }
+        return key;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    private static String hex(long mac) {
+        String hex = Long.toHexString(mac);
+        return "000000000000".substring(hex.length()) + hex;
+    }
+
+    /**
+     * 去掉分隔符后的十六进制片段，含其它字符时返回 null
+     */
+    static String hexFragment(String term) {
+        StringBuilder hex = new StringBuilder(term.length());
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            if (c == ':' || c == '-' || c == '.') {
+                continue;
+            }
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return null;
+            }
+            hex.append(c);
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package lsp.wol.core.utils;
+
+import java.util.List;
+
+import lsp.wol.core.model.Device;
+import lsp.wol.core.model.MacAddress;
+
+/**
+ * 设备存储，以 MAC 为主键
+ */
+public interface DeviceRepository {
+
+    /**
+     * 全部设备，按添加顺序
+     */
+    List<Device> getAll();
+
+    /**
+     * 按 MAC 查找，不存在返回 null
+     */
+    Device get(MacAddress macAddress);
+
+    /**
+     * 新增或替换同 MAC 的设备
+     */
+    void upsert(Device device);
+
+    /**
+     * 删除指定 MAC 的设备
+     * @return 是否存在并已删除
+     */
+    boolean delete(MacAddress macAddress);
+
+    /**
+     * 用给定列表替换全部设备
+     */
+    void replaceAll(List<Device> devices);
+
+    int size();
+}
@@ -0,0 +1,64 @@
+package lsp.wol.core.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import lsp.wol.core.model.Device;
+import lsp.wol.core.model.MacAddress;
+
+/**
+ * 内存映射读取的设备快照
+ * 打开时只扫描记录边界与 MAC，名称等字段在 decode 时才解码
+ */
+final class DeviceSnapshot {
+
+    private final ByteBuffer buffer;
+    private final int[] bodies;
+
+    private DeviceSnapshot(ByteBuffer buffer, int[] bodies) {
+        this.buffer = buffer;
+        this.bodies = bodies;
+    }
+
+    static DeviceSnapshot open(File file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // 映射在通道关闭后仍然有效
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int count = DeviceBinaryFormat.readHeader(buffer);
+        if (count < 0) {
+            throw new IOException("corrupted device snapshot " + file);
+        }
+        int[] bodies = new int[count];
+        for (int i = 0; i < count; i++) {
+            int body = DeviceBinaryFormat.skipRecord(buffer);
+            if (body < 0) {
+                throw new IOException("truncated device snapshot " + file);
+            }
+            bodies[i] = body;
+        }
+        return new DeviceSnapshot(buffer, bodies);
+    }
+
+    int size() {
+        return bodies.length;
+    }
+
+    /**
+     * 第 i 条记录的 MAC
+     */
+    MacAddress mac(int i) {
+        return DeviceBinaryFormat.readMac(buffer, bodies[i]);
+    }
+
+    /**
+     * 解码第 i 条记录
+     */
+    Device decode(int i) throws IOException {
+        return DeviceBinaryFormat.decodeRecord(buffer, bodies[i]);
+    }
+}
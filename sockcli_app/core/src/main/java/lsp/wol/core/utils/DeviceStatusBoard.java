@@ -0,0 +1,109 @@
+package lsp.wol.core.utils;
+
+import java.util.List;
+
+import lsp.wol.core.model.MacAddress;
+
+/**
+ * 设备的实时状态（在线、唤醒中、离线）与上次唤醒时间，来自发件箱、开机检测和局域网发现
+ * 状态变化只记下 MAC，界面每帧取走一次（drain），同一帧内多次变化只刷新一次
+ */
+public class DeviceStatusBoard {
+
+    public enum State {
+        UNKNOWN, OFFLINE, WAKING, ONLINE
+    }
+
+    /**
+     * 某台设备的状态，不可变
+     */
+    public static final class Status {
+        public static final Status UNKNOWN = new Status(State.UNKNOWN, 0, 0);
+
+        public final State state;
+        // 上次唤醒时间 毫秒时间戳，没有唤醒过为 0
+        public final long lastWakeAt;
+        public final long updatedAt;
+
+        Status(State state, long lastWakeAt, long updatedAt) {
+            this.state = state;
+            this.lastWakeAt = lastWakeAt;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    /**
+     * 上次 drain 之后第一次有变化时回调，在修改状态的线程持有锁时调用
+     */
+    public interface Listener {
+        void onDirty();
+    }
+
+    private final LongObjectMap<Status> statuses = new LongObjectMap<>();
+    // 上次 drain 之后变化过的设备
+    private final LongObjectMap<MacAddress> dirty = new LongObjectMap<>();
+    private volatile Listener listener;
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 没有记录时为 UNKNOWN
+     */
+    public synchronized Status get(MacAddress macAddress) {
+        Status status = statuses.get(macAddress.toLong());
+        return status != null ? status : Status.UNKNOWN;
+    }
+
+    /**
+     * 开始唤醒，wakeAt 为提交唤醒的时间
+     */
+    public synchronized void markWaking(MacAddress macAddress, long wakeAt) {
+        Status old = get(macAddress);
+        put(macAddress, State.WAKING, Math.max(old.lastWakeAt, wakeAt), wakeAt);
+    }
+
+    /**
+     * 唤醒命令没有发出，唤醒中的设备恢复为未知
+     */
+    public synchronized void cancelWaking(MacAddress macAddress, long now) {
+        Status old = get(macAddress);
+        if (old.state == State.WAKING) {
+            put(macAddress, State.UNKNOWN, old.lastWakeAt, now);
+        }
+    }
+
+    public synchronized void markOnline(MacAddress macAddress, long now) {
+        put(macAddress, State.ONLINE, get(macAddress).lastWakeAt, now);
+    }
+
+    public synchronized void markOffline(MacAddress macAddress, long now) {
+        put(macAddress, State.OFFLINE, get(macAddress).lastWakeAt, now);
+    }
+
+    // 调用方持有锁；Listener 只应投递刷新任务
+    private void put(MacAddress macAddress, State state, long lastWakeAt, long now) {
+        long key = macAddress.toLong();
+        Status old = statuses.get(key);
+        if (old != null && old.state == state && old.lastWakeAt == lastWakeAt) {
+            return;
+        }
+        statuses.put(key, new Status(state, lastWakeAt, now));
+        boolean first = dirty.isEmpty();
+        dirty.put(key, macAddress);
+        Listener current = listener;
+        if (first && current != null) {
+            current.onDirty();
+        }
+    }
+
+    /**
+     * 取走上次 drain 之后状态变化过的设备，每台只出现一次
+     */
+    public synchronized List<MacAddress> drain() {
+        List<MacAddress> changed = dirty.values();
+        dirty.clear();
+        return changed;
+    }
+}
@@ -0,0 +1,243 @@
+package lsp.wol.core.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import lsp.wol.core.model.Device;
+import lsp.wol.core.model.MacAddress;
+
+/**
+ * 设备存储实现
+ * 内存中维护以 MAC（48 位整数）为键的索引，只在第一次访问时从磁盘加载一次；
+ * 修改只追加一条日志记录，日志条数超过阈值后把当前全部设备写成快照并清空日志（压缩）
+ *
+ * 文件（格式见 DeviceBinaryFormat）：
+ * devices.bin 快照，内存映射读取，设备在第一次被访问时才解码
+ * devices.log 日志，每条为 1 字节操作 + 一条记录
+ */
+public class DeviceStore implements DeviceRepository {
+
+    private static final String SNAPSHOT_FILE = "devices.bin";
+    private static final String JOURNAL_FILE = "devices.log";
+    // 日志条数超过 max(MIN_COMPACT_ENTRIES, 设备数) 时压缩
+    private static final int MIN_COMPACT_ENTRIES = 64;
+
+    private static final byte OP_UPSERT = 1;
+    private static final byte OP_DELETE = 2;
+
+    // 索引项，来自快照的设备在第一次访问时才解码
+    private static final class Entry {
+        Device device;
+        final int slot;
+
+        Entry(Device device) {
+            this.device = device;
+            this.slot = -1;
+        }
+
+        Entry(int slot) {
+            this.slot = slot;
+        }
+    }
+
+    private final File snapshotFile;
+    private final File journalFile;
+    private final LongObjectMap<Entry> index = new LongObjectMap<>();
+    private DeviceSnapshot snapshot;
+    private boolean loaded = false;
+    private int journalEntries = 0;
+
+    public DeviceStore(File dir) {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new UncheckedIOException(new IOException("cannot create " + dir));
+        }
+        this.snapshotFile = new File(dir, SNAPSHOT_FILE);
+        this.journalFile = new File(dir, JOURNAL_FILE);
+    }
+
+    /**
+     * 磁盘上是否已有数据（用于判断是否需要从旧存储迁移）
+     */
+    public boolean exists() {
+        return snapshotFile.exists() || journalFile.exists();
+    }
+
+    private Device materialize(Entry entry) {
+        if (entry.device == null) {
+            try {
+                entry.device = snapshot.decode(entry.slot);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return entry.device;
+    }
+
+    @Override
+    public synchronized List<Device> getAll() {
+        ensureLoaded();
+        List<Device> devices = new ArrayList<>(index.size());
+        for (Entry entry : index.values()) {
+            devices.add(materialize(entry));
+        }
+        return devices;
+    }
+
+    @Override
+    public synchronized Device get(MacAddress macAddress) {
+        ensureLoaded();
+        Entry entry = index.get(macAddress.toLong());
+        return entry == null ? null : materialize(entry);
+    }
+
+    @Override
+    public synchronized int size() {
+        ensureLoaded();
+        return index.size();
+    }
+
+    @Override
+    public synchronized void upsert(Device device) {
+        ensureLoaded();
+        byte[] record = DeviceBinaryFormat.encodeRecord(device);
+        index.put(device.macAddress.toLong(), new Entry(device));
+        append(OP_UPSERT, record);
+    }
+
+    @Override
+    public synchronized boolean delete(MacAddress macAddress) {
+        ensureLoaded();
+        if (index.remove(macAddress.toLong()) == null) {
+            return false;
+        }
+        append(OP_DELETE, DeviceBinaryFormat.encodeKeyRecord(macAddress));
+        return true;
+    }
+
+    @Override
+    public synchronized void replaceAll(List<Device> devices) {
+        ensureLoaded();
+        index.clear();
+        for (Device device : devices) {
+            index.put(device.macAddress.toLong(), new Entry(device));
+        }
+        compact();
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        try {
+            if (snapshotFile.exists()) {
+                snapshot = DeviceSnapshot.open(snapshotFile);
+                for (int i = 0; i < snapshot.size(); i++) {
+                    index.put(snapshot.mac(i).toLong(), new Entry(i));
+                }
+            }
+            if (journalFile.exists()) {
+                replayJournal();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("corrupted device store " + snapshotFile.getParent(), e);
+        }
+    }
+
+    private void replayJournal() throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        while (buffer.hasRemaining()) {
+            int start = buffer.position();
+            byte op = buffer.get();
+            int body = DeviceBinaryFormat.skipRecord(buffer);
+            if (body < 0) {
+                // 写入中途断电留下的半条记录，之后不会再有完整记录；
+                // 截掉它，否则之后追加的记录接在半条记录后面，下次打开无法解析
+                truncateJournal(start);
+                break;
+            }
+            long mac = DeviceBinaryFormat.readMac(buffer, body).toLong();
+            if (op == OP_UPSERT) {
+                index.put(mac, new Entry(DeviceBinaryFormat.decodeRecord(buffer, body)));
+            } else if (op == OP_DELETE) {
+                index.remove(mac);
+            }
+            journalEntries++;
+        }
+    }
+
+    private void truncateJournal(long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+            channel.force(true);
+        }
+    }
+
+    private void append(byte op, byte[] record) {
+        try (OutputStream out = new FileOutputStream(journalFile, true)) {
+            byte[] entry = new byte[1 + record.length];
+            entry[0] = op;
+            System.arraycopy(record, 0, entry, 1, record.length);
+            out.write(entry);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        journalEntries++;
+        if (journalEntries > Math.max(MIN_COMPACT_ENTRIES, index.size())) {
+            compact();
+        }
+    }
+
+    /**
+     * 写快照并清空日志
+     * 先写临时文件再改名，中途失败时旧快照和日志仍然有效
+     */
+    private void compact() {
+        List<Device> devices = new ArrayList<>(index.size());
+        for (Entry entry : index.values()) {
+            devices.add(materialize(entry));
+        }
+
+        File tmp = new File(snapshotFile.getPath() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(tmp)) {
+            OutputStream out = new BufferedOutputStream(file);
+            ByteBuffer header = ByteBuffer.allocate(DeviceBinaryFormat.HEADER_LENGTH);
+            DeviceBinaryFormat.writeHeader(header, devices.size());
+            out.write(header.array());
+            for (Device device : devices) {
+                out.write(DeviceBinaryFormat.encodeRecord(device));
+            }
+            out.flush();
+            // 落盘后再改名，避免断电后留下已替换但为空的快照
+            file.getChannel().force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!tmp.renameTo(snapshotFile)) {
+            throw new UncheckedIOException(new IOException("cannot replace " + snapshotFile));
+        }
+        if (journalFile.exists() && !journalFile.delete()) {
+            throw new UncheckedIOException(new IOException("cannot truncate " + journalFile));
+        }
+        journalEntries = 0;
+
+        // 索引中的设备都已解码，旧快照不再需要
+        index.clear();
+        for (Device device : devices) {
+            index.put(device.macAddress.toLong(), new Entry(device));
+        }
+        snapshot = null;
+    }
+}
@@ -0,0 +1,170 @@
+package lsp.wol.core.utils;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+
+import lsp.wol.core.platform.Log;
+
+/**
+ * 域名解析缓存：有效期内直接返回；过期后先返回旧结果并在后台重新解析（stale-while-revalidate），
+ * 超过最长保留时间或从未解析过才同步解析。重新解析失败时保留旧结果，网络抖动时仍能连接
+ */
+public class DnsCache {
+
+    /**
+     * 解析实现，测试时可替换
+     */
+    public interface Resolver {
+        InetAddress[] resolve(String host) throws UnknownHostException;
+    }
+
+    static final long DEFAULT_TTL_MS = 60 * 1000L;
+    static final long DEFAULT_MAX_STALE_MS = 24 * 60 * 60 * 1000L;
+
+    private static final DnsCache SHARED = new DnsCache();
+
+    private static final class Entry {
+        final List<InetAddress> addresses;
+        final long resolvedAt;
+        volatile boolean refreshing;
+
+        Entry(List<InetAddress> addresses, long resolvedAt) {
+            this.addresses = addresses;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+
+    private final Resolver resolver;
+    private final Executor refreshExecutor;
+    private final LongSupplier clock;
+    private final long ttlMs;
+    private final long maxStaleMs;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public DnsCache() {
+        this(InetAddress::getAllByName, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dns-refresh");
+            thread.setDaemon(true);
+            return thread;
+        }), System::currentTimeMillis, DEFAULT_TTL_MS, DEFAULT_MAX_STALE_MS);
+    }
+
+    public DnsCache(Resolver resolver, Executor refreshExecutor, LongSupplier clock, long ttlMs, long maxStaleMs) {
+        this.resolver = resolver;
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+        this.ttlMs = ttlMs;
+        this.maxStaleMs = maxStaleMs;
+    }
+
+    public static DnsCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * 解析域名（IP 字面量直接返回，不进缓存）
+     * @throws UnknownHostException 没有可用的旧结果且解析失败
+     */
+    public List<InetAddress> resolve(String host) throws UnknownHostException {
+        if (isLiteral(host)) {
+            return Collections.singletonList(InetAddress.getByName(host));
+        }
+        long now = clock.getAsLong();
+        Entry entry = entries.get(host);
+        if (entry != null) {
+            long age = now - entry.resolvedAt;
+            if (age < ttlMs) {
+                return entry.addresses;
+            }
+            if (age < maxStaleMs) {
+                refreshAsync(host, entry);
+                return entry.addresses;
+            }
+        }
+        return refresh(host);
+    }
+
+    private List<InetAddress> refresh(String host) throws UnknownHostException {
+        List<InetAddress> addresses = Collections.unmodifiableList(Arrays.asList(resolver.resolve(host)));
+        if (addresses.isEmpty()) {
+            throw new UnknownHostException(host);
+        }
+        entries.put(host, new Entry(addresses, clock.getAsLong()));
+        return addresses;
+    }
+
+    private void refreshAsync(String host, Entry entry) {
+        if (entry.refreshing) {
+            return;
+        }
+        entry.refreshing = true;
+        refreshExecutor.execute(() -> {
+            try {
+                refresh(host);
+            } catch (UnknownHostException e) {
+                // 保留旧结果，下次使用时再试
+                Log.i("DnsCache refresh: {} 解析失败，继续使用旧结果", host);
+            } finally {
+                entry.refreshing = false;
+            }
+        });
+    }
+
+    /**
+     * 网络切换后旧结果可能不可用（例如内网 DNS），全部标记为过期，下次使用时后台刷新
+     */
+    public void invalidate() {
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            Entry entry = e.getValue();
+            entries.replace(e.getKey(), entry, new Entry(entry.addresses, entry.resolvedAt - ttlMs));
+        }
+    }
+
+    /**
+     * 按地址族交替排列（IPv6、IPv4、IPv6 ...），竞速连接时一个地址族不通不会拖住另一个（RFC 8305）
+     */
+    public static List<InetAddress> interleaveFamilies(List<InetAddress> addresses) {
+        List<InetAddress> v6 = new ArrayList<>();
+        List<InetAddress> v4 = new ArrayList<>();
+        for (InetAddress address : addresses) {
+            (address instanceof Inet6Address ? v6 : v4).add(address);
+        }
+        if (v6.isEmpty() || v4.isEmpty()) {
+            return addresses;
+        }
+        List<InetAddress> result = new ArrayList<>(addresses.size());
+        for (int i = 0; i < Math.max(v6.size(), v4.size()); i++) {
+            if (i < v6.size()) {
+                result.add(v6.get(i));
+            }
+            if (i < v4.size()) {
+                result.add(v4.get(i));
+            }
+        }
+        return result;
+    }
+
+    static boolean isLiteral(String host) {
+        if (host.indexOf(':') >= 0) {
+            // IPv6
+            return true;
+        }
+        for (int i = 0; i < host.length(); i++) {
+            char c = host.charAt(i);
+            if ((c < '0' || c > '9') && c != '.') {
+                return false;
+            }
+        }
+        return !host.isEmpty();
+    }
+}
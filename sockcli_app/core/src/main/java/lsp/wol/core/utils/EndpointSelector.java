@@ -0,0 +1,202 @@
+package lsp.wol.core.utils;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * 多个中继服务器的排序：按平滑往返延迟（连接耗时与心跳往返）从快到慢，
+ * 最近连接失败的服务器冷却一段时间后排到最后；没有测量过的按配置顺序排在已测量的之后
+ * 由连接线程写入，其它线程读取快照
+ */
+public class EndpointSelector {
+
+    // 连接失败后的冷却时间，连续失败按倍数增加
+    static final long FAILURE_COOLDOWN_MS = 10 * 1000L;
+    static final long MAX_FAILURE_COOLDOWN_MS = 5 * 60 * 1000L;
+
+    /**
+     * 一个服务器的测量结果
+     */
+    public static final class Endpoint {
+        public final InetSocketAddress address;
+        final int order;
+        // 平滑往返延迟 微秒，0 表示未测量
+        volatile long srttMicros;
+        volatile int failures;
+        volatile long coolDownUntil;
+
+        Endpoint(InetSocketAddress address, int order) {
+            this.address = address;
+            this.order = order;
+        }
+
+        public double getSrttMs() {
+            return srttMicros / 1000.0;
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s:%d srtt=%.1fms failures=%d",
+                    address.getHostString(), address.getPort(), getSrttMs(), failures);
+        }
+    }
+
+    private final LongSupplier clock;
+    private final List<Endpoint> endpoints;
+
+    public EndpointSelector(List<InetSocketAddress> addresses) {
+        this(addresses, System::currentTimeMillis);
+    }
+
+    EndpointSelector(List<InetSocketAddress> addresses, LongSupplier clock) {
+        this.clock = clock;
+        this.endpoints = build(addresses);
+    }
+
+    private static List<Endpoint> build(List<InetSocketAddress> addresses) {
+        if (addresses.isEmpty()) {
+            throw new IllegalArgumentException("没有服务器地址");
+        }
+        List<Endpoint> list = new ArrayList<>(addresses.size());
+        for (InetSocketAddress address : addresses) {
+            list.add(new Endpoint(address, list.size()));
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * 按配置顺序的服务器地址
+     */
+    public List<InetSocketAddress> getAddresses() {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (Endpoint endpoint : endpoints) {
+            addresses.add(endpoint.address);
+        }
+        return addresses;
+    }
+
+    /**
+     * 从优到劣排序的服务器，冷却中的排在最后（仍会尝试，全部失败时不至于无服务器可连）
+     */
+    public List<Endpoint> ranked() {
+        long now = clock.getAsLong();
+        List<Endpoint> list = new ArrayList<>(endpoints);
+        list.sort(Comparator
+                .comparing((Endpoint e) -> e.coolDownUntil > now)
+                .thenComparing(e -> e.srttMicros == 0)
+                .thenComparingLong(e -> e.srttMicros)
+                .thenComparingInt(e -> e.order));
+        return list;
+    }
+
+    /**
+     * 连接成功，连接耗时计入往返延迟，清除失败记录
+     */
+    public void onConnected(Endpoint endpoint, long connectNanos) {
+        endpoint.failures = 0;
+        endpoint.coolDownUntil = 0;
+        onRtt(endpoint, connectNanos);
+    }
+
+    /**
+     * 心跳往返延迟，指数平滑（权重 1/8，同 TCP 的 SRTT）
+     */
+    public void onRtt(Endpoint endpoint, long rttNanos) {
+        long sample = Math.max(1, rttNanos / 1000);
+        long srtt = endpoint.srttMicros;
+        endpoint.srttMicros = srtt == 0 ? sample : srtt + (sample - srtt) / 8;
+    }
+
+    /**
+     * 连接失败（解析失败、拒绝、超时），冷却一段时间
+     */
+    public void onFailure(Endpoint endpoint) {
+        int failures = endpoint.failures + 1;
+        endpoint.failures = failures;
+        long cooldown = Math.min(MAX_FAILURE_COOLDOWN_MS, FAILURE_COOLDOWN_MS << Math.min(failures - 1, 16));
+        endpoint.coolDownUntil = clock.getAsLong() + cooldown;
+    }
+
+    /**
+     * 解析 host[:port] 列表，逗号或空白分隔，IPv6 写作 [addr]:port
+     * @throws IllegalArgumentException 格式或端口不正确
+     */
+    public static List<InetSocketAddress> parse(String spec, int defaultPort) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String item : spec.trim().split("[,\\s]+")) {
+            if (item.isEmpty()) {
+                continue;
+            }
+            addresses.add(parseOne(item, defaultPort));
+        }
+        if (addresses.isEmpty()) {
+            throw new IllegalArgumentException("没有服务器地址: " + spec);
+        }
+        return addresses;
+    }
+
+    private static InetSocketAddress parseOne(String item, int defaultPort) {
+        String host = item;
+        String port = null;
+        if (item.startsWith("[")) {
+            int end = item.indexOf(']');
+            if (end < 0) {
+                throw new IllegalArgumentException("地址不正确: " + item);
+            }
+            host = item.substring(1, end);
+            if (end + 1 < item.length()) {
+                if (item.charAt(end + 1) != ':') {
+                    throw new IllegalArgumentException("地址不正确: " + item);
+                }
+                port = item.substring(end + 2);
+            }
+        } else {
+            int colon = item.lastIndexOf(':');
+            if (colon > 0 && item.indexOf(':') == colon) {
+                host = item.substring(0, colon);
+                port = item.substring(colon + 1);
+            }
+        }
+        int value = defaultPort;
+        if (port != null) {
+            try {
+                value = Integer.parseInt(port);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("端口不正确: " + item);
+            }
+        }
+        if (host.isEmpty() || value <= 0 || value > 65535) {
+            throw new IllegalArgumentException("端口不正确: " + item);
+        }
+        return InetSocketAddress.createUnresolved(host, value);
+    }
+
+    /**
+     * 地址列表写回 host:port,host:port
+     */
+    public static String format(List<InetSocketAddress> addresses) {
+        StringBuilder text = new StringBuilder();
+        for (InetSocketAddress address : addresses) {
+            if (text.length() > 0) {
+                text.append(',');
+            }
+            String host = address.getHostString();
+            text.append(host.indexOf(':') >= 0 ? "[" + host + "]" : host).append(':').append(address.getPort());
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return ranked().toString();
+    }
+}
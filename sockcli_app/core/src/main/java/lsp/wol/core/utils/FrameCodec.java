@@ -0,0 +1,293 @@
+package lsp.wol.core.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * TCP 消息分帧编解码
+ * TCP 是字节流，一次 read 可能包含多条消息，也可能只有半条，解码器把收到的字节累积在可复用的缓冲区中，按帧切分后回调
+ *
+ * 三种模式：
+ * JSON   旧版协议（服务器/ESP8266 现有实现），没有分隔符，按 JSON 对象的括号边界切分
+ * LINE   每帧以 '\n' 结尾
+ * LENGTH 每帧前 4 字节（大端）为消息长度
+ *
+ * 连接建立后默认 JSON 模式，客户端发送 frame 命令声明支持的模式，对端回复选定的模式后双方切换；
+ * 旧版对端会忽略该命令，因此始终保持 JSON 模式
+ */
+public class FrameCodec {
+
+    public enum Mode {
+        JSON("json"),
+        LINE("line"),
+        LENGTH("len");
+
+        public final String wireName;
+
+        Mode(String wireName) {
+            this.wireName = wireName;
+        }
+
+        public static Mode fromWireName(String name) {
+            for (Mode mode : values()) {
+                if (mode.wireName.equals(name)) {
+                    return mode;
+                }
+            }
+            return null;
+        }
+    }
+
+    public interface FrameSink {
+        /**
+         * 收到完整的一帧，数据只在回调期间有效
+         */
+        void onFrame(byte[] array, int offset, int length);
+    }
+
+    // 客户端支持的模式 按优先级排列
+    public static final String SUPPORTED_MODES = Mode.LENGTH.wireName + "," + Mode.LINE.wireName;
+
+    private static final int DEFAULT_MAX_FRAME_SIZE = 64 * 1024;
+
+    private final int maxFrameSize;
+    private Mode mode = Mode.JSON;
+
+    // 累积缓冲区 有效数据为 [start, end)
+    private byte[] buffer;
+    private int start;
+    private int end;
+
+    // 扫描状态，避免每次收到数据都从头扫描
+    private int scanPos;
+    private int depth;
+    private boolean inString;
+    private boolean escape;
+
+    public FrameCodec() {
+        this(1024, DEFAULT_MAX_FRAME_SIZE);
+    }
+
+    public FrameCodec(int initialCapacity, int maxFrameSize) {
+        this.buffer = new byte[initialCapacity];
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * 切换模式，可以在 FrameSink 回调中调用，缓冲区中剩余的字节按新模式解析
+     */
+    public void setMode(Mode mode) {
+        this.mode = mode;
+        resetScan();
+    }
+
+    /**
+     * 重置为初始状态（新连接）
+     */
+    public void reset() {
+        mode = Mode.JSON;
+        start = 0;
+        end = 0;
+        resetScan();
+    }
+
+    /**
+     * 已收到但还不够一帧的字节数
+     */
+    public int buffered() {
+        return end - start;
+    }
+
+    private void resetScan() {
+        scanPos = start;
+        depth = 0;
+        inString = false;
+        escape = false;
+    }
+
+    /**
+     * 解码收到的字节，回调所有完整的帧，不完整的部分留待下次
+     * @throws IOException 帧超过最大长度
+     */
+    public void decode(ByteBuffer in, FrameSink sink) throws IOException {
+        append(in);
+        boolean found = true;
+        while (found && start < end) {
+            switch (mode) {
+                case LINE:
+                    found = nextLine(sink);
+                    break;
+                case LENGTH:
+                    found = nextLengthPrefixed(sink);
+                    break;
+                default:
+                    found = nextJson(sink);
+                    break;
+            }
+        }
+        if (start == end) {
+            // 数据已全部消费，从头复用缓冲区
+            start = 0;
+            end = 0;
+            scanPos = 0;
+        } else if (end - start > maxFrameSize + 4) {
+            throw new IOException("frame too large: " + (end - start));
+        }
+    }
+
+    private void append(ByteBuffer in) {
+        int length = in.remaining();
+        if (end + length > buffer.length) {
+            // 先把有效数据移到头部，不够再扩容
+            int used = end - start;
+            if (used + length > buffer.length) {
+                int capacity = buffer.length;
+                while (capacity < used + length) {
+                    capacity *= 2;
+                }
+                byte[] grown = new byte[capacity];
+                System.arraycopy(buffer, start, grown, 0, used);
+                buffer = grown;
+            } else {
+                System.arraycopy(buffer, start, buffer, 0, used);
+            }
+            scanPos -= start;
+            start = 0;
+            end = used;
+        }
+        in.get(buffer, end, length);
+        end += length;
+    }
+
+    private boolean nextJson(FrameSink sink) {
+        while (scanPos < end) {
+            byte b = buffer[scanPos++];
+            if (depth == 0) {
+                // 帧之间的空白或其它字符直接丢弃
+                if (b == '{') {
+                    start = scanPos - 1;
+                    depth = 1;
+                } else {
+                    start = scanPos;
+                }
+            } else if (inString) {
+                if (escape) {
+                    escape = false;
+                } else if (b == '\\') {
+                    escape = true;
+                } else if (b == '"') {
+                    inString = false;
+                }
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                if (--depth == 0) {
+                    emit(sink, start, scanPos - start, scanPos);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean nextLine(FrameSink sink) {
+        while (scanPos < end) {
+            if (buffer[scanPos++] == '\n') {
+                int length = scanPos - 1 - start;
+                if (length > 0 && buffer[start + length - 1] == '\r') {
+                    length--;
+                }
+                if (length == 0) {
+                    // 空行
+                    start = scanPos;
+                    continue;
+                }
+                emit(sink, start, length, scanPos);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean nextLengthPrefixed(FrameSink sink) throws IOException {
+        if (end - start < 4) {
+            return false;
+        }
+        int length = ((buffer[start] & 0xff) << 24)
+                | ((buffer[start + 1] & 0xff) << 16)
+                | ((buffer[start + 2] & 0xff) << 8)
+                | (buffer[start + 3] & 0xff);
+        if (length < 0 || length > maxFrameSize) {
+            throw new IOException("invalid frame length: " + length);
+        }
+        if (end - start - 4 < length) {
+            return false;
+        }
+        emit(sink, start + 4, length, start + 4 + length);
+        return true;
+    }
+
+    private void emit(FrameSink sink, int offset, int length, int next) {
+        // 先推进读位置，回调中切换模式时从下一帧开始按新模式解析
+        start = next;
+        resetScan();
+        sink.onFrame(buffer, offset, length);
+    }
+
+    /**
+     * 编码后的帧长度
+     */
+    public int frameLength(int payloadLength) {
+        switch (mode) {
+            case LINE:
+                return payloadLength + 1;
+            case LENGTH:
+                return payloadLength + 4;
+            default:
+                return payloadLength;
+        }
+    }
+
+    /**
+     * 开始一帧，消息内容直接写入 out 后调用 endFrame
+     * @return 帧起始位置
+     */
+    public int beginFrame(ByteBuffer out) {
+        int frameStart = out.position();
+        if (mode == Mode.LENGTH) {
+            // 长度在 endFrame 时回填
+            out.putInt(0);
+        }
+        return frameStart;
+    }
+
+    /**
+     * 结束 beginFrame 开始的一帧
+     */
+    public void endFrame(ByteBuffer out, int frameStart) {
+        if (mode == Mode.LENGTH) {
+            out.putInt(frameStart, out.position() - frameStart - 4);
+        } else if (mode == Mode.LINE) {
+            out.put((byte) '\n');
+        }
+    }
+
+    /**
+     * 把一条消息按当前模式编码写入 out
+     */
+    public void encode(byte[] payload, int offset, int length, ByteBuffer out) {
+        if (mode == Mode.LENGTH) {
+            out.putInt(length);
+        }
+        out.put(payload, offset, length);
+        if (mode == Mode.LINE) {
+            out.put((byte) '\n');
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package lsp.wol.core.utils;
+
+import java.util.Locale;
+
+/**
+ * 自适应心跳
+ * 服务器 30 秒收不到客户端消息就断开，所以发出方向最长空闲 SERVER_IDLE_LIMIT_MS；
+ * 中间的 NAT 在收发双向都空闲一段时间后会回收映射，这个时长事先未知：
+ * 从 INITIAL_INTERVAL_MS 开始，连续几次空闲满一个周期后心跳仍有回复就加长，
+ * 心跳无回复或等待回复时断开就退回并记下失败的周期，之后不再超过它
+ * 任何方向的真实消息都算作活动，只有链路空闲时才发心跳
+ * 只在连接线程使用，统计可在其它线程读取
+ */
+public class HeartbeatScheduler {
+
+    // 服务器心跳超时 30 秒，留出往返与服务器检查的余量
+    static final long SERVER_IDLE_LIMIT_MS = 28 * 1000L;
+    static final long MIN_INTERVAL_MS = 10 * 1000L;
+    static final long INITIAL_INTERVAL_MS = 20 * 1000L;
+    static final long STEP_MS = 2 * 1000L;
+    // 当前周期连续成功几次后尝试加长
+    static final int SUCCESSES_TO_GROW = 3;
+    // 连续几次心跳无回复判定服务器失效
+    static final int MAX_MISSED_REPLIES = 2;
+
+    private final long minIntervalMs;
+    private final long maxIntervalMs;
+    private final long stepMs;
+
+    // 学到的 NAT 空闲周期
+    private volatile long intervalMs;
+    // 已知会失败的最短周期，不再尝试
+    private volatile long failedIntervalMs;
+    private int successes;
+
+    private long connectedAt;
+    private long lastSentAt;
+    private long lastReceivedAt;
+    // 等待回复的心跳发出时间与当时的空闲时长，没有为 -1
+    private long outstandingSentAt = -1;
+    private long outstandingIdleMs;
+    private volatile int missedReplies;
+    private boolean probeNow;
+
+    private volatile long sent;
+    private volatile long replies;
+    private volatile long timeouts;
+    private volatile long connectedMs;
+    private final LatencyStats rtt = new LatencyStats();
+
+    public HeartbeatScheduler() {
+        this(MIN_INTERVAL_MS, INITIAL_INTERVAL_MS, SERVER_IDLE_LIMIT_MS, STEP_MS);
+    }
+
+    HeartbeatScheduler(long minIntervalMs, long initialIntervalMs, long maxIntervalMs, long stepMs) {
+        this.minIntervalMs = minIntervalMs;
+        this.maxIntervalMs = maxIntervalMs;
+        this.stepMs = stepMs;
+        this.intervalMs = initialIntervalMs;
+        this.failedIntervalMs = Long.MAX_VALUE;
+    }
+
+    /**
+     * 新连接建立
+     */
+    void onConnected(long now) {
+        connectedAt = now;
+        lastSentAt = now;
+        lastReceivedAt = now;
+        outstandingSentAt = -1;
+        missedReplies = 0;
+        probeNow = false;
+    }
+
+    /**
+     * 连接断开；等待心跳回复时断开说明这个空闲周期过长
+     */
+    void onDisconnected(long now) {
+        connectedMs += Math.max(0, now - connectedAt);
+        if (outstandingSentAt >= 0) {
+            onIntervalFailed(outstandingIdleMs);
+            outstandingSentAt = -1;
+        }
+    }
+
+    /**
+     * 网络变化后 NAT 不同，重新学习
+     */
+    void resetLearning() {
+        intervalMs = Math.min(INITIAL_INTERVAL_MS, maxIntervalMs);
+        failedIntervalMs = Long.MAX_VALUE;
+        successes = 0;
+    }
+
+    /**
+     * 发出了任意消息
+     */
+    void onSent(long now) {
+        lastSentAt = now;
+    }
+
+    /**
+     * 收到任意消息，说明连接和 NAT 映射都还有效
+     */
+    void onReceived(long now) {
+        lastReceivedAt = now;
+        missedReplies = 0;
+    }
+
+    /**
+     * 距离需要发心跳的毫秒数，小于等于0表示现在就该发
+     */
+    long dueIn(long now) {
+        if (probeNow) {
+            return 0;
+        }
+        // 服务器只认客户端发出的消息
+        long serverDue = lastSentAt + maxIntervalMs;
+        // NAT 映射收发任一方向都会刷新
+        long natDue = Math.max(lastSentAt, lastReceivedAt) + intervalMs;
+        return Math.min(serverDue, natDue) - now;
+    }
+
+    /**
+     * 发出心跳，需在 onSent 之前调用以记录发出前的空闲时长
+     */
+    void onHeartbeatSent(long now) {
+        probeNow = false;
+        sent++;
+        if (outstandingSentAt < 0) {
+            outstandingSentAt = now;
+            outstandingIdleMs = now - Math.max(lastSentAt, lastReceivedAt);
+        }
+    }
+
+    /**
+     * 收到心跳回复
+     */
+    void onHeartbeatReply(long now, long rttNanos) {
+        replies++;
+        rtt.record(rttNanos);
+        missedReplies = 0;
+        if (outstandingSentAt < 0) {
+            return;
+        }
+        long idleMs = outstandingIdleMs;
+        outstandingSentAt = -1;
+        // 只有空闲满一个周期的心跳才能证明当前周期可行
+        if (idleMs + stepMs / 2 < intervalMs) {
+            return;
+        }
+        if (++successes >= SUCCESSES_TO_GROW) {
+            successes = 0;
+            long next = Math.min(intervalMs + stepMs, maxIntervalMs);
+            if (next < failedIntervalMs) {
+                intervalMs = next;
+            }
+        }
+    }
+
+    /**
+     * 心跳回复超时：立即再探测一次，连续超时判定服务器失效
+     */
+    void onHeartbeatTimeout(long now) {
+        timeouts++;
+        rtt.recordTimeout();
+        missedReplies++;
+        probeNow = true;
+        if (outstandingSentAt >= 0) {
+            onIntervalFailed(outstandingIdleMs);
+            outstandingSentAt = -1;
+        }
+    }
+
+    private void onIntervalFailed(long idleMs) {
+        successes = 0;
+        long failed = Math.max(idleMs, minIntervalMs);
+        failedIntervalMs = Math.min(failedIntervalMs, failed);
+        intervalMs = Math.max(minIntervalMs, Math.min(intervalMs, failed - stepMs));
+    }
+
+    /**
+     * 连续多次心跳无回复，应断开重连
+     */
+    boolean isPeerDead() {
+        return missedReplies >= MAX_MISSED_REPLIES;
+    }
+
+    public int getMissedReplies() {
+        return missedReplies;
+    }
+
+    /**
+     * 当前学到的空闲周期 毫秒
+     */
+    public long getIntervalMs() {
+        return intervalMs;
+    }
+
+    /**
+     * 已知失败的最短周期 毫秒，未失败过返回 -1
+     */
+    public long getFailedIntervalMs() {
+        long failed = failedIntervalMs;
+        return failed == Long.MAX_VALUE ? -1 : failed;
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    public long getReplies() {
+        return replies;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * 心跳往返延迟
+     */
+    public LatencyStats getRttStats() {
+        return rtt;
+    }
+
+    /**
+     * 已断开连接的累计在线时长 毫秒
+     */
+    public long getConnectedMs() {
+        return connectedMs;
+    }
+
+    /**
+     * 同样在线时长内固定 20 秒心跳需要发送的次数，用于对比节省的流量与唤醒次数
+     */
+    public long getFixedIntervalEquivalent() {
+        return connectedMs / INITIAL_INTERVAL_MS;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "interval=%dms failed=%dms sent=%d replies=%d timeouts=%d rtt=[%s]",
+                getIntervalMs(), getFailedIntervalMs(), sent, replies, timeouts, rtt);
+    }
+}
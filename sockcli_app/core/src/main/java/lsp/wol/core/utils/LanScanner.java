@@ -0,0 +1,337 @@
+package lsp.wol.core.utils;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import lsp.wol.core.metrics.Counter;
+import lsp.wol.core.metrics.MetricsRegistry;
+import lsp.wol.core.model.MacAddress;
+import lsp.wol.core.platform.Log;
+
+/**
+ * 局域网设备发现：按速率限制向 BroadcastHelper 找到的每个子网的所有地址发送 NetBIOS 节点状态查询，
+ * 发送本身也让系统对这些地址做 ARP 解析；同时定期读取 ARP 表，两种来源得到的 IP→MAC 边发现边回调
+ * 整个网段由一个线程、一个 UDP 通道完成，每个子网最多扫描 maxHostsPerSubnet 个地址，内存与网段大小成正比
+ */
+public class LanScanner {
+
+    /**
+     * 扫描参数
+     */
+    public static final class Options {
+        // 每秒发送的查询数，/22 约半秒发完
+        public int packetsPerSecond = 2000;
+        // 每个子网最多扫描的地址数，子网更大时只扫描本机所在的一段
+        public int maxHostsPerSubnet = 1024;
+        // 发送完后继续等待回复与 ARP 表更新
+        public long settleMs = 1500;
+        public long arpPollMs = 500;
+        // 没有 NetBIOS 名称的设备反查 DNS 主机名
+        public boolean resolveHostnames = true;
+        public int port = NetBios.PORT;
+    }
+
+    /**
+     * 发现的一台设备
+     */
+    public static final class Host {
+        public final InetAddress address;
+        public final MacAddress macAddress;
+        volatile String name;
+
+        Host(InetAddress address, MacAddress macAddress, String name) {
+            this.address = address;
+            this.macAddress = macAddress;
+            this.name = name;
+        }
+
+        /**
+         * NetBIOS 名称或 DNS 主机名，没有为 null
+         */
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return address.getHostAddress() + " " + macAddress + (name == null ? "" : " " + name);
+        }
+    }
+
+    /**
+     * 扫描结果，在扫描线程或主机名解析线程回调
+     */
+    public interface Listener {
+        void onFound(Host host);
+
+        /**
+         * 之后解析出了主机名
+         */
+        default void onUpdated(Host host) {
+        }
+    }
+
+    private static final Counter PROBES = MetricsRegistry.shared().counter("scan.probes");
+    private static final Counter FOUND = MetricsRegistry.shared().counter("scan.found");
+    // 主机名解析线程与排队上限
+    private static final int RESOLVER_THREADS = 2;
+    private static final int RESOLVER_QUEUE = 256;
+    private static final long RESOLVER_WAIT_MS = 2000;
+
+    private final Options options;
+    private final Supplier<List<BroadcastHelper.Subnet>> subnets;
+    private final Supplier<ArpTable> arpSource;
+    private volatile boolean cancelled;
+
+    public LanScanner(Options options) {
+        this(options, () -> BroadcastHelper.shared().getSubnets(), ArpTable::read);
+    }
+
+    LanScanner(Options options, Supplier<List<BroadcastHelper.Subnet>> subnets, Supplier<ArpTable> arpSource) {
+        this.options = options;
+        this.subnets = subnets;
+        this.arpSource = arpSource;
+    }
+
+    /**
+     * 在后台线程扫描，发现设备时立即回调；返回的结果在扫描结束（含等待主机名）时完成
+     */
+    public CompletableFuture<List<Host>> scan(Listener listener) {
+        cancelled = false;
+        CompletableFuture<List<Host>> future = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                future.complete(run(listener));
+            } catch (Exception e) {
+                Log.e("LanScanner scan", e);
+                future.completeExceptionally(e);
+            }
+        }, "lan-scan");
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
+    /**
+     * 停止发送，已发现的设备仍会返回
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    // 一次扫描的状态，只在扫描线程修改
+    private final class Scan {
+        final Listener listener;
+        final List<int[]> ranges = new ArrayList<>();
+        // IPv4 地址（int） -> 设备
+        final Map<Integer, Host> found = new HashMap<>();
+        final ThreadPoolExecutor resolver;
+        long arpReadAt;
+
+        Scan(Listener listener) {
+            this.listener = listener;
+            this.arpReadAt = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(options.arpPollMs);
+            this.resolver = options.resolveHostnames ? new ThreadPoolExecutor(RESOLVER_THREADS, RESOLVER_THREADS,
+                    1, TimeUnit.SECONDS, new ArrayBlockingQueue<>(RESOLVER_QUEUE), runnable -> {
+                Thread thread = new Thread(runnable, "lan-scan-dns");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy()) : null;
+        }
+
+        boolean inRange(int ip) {
+            for (int[] range : ranges) {
+                if ((ip & range[1]) == range[0]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void record(InetAddress address, MacAddress macAddress, String name) {
+            if (!(address instanceof Inet4Address)) {
+                return;
+            }
+            int ip = toInt(address);
+            if (!inRange(ip)) {
+                return;
+            }
+            Host host = found.get(ip);
+            if (host == null) {
+                host = new Host(address, macAddress, name);
+                found.put(ip, host);
+                FOUND.increment();
+                listener.onFound(host);
+                if (name == null && resolver != null) {
+                    resolveName(host);
+                }
+            } else if (host.name == null && name != null) {
+                host.name = name;
+                listener.onUpdated(host);
+            }
+        }
+
+        void resolveName(Host host) {
+            resolver.execute(() -> {
+                String name = host.address.getCanonicalHostName();
+                // 没有反向解析记录时返回地址本身
+                if (host.name == null && !name.equals(host.address.getHostAddress())) {
+                    host.name = name;
+                    listener.onUpdated(host);
+                }
+            });
+        }
+
+        void pollArp(long now, boolean force) {
+            if (!force && now - arpReadAt < TimeUnit.MILLISECONDS.toNanos(options.arpPollMs)) {
+                return;
+            }
+            arpReadAt = now;
+            for (Map.Entry<InetAddress, MacAddress> entry : arpSource.get().asMap().entrySet()) {
+                record(entry.getKey(), entry.getValue(), null);
+            }
+        }
+    }
+
+    private List<Host> run(Listener listener) throws IOException, InterruptedException {
+        Scan scan = new Scan(listener);
+        List<int[]> targets = new ArrayList<>();
+        int total = 0;
+        for (BroadcastHelper.Subnet subnet : subnets.get()) {
+            if (!(subnet.address instanceof Inet4Address)) {
+                continue;
+            }
+            int prefix = effectivePrefix(subnet.prefixLength, options.maxHostsPerSubnet);
+            int mask = prefix == 0 ? 0 : -1 << (32 - prefix);
+            scan.ranges.add(new int[]{toInt(subnet.address) & mask, mask});
+            int[] hosts = hostsOf(toInt(subnet.address), prefix);
+            targets.add(hosts);
+            total += hosts.length;
+        }
+        Log.i("LanScanner run: {} 个子网，{} 个地址", (Object) targets.size(), total);
+
+        long start = System.nanoTime();
+        ByteBuffer received = ByteBuffer.allocate(1500);
+        try (DatagramChannel channel = DatagramChannel.open(); Selector selector = Selector.open()) {
+            channel.configureBlocking(false);
+            channel.bind(null);
+            channel.register(selector, SelectionKey.OP_READ);
+            long interval = TimeUnit.SECONDS.toNanos(1) / Math.max(1, options.packetsPerSecond);
+            long next = System.nanoTime();
+            int id = 0;
+            for (int[] hosts : targets) {
+                for (int i = 0; i < hosts.length && !cancelled; i++) {
+                    // 按速率发送，落后时连续补发
+                    long wait = next - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    next += interval;
+                    try {
+                        channel.send(ByteBuffer.wrap(NetBios.encodeQuery(id++ & 0xffff)),
+                                new InetSocketAddress(toAddress(hosts[i]), options.port));
+                        PROBES.increment();
+                    } catch (IOException e) {
+                        // 个别地址不可达（没有路由）不影响其它地址
+                        Log.d("LanScanner run: {} 发送失败", toAddress(hosts[i]));
+                    }
+                    receiveAll(channel, received, scan);
+                    scan.pollArp(System.nanoTime(), false);
+                }
+            }
+            // 等待最后一批回复和 ARP 解析
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.settleMs);
+            long now;
+            while (!cancelled && (now = System.nanoTime()) < deadline) {
+                selector.select(Math.max(1, Math.min(options.arpPollMs, TimeUnit.NANOSECONDS.toMillis(deadline - now))));
+                selector.selectedKeys().clear();
+                receiveAll(channel, received, scan);
+                scan.pollArp(System.nanoTime(), false);
+            }
+        }
+        scan.pollArp(System.nanoTime(), true);
+        if (scan.resolver != null) {
+            scan.resolver.shutdown();
+            scan.resolver.awaitTermination(RESOLVER_WAIT_MS, TimeUnit.MILLISECONDS);
+        }
+        Log.i("LanScanner run: 发现 {} 台，用时 {}ms", (Object) scan.found.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return new ArrayList<>(scan.found.values());
+    }
+
+    private static void receiveAll(DatagramChannel channel, ByteBuffer buffer, Scan scan) throws IOException {
+        while (true) {
+            buffer.clear();
+            SocketAddress from = channel.receive(buffer);
+            if (from == null) {
+                return;
+            }
+            buffer.flip();
+            NetBios.Status status = NetBios.parseResponse(buffer);
+            if (status != null && from instanceof InetSocketAddress) {
+                scan.record(((InetSocketAddress) from).getAddress(), status.macAddress, status.name);
+            }
+        }
+    }
+
+    /**
+     * 实际扫描的前缀长度：子网地址数超过上限时缩小到本机所在的一段
+     */
+    static int effectivePrefix(int prefixLength, int maxHosts) {
+        int bits = 31 - Integer.numberOfLeadingZeros(Math.max(4, maxHosts));
+        return Math.max(prefixLength, 32 - bits);
+    }
+
+    /**
+     * 网段内除网络地址、广播地址和本机外的所有地址；/31、/32 没有可扫描的地址
+     */
+    static int[] hostsOf(int self, int prefixLength) {
+        if (prefixLength >= 31) {
+            return new int[0];
+        }
+        int mask = prefixLength == 0 ? 0 : -1 << (32 - prefixLength);
+        int network = self & mask;
+        int size = (int) ((1L << (32 - prefixLength)) - 2);
+        int[] hosts = new int[size];
+        int n = 0;
+        for (int i = 1; i <= size; i++) {
+            int ip = network + i;
+            if (ip != self) {
+                hosts[n++] = ip;
+            }
+        }
+        return n == size ? hosts : Arrays.copyOf(hosts, n);
+    }
+
+    static int toInt(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        return (bytes[0] & 0xff) << 24 | (bytes[1] & 0xff) << 16 | (bytes[2] & 0xff) << 8 | (bytes[3] & 0xff);
+    }
+
+    static InetAddress toAddress(int ip) {
+        try {
+            return InetAddress.getByAddress(new byte[]{(byte) (ip >>> 24), (byte) (ip >>> 16), (byte) (ip >>> 8), (byte) ip});
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package lsp.wol.core.utils;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 往返延迟统计：按 2 的幂毫秒分桶
+ * 由连接线程写入，其它线程读取
+ */
+public class LatencyStats {
+
+    // 分桶上限：1, 2, 4 ... 32768 毫秒, 更大
+    private static final int BUCKETS = 16;
+
+    private volatile long count;
+    private volatile long timeouts;
+    private volatile long totalNanos;
+    private volatile long maxNanos;
+    private final long[] histogram = new long[BUCKETS + 1];
+
+    synchronized void record(long latencyNanos) {
+        count++;
+        totalNanos += latencyNanos;
+        maxNanos = Math.max(maxNanos, latencyNanos);
+        histogram[bucketOf(latencyNanos)]++;
+    }
+
+    synchronized void recordTimeout() {
+        timeouts++;
+    }
+
+    /**
+     * 合并另一份统计（汇总多个连接）
+     */
+    public void addAll(LatencyStats other) {
+        long[] otherHistogram = other.getHistogram();
+        synchronized (this) {
+            count += other.count;
+            timeouts += other.timeouts;
+            totalNanos += other.totalNanos;
+            maxNanos = Math.max(maxNanos, other.maxNanos);
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += otherHistogram[i];
+            }
+        }
+    }
+
+    private static int bucketOf(long latencyNanos) {
+        long ms = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+        if (ms <= 1) {
+            return 0;
+        }
+        // 向上取到 2 的幂
+        int bucket = 64 - Long.numberOfLeadingZeros(ms - 1);
+        return Math.min(bucket, BUCKETS);
+    }
+
+    /**
+     * 第 bucket 个分桶的上限 毫秒，最后一个分桶没有上限
+     */
+    public static long bucketUpperBoundMs(int bucket) {
+        return bucket >= BUCKETS ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public double getAverageMs() {
+        long c = count;
+        return c == 0 ? 0 : (double) totalNanos / c / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxMs() {
+        return (double) maxNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * 分位数的近似值（所在分桶的上限，不超过最大值） 毫秒
+     * @param quantile 0~1
+     */
+    public synchronized double getPercentileMs(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= rank && histogram[i] > 0) {
+                return Math.min(bucketUpperBoundMs(i), getMaxMs());
+            }
+        }
+        return getMaxMs();
+    }
+
+    /**
+     * 延迟分布，下标 i 对应 <= 2^i 毫秒，最后一项为更大
+     */
+    public synchronized long[] getHistogram() {
+        return histogram.clone();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "count=%d timeouts=%d avg=%.3fms p50<=%.0fms p99<=%.0fms max=%.3fms",
+                count, timeouts, getAverageMs(), getPercentileMs(0.5), getPercentileMs(0.99), getMaxMs());
+    }
+}
@@ -0,0 +1,564 @@
+package lsp.wol.core.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+import lsp.wol.core.model.Command;
+import lsp.wol.core.model.TcpData;
+import lsp.wol.core.platform.Log;
+
+/**
+ * 进程内的中继服务器，行为与 sockser（Go）一致，用于本机测试与压测：
+ * 连接后下发 net_ip；每条消息必须带 type（app / esp8266），否则断开；任何消息都刷新心跳时间，
+ * 超过 30 秒没有消息的连接每 10 秒检查一次并断开；
+ * heartbeat 原样回复当前时间；app 的 wol 下发给所有 ESP8266 并回复 wol_rec_dev_size（下发数量）；
+ * wol_rec_dev_recp 转发给所有 app；其它命令忽略；每个连接最多缓存 1000 条待发送消息
+ *
+ * sockser 每次 read 只解析一条消息，消息粘连或拆开时 JSON 解析失败并断开连接；
+ * 默认按 JSON 括号边界分帧（宽松），setStrictReads(true) 时按 sockser 的方式解析，用来检查客户端是否兼容
+ *
+ * 所有连接由一个线程通过 Selector 处理，转发不需要加锁；
+ * 一轮事件中发给同一连接的消息在本轮结束时一次写出（gathering write），转发给大量连接时减少系统调用
+ */
+public class LocalRelay implements Closeable {
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final int MAX_CONNECTIONS = 1000;
+    public static final long HEARTBEAT_CHECK_INTERVAL_MS = 10 * 1000L;
+    public static final long HEARTBEAT_TIMEOUT_MS = 30 * 1000L;
+    public static final int SEND_QUEUE_LIMIT = 1000;
+
+    static final String TYPE_APP = "app";
+    static final String TYPE_ESP8266 = "esp8266";
+
+    // sockser 的读缓冲区大小
+    private static final int READ_BUFFER_SIZE = 1024;
+
+    private static final class Peer {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final FrameCodec frames = new FrameCodec();
+        final ArrayDeque<ByteBuffer> outbox = new ArrayDeque<>();
+        String type = "";
+        long lastHeartbeat;
+        boolean closed;
+        // 已加入待写出列表
+        boolean dirty;
+
+        Peer(SocketChannel channel, SelectionKey key, long now) {
+            this.channel = channel;
+            this.key = key;
+            this.lastHeartbeat = now;
+        }
+    }
+
+    private final int port;
+    private final int maxConnections;
+    private final long heartbeatTimeoutMs;
+    private final long checkIntervalMs;
+    private volatile boolean strictReads;
+
+    // 以下只在中继线程使用
+    private final List<Peer> peers = new ArrayList<>();
+    // 本轮有新消息、需要写出的连接
+    private final List<Peer> dirtyPeers = new ArrayList<>();
+    private ByteBuffer[] gather = new ByteBuffer[16];
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final TcpDataCodec codec = new TcpDataCodec();
+    private ByteBuffer encodeBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private boolean hasClosedPeers;
+    private int framesInRead;
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread thread;
+    private volatile boolean running;
+
+    // 统计 只由中继线程写入
+    private volatile int connections;
+    private volatile int apps;
+    private volatile int devices;
+    private volatile long accepted;
+    private volatile long rejected;
+    private volatile long messagesIn;
+    private volatile long messagesOut;
+    private volatile long wakes;
+    private volatile long wakeDeliveries;
+    private volatile long receipts;
+    private volatile long dropped;
+    private volatile long timeouts;
+
+    /**
+     * @param port 监听端口，0 为随机端口
+     */
+    public LocalRelay(int port) {
+        this(port, MAX_CONNECTIONS, HEARTBEAT_TIMEOUT_MS, HEARTBEAT_CHECK_INTERVAL_MS);
+    }
+
+    public LocalRelay(int port, int maxConnections, long heartbeatTimeoutMs, long checkIntervalMs) {
+        this.port = port;
+        this.maxConnections = maxConnections;
+        this.heartbeatTimeoutMs = heartbeatTimeoutMs;
+        this.checkIntervalMs = checkIntervalMs;
+    }
+
+    /**
+     * 按 sockser 的方式解析：每次读到的数据必须正好是一条完整的 JSON 消息
+     */
+    public void setStrictReads(boolean strictReads) {
+        this.strictReads = strictReads;
+    }
+
+    /**
+     * 开始监听（所有网卡）
+     * @throws IOException 端口被占用等
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        try {
+            server.bind(new InetSocketAddress(port), 1024);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+        running = true;
+        thread = new Thread(this::loop, "LocalRelay");
+        thread.setDaemon(true);
+        thread.start();
+        Log.i("LocalRelay start: 监听端口 {}", getPort());
+    }
+
+    /**
+     * 实际监听的端口
+     */
+    public int getPort() {
+        ServerSocketChannel current = server;
+        return current == null ? port : current.socket().getLocalPort();
+    }
+
+    @Override
+    public void close() {
+        Thread current;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            selector.wakeup();
+            current = thread;
+        }
+        try {
+            current.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void loop() {
+        long nextCheck = System.currentTimeMillis() + checkIntervalMs;
+        try {
+            while (running) {
+                long wait = Math.max(1, nextCheck - System.currentTimeMillis());
+                selector.select(wait);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Peer peer = (Peer) key.attachment();
+                    if (key.isWritable()) {
+                        flush(peer);
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        read(peer);
+                    }
+                }
+                flushDirty();
+                long now = System.currentTimeMillis();
+                if (now >= nextCheck) {
+                    closeTimedOut(now);
+                    nextCheck = now + checkIntervalMs;
+                }
+                if (hasClosedPeers) {
+                    peers.removeIf(peer -> peer.closed);
+                    hasClosedPeers = false;
+                }
+            }
+        } catch (IOException e) {
+            Log.e("LocalRelay loop", e);
+        } finally {
+            for (Peer peer : peers) {
+                closePeer(peer);
+            }
+            peers.clear();
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException ignored) {
+            }
+            running = false;
+        }
+    }
+
+    private void accept() {
+        SocketChannel channel;
+        while ((channel = acceptNext()) != null) {
+            if (connections >= maxConnections) {
+                Log.i("LocalRelay accept: 拒绝连接, 超过服务器最大连接数({})", maxConnections);
+                // 先计数再关闭，对端看到断开时统计已更新
+                rejected++;
+                closeQuietly(channel);
+                continue;
+            }
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                InetSocketAddress remote = (InetSocketAddress) channel.getRemoteAddress();
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                Peer peer = new Peer(channel, key, System.currentTimeMillis());
+                key.attach(peer);
+                peers.add(peer);
+                accepted++;
+                connections++;
+
+                // 通知客户端公网地址
+                send(peer, encode(Command.NET_IP, remote.getAddress().getHostAddress()));
+            } catch (IOException e) {
+                Log.i("LocalRelay accept: {}", e.getMessage());
+                closeQuietly(channel);
+            }
+        }
+    }
+
+    // 文件句柄用尽等错误不影响已有连接
+    private SocketChannel acceptNext() {
+        try {
+            return server.accept();
+        } catch (IOException e) {
+            Log.e("LocalRelay accept", e);
+            return null;
+        }
+    }
+
+    private void read(Peer peer) {
+        try {
+            readBuffer.clear();
+            int n = peer.channel.read(readBuffer);
+            if (n < 0) {
+                closePeer(peer);
+                return;
+            }
+            readBuffer.flip();
+            if (!strictReads) {
+                peer.frames.decode(readBuffer, (array, offset, length) -> onFrame(peer, array, offset, length));
+                return;
+            }
+            // 与 sockser 相同：这次读到的字节必须正好是一条消息
+            framesInRead = 0;
+            peer.frames.decode(readBuffer, (array, offset, length) -> {
+                if (++framesInRead == 1) {
+                    onFrame(peer, array, offset, length);
+                }
+            });
+            if (framesInRead != 1 || peer.frames.buffered() > 0) {
+                throw new IOException("one read must carry exactly one message, got " + framesInRead
+                        + " frames and " + peer.frames.buffered() + " extra bytes");
+            }
+        } catch (IOException e) {
+            Log.d("LocalRelay read: 断开 {}", e.getMessage());
+            closePeer(peer);
+        }
+    }
+
+    private void onFrame(Peer peer, byte[] array, int offset, int length) {
+        if (peer.closed) {
+            return;
+        }
+        TcpData message;
+        try {
+            message = codec.decode(array, offset, length);
+        } catch (IOException e) {
+            Log.i("LocalRelay onFrame: JSON 解析失败 {}", e.getMessage());
+            closePeer(peer);
+            return;
+        }
+        messagesIn++;
+        if (!TYPE_APP.equals(message.type) && !TYPE_ESP8266.equals(message.type)) {
+            Log.i("LocalRelay onFrame: 无效的客户端类型 {}", message.type);
+            closePeer(peer);
+            return;
+        }
+        setType(peer, message.type);
+        peer.lastHeartbeat = System.currentTimeMillis();
+
+        switch (message.command()) {
+            case HEARTBEAT:
+                send(peer, encode(Command.HEARTBEAT, String.valueOf(System.currentTimeMillis())));
+                break;
+            case WOL:
+                if (TYPE_APP.equals(peer.type)) {
+                    wakes++;
+                    int delivered = sendToAll(TYPE_ESP8266, encode(Command.WOL, message.data));
+                    wakeDeliveries += delivered;
+                    send(peer, encode(Command.WOL_DEVICE_SIZE, String.valueOf(delivered)));
+                }
+                break;
+            case WOL_RECEIPT:
+                receipts++;
+                sendToAll(TYPE_APP, encode(Command.WOL_RECEIPT, message.data));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void setType(Peer peer, String type) {
+        if (type.equals(peer.type)) {
+            return;
+        }
+        countType(peer.type, -1);
+        peer.type = type;
+        countType(type, 1);
+    }
+
+    private void countType(String type, int delta) {
+        if (TYPE_APP.equals(type)) {
+            apps += delta;
+        } else if (TYPE_ESP8266.equals(type)) {
+            devices += delta;
+        }
+    }
+
+    /**
+     * 发给所有指定类型的连接
+     * @return 成功放入发送队列的连接数
+     */
+    private int sendToAll(String type, byte[] message) {
+        int sent = 0;
+        for (int i = 0, size = peers.size(); i < size; i++) {
+            Peer peer = peers.get(i);
+            if (!peer.closed && type.equals(peer.type) && send(peer, message)) {
+                sent++;
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * 放入发送队列，本轮事件处理完后写出；message 可被多个连接共享
+     * @return 队列已满或连接已关闭返回 false
+     */
+    private boolean send(Peer peer, byte[] message) {
+        if (peer.closed) {
+            return false;
+        }
+        if (peer.outbox.size() >= SEND_QUEUE_LIMIT) {
+            dropped++;
+            return false;
+        }
+        peer.outbox.add(ByteBuffer.wrap(message));
+        messagesOut++;
+        if (!peer.dirty) {
+            peer.dirty = true;
+            dirtyPeers.add(peer);
+        }
+        return true;
+    }
+
+    private void flushDirty() {
+        for (int i = 0, size = dirtyPeers.size(); i < size; i++) {
+            Peer peer = dirtyPeers.get(i);
+            peer.dirty = false;
+            // 等待可写的连接由 OP_WRITE 继续
+            if (!peer.closed && (peer.key.interestOps() & SelectionKey.OP_WRITE) == 0) {
+                flush(peer);
+            }
+        }
+        dirtyPeers.clear();
+    }
+
+    private void flush(Peer peer) {
+        try {
+            while (!peer.outbox.isEmpty()) {
+                int count = Math.min(peer.outbox.size(), gather.length);
+                Iterator<ByteBuffer> pending = peer.outbox.iterator();
+                for (int i = 0; i < count; i++) {
+                    gather[i] = pending.next();
+                }
+                peer.channel.write(gather, 0, count);
+                // 最后一段没写完说明发送缓冲区已满
+                boolean full = gather[count - 1].hasRemaining();
+                Arrays.fill(gather, 0, count, null);
+                while (!peer.outbox.isEmpty() && !peer.outbox.peek().hasRemaining()) {
+                    peer.outbox.poll();
+                }
+                if (full) {
+                    // 等可写时继续
+                    peer.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            peer.key.interestOps(SelectionKey.OP_READ);
+        } catch (IOException e) {
+            closePeer(peer);
+        }
+    }
+
+    private byte[] encode(Command command, String data) {
+        TcpData tcpData = new TcpData(command, data == null ? "" : data);
+        tcpData.type = null;
+        while (true) {
+            try {
+                encodeBuffer.clear();
+                TcpDataCodec.writeJson(tcpData, encodeBuffer);
+                break;
+            } catch (BufferOverflowException e) {
+                encodeBuffer = ByteBuffer.allocate(encodeBuffer.capacity() * 2);
+            }
+        }
+        byte[] bytes = new byte[encodeBuffer.position()];
+        encodeBuffer.flip();
+        encodeBuffer.get(bytes);
+        return bytes;
+    }
+
+    private void closeTimedOut(long now) {
+        for (Peer peer : peers) {
+            if (!peer.closed && now - peer.lastHeartbeat > heartbeatTimeoutMs) {
+                timeouts++;
+                closePeer(peer);
+            }
+        }
+    }
+
+    private void closePeer(Peer peer) {
+        if (peer.closed) {
+            return;
+        }
+        peer.closed = true;
+        hasClosedPeers = true;
+        countType(peer.type, -1);
+        peer.outbox.clear();
+        peer.key.cancel();
+        closeQuietly(peer.channel);
+        connections--;
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 当前连接数
+     */
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * 当前 app 连接数（发过消息后才知道类型）
+     */
+    public int getApps() {
+        return apps;
+    }
+
+    /**
+     * 当前 ESP8266 连接数
+     */
+    public int getDevices() {
+        return devices;
+    }
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * 超过最大连接数被拒绝的连接
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getMessagesIn() {
+        return messagesIn;
+    }
+
+    public long getMessagesOut() {
+        return messagesOut;
+    }
+
+    /**
+     * 收到的 app 唤醒请求数
+     */
+    public long getWakes() {
+        return wakes;
+    }
+
+    /**
+     * 下发给 ESP8266 的唤醒命令总数
+     */
+    public long getWakeDeliveries() {
+        return wakeDeliveries;
+    }
+
+    public long getReceipts() {
+        return receipts;
+    }
+
+    /**
+     * 发送队列已满丢弃的消息
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * 心跳超时断开的连接
+     */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "连接 %d (app %d esp8266 %d) 接受 %d 拒绝 %d 超时 %d 收 %d 发 %d 唤醒 %d 下发 %d 回执 %d 丢弃 %d",
+                connections, apps, devices, accepted, rejected, timeouts, messagesIn, messagesOut,
+                wakes, wakeDeliveries, receipts, dropped);
+    }
+}
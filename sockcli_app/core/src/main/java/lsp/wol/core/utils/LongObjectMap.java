@@ -0,0 +1,213 @@
+package lsp.wol.core.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * long 为键的有序哈希表，键不装箱
+ * 键值按插入顺序存放在连续数组中，哈希表（线性探测）只保存数组下标；
+ * 删除时数组中留空位，空位过多时整理
+ * 非线程安全
+ */
+public final class LongObjectMap<V> {
+
+    private static final int MIN_CAPACITY = 8;
+
+    // 下标 + 1，0 表示空
+    private int[] table;
+    private long[] keys;
+    private Object[] values;
+    // keys/values 已使用的长度（含空位）
+    private int used;
+    private int size;
+
+    public LongObjectMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        int capacity = Math.max(MIN_CAPACITY, expectedSize);
+        keys = new long[capacity];
+        values = new Object[capacity];
+        table = new int[tableSizeFor(capacity)];
+    }
+
+    // 负载不超过 0.5
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(capacity * 4 - 1);
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = find(key);
+        return slot < 0 ? null : (V) values[table[slot] - 1];
+    }
+
+    /**
+     * 已存在的键替换值并保持原位置，否则追加到末尾
+     * @return 旧值
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        int slot = find(key);
+        if (slot >= 0) {
+            int index = table[slot] - 1;
+            V old = (V) values[index];
+            values[index] = value;
+            return old;
+        }
+        if (used == keys.length) {
+            // 空位超过一半时原地整理，否则扩容
+            resize(size * 2 > keys.length ? keys.length * 2 : keys.length);
+        }
+        keys[used] = key;
+        values[used] = value;
+        used++;
+        size++;
+        insert(key, used);
+        return null;
+    }
+
+    /**
+     * @return 被删除的值，不存在返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        int index = table[slot] - 1;
+        V old = (V) values[index];
+        values[index] = null;
+        size--;
+        deleteSlot(slot);
+        return old;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0);
+        Arrays.fill(values, 0, used, null);
+        used = 0;
+        size = 0;
+    }
+
+    /**
+     * 按插入顺序的全部值
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> list = new ArrayList<>(size);
+        for (int i = 0; i < used; i++) {
+            if (values[i] != null) {
+                list.add((V) values[i]);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 按插入顺序遍历
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitor<? super V> visitor) {
+        for (int i = 0; i < used; i++) {
+            if (values[i] != null) {
+                visitor.visit(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    public interface Visitor<V> {
+        void visit(long key, V value);
+    }
+
+    private int find(long key) {
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        while (true) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (keys[entry - 1] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void insert(long key, int entry) {
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = entry;
+    }
+
+    // 线性探测的后移删除，不留墓碑
+    private void deleteSlot(int slot) {
+        int mask = table.length - 1;
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            int entry = table[next];
+            if (entry == 0) {
+                break;
+            }
+            int ideal = hash(keys[entry - 1]) & mask;
+            // ideal 不在 (hole, next] 区间内时可以前移到 hole
+            boolean movable = hole <= next
+                    ? ideal <= hole || ideal > next
+                    : ideal <= hole && ideal > next;
+            if (movable) {
+                table[hole] = entry;
+                hole = next;
+            }
+        }
+        table[hole] = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        int oldUsed = used;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        table = new int[tableSizeFor(capacity)];
+        used = 0;
+        for (int i = 0; i < oldUsed; i++) {
+            if (oldValues[i] != null) {
+                keys[used] = oldKeys[i];
+                values[used] = oldValues[i];
+                used++;
+                insert(oldKeys[i], used);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package lsp.wol.core.utils;
+
+import java.nio.ByteBuffer;
+
+import lsp.wol.core.model.MacAddress;
+
+/**
+ * 预先编译好的魔术包
+ * 6 个 0xFF + 16 次目标 MAC，可选 6 字节 SecureOn 密码，共 102 或 108 字节
+ * 不可变，可在多个线程间共享
+ */
+public final class MagicPacket {
+
+    public static final int BASE_LENGTH = 6 + 16 * 6;
+    public static final int SECURE_ON_LENGTH = 6;
+
+    private final byte[] bytes;
+
+    private MagicPacket(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * 编译魔术包
+     * @param macAddress 目标 MAC
+     * @param secureOn SecureOn 密码，支持 ':' '-' 分隔或不分隔，为空表示不带密码
+     * @throws IllegalArgumentException 密码格式不正确
+     */
+    public static MagicPacket compile(MacAddress macAddress, String secureOn) {
+        boolean hasPassword = secureOn != null && !secureOn.isEmpty();
+        byte[] bytes = new byte[BASE_LENGTH + (hasPassword ? SECURE_ON_LENGTH : 0)];
+        for (int i = 0; i < 6; i++) {
+            bytes[i] = (byte) 0xff;
+        }
+        macAddress.writeTo(bytes, 6);
+        for (int i = 2; i <= 16; i++) {
+            System.arraycopy(bytes, 6, bytes, i * 6, 6);
+        }
+        if (hasPassword && !parseSixBytes(secureOn, bytes, BASE_LENGTH)) {
+            throw new IllegalArgumentException("Invalid SecureOn password.");
+        }
+        return new MagicPacket(bytes);
+    }
+
+    /**
+     * 解析 6 字节十六进制文本，格式同 MacAddress.parseLong
+     * @return 是否解析成功
+     */
+    public static boolean parseSixBytes(CharSequence text, byte[] out, int offset) {
+        long value = MacAddress.parseLong(text);
+        if (value < 0) {
+            return false;
+        }
+        MacAddress.of(value).writeTo(out, offset);
+        return true;
+    }
+
+    public int length() {
+        return bytes.length;
+    }
+
+    public boolean hasSecureOn() {
+        return bytes.length > BASE_LENGTH;
+    }
+
+    /**
+     * 写入缓冲区，发送热路径不分配内存
+     */
+    public void writeTo(ByteBuffer out) {
+        out.put(bytes);
+    }
+
+    public byte[] toByteArray() {
+        return bytes.clone();
+    }
+}
@@ -0,0 +1,57 @@
+package lsp.wol.core.utils;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lsp.wol.core.model.Device;
+import lsp.wol.core.model.MacAddress;
+
+/**
+ * 每台设备的魔术包缓存
+ * 保存设备时编译，修改或删除设备时失效，发送时直接取用
+ */
+public class MagicPacketCache {
+
+    private static final class Entry {
+        final String secureOn;
+        final MagicPacket packet;
+
+        Entry(String secureOn, MagicPacket packet) {
+            this.secureOn = secureOn;
+            this.packet = packet;
+        }
+    }
+
+    private static final ConcurrentHashMap<MacAddress, Entry> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 取缓存的魔术包，没有或已过期时重新编译
+     * @throws IllegalArgumentException 密码格式不正确
+     */
+    public static MagicPacket get(Device device) {
+        Entry entry = CACHE.get(device.macAddress);
+        if (entry != null && Objects.equals(entry.secureOn, device.secureOn)) {
+            return entry.packet;
+        }
+        return put(device);
+    }
+
+    /**
+     * 编译并缓存
+     */
+    public static MagicPacket put(Device device) {
+        MagicPacket packet = MagicPacket.compile(device.macAddress, device.secureOn);
+        CACHE.put(device.macAddress, new Entry(device.secureOn, packet));
+        return packet;
+    }
+
+    public static void invalidate(Device device) {
+        if (device != null && device.macAddress != null) {
+            CACHE.remove(device.macAddress);
+        }
+    }
+
+    public static void clear() {
+        CACHE.clear();
+    }
+}
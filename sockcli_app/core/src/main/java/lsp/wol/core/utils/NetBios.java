@@ -0,0 +1,112 @@
+package lsp.wol.core.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import lsp.wol.core.model.MacAddress;
+
+/**
+ * NetBIOS 节点状态查询（NBSTAT，RFC 1002 4.2.17/4.2.18）
+ * Windows 主机在 UDP 137 回复计算机名和网卡 MAC，读不到系统 ARP 表时也能拿到 MAC
+ */
+final class NetBios {
+
+    static final int PORT = 137;
+    private static final int TYPE_NBSTAT = 0x21;
+    private static final int CLASS_IN = 1;
+    // 名称标志中的组名位
+    private static final int GROUP_NAME = 0x8000;
+
+    /**
+     * 查询结果：计算机名（可能为 null）与 MAC
+     */
+    static final class Status {
+        final String name;
+        final MacAddress macAddress;
+
+        Status(String name, MacAddress macAddress) {
+            this.name = name;
+            this.macAddress = macAddress;
+        }
+    }
+
+    private NetBios() {
+    }
+
+    /**
+     * 对通配名 “*” 的节点状态查询
+     */
+    static byte[] encodeQuery(int id) {
+        ByteBuffer out = ByteBuffer.allocate(12 + 34 + 4);
+        out.putShort((short) id);
+        // 标志 0，1 个问题
+        out.putShort((short) 0).putShort((short) 1).putShort((short) 0).putShort((short) 0).putShort((short) 0);
+        out.put((byte) 32);
+        // 一级编码：每个字节拆成两个半字节，各加 'A'；“*” 后补 0 到 16 字节
+        for (int i = 0; i < 16; i++) {
+            int b = i == 0 ? '*' : 0;
+            out.put((byte) ('A' + (b >> 4))).put((byte) ('A' + (b & 0xf)));
+        }
+        out.put((byte) 0);
+        out.putShort((short) TYPE_NBSTAT).putShort((short) CLASS_IN);
+        return out.array();
+    }
+
+    /**
+     * 解析节点状态回复，格式不对或 MAC 为 0（Samba）返回 null
+     */
+    static Status parseResponse(ByteBuffer in) {
+        try {
+            int pos = in.position();
+            int answers = in.getShort(pos + 6) & 0xffff;
+            if (answers == 0) {
+                return null;
+            }
+            pos = skipName(in, pos + 12);
+            int type = in.getShort(pos) & 0xffff;
+            if (type != TYPE_NBSTAT) {
+                return null;
+            }
+            // 类型、类别、TTL、数据长度
+            pos += 2 + 2 + 4 + 2;
+            int count = in.get(pos) & 0xff;
+            pos++;
+            String name = null;
+            for (int i = 0; i < count; i++) {
+                int entry = pos + i * 18;
+                int suffix = in.get(entry + 15) & 0xff;
+                int flags = in.getShort(entry + 16) & 0xffff;
+                if (name == null && suffix == 0 && (flags & GROUP_NAME) == 0) {
+                    byte[] bytes = new byte[15];
+                    for (int j = 0; j < 15; j++) {
+                        bytes[j] = in.get(entry + j);
+                    }
+                    name = new String(bytes, StandardCharsets.US_ASCII).trim();
+                }
+            }
+            // 名称表之后是统计信息，前 6 字节为网卡 MAC
+            MacAddress macAddress = MacAddress.fromBuffer(in, pos + count * 18);
+            if (macAddress.toLong() == 0) {
+                return null;
+            }
+            return new Status(name == null || name.isEmpty() ? null : name, macAddress);
+        } catch (IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    // 跳过名称（标签序列或压缩指针），返回之后的位置
+    private static int skipName(ByteBuffer in, int pos) {
+        while (true) {
+            int length = in.get(pos) & 0xff;
+            if ((length & 0xc0) == 0xc0) {
+                return pos + 2;
+            }
+            pos++;
+            if (length == 0) {
+                return pos;
+            }
+            pos += length;
+        }
+    }
+}
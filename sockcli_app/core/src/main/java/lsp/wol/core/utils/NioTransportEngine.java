@@ -0,0 +1,270 @@
+package lsp.wol.core.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 基于 SocketChannel + Selector 的非阻塞传输引擎
+ * 空闲时线程阻塞在 select 上，只有数据到达、发送唤醒或定时回调到期时才会醒来
+ */
+public class NioTransportEngine implements TransportEngine {
+
+    private final ByteBuffer readBuffer;
+    // 未写完的数据
+    private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+    private Selector selector;
+    private SocketChannel channel;
+    private SelectionKey key;
+    private String localIp = "";
+
+    public NioTransportEngine() {
+        this(1024); // 1KB缓冲区
+    }
+
+    public NioTransportEngine(int readBufferSize) {
+        this.readBuffer = ByteBuffer.allocate(readBufferSize);
+    }
+
+    @Override
+    public void connect(InetSocketAddress address, int timeoutMs) throws IOException {
+        connect(Collections.singletonList(address), timeoutMs, timeoutMs);
+    }
+
+    @Override
+    public InetSocketAddress connect(List<InetSocketAddress> candidates, int timeoutMs, long attemptDelayMs)
+            throws IOException {
+        if (candidates.isEmpty()) {
+            throw new IOException("no address");
+        }
+        selector = Selector.open();
+        // 所有尝试共用一个 Selector
+        List<SocketChannel> attempts = new ArrayList<>(candidates.size());
+        try {
+            IOException last = null;
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            long nextAttemptAt = 0;
+            int next = 0;
+            int inFlight = 0;
+            while (true) {
+                long now = System.currentTimeMillis();
+                // 到了错开时间，或进行中的都失败了，立即发起下一个
+                if (next < candidates.size() && now < deadline && (now >= nextAttemptAt || inFlight == 0)) {
+                    InetSocketAddress address = candidates.get(next++);
+                    nextAttemptAt = now + attemptDelayMs;
+                    try {
+                        SocketChannel attempt = openChannel();
+                        attempts.add(attempt);
+                        if (attempt.connect(address)) {
+                            return onConnected(attempt, address, attempts);
+                        }
+                        attempt.register(selector, SelectionKey.OP_CONNECT, address);
+                        inFlight++;
+                    } catch (IOException e) {
+                        last = e;
+                    }
+                    continue;
+                }
+                if (inFlight == 0) {
+                    throw last != null ? last : new SocketTimeoutException("connect timed out: " + candidates);
+                }
+                if (now >= deadline) {
+                    throw new SocketTimeoutException("connect timed out: " + candidates);
+                }
+                long wait = deadline - now;
+                if (next < candidates.size()) {
+                    wait = Math.min(wait, nextAttemptAt - now);
+                }
+                selector.select(Math.max(1, wait));
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey selected = iterator.next();
+                    iterator.remove();
+                    SocketChannel attempt = (SocketChannel) selected.channel();
+                    try {
+                        if (attempt.finishConnect()) {
+                            return onConnected(attempt, (InetSocketAddress) selected.attachment(), attempts);
+                        }
+                    } catch (IOException e) {
+                        // 拒绝、不可达：关闭并立即尝试下一个，不等错开时间
+                        last = e;
+                        closeQuietly(attempt);
+                        inFlight--;
+                        nextAttemptAt = 0;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            for (SocketChannel attempt : attempts) {
+                closeQuietly(attempt);
+            }
+            close();
+            throw e;
+        }
+    }
+
+    private static SocketChannel openChannel() throws IOException {
+        SocketChannel attempt = SocketChannel.open();
+        try {
+            attempt.configureBlocking(false);
+            attempt.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            attempt.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            return attempt;
+        } catch (IOException e) {
+            closeQuietly(attempt);
+            throw e;
+        }
+    }
+
+    // 胜出的连接留下，其余关闭
+    private InetSocketAddress onConnected(SocketChannel winner, InetSocketAddress address,
+                                          List<SocketChannel> attempts) throws IOException {
+        for (SocketChannel attempt : attempts) {
+            if (attempt != winner) {
+                closeQuietly(attempt);
+            }
+        }
+        channel = winner;
+        key = winner.keyFor(selector);
+        if (key == null) {
+            key = winner.register(selector, SelectionKey.OP_READ);
+        } else {
+            key.interestOps(SelectionKey.OP_READ);
+        }
+        localIp = winner.socket().getLocalAddress().getHostAddress();
+        return address;
+    }
+
+    private static void closeQuietly(SocketChannel attempt) {
+        try {
+            attempt.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Override
+    public String getLocalIp() {
+        return localIp;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel != null && channel.isOpen() && selector != null && selector.isOpen();
+    }
+
+    @Override
+    public void run(Handler handler) throws IOException {
+        long wait = handler.onTick(System.currentTimeMillis());
+        while (isOpen()) {
+            // select(0) 表示永久阻塞，这里至少等待1毫秒
+            selector.select(Math.max(1, wait));
+            if (!isOpen()) {
+                break;
+            }
+
+            Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+            while (iterator.hasNext()) {
+                SelectionKey selected = iterator.next();
+                iterator.remove();
+                if (!selected.isValid()) {
+                    continue;
+                }
+                if (selected.isReadable()) {
+                    doRead(handler);
+                }
+                if (selected.isValid() && selected.isWritable()) {
+                    flushPending();
+                }
+            }
+
+            if (isOpen()) {
+                wait = handler.onTick(System.currentTimeMillis());
+            }
+        }
+    }
+
+    private void doRead(Handler handler) throws IOException {
+        while (isOpen()) {
+            readBuffer.clear();
+            int bytesRead = channel.read(readBuffer);
+            if (bytesRead < 0) {
+                close();
+                throw new EOFException("connection closed by peer");
+            }
+            if (bytesRead == 0) {
+                return;
+            }
+            readBuffer.flip();
+            handler.onRead(readBuffer);
+        }
+    }
+
+    @Override
+    public void wakeup() {
+        Selector s = selector;
+        if (s != null) {
+            s.wakeup();
+        }
+    }
+
+    @Override
+    public void write(ByteBuffer... buffers) throws IOException {
+        if (!isOpen()) {
+            throw new IOException("engine closed");
+        }
+        if (pending.isEmpty()) {
+            channel.write(buffers);
+        }
+        // 没写完的部分复制保存，等待可写事件
+        for (ByteBuffer buffer : buffers) {
+            if (buffer.hasRemaining()) {
+                ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+                copy.put(buffer).flip();
+                pending.add(copy);
+            }
+        }
+        if (!pending.isEmpty()) {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void flushPending() throws IOException {
+        while (!pending.isEmpty()) {
+            ByteBuffer head = pending.peek();
+            channel.write(head);
+            if (head.hasRemaining()) {
+                return;
+            }
+            pending.poll();
+        }
+        key.interestOps(SelectionKey.OP_READ);
+    }
+
+    @Override
+    public void close() {
+        pending.clear();
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ignored) {
+        }
+        try {
+            if (selector != null) {
+                selector.close();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+}
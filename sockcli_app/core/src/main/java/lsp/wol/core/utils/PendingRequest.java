@@ -0,0 +1,111 @@
+package lsp.wol.core.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import lsp.wol.core.model.Command;
+import lsp.wol.core.model.MacAddress;
+import lsp.wol.core.model.TcpData;
+
+/**
+ * 已发出、等待服务器回复的请求
+ * reply 在收到对应回复时完成；wol 请求另有 receipt，在 ESP8266 回执该 MAC 时完成
+ * 超时或连接断开时以异常完成
+ */
+public final class PendingRequest {
+
+    final String id;
+    final String cmd;
+    // 期望的回复命令
+    final Command replyCmd;
+    // wol 请求的目标，其它请求为 null
+    final MacAddress mac;
+    // 写出时由 RequestTracker.markSent 重新设置，读写都在 RequestTracker 的锁内
+    long sentAt;
+    long replyDeadline;
+    long receiptDeadline;
+    private final CompletableFuture<TcpData> reply = new CompletableFuture<>();
+    private final CompletableFuture<TcpData> receipt;
+    private volatile long replyLatencyNanos = -1;
+    private volatile long receiptLatencyNanos = -1;
+
+    PendingRequest(String id, String cmd, Command replyCmd, MacAddress mac,
+                   long sentAt, long replyDeadline, long receiptDeadline) {
+        this.id = id;
+        this.cmd = cmd;
+        this.replyCmd = replyCmd;
+        this.mac = mac;
+        this.sentAt = sentAt;
+        this.replyDeadline = replyDeadline;
+        this.receiptDeadline = receiptDeadline;
+        this.receipt = mac == null ? null : new CompletableFuture<>();
+    }
+
+    /**
+     * 未发出就失败的请求
+     */
+    static PendingRequest failed(String cmd, Throwable cause) {
+        PendingRequest request = new PendingRequest(null, cmd, null, null, 0, 0, 0);
+        request.reply.completeExceptionally(cause);
+        return request;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getCmd() {
+        return cmd;
+    }
+
+    /**
+     * 服务器回复，wol 请求为 wol_rec_dev_size（收到命令的 ESP8266 数量）
+     */
+    public CompletableFuture<TcpData> reply() {
+        return reply;
+    }
+
+    /**
+     * ESP8266 唤醒回执，非 wol 请求为 null
+     */
+    public CompletableFuture<TcpData> receipt() {
+        return receipt;
+    }
+
+    /**
+     * 回复往返延迟 毫秒，未收到返回 -1
+     */
+    public long getReplyLatencyMs() {
+        long nanos = replyLatencyNanos;
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * 发出到收到回执的端到端延迟 毫秒，未收到返回 -1
+     */
+    public long getReceiptLatencyMs() {
+        long nanos = receiptLatencyNanos;
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    long getReplyLatencyNanos() {
+        return replyLatencyNanos;
+    }
+
+    void completeReply(TcpData tcpData, long latencyNanos) {
+        replyLatencyNanos = latencyNanos;
+        reply.complete(tcpData);
+    }
+
+    void completeReceipt(TcpData tcpData, long latencyNanos) {
+        receiptLatencyNanos = latencyNanos;
+        receipt.complete(tcpData);
+    }
+
+    void fail(Throwable cause) {
+        reply.completeExceptionally(cause);
+        if (receipt != null) {
+            receipt.completeExceptionally(cause);
+        }
+    }
+}
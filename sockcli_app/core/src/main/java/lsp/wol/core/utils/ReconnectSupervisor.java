@@ -0,0 +1,220 @@
+package lsp.wol.core.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 重连调度
+ * 连接断开后：连接曾稳定保持过则立即重连，否则按带抖动的指数退避等待；
+ * 网络可用或网络切换时立即唤醒并清零退避，无网络时不尝试连接，等待网络回调
+ * 记录断开到重新连上的耗时分布
+ */
+public class ReconnectSupervisor {
+
+    /**
+     * 具体的连接过程，全部在调度线程调用（abort 除外）
+     */
+    public interface Connector {
+        /**
+         * 是否有可用网络，无网络时不尝试连接
+         */
+        boolean isNetworkAvailable();
+
+        /**
+         * 建立连接，失败抛异常
+         */
+        void connect() throws Exception;
+
+        /**
+         * 处理已建立的连接，阻塞直到连接断开
+         */
+        void serve() throws Exception;
+
+        /**
+         * 请求关闭当前连接使 serve 返回，线程安全
+         * 可能在网络回调等其它线程调用，实现应只做标记并唤醒连接线程，由 serve 所在线程关闭
+         */
+        void abort();
+    }
+
+    static final long INITIAL_BACKOFF_MS = 1000L;
+    static final long MAX_BACKOFF_MS = 60 * 1000L;
+    // 连接保持超过该时长视为稳定，断开后立即重连
+    static final long STABLE_SESSION_MS = 30 * 1000L;
+
+    private final Connector connector;
+    private final Backoff backoff;
+    private final long stableSessionNanos;
+    // 无网络时兜底的检查间隔，防止漏掉网络回调
+    private final long networkPollMs;
+    private final LatencyStats reconnectStats = new LatencyStats();
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong sessions = new AtomicLong();
+    private volatile boolean running;
+    private volatile boolean connected;
+    // 等待期间收到网络事件
+    private boolean signalled;
+    private Thread thread;
+
+    public ReconnectSupervisor(Connector connector) {
+        this(connector, new Backoff(INITIAL_BACKOFF_MS, MAX_BACKOFF_MS), STABLE_SESSION_MS);
+    }
+
+    ReconnectSupervisor(Connector connector, Backoff backoff, long stableSessionMs) {
+        this.connector = connector;
+        this.backoff = backoff;
+        this.stableSessionNanos = TimeUnit.MILLISECONDS.toNanos(stableSessionMs);
+        this.networkPollMs = backoff.ceilingMs(Integer.MAX_VALUE);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::loop, "reconnect-supervisor");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = thread;
+            thread = null;
+            notifyAll();
+        }
+        connector.abort();
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    /**
+     * 网络可用：结束当前等待立即尝试连接，并清零退避
+     */
+    public synchronized void signal() {
+        signalled = true;
+        notifyAll();
+    }
+
+    /**
+     * 网络切换：当前连接可能绑定在旧网络上，断开后立即重连
+     */
+    public void restart() {
+        signal();
+        connector.abort();
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * 是否在调度中，stop 后为 false
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 断开到重新连上的耗时分布
+     */
+    public LatencyStats getReconnectStats() {
+        return reconnectStats;
+    }
+
+    public long getAttempts() {
+        return attempts.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public long getSessions() {
+        return sessions.get();
+    }
+
+    private void loop() {
+        // 连续失败次数，只在调度线程使用
+        int consecutiveFailures = 0;
+        long disconnectedAt = 0;
+        boolean everConnected = false;
+        while (running) {
+            if (!connector.isNetworkAvailable()) {
+                if (await(networkPollMs)) {
+                    consecutiveFailures = 0;
+                }
+                continue;
+            }
+
+            attempts.incrementAndGet();
+            try {
+                connector.connect();
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                consecutiveFailures++;
+                if (await(backoff.delayMs(consecutiveFailures))) {
+                    consecutiveFailures = 0;
+                }
+                continue;
+            }
+
+            long connectedAt = System.nanoTime();
+            if (everConnected) {
+                reconnectStats.record(connectedAt - disconnectedAt);
+            }
+            everConnected = true;
+            sessions.incrementAndGet();
+            synchronized (this) {
+                // 连接前收到的网络事件已经生效
+                signalled = false;
+            }
+            connected = true;
+            try {
+                connector.serve();
+            } catch (Exception ignored) {
+                // 断开原因由 Connector 自行记录
+            } finally {
+                connected = false;
+            }
+            disconnectedAt = System.nanoTime();
+
+            if (disconnectedAt - connectedAt >= stableSessionNanos) {
+                consecutiveFailures = 0;
+            } else {
+                // 连上即断（服务器拒绝、对端失效）同样退避
+                consecutiveFailures++;
+                if (await(backoff.delayMs(consecutiveFailures))) {
+                    consecutiveFailures = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * 等待指定时间或网络事件
+     * @return 是否被网络事件唤醒
+     */
+    private synchronized boolean await(long delayMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+        try {
+            while (running && !signalled) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+        boolean woken = signalled;
+        signalled = false;
+        return woken;
+    }
+}
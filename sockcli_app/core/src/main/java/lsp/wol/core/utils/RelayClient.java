@@ -0,0 +1,761 @@
+package lsp.wol.core.utils;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import lsp.wol.core.metrics.Counter;
+import lsp.wol.core.metrics.Gauge;
+import lsp.wol.core.metrics.Histogram;
+import lsp.wol.core.metrics.MetricsRegistry;
+import lsp.wol.core.model.Command;
+import lsp.wol.core.model.MacAddress;
+import lsp.wol.core.model.TcpData;
+import lsp.wol.core.platform.Log;
+import lsp.wol.core.platform.NetworkMonitor;
+
+/**
+ * 与中继服务器的长连接：分帧与编码协商、批量发送、请求关联、自适应心跳、断线重连
+ * 不依赖具体平台，网络状态由 NetworkMonitor 提供，没有请求方等待的消息交给 Listener
+ */
+public class RelayClient {
+
+    /**
+     * 连接事件，在连接线程回调
+     */
+    public interface Listener {
+        /**
+         * 连接成功
+         */
+        default void onConnected(String host, String localIp) {
+        }
+
+        /**
+         * 没有请求方等待的服务器消息（例如其它客户端触发的唤醒结果）
+         */
+        default void onMessage(TcpData tcpData) {
+        }
+    }
+
+    private static final int MAX_BATCH = 64; // 每批最多发送消息数
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    // 多个地址竞速连接时相邻两次尝试的间隔（RFC 8305 建议 250 毫秒）
+    private static final long CONNECT_ATTEMPT_DELAY_MS = 250;
+    // 旧版协议下等待上一条消息回复的最长时间，旧版服务器不回复 frame 等不认识的命令
+    private static final long JSON_REPLY_WAIT_MS = 500;
+    // TCP 连上后这么久还没有收到服务器的协议消息，说明连上的不是中继服务器
+    private static final long HELLO_TIMEOUT_MS = 5000;
+
+    // 指标 进程内所有连接汇总到同一组计数
+    private static final Counter CONNECTS = MetricsRegistry.shared().counter("relay.connects");
+    private static final Counter RECONNECTS = MetricsRegistry.shared().counter("relay.reconnects");
+    private static final Counter CONNECT_FAILURES = MetricsRegistry.shared().counter("relay.connect_failures");
+    // 连上的不是排在第一的服务器
+    private static final Counter FAILOVERS = MetricsRegistry.shared().counter("relay.failovers");
+    private static final Counter BYTES_IN = MetricsRegistry.shared().counter("relay.bytes_in");
+    private static final Counter BYTES_OUT = MetricsRegistry.shared().counter("relay.bytes_out");
+    private static final Counter PARSE_FAILURES = MetricsRegistry.shared().counter("relay.parse_failures");
+    private static final Gauge SEND_QUEUE = MetricsRegistry.shared().gauge("relay.send_queue");
+    private static final Histogram HEARTBEAT_RTT = MetricsRegistry.shared().histogram("relay.heartbeat_rtt");
+
+    // 服务器地址（未解析）与延迟排序，每次连接时经 DNS 缓存解析
+    private volatile EndpointSelector endpoints;
+    // 当前连接的服务器
+    private volatile EndpointSelector.Endpoint connectedEndpoint;
+    private final DnsCache dnsCache = DnsCache.shared();
+    private final Supplier<TransportEngine> engineFactory;
+    private final NetworkMonitor networkMonitor;
+    private final Listener listener;
+    private volatile String localIp = "";  // 存储本地IP
+    private volatile TransportEngine engine;
+    // 消息队列（线程安全）
+    private final BlockingQueue<TcpData> sendQueue = new LinkedBlockingQueue<>();
+    // 分帧编解码 只在连接线程使用
+    private final FrameCodec frameCodec = new FrameCodec();
+    // 消息编解码 只在连接线程使用
+    private final TcpDataCodec tcpDataCodec = new TcpDataCodec();
+    // 批量发送 只在连接线程使用
+    private final WritePipeline<TcpData> writePipeline = new WritePipeline<>(
+            tcpDataCodec::encode,
+            tcpData -> tcpData.queuedAt,
+            MAX_BATCH);
+    // 请求与回复关联
+    private final RequestTracker requestTracker = new RequestTracker();
+    private volatile boolean isRunning = false;
+    // 收到第一条能解析的协议消息（net_ip 问候、frame 或心跳回复）后才确认连上的是中继服务器，
+    // 之前不发出请求，也不计入服务器排序
+    private volatile boolean verified;
+    // 未确认的连接：TCP 连接耗时、是否不是排在第一的服务器、确认期限 只在连接线程使用
+    private long connectNanos;
+    private boolean connectFailover;
+    private long helloDeadline;
+    // 自适应心跳 只在连接线程使用
+    private final HeartbeatScheduler heartbeatScheduler = new HeartbeatScheduler();
+    // 当前连接所在的网络
+    private volatile Object connectedNetwork;
+    // 上一次连接所在的网络，换了网络需要重新学习心跳周期
+    private Object previousNetwork;
+    // 上一次检查的网络状态，只在变化时记录
+    private boolean lastNetworkAvailable = true;
+    // 是否连接成功过，之后的连接计为重连 只在连接线程使用
+    private boolean everConnected;
+    // 旧版协议（JSON 分帧）下已写出、还在等待回复的消息，回复前不再写出 只在连接线程使用
+    private boolean jsonGated;
+    private Command jsonAwaiting;
+    private long jsonGateUntil;
+    // 计入 relay.send_queue 的队列长度 只在连接线程使用
+    private int reportedQueueDepth;
+    // 其它线程（网络回调、stop）请求断开，由连接线程在 onTick 中清理
+    private volatile boolean abortRequested;
+    // 断线重连
+    private final ReconnectSupervisor reconnectSupervisor = new ReconnectSupervisor(new ReconnectSupervisor.Connector() {
+        @Override
+        public boolean isNetworkAvailable() {
+            return checkNetwork();
+        }
+
+        @Override
+        public void connect() throws Exception {
+            // 没有连接时收到的断开请求已无意义，连接过程中收到的在首次 onTick 生效
+            abortRequested = false;
+            cleanup();
+            doConnect();
+        }
+
+        @Override
+        public void serve() {
+            connectionLoop();
+        }
+
+        @Override
+        public void abort() {
+            // 清理会关闭引擎、清空发送队列，只能在连接线程进行，这里只做标记并唤醒
+            abortRequested = true;
+            wakeupEngine();
+        }
+    });
+
+    private final TransportEngine.Handler engineHandler = new TransportEngine.Handler() {
+        @Override
+        public void onRead(ByteBuffer buffer) {
+            doReceive(buffer);
+        }
+
+        @Override
+        public long onTick(long now) {
+            if (abortRequested || !reconnectSupervisor.isRunning()) {
+                cleanup();
+                return Long.MAX_VALUE;
+            }
+            if (!verified && monotonicMillis() - helloDeadline >= 0) {
+                EndpointSelector.Endpoint connected = connectedEndpoint;
+                Log.i("RelayClient onTick: {} 没有回复协议消息，换下一个服务器", connected);
+                if (connected != null) {
+                    endpoints.onFailure(connected);
+                }
+                cleanup();
+                return Long.MAX_VALUE;
+            }
+            if (heartbeatScheduler.isPeerDead()) {
+                // 服务器失效（半开连接），冷却后关闭，由重连调度优先连接其它服务器
+                Log.i("RelayClient onTick: 连续 {} 次心跳无回复，断开重连", heartbeatScheduler.getMissedReplies());
+                EndpointSelector.Endpoint connected = connectedEndpoint;
+                if (connected != null) {
+                    endpoints.onFailure(connected);
+                }
+                cleanup();
+                return Long.MAX_VALUE;
+            }
+            // 非心跳消息发送
+            doSendHandle();
+            // 链路空闲时才发心跳，刚发过消息时不会到期
+            doHeartbeat();
+            // 请求超时检查
+            long nextExpire = requestTracker.expire();
+            publishQueueDepth();
+            long gateWait = jsonGateWait(monotonicMillis());
+            if (gateWait > 0) {
+                // 等上一条的回复，回复到达时会醒来，否则到时间后继续发送
+                return Math.min(gateWait, nextExpire);
+            }
+            if (!sendQueue.isEmpty()) {
+                // 一批没有发完
+                return 0;
+            }
+            long next = Math.min(heartbeatScheduler.dueIn(monotonicMillis()), nextExpire);
+            if (!verified) {
+                next = Math.min(next, Math.max(1, helloDeadline - monotonicMillis()));
+            }
+            // 下一次心跳或请求超时前无需醒来，发送消息时会主动唤醒
+            return next;
+        }
+    };
+
+    public RelayClient(String host, int port, NetworkMonitor networkMonitor, Listener listener) {
+        this(host, port, NioTransportEngine::new, networkMonitor, listener);
+    }
+
+    public RelayClient(String host, int port, Supplier<TransportEngine> engineFactory,
+                       NetworkMonitor networkMonitor, Listener listener) {
+        this(Collections.singletonList(InetSocketAddress.createUnresolved(host, port)),
+                engineFactory, networkMonitor, listener);
+    }
+
+    /**
+     * @param endpoints 中继服务器（未解析的 host:port），配置在前的优先，测量出延迟后按延迟排序
+     */
+    public RelayClient(List<InetSocketAddress> endpoints, Supplier<TransportEngine> engineFactory,
+                       NetworkMonitor networkMonitor, Listener listener) {
+        this.endpoints = new EndpointSelector(endpoints);
+        this.engineFactory = engineFactory;
+        this.networkMonitor = networkMonitor;
+        this.listener = listener;
+        // 请求从写出时开始计时，排队等待的不会提前超时
+        writePipeline.setOnSent(requestTracker::markSent);
+    }
+
+    // 检查网络，状态变化时记录
+    private boolean checkNetwork() {
+        boolean available = networkMonitor.isNetworkAvailable();
+        if (available != lastNetworkAvailable) {
+            lastNetworkAvailable = available;
+            Log.i(available ? "RelayClient checkNetwork: 网络可用" : "RelayClient checkNetwork: 网络不可用，等待网络变化");
+        }
+        return available;
+    }
+
+    //开始连接 断开后由重连调度重新连接
+    public void start() {
+        reconnectSupervisor.start();
+    }
+
+    //停止连接
+    public void stop() {
+        reconnectSupervisor.stop();
+    }
+
+    /**
+     * 网络可用，立即重连（正在退避等待时不再等待）
+     */
+    public void signal() {
+        reconnectSupervisor.signal();
+    }
+
+    /**
+     * 断开当前连接并立即重连（网络切换、本地地址失效）
+     */
+    public void restart() {
+        reconnectSupervisor.restart();
+    }
+
+    /**
+     * 已连上并确认是中继服务器
+     */
+    public boolean isConnected() {
+        return isRunning && verified;
+    }
+
+    /**
+     * 当前连接的服务器，未连接时为排在第一的服务器
+     */
+    private InetSocketAddress currentAddress() {
+        EndpointSelector.Endpoint connected = connectedEndpoint;
+        return connected != null ? connected.address : endpoints.ranked().get(0).address;
+    }
+
+    public String getHost() {
+        return currentAddress().getHostString();
+    }
+
+    public int getPort() {
+        return currentAddress().getPort();
+    }
+
+    /**
+     * 修改服务器地址，已连接时断开并按新地址重连
+     */
+    public void setEndpoint(String host, int port) {
+        setEndpoints(Collections.singletonList(InetSocketAddress.createUnresolved(host, port)));
+    }
+
+    /**
+     * 修改服务器列表，已连接时断开并重连；列表不变时保留测量结果
+     */
+    public void setEndpoints(List<InetSocketAddress> newEndpoints) {
+        if (newEndpoints.equals(endpoints.getAddresses())) {
+            return;
+        }
+        endpoints = new EndpointSelector(newEndpoints);
+        Log.i("RelayClient setEndpoints: {}", EndpointSelector.format(newEndpoints));
+        restart();
+    }
+
+    /**
+     * 配置的服务器列表
+     */
+    public List<InetSocketAddress> getEndpoints() {
+        return endpoints.getAddresses();
+    }
+
+    /**
+     * 服务器排序与测量结果
+     */
+    public EndpointSelector getEndpointSelector() {
+        return endpoints;
+    }
+
+    /**
+     * 当前连接的本地IP
+     */
+    public String getLocalIp() {
+        return localIp;
+    }
+
+    /**
+     * 当前连接所在的网络（NetworkMonitor.activeNetwork），未连接返回 null
+     */
+    public Object getConnectedNetwork() {
+        return connectedNetwork;
+    }
+
+    private void doConnect() throws IOException {
+        if (isRunning) return;
+        EndpointSelector selector = endpoints;
+        List<EndpointSelector.Endpoint> ranked = selector.ranked();
+        // 所有服务器的所有地址按排序竞速，解析失败的服务器跳过
+        List<InetSocketAddress> candidates = new ArrayList<>();
+        Map<InetSocketAddress, EndpointSelector.Endpoint> owners = new HashMap<>();
+        for (EndpointSelector.Endpoint endpoint : ranked) {
+            String host = endpoint.address.getHostString();
+            try {
+                for (InetAddress address : DnsCache.interleaveFamilies(dnsCache.resolve(host))) {
+                    InetSocketAddress candidate = new InetSocketAddress(address, endpoint.address.getPort());
+                    if (owners.putIfAbsent(candidate, endpoint) == null) {
+                        candidates.add(candidate);
+                    }
+                }
+            } catch (UnknownHostException e) {
+                Log.i("RelayClient doConnect: {} 解析失败", host);
+                selector.onFailure(endpoint);
+            }
+        }
+        try {
+            if (candidates.isEmpty()) {
+                throw new UnknownHostException(EndpointSelector.format(selector.getAddresses()));
+            }
+            Log.i("RelayClient doConnect: {}", candidates);
+
+            // 前一个地址 250 毫秒未连上就同时尝试下一个，失败的立即换下一个，不用等满连接超时
+            long start = System.nanoTime();
+            TransportEngine newEngine = engineFactory.get();
+            InetSocketAddress winner;
+            try {
+                winner = newEngine.connect(candidates, CONNECT_TIMEOUT_MS, CONNECT_ATTEMPT_DELAY_MS);
+            } catch (IOException e) {
+                for (EndpointSelector.Endpoint endpoint : new HashSet<>(owners.values())) {
+                    selector.onFailure(endpoint);
+                }
+                throw e;
+            }
+            EndpointSelector.Endpoint connected = owners.get(winner);
+            // 端口上可能是别的服务，收到协议消息后才计入排序（onVerified）
+            connectNanos = System.nanoTime() - start;
+            connectFailover = connected != ranked.get(0);
+            helloDeadline = monotonicMillis() + HELLO_TIMEOUT_MS;
+            verified = false;
+            localIp = newEngine.getLocalIp();
+            Log.i("RelayClient doConnect: TCP 连接成功 {} 本地IP={}", winner, localIp);
+
+            engine = newEngine;
+            connectedEndpoint = connected;
+            Object network = networkMonitor.activeNetwork();
+            if (previousNetwork != null && !previousNetwork.equals(network)) {
+                heartbeatScheduler.resetLearning();
+            }
+            previousNetwork = network;
+            connectedNetwork = network;
+            isRunning = true;
+        } catch (IOException e) {
+            CONNECT_FAILURES.increment();
+            Log.e("RelayClient doConnect", e);
+            throw e;
+        }
+    }
+
+    /**
+     * 清理资源
+     */
+    private void cleanup() {
+        isRunning = false;
+        verified = false;
+        connectedNetwork = null;
+        connectedEndpoint = null;
+        TransportEngine oldEngine = engine;
+        engine = null;
+        if (oldEngine != null) {
+            oldEngine.close();
+        }
+        // 未发出的消息随等待中的请求一起失败，避免重连后与新请求的回复错配
+        sendQueue.clear();
+        publishQueueDepth();
+        requestTracker.failAll(new IOException("connection closed"));
+    }
+
+    /**
+     * 把本连接队列长度的变化计入汇总
+     */
+    private void publishQueueDepth() {
+        int depth = sendQueue.size();
+        if (depth != reportedQueueDepth) {
+            SEND_QUEUE.add(depth - reportedQueueDepth);
+            reportedQueueDepth = depth;
+        }
+    }
+
+    private void doHeartbeat() {
+        long now = monotonicMillis();
+        if (isRunning && engine != null && heartbeatScheduler.dueIn(now) <= 0 && jsonGateWait(now) <= 0) {
+
+            TcpData tcpData = new TcpData(Command.HEARTBEAT, String.valueOf(System.currentTimeMillis()));
+            tcpData.host = localIp;
+            // 回复用于学习心跳周期，超时未回复计入失效检测（回调都在连接线程）
+            PendingRequest request = requestTracker.register(tcpData);
+            request.reply().whenComplete((reply, e) -> {
+                if (e == null) {
+                    HEARTBEAT_RTT.record(request.getReplyLatencyNanos());
+                    EndpointSelector.Endpoint connected = connectedEndpoint;
+                    if (connected != null) {
+                        endpoints.onRtt(connected, request.getReplyLatencyNanos());
+                    }
+                    heartbeatScheduler.onHeartbeatReply(monotonicMillis(), request.getReplyLatencyNanos());
+                } else if (e instanceof TimeoutException) {
+                    heartbeatScheduler.onHeartbeatTimeout(monotonicMillis());
+                }
+            });
+            heartbeatScheduler.onHeartbeatSent(now);
+            doSendSingle(tcpData);
+        }
+    }
+
+    private static long monotonicMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    private boolean doSendHandle() {
+        // 判断是否存在需要发送的消息，一次取空队列批量发送；旧版协议每次只发一条
+        TransportEngine current = engine;
+        if (sendQueue.isEmpty() || current == null || !isRunning || !verified || !current.isOpen()
+                || jsonGateWait(monotonicMillis()) > 0) {
+            return false;
+        }
+        long bytesBefore = writePipeline.getStats().getBytes();
+        try {
+            // 只有连接线程取队列，队首就是旧版协议下这次发出的一条
+            TcpData head = sendQueue.peek();
+            int count = writePipeline.flush(sendQueue, frameCodec, current);
+            BYTES_OUT.add(writePipeline.getStats().getBytes() - bytesBefore);
+            if (count > 0) {
+                heartbeatScheduler.onSent(monotonicMillis());
+                closeJsonGate(head);
+            }
+            Log.d("RelayClient doSendHandle 发送消息条数= {}", count);
+            return count > 0;
+        } catch (Exception e) {
+            Log.e("RelayClient doSendHandle", e);
+            cleanup();
+            return false;
+        }
+    }
+
+    private void doSendSingle(TcpData tcpData) {
+        TransportEngine current = engine;
+        if (current != null && isRunning && current.isOpen()) {
+            try {
+                tcpData.queuedAt = System.nanoTime();
+                long bytesBefore = writePipeline.getStats().getBytes();
+                writePipeline.write(tcpData, frameCodec, current);
+                BYTES_OUT.add(writePipeline.getStats().getBytes() - bytesBefore);
+                heartbeatScheduler.onSent(monotonicMillis());
+                closeJsonGate(tcpData);
+                Log.d("RelayClient doSendSingle 发送消息= {}", tcpData.cmd);
+
+            } catch (Exception e) {
+                Log.e("RelayClient doSendSingle", e);
+                cleanup();
+            }
+        }
+    }
+
+    /**
+     * 旧版协议没有分隔符，服务器按一次读取解析一条消息，连续写出的消息会被 TCP 合并成一次读取
+     * 因此每写出一条就等它的回复，回复到达或超时后才写下一条；协商出 line、len 分帧后不再等待
+     */
+    private void closeJsonGate(TcpData sent) {
+        if (frameCodec.getMode() != FrameCodec.Mode.JSON) {
+            return;
+        }
+        Command command = sent.command();
+        jsonAwaiting = command == Command.FRAME ? Command.FRAME : RequestTracker.replyCommandOf(command);
+        jsonGateUntil = monotonicMillis() + JSON_REPLY_WAIT_MS;
+        jsonGated = true;
+    }
+
+    private void openJsonGate(TcpData received) {
+        if (jsonGated && received.command() == jsonAwaiting) {
+            jsonGated = false;
+        }
+    }
+
+    /**
+     * @return 距可以写出下一条消息的毫秒数，不需要等待返回 0
+     */
+    private long jsonGateWait(long now) {
+        if (!jsonGated) {
+            return 0;
+        }
+        long wait = jsonGateUntil - now;
+        if (wait <= 0 || frameCodec.getMode() != FrameCodec.Mode.JSON) {
+            jsonGated = false;
+            return 0;
+        }
+        return wait;
+    }
+
+    private void doReceive(ByteBuffer buffer) {
+        BYTES_IN.add(buffer.remaining());
+        try {
+            // 一次读取可能包含多条消息或半条消息
+            frameCodec.decode(buffer, this::onFrame);
+        } catch (Exception e) {
+            // 分帧错误
+            PARSE_FAILURES.increment();
+            Log.e("RelayClient doReceive", e);
+            cleanup();
+        }
+    }
+
+    /**
+     * 收到第一条协议消息，确认连上的是中继服务器
+     */
+    private void onVerified() {
+        verified = true;
+        EndpointSelector.Endpoint connected = connectedEndpoint;
+        endpoints.onConnected(connected, connectNanos);
+        if (connectFailover) {
+            FAILOVERS.increment();
+        }
+        CONNECTS.increment();
+        if (everConnected) {
+            RECONNECTS.increment();
+        }
+        everConnected = true;
+        Log.i("RelayClient onVerified: 已连接 {}", connected.address);
+        listener.onConnected(connected.address.getHostString(), localIp);
+    }
+
+    private void onFrame(byte[] array, int offset, int length) {
+        TcpData tcpData;
+        try {
+            // 直接从接收缓冲区解码，不经过字符串
+            tcpData = tcpDataCodec.decode(array, offset, length);
+        } catch (Exception e) {
+            PARSE_FAILURES.increment();
+            Log.e("RelayClient onFrame", e);
+            return;
+        }
+        try {
+            // 收到任何消息都说明服务器还在，也刷新了 NAT 映射
+            heartbeatScheduler.onReceived(monotonicMillis());
+            Log.d("RelayClient doReceive: 收到消息= {} {}", tcpData.cmd, tcpData.data);
+            if (!verified && tcpData.command() != Command.UNKNOWN) {
+                onVerified();
+            }
+            onProcessData(tcpData);
+        } catch (Exception e) {
+            Log.e("RelayClient onFrame", e);
+        }
+    }
+
+    /**
+     * 协商分帧模式，旧版服务器会忽略该消息
+     */
+    private void doNegotiateFrame() {
+        TcpData tcpData = new TcpData(Command.FRAME, FrameCodec.SUPPORTED_MODES);
+        tcpData.host = localIp;
+        // 服务器收到任意消息都会刷新心跳，这里代替首次心跳，避免两条消息粘连发给旧版服务器
+        doSendSingle(tcpData);
+    }
+
+    /**
+     * 协商消息编码，二进制编码只能在长度前缀分帧下使用
+     */
+    private void doNegotiateCodec() {
+        TcpData tcpData = new TcpData(Command.CODEC, TcpDataCodec.SUPPORTED_ENCODINGS);
+        tcpData.host = localIp;
+        doSendSingle(tcpData);
+    }
+
+    private void connectionLoop() {
+        TransportEngine current = engine;
+        if (!isRunning || current == null) {
+            return;
+        }
+        try {
+            frameCodec.reset();
+            tcpDataCodec.reset();
+            jsonGated = false;
+            heartbeatScheduler.onConnected(monotonicMillis());
+            doNegotiateFrame();
+            // 事件循环：有数据或有消息要发送时才会醒来
+            current.run(engineHandler);
+        } catch (Exception e) {
+            Log.e("RelayClient connectionLoop", e);
+        } finally {
+            heartbeatScheduler.onDisconnected(monotonicMillis());
+            cleanup();
+        }
+    }
+
+    /**
+     * 发送请求，返回的 PendingRequest 在收到回复（或回执）时完成
+     * 回调在连接线程执行
+     */
+    public PendingRequest request(String cmd, String data) {
+        PendingRequest request = offer(cmd, data);
+        wakeupEngine();
+        return request;
+    }
+
+    // 放入发送队列，不唤醒事件循环
+    private PendingRequest offer(String cmd, String data) {
+        if (!isRunning) {
+            return PendingRequest.failed(cmd, new IOException("not connected"));
+        }
+
+        TcpData tcpData = new TcpData();
+        tcpData.cmd = cmd;
+        tcpData.data = data == null ? "" : data;
+        tcpData.host = localIp;
+        tcpData.queuedAt = System.nanoTime();
+        PendingRequest request = requestTracker.register(tcpData);
+        try {
+            boolean offered = sendQueue.offer(tcpData, 100, TimeUnit.MILLISECONDS);
+            if (!offered) {
+                requestTracker.cancel(request, new IOException("send queue full"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            requestTracker.cancel(request, e);
+        }
+        return request;
+    }
+
+    // 立即唤醒事件循环发送
+    private void wakeupEngine() {
+        TransportEngine current = engine;
+        if (current != null) {
+            current.wakeup();
+        }
+    }
+
+    /**
+     * 通过服务器转发给 ESP8266 唤醒设备
+     * reply 为收到命令的 ESP8266 数量，receipt 为 ESP8266 的回执
+     */
+    public PendingRequest wake(MacAddress macAddress) {
+        return request(Command.WOL.wireName, Objects.requireNonNull(macAddress).toString());
+    }
+
+    /**
+     * 一批唤醒命令：全部放入发送队列后才唤醒事件循环，协商出 line、len 分帧时作为同一批写出，
+     * 旧版协议下逐条收到回复后再写下一条
+     * 返回的请求与 MAC 一一对应
+     */
+    public List<PendingRequest> wakeAll(List<MacAddress> macAddresses) {
+        List<PendingRequest> requests = new ArrayList<>(macAddresses.size());
+        for (MacAddress macAddress : macAddresses) {
+            requests.add(offer(Command.WOL.wireName, macAddress.toString()));
+        }
+        wakeupEngine();
+        return requests;
+    }
+
+    /**
+     * 发送统计：批次大小与发送延迟
+     */
+    public WriteStats getWriteStats() {
+        return writePipeline.getStats();
+    }
+
+    /**
+     * 按命令的往返延迟统计
+     */
+    public Map<String, LatencyStats> getLatencyStats() {
+        return requestTracker.getLatencyStats();
+    }
+
+    /**
+     * 心跳次数、学到的周期与往返延迟
+     */
+    public HeartbeatScheduler getHeartbeatStats() {
+        return heartbeatScheduler;
+    }
+
+    /**
+     * 断开到重新连上的耗时分布
+     */
+    public LatencyStats getReconnectStats() {
+        return reconnectSupervisor.getReconnectStats();
+    }
+
+    private void onProcessData(TcpData tcpData) {
+        // 请求方已在等待的回复与回执由请求方处理
+        boolean matched = requestTracker.onMessage(tcpData);
+        openJsonGate(tcpData);
+        switch (tcpData.command()) {
+            case HEARTBEAT:
+                // 心跳回复由心跳请求处理，不影响发送计时
+                break;
+            case FRAME: {
+                // 服务器选定的分帧模式，之后收发都按该模式
+                FrameCodec.Mode mode = FrameCodec.Mode.fromWireName(tcpData.data);
+                if (mode != null) {
+                    frameCodec.setMode(mode);
+                    Log.i("RelayClient onProcessData: 分帧模式= {}", mode);
+                    if (mode == FrameCodec.Mode.LENGTH) {
+                        doNegotiateCodec();
+                    }
+                }
+                break;
+            }
+            case CODEC: {
+                // 服务器选定的消息编码
+                TcpDataCodec.Encoding encoding = TcpDataCodec.Encoding.fromWireName(tcpData.data);
+                if (encoding != null && frameCodec.getMode() == FrameCodec.Mode.LENGTH) {
+                    tcpDataCodec.setEncoding(encoding);
+                    Log.i("RelayClient onProcessData: 消息编码= {}", encoding);
+                }
+                break;
+            }
+            default:
+                if (!matched) {
+                    listener.onMessage(tcpData);
+                }
+                break;
+        }
+    }
+}
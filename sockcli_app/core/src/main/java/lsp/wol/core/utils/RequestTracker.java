@@ -0,0 +1,280 @@
+package lsp.wol.core.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import lsp.wol.core.model.Command;
+import lsp.wol.core.model.MacAddress;
+import lsp.wol.core.model.TcpData;
+
+/**
+ * 请求与回复的关联
+ * 每个请求带编号发出，回复带相同编号时按编号匹配；
+ * 旧版服务器不回传编号，此时按发送顺序匹配同类回复（同一连接上服务器按顺序处理），
+ * wol 回执按 MAC 匹配最早的请求
+ * 计时从消息真正写出（markSent）开始：排队中的请求不会超时，也不参与匹配，
+ * 否则旧版协议下排队等待的请求会在发出前超时，之后的回复按顺序匹配就会错位
+ * 同时按命令记录往返延迟
+ */
+public class RequestTracker {
+
+    static final long REPLY_TIMEOUT_MS = 10 * 1000L;
+    // 回执要经过服务器、ESP8266 再回到服务器
+    static final long RECEIPT_TIMEOUT_MS = 30 * 1000L;
+
+    private final LongSupplier nanoClock;
+    private final long replyTimeoutNanos;
+    private final long receiptTimeoutNanos;
+    private final AtomicLong nextId = new AtomicLong();
+    // 已入队、还未写出的请求 按编号
+    private final Map<String, PendingRequest> unsent = new HashMap<>();
+    // 按写出顺序
+    private final ArrayDeque<PendingRequest> awaitingReply = new ArrayDeque<>();
+    private final ArrayDeque<PendingRequest> awaitingReceipt = new ArrayDeque<>();
+    private final Map<String, LatencyStats> latency = new ConcurrentHashMap<>();
+
+    public RequestTracker() {
+        this(System::nanoTime, REPLY_TIMEOUT_MS, RECEIPT_TIMEOUT_MS);
+    }
+
+    RequestTracker(LongSupplier nanoClock, long replyTimeoutMs, long receiptTimeoutMs) {
+        this.nanoClock = nanoClock;
+        this.replyTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(replyTimeoutMs);
+        this.receiptTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(receiptTimeoutMs);
+    }
+
+    /**
+     * 命令对应的回复命令，没有回复返回 null
+     */
+    static Command replyCommandOf(Command command) {
+        switch (command) {
+            case HEARTBEAT:
+                return Command.HEARTBEAT;
+            case WOL:
+                return Command.WOL_DEVICE_SIZE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 为消息分配编号，需在入队前调用；写出后调用 markSent 才开始等待回复
+     */
+    PendingRequest register(TcpData tcpData) {
+        String id = Long.toString(nextId.incrementAndGet());
+        tcpData.id = id;
+        long now = nanoClock.getAsLong();
+        Command command = tcpData.command();
+        MacAddress mac = command == Command.WOL ? MacAddress.tryParse(tcpData.data) : null;
+        Command replyCmd = replyCommandOf(command);
+        PendingRequest request = new PendingRequest(id, tcpData.cmd, replyCmd, mac,
+                now, now + replyTimeoutNanos, now + receiptTimeoutNanos);
+        if (replyCmd != null || mac != null) {
+            synchronized (this) {
+                unsent.put(id, request);
+            }
+        }
+        if (replyCmd == null) {
+            // 没有回复的命令入队即视为完成
+            request.completeReply(null, 0);
+        }
+        return request;
+    }
+
+    /**
+     * 消息已写出，从此刻开始计时等待回复和回执，只在连接线程调用
+     */
+    void markSent(TcpData tcpData) {
+        if (tcpData.id == null) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        synchronized (this) {
+            PendingRequest request = unsent.remove(tcpData.id);
+            if (request == null) {
+                return;
+            }
+            request.sentAt = now;
+            request.replyDeadline = now + replyTimeoutNanos;
+            request.receiptDeadline = now + receiptTimeoutNanos;
+            if (request.replyCmd != null) {
+                awaitingReply.addLast(request);
+            }
+            if (request.mac != null) {
+                awaitingReceipt.addLast(request);
+            }
+        }
+    }
+
+    /**
+     * 入队失败时撤销
+     */
+    void cancel(PendingRequest request, Throwable cause) {
+        synchronized (this) {
+            unsent.remove(request.id);
+            awaitingReply.remove(request);
+            awaitingReceipt.remove(request);
+        }
+        request.fail(cause);
+    }
+
+    /**
+     * 匹配收到的消息
+     * @return 是否是某个请求的回复或回执
+     */
+    boolean onMessage(TcpData tcpData) {
+        if (tcpData == null || tcpData.cmd == null) {
+            return false;
+        }
+        long now = nanoClock.getAsLong();
+        Command command = tcpData.command();
+        if (command == Command.WOL_RECEIPT) {
+            return onReceipt(tcpData, now);
+        }
+
+        PendingRequest matched = null;
+        synchronized (this) {
+            Iterator<PendingRequest> it = awaitingReply.iterator();
+            while (it.hasNext()) {
+                PendingRequest request = it.next();
+                boolean match = tcpData.id != null
+                        ? tcpData.id.equals(request.id)
+                        : command == request.replyCmd;
+                if (match) {
+                    it.remove();
+                    matched = request;
+                    break;
+                }
+            }
+        }
+        if (matched == null) {
+            return false;
+        }
+        long latencyNanos;
+        synchronized (this) {
+            latencyNanos = now - matched.sentAt;
+        }
+        statsFor(matched.cmd).record(latencyNanos);
+        if (matched.mac != null && "0".equals(tcpData.data)) {
+            // 没有在线的 ESP8266，不会有回执
+            synchronized (this) {
+                awaitingReceipt.remove(matched);
+            }
+            matched.receipt().completeExceptionally(new IllegalStateException("No ESP8266 online."));
+        }
+        matched.completeReply(tcpData, latencyNanos);
+        return true;
+    }
+
+    private boolean onReceipt(TcpData tcpData, long now) {
+        MacAddress mac = MacAddress.tryParse(tcpData.data);
+        if (mac == null) {
+            return false;
+        }
+        PendingRequest matched = null;
+        synchronized (this) {
+            Iterator<PendingRequest> it = awaitingReceipt.iterator();
+            while (it.hasNext()) {
+                PendingRequest request = it.next();
+                if (mac.equals(request.mac)) {
+                    it.remove();
+                    matched = request;
+                    break;
+                }
+            }
+        }
+        if (matched == null) {
+            return false;
+        }
+        long latencyNanos;
+        synchronized (this) {
+            latencyNanos = now - matched.sentAt;
+        }
+        statsFor(Command.WOL_RECEIPT.wireName).record(latencyNanos);
+        matched.completeReceipt(tcpData, latencyNanos);
+        return true;
+    }
+
+    /**
+     * 使超时的请求失败，还未写出的请求不计时
+     * @return 距下一个超时的毫秒数，没有等待中的请求返回 Long.MAX_VALUE
+     */
+    long expire() {
+        long now = nanoClock.getAsLong();
+        List<PendingRequest> replyTimeouts = new ArrayList<>();
+        List<PendingRequest> receiptTimeouts = new ArrayList<>();
+        long next = Long.MAX_VALUE;
+        synchronized (this) {
+            // 同一队列中截止时间与写出顺序一致，只需检查队首
+            while (!awaitingReply.isEmpty() && awaitingReply.peekFirst().replyDeadline - now <= 0) {
+                replyTimeouts.add(awaitingReply.pollFirst());
+            }
+            while (!awaitingReceipt.isEmpty() && awaitingReceipt.peekFirst().receiptDeadline - now <= 0) {
+                receiptTimeouts.add(awaitingReceipt.pollFirst());
+            }
+            if (!awaitingReply.isEmpty()) {
+                next = Math.min(next, awaitingReply.peekFirst().replyDeadline - now);
+            }
+            if (!awaitingReceipt.isEmpty()) {
+                next = Math.min(next, awaitingReceipt.peekFirst().receiptDeadline - now);
+            }
+        }
+        for (PendingRequest request : replyTimeouts) {
+            statsFor(request.cmd).recordTimeout();
+            request.reply().completeExceptionally(new TimeoutException(request.cmd + " reply timed out"));
+        }
+        for (PendingRequest request : receiptTimeouts) {
+            statsFor(Command.WOL_RECEIPT.wireName).recordTimeout();
+            request.receipt().completeExceptionally(new TimeoutException("wake receipt timed out"));
+        }
+        return next == Long.MAX_VALUE ? next : TimeUnit.NANOSECONDS.toMillis(next) + 1;
+    }
+
+    /**
+     * 连接断开时所有等待中的请求失败
+     */
+    void failAll(Throwable cause) {
+        List<PendingRequest> pending = new ArrayList<>();
+        synchronized (this) {
+            pending.addAll(unsent.values());
+            pending.addAll(awaitingReply);
+            for (PendingRequest request : awaitingReceipt) {
+                if (!awaitingReply.contains(request)) {
+                    pending.add(request);
+                }
+            }
+            unsent.clear();
+            awaitingReply.clear();
+            awaitingReceipt.clear();
+        }
+        for (PendingRequest request : pending) {
+            request.fail(cause);
+        }
+    }
+
+    synchronized int pendingCount() {
+        return unsent.size() + awaitingReply.size() + awaitingReceipt.size();
+    }
+
+    private LatencyStats statsFor(String cmd) {
+        return latency.computeIfAbsent(cmd, it -> new LatencyStats());
+    }
+
+    /**
+     * 按命令的往返延迟，wol_rec_dev_recp 为发出 wol 到收到回执的端到端延迟
+     */
+    public Map<String, LatencyStats> getLatencyStats() {
+        return Collections.unmodifiableMap(new TreeMap<>(latency));
+    }
+}
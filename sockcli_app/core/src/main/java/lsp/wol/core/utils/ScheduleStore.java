@@ -0,0 +1,68 @@
+package lsp.wol.core.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import lsp.wol.core.model.WakeSchedule;
+import lsp.wol.core.platform.Log;
+
+/**
+ * 定时唤醒的存储，与设备放在同一目录
+ * 条数很少且修改不频繁，整体写成 schedules.json；先写临时文件再改名，中途失败时旧文件仍然有效
+ */
+public class ScheduleStore {
+
+    private static final String FILE = "schedules.json";
+
+    private final File file;
+    private final Gson gson = new Gson();
+
+    public ScheduleStore(File dir) {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new UncheckedIOException(new IOException("cannot create " + dir));
+        }
+        this.file = new File(dir, FILE);
+    }
+
+    /**
+     * 全部定时唤醒，文件不存在或已损坏时为空
+     */
+    public synchronized List<WakeSchedule> load() {
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            List<WakeSchedule> schedules = gson.fromJson(reader, new TypeToken<List<WakeSchedule>>() {}.getType());
+            return schedules != null ? schedules : new ArrayList<>();
+        } catch (IOException | JsonParseException e) {
+            Log.e("ScheduleStore load", e);
+            return new ArrayList<>();
+        }
+    }
+
+    public synchronized void save(List<WakeSchedule> schedules) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            gson.toJson(schedules, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!tmp.renameTo(file)) {
+            throw new UncheckedIOException(new IOException("cannot replace " + file));
+        }
+    }
+}
@@ -0,0 +1,552 @@
+package lsp.wol.core.utils;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import lsp.wol.core.model.Command;
+import lsp.wol.core.model.TcpData;
+
+/**
+ * TcpData 编解码，直接读写字节，不使用反射
+ *
+ * 两种编码：
+ * JSON   旧版协议，与 Gson 输出兼容：{"cmd":..,"data":..,"host":..,"type":..,"id":..}，值为 null 的字段省略
+ * BINARY 紧凑二进制，只能在长度前缀分帧下使用：
+ *          u8  命令字节（Command.code），0 时后跟 u8 长度 + 命令名
+ *          u8  字段标志 1=data 2=host 4=type 8=id
+ *          按标志顺序每个字段 u16 长度 + UTF-8
+ *
+ * 默认 JSON，分帧协商为 LENGTH 后客户端发送 codec 命令声明支持的编码，对端回复选定的编码后双方切换
+ * 只在连接线程使用
+ */
+public class TcpDataCodec {
+
+    public enum Encoding {
+        JSON("json"),
+        BINARY("bin");
+
+        public final String wireName;
+
+        Encoding(String wireName) {
+            this.wireName = wireName;
+        }
+
+        public static Encoding fromWireName(String name) {
+            for (Encoding encoding : values()) {
+                if (encoding.wireName.equals(name)) {
+                    return encoding;
+                }
+            }
+            return null;
+        }
+    }
+
+    // 客户端支持的编码 按优先级排列
+    public static final String SUPPORTED_ENCODINGS = Encoding.BINARY.wireName + "," + Encoding.JSON.wireName;
+
+    private static final int FLAG_DATA = 1;
+    private static final int FLAG_HOST = 2;
+    private static final int FLAG_TYPE = 4;
+    private static final int FLAG_ID = 8;
+
+    private static final byte[] KEY_CMD = ascii("cmd");
+    private static final byte[] KEY_DATA = ascii("data");
+    private static final byte[] KEY_HOST = ascii("host");
+    private static final byte[] KEY_TYPE = ascii("type");
+    private static final byte[] KEY_ID = ascii("id");
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    private Encoding encoding = Encoding.JSON;
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * 切换编码，可以在解码回调中调用，之后的消息按新编码处理
+     */
+    public void setEncoding(Encoding encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * 重置为初始状态（新连接）
+     */
+    public void reset() {
+        encoding = Encoding.JSON;
+    }
+
+    /**
+     * 按当前编码写入 out
+     * @throws BufferOverflowException out 空间不足，调用方扩容后重试
+     */
+    public void encode(TcpData tcpData, ByteBuffer out) {
+        if (encoding == Encoding.BINARY) {
+            writeBinary(tcpData, out);
+        } else {
+            writeJson(tcpData, out);
+        }
+    }
+
+    /**
+     * 按当前编码解码一帧
+     * @throws IOException 格式不正确
+     */
+    public TcpData decode(byte[] array, int offset, int length) throws IOException {
+        if (encoding == Encoding.BINARY) {
+            return readBinary(array, offset, length);
+        }
+        return readJson(array, offset, length);
+    }
+
+    // ---------------- JSON ----------------
+
+    static void writeJson(TcpData tcpData, ByteBuffer out) {
+        out.put((byte) '{');
+        boolean first = true;
+        first = writeField(out, KEY_CMD, tcpData.cmd, first);
+        first = writeField(out, KEY_DATA, tcpData.data, first);
+        first = writeField(out, KEY_HOST, tcpData.host, first);
+        first = writeField(out, KEY_TYPE, tcpData.type, first);
+        writeField(out, KEY_ID, tcpData.id, first);
+        out.put((byte) '}');
+    }
+
+    private static boolean writeField(ByteBuffer out, byte[] key, String value, boolean first) {
+        if (value == null) {
+            return first;
+        }
+        if (!first) {
+            out.put((byte) ',');
+        }
+        out.put((byte) '"');
+        out.put(key);
+        out.put((byte) '"');
+        out.put((byte) ':');
+        writeJsonString(out, value);
+        return false;
+    }
+
+    private static void writeJsonString(ByteBuffer out, String value) {
+        out.put((byte) '"');
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.put((byte) '\\');
+                out.put((byte) c);
+            } else if (c < 0x20) {
+                switch (c) {
+                    case '\n':
+                        out.put((byte) '\\').put((byte) 'n');
+                        break;
+                    case '\r':
+                        out.put((byte) '\\').put((byte) 'r');
+                        break;
+                    case '\t':
+                        out.put((byte) '\\').put((byte) 't');
+                        break;
+                    default:
+                        out.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0')
+                                .put(HEX[c >> 4]).put(HEX[c & 0xf]);
+                        break;
+                }
+            } else {
+                i = putUtf8(out, value, i);
+            }
+        }
+        out.put((byte) '"');
+    }
+
+    /**
+     * 写入 value[i] 的 UTF-8 编码
+     * @return 最后消费的下标（代理对占两个 char）
+     */
+    private static int putUtf8(ByteBuffer out, CharSequence value, int i) {
+        char c = value.charAt(i);
+        if (c < 0x80) {
+            out.put((byte) c);
+        } else if (c < 0x800) {
+            out.put((byte) (0xc0 | (c >> 6)));
+            out.put((byte) (0x80 | (c & 0x3f)));
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(i + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(i + 1));
+            out.put((byte) (0xf0 | (codePoint >> 18)));
+            out.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+            out.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+            out.put((byte) (0x80 | (codePoint & 0x3f)));
+            return i + 1;
+        } else if (Character.isSurrogate(c)) {
+            // 不成对的代理字符
+            out.put((byte) '?');
+        } else {
+            out.put((byte) (0xe0 | (c >> 12)));
+            out.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+            out.put((byte) (0x80 | (c & 0x3f)));
+        }
+        return i;
+    }
+
+    /**
+     * 解析一个 JSON 对象，只取已知字段，其它字段跳过
+     */
+    static TcpData readJson(byte[] array, int offset, int length) throws IOException {
+        JsonReader reader = new JsonReader(array, offset, offset + length);
+        TcpData tcpData = new TcpData();
+        // 服务器消息没有 type 字段
+        tcpData.type = null;
+        reader.skipWhitespace();
+        reader.expect('{');
+        reader.skipWhitespace();
+        if (reader.peek() == '}') {
+            return tcpData;
+        }
+        while (true) {
+            reader.skipWhitespace();
+            reader.expect('"');
+            int keyStart = reader.pos;
+            int keyEnd = reader.skipString();
+            reader.skipWhitespace();
+            reader.expect(':');
+            reader.skipWhitespace();
+
+            if (keyEquals(array, keyStart, keyEnd, KEY_CMD)) {
+                if (reader.peek() == '"') {
+                    reader.pos++;
+                    int valueStart = reader.pos;
+                    int valueEnd = reader.skipString();
+                    Command command = Command.fromWireBytes(array, valueStart, valueEnd - valueStart);
+                    if (command == Command.UNKNOWN) {
+                        // 未知命令或带转义的命令名
+                        String name = reader.decodeString(valueStart, valueEnd);
+                        tcpData.setCommand(Command.fromWireName(name), name);
+                    } else {
+                        tcpData.setCommand(command, null);
+                    }
+                } else {
+                    tcpData.setCommand(Command.UNKNOWN, reader.readScalar());
+                }
+            } else if (keyEquals(array, keyStart, keyEnd, KEY_DATA)) {
+                tcpData.data = reader.readScalar();
+            } else if (keyEquals(array, keyStart, keyEnd, KEY_HOST)) {
+                tcpData.host = reader.readScalar();
+            } else if (keyEquals(array, keyStart, keyEnd, KEY_TYPE)) {
+                tcpData.type = reader.readScalar();
+            } else if (keyEquals(array, keyStart, keyEnd, KEY_ID)) {
+                tcpData.id = reader.readScalar();
+            } else {
+                reader.skipValue();
+            }
+
+            reader.skipWhitespace();
+            byte b = reader.next();
+            if (b == '}') {
+                return tcpData;
+            }
+            if (b != ',') {
+                throw new IOException("malformed message at " + (reader.pos - 1 - offset));
+            }
+        }
+    }
+
+    private static boolean keyEquals(byte[] array, int start, int end, byte[] key) {
+        if (end - start != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (array[start + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 最小的 JSON 读取器，只支持 TcpData 需要的部分
+     */
+    private static final class JsonReader {
+        final byte[] array;
+        final int end;
+        int pos;
+
+        JsonReader(byte[] array, int start, int end) {
+            this.array = array;
+            this.pos = start;
+            this.end = end;
+        }
+
+        byte peek() throws IOException {
+            if (pos >= end) {
+                throw new IOException("unexpected end of message");
+            }
+            return array[pos];
+        }
+
+        byte next() throws IOException {
+            byte b = peek();
+            pos++;
+            return b;
+        }
+
+        void expect(char c) throws IOException {
+            if (next() != c) {
+                throw new IOException("malformed message: expected '" + c + "'");
+            }
+        }
+
+        void skipWhitespace() {
+            while (pos < end) {
+                byte b = array[pos];
+                if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                    return;
+                }
+                pos++;
+            }
+        }
+
+        /**
+         * 跳过字符串内容（开头引号已消费）
+         * @return 结尾引号的位置
+         */
+        int skipString() throws IOException {
+            while (true) {
+                byte b = next();
+                if (b == '"') {
+                    return pos - 1;
+                }
+                if (b == '\\') {
+                    next();
+                }
+            }
+        }
+
+        /**
+         * 读取字符串，数字与布尔值按原文返回，null 返回 null
+         */
+        String readScalar() throws IOException {
+            byte b = peek();
+            if (b == '"') {
+                pos++;
+                int start = pos;
+                int stringEnd = skipString();
+                return decodeString(start, stringEnd);
+            }
+            if (b == '{' || b == '[') {
+                skipValue();
+                return null;
+            }
+            int start = pos;
+            while (pos < end) {
+                byte c = array[pos];
+                if (c == ',' || c == '}' || c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                    break;
+                }
+                pos++;
+            }
+            if (pos == start) {
+                throw new IOException("malformed message: missing value");
+            }
+            String token = new String(array, start, pos - start, StandardCharsets.US_ASCII);
+            return "null".equals(token) ? null : token;
+        }
+
+        void skipValue() throws IOException {
+            byte b = peek();
+            if (b == '"') {
+                pos++;
+                skipString();
+                return;
+            }
+            if (b == '{' || b == '[') {
+                int depth = 0;
+                do {
+                    byte c = next();
+                    if (c == '"') {
+                        skipString();
+                    } else if (c == '{' || c == '[') {
+                        depth++;
+                    } else if (c == '}' || c == ']') {
+                        depth--;
+                    }
+                } while (depth > 0);
+                return;
+            }
+            readScalar();
+        }
+
+        /**
+         * 解码 [start, end) 之间的字符串内容，没有转义时直接按 UTF-8 构造
+         */
+        String decodeString(int start, int stringEnd) throws IOException {
+            int escape = -1;
+            for (int i = start; i < stringEnd; i++) {
+                if (array[i] == '\\') {
+                    escape = i;
+                    break;
+                }
+            }
+            if (escape < 0) {
+                return new String(array, start, stringEnd - start, StandardCharsets.UTF_8);
+            }
+            StringBuilder sb = new StringBuilder(stringEnd - start);
+            int segment = start;
+            int i = escape;
+            while (i < stringEnd) {
+                if (array[i] != '\\') {
+                    i++;
+                    continue;
+                }
+                sb.append(new String(array, segment, i - segment, StandardCharsets.UTF_8));
+                if (i + 1 >= stringEnd) {
+                    throw new IOException("malformed escape");
+                }
+                byte c = array[i + 1];
+                i += 2;
+                switch (c) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        sb.append((char) c);
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'u':
+                        if (i + 4 > stringEnd) {
+                            throw new IOException("malformed escape");
+                        }
+                        int value = 0;
+                        for (int k = 0; k < 4; k++) {
+                            int digit = Character.digit(array[i + k], 16);
+                            if (digit < 0) {
+                                throw new IOException("malformed escape");
+                            }
+                            value = (value << 4) | digit;
+                        }
+                        sb.append((char) value);
+                        i += 4;
+                        break;
+                    default:
+                        throw new IOException("malformed escape");
+                }
+                segment = i;
+            }
+            sb.append(new String(array, segment, stringEnd - segment, StandardCharsets.UTF_8));
+            return sb.toString();
+        }
+    }
+
+    // ---------------- BINARY ----------------
+
+    static void writeBinary(TcpData tcpData, ByteBuffer out) {
+        Command command = tcpData.command();
+        out.put((byte) command.code);
+        if (command == Command.UNKNOWN) {
+            String cmd = tcpData.cmd == null ? "" : tcpData.cmd;
+            int mark = out.position();
+            out.put((byte) 0);
+            for (int i = 0; i < cmd.length(); i++) {
+                i = putUtf8(out, cmd, i);
+            }
+            int length = out.position() - mark - 1;
+            if (length > 0xff) {
+                throw new IllegalArgumentException("command too long: " + cmd);
+            }
+            out.put(mark, (byte) length);
+        }
+        int flags = (tcpData.data != null ? FLAG_DATA : 0)
+                | (tcpData.host != null ? FLAG_HOST : 0)
+                | (tcpData.type != null ? FLAG_TYPE : 0)
+                | (tcpData.id != null ? FLAG_ID : 0);
+        out.put((byte) flags);
+        putBinaryString(out, tcpData.data);
+        putBinaryString(out, tcpData.host);
+        putBinaryString(out, tcpData.type);
+        putBinaryString(out, tcpData.id);
+    }
+
+    private static void putBinaryString(ByteBuffer out, String value) {
+        if (value == null) {
+            return;
+        }
+        int mark = out.position();
+        out.putShort((short) 0);
+        for (int i = 0; i < value.length(); i++) {
+            i = putUtf8(out, value, i);
+        }
+        int length = out.position() - mark - 2;
+        if (length > 0xffff) {
+            throw new IllegalArgumentException("field too long: " + length);
+        }
+        out.putShort(mark, (short) length);
+    }
+
+    static TcpData readBinary(byte[] array, int offset, int length) throws IOException {
+        int end = offset + length;
+        int pos = offset;
+        try {
+            checkBounds(pos + 2, end);
+            TcpData tcpData = new TcpData();
+            tcpData.type = null;
+            Command command = Command.fromCode(array[pos++] & 0xff);
+            String cmd = null;
+            if (command == Command.UNKNOWN) {
+                int cmdLength = array[pos++] & 0xff;
+                checkBounds(pos + cmdLength, end);
+                cmd = new String(array, pos, cmdLength, StandardCharsets.UTF_8);
+                pos += cmdLength;
+                checkBounds(pos + 1, end);
+            }
+            tcpData.setCommand(command, cmd);
+            int flags = array[pos++] & 0xff;
+            for (int flag = FLAG_DATA; flag <= FLAG_ID; flag <<= 1) {
+                if ((flags & flag) == 0) {
+                    continue;
+                }
+                checkBounds(pos + 2, end);
+                int fieldLength = ((array[pos] & 0xff) << 8) | (array[pos + 1] & 0xff);
+                pos += 2;
+                checkBounds(pos + fieldLength, end);
+                String value = new String(array, pos, fieldLength, StandardCharsets.UTF_8);
+                pos += fieldLength;
+                if (flag == FLAG_DATA) {
+                    tcpData.data = value;
+                } else if (flag == FLAG_HOST) {
+                    tcpData.host = value;
+                } else if (flag == FLAG_TYPE) {
+                    tcpData.type = value;
+                } else {
+                    tcpData.id = value;
+                }
+            }
+            checkBounds(pos, end);
+            return tcpData;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("truncated binary message", e);
+        }
+    }
+
+    private static void checkBounds(int pos, int end) throws IOException {
+        if (pos > end) {
+            throw new IOException("truncated binary message");
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package lsp.wol.core.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import lsp.wol.core.platform.Log;
+
+/**
+ * 哈希时间轮：到期时间按 tick 散列到 2^n 个槽位，每个 tick 只检查当前槽位，
+ * 开销与任务总数无关；超过一圈的任务留在槽位里，转到对应圈数时才到期
+ * 槽位是双向链表，添加与取消都是 O(1)；同一次推进中到期的任务作为一批交给 Handler
+ */
+public class TimerWheel<T> {
+
+    /**
+     * 到期回调，在推进时间轮的线程调用
+     */
+    public interface Handler<T> {
+        void onExpired(List<T> batch);
+    }
+
+    /**
+     * 已加入时间轮的任务
+     */
+    public static final class Timeout<T> {
+        final T task;
+        final long deadlineTick;
+        Timeout<T> prev;
+        Timeout<T> next;
+        int slot = -1;
+
+        Timeout(T task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getTask() {
+            return task;
+        }
+    }
+
+    private final long tickMs;
+    private final int mask;
+    private final Timeout<T>[] heads;
+    private final LongSupplier clock;
+    // 已处理到的 tick
+    private long currentTick;
+    private int size;
+    private Thread driver;
+
+    public TimerWheel(long tickMs, int slots) {
+        this(tickMs, slots, System::currentTimeMillis);
+    }
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(long tickMs, int slots, LongSupplier clock) {
+        if (tickMs <= 0 || slots <= 0 || Integer.bitCount(slots) != 1) {
+            throw new IllegalArgumentException("tickMs 必须为正数，slots 必须为 2 的幂");
+        }
+        this.tickMs = tickMs;
+        this.mask = slots - 1;
+        this.heads = (Timeout<T>[]) new Timeout<?>[slots];
+        this.clock = clock;
+        this.currentTick = clock.getAsLong() / tickMs;
+    }
+
+    /**
+     * 在 deadlineMs（毫秒时间戳）到期，已过期的任务在下一个 tick 到期
+     */
+    public synchronized Timeout<T> schedule(T task, long deadlineMs) {
+        long tick = Math.max(Math.floorDiv(deadlineMs, tickMs), currentTick + 1);
+        Timeout<T> timeout = new Timeout<>(task, tick);
+        int slot = (int) (tick & mask);
+        timeout.slot = slot;
+        timeout.next = heads[slot];
+        if (heads[slot] != null) {
+            heads[slot].prev = timeout;
+        }
+        heads[slot] = timeout;
+        size++;
+        return timeout;
+    }
+
+    /**
+     * @return 是否还未到期并已取消
+     */
+    public synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout == null || timeout.slot < 0) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            heads[timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.slot = -1;
+        size--;
+    }
+
+    /**
+     * 推进到 nowMs，返回期间到期的任务；落后超过一圈时每个槽位只检查一次
+     */
+    public List<T> advance(long nowMs) {
+        List<T> expired = new ArrayList<>();
+        synchronized (this) {
+            long target = Math.floorDiv(nowMs, tickMs);
+            long from = Math.max(currentTick + 1, target - mask);
+            for (long tick = from; tick <= target; tick++) {
+                Timeout<T> timeout = heads[(int) (tick & mask)];
+                while (timeout != null) {
+                    Timeout<T> next = timeout.next;
+                    if (timeout.deadlineTick <= target) {
+                        unlink(timeout);
+                        expired.add(timeout.task);
+                    }
+                    timeout = next;
+                }
+            }
+            if (target > currentTick) {
+                currentTick = target;
+            }
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 启动后台线程，每个 tick 推进一次
+     */
+    public synchronized void start(Handler<T> handler) {
+        if (driver != null) {
+            return;
+        }
+        driver = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                long now = clock.getAsLong();
+                long wait = tickMs - Math.floorMod(now, tickMs);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                List<T> batch = advance(clock.getAsLong());
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                try {
+                    handler.onExpired(batch);
+                } catch (RuntimeException e) {
+                    Log.e("TimerWheel onExpired", e);
+                }
+            }
+        }, "timer-wheel");
+        driver.setDaemon(true);
+        driver.start();
+    }
+
+    public synchronized void stop() {
+        if (driver != null) {
+            driver.interrupt();
+            driver = null;
+        }
+    }
+}
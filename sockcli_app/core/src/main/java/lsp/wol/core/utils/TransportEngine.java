@@ -0,0 +1,83 @@
+package lsp.wol.core.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 传输引擎：只负责与服务器之间的字节收发
+ * SocketClient 负责协议与界面提示，引擎可替换（例如测试时连接本地回环服务器）
+ */
+public interface TransportEngine extends Closeable {
+
+    interface Handler {
+        /**
+         * 收到数据
+         * @param buffer 读模式的缓冲区，回调返回后内容失效
+         */
+        void onRead(ByteBuffer buffer);
+
+        /**
+         * 事件循环每轮回调（被唤醒、收到数据或等待超时之后），在引擎线程执行
+         * @param now 当前时间戳
+         * @return 距离下一次需要回调的毫秒数
+         */
+        long onTick(long now);
+    }
+
+    /**
+     * 连接服务器
+     * @param address 服务器地址
+     * @param timeoutMs 连接超时 毫秒
+     */
+    void connect(InetSocketAddress address, int timeoutMs) throws IOException;
+
+    /**
+     * 连接多个候选地址中的一个（Happy Eyeballs）：按顺序发起，前一个 attemptDelayMs 内未连上或已失败就发起下一个，
+     * 最先连上的胜出，其余关闭。默认实现逐个尝试
+     * @param candidates 已解析的地址，优先的在前
+     * @param timeoutMs 整体超时 毫秒
+     * @return 连上的地址
+     */
+    default InetSocketAddress connect(List<InetSocketAddress> candidates, int timeoutMs, long attemptDelayMs)
+            throws IOException {
+        IOException last = new IOException("no address");
+        for (InetSocketAddress candidate : candidates) {
+            try {
+                connect(candidate, timeoutMs);
+                return candidate;
+            } catch (IOException e) {
+                last = e;
+            }
+        }
+        throw last;
+    }
+
+    /**
+     * 本地IP，连接成功后有效
+     */
+    String getLocalIp();
+
+    boolean isOpen();
+
+    /**
+     * 事件循环，阻塞直到连接关闭
+     */
+    void run(Handler handler) throws IOException;
+
+    /**
+     * 唤醒事件循环，线程安全，唤醒后会立即回调 Handler.onTick
+     */
+    void wakeup();
+
+    /**
+     * 写数据，只能在引擎线程（Handler 回调中）调用
+     * 未能立即写完的部分会被复制并在可写时继续发送，调用方可以复用传入的缓冲区
+     */
+    void write(ByteBuffer... buffers) throws IOException;
+
+    @Override
+    void close();
+}
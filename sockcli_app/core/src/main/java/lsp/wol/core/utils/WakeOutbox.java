@@ -0,0 +1,617 @@
+package lsp.wol.core.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import lsp.wol.core.metrics.Counter;
+import lsp.wol.core.metrics.Gauge;
+import lsp.wol.core.metrics.MetricsRegistry;
+import lsp.wol.core.model.MacAddress;
+import lsp.wol.core.model.TcpData;
+import lsp.wol.core.model.WakeResult;
+import lsp.wol.core.platform.Log;
+
+/**
+ * 唤醒命令发件箱：任何时候都可以提交唤醒命令，先写入磁盘，连上服务器后一次性批量发出；
+ * 服务器不可达超过期限（或没有 ESP8266 在线）时改为局域网广播
+ * 同一 MAC 在去重窗口内只保留一条命令，每条命令记录投递状态，重启后未完成的命令继续投递
+ *
+ * 文件 outbox.log 只追加，每条记录 RECORD_LENGTH 字节：1 字节操作 + 8 字节编号 + 8 字节 MAC + 1 字节状态 + 8 字节时间
+ * 追加不做 fsync，进程崩溃不丢记录，断电可能丢失最近几条；压缩时新文件落盘后才替换，不会把日志换成空文件
+ */
+public class WakeOutbox implements Closeable {
+
+    /**
+     * 投递状态
+     */
+    public enum State {
+        // 等待发送（未连接服务器或发送失败后重试）
+        QUEUED,
+        // 已交给服务器连接，等待回复
+        SENDING,
+        // 服务器已转发给 ESP8266，等待回执
+        RELAYED,
+        // ESP8266 已发出魔术包
+        DELIVERED,
+        // 已在局域网广播
+        LAN_SENT,
+        // 发件箱已满被丢弃
+        DROPPED,
+        // 局域网广播失败
+        FAILED;
+
+        /**
+         * 不再重试（RELAYED 等回执，但不会再次发送）
+         */
+        public boolean isDone() {
+            return this != QUEUED && this != SENDING;
+        }
+    }
+
+    /**
+     * 一条唤醒命令
+     */
+    public static final class Entry {
+        final long id;
+        final MacAddress macAddress;
+        final long createdAt;
+        volatile State state = State.QUEUED;
+        volatile long updatedAt;
+        volatile int attempts;
+        // 收到命令的 ESP8266 数量，未收到回复为 -1
+        volatile int receivers = -1;
+
+        Entry(long id, MacAddress macAddress, long createdAt) {
+            this.id = id;
+            this.macAddress = macAddress;
+            this.createdAt = createdAt;
+            this.updatedAt = createdAt;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public MacAddress getMacAddress() {
+            return macAddress;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public long getUpdatedAt() {
+            return updatedAt;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public int getReceivers() {
+            return receivers;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + id + " " + macAddress + " " + state;
+        }
+    }
+
+    /**
+     * 服务器连接（RelayClient）
+     */
+    public interface Relay {
+        boolean isConnected();
+
+        /**
+         * 一批唤醒命令，返回的请求与 MAC 一一对应
+         */
+        List<PendingRequest> wakeAll(List<MacAddress> macAddresses);
+    }
+
+    /**
+     * 局域网广播（WolSender），需要由 MAC 找到设备的 SecureOn 密码等
+     */
+    public interface LanSender {
+        CompletableFuture<List<WakeResult>> wakeAll(List<MacAddress> macAddresses);
+    }
+
+    /**
+     * 状态变化，在引起变化的线程回调（连接线程、定时线程或提交命令的线程）
+     */
+    public interface Listener {
+        void onStateChanged(Entry entry);
+    }
+
+    static final int RECORD_LENGTH = 1 + 8 + 8 + 1 + 8;
+    static final int DEFAULT_CAPACITY = 64;
+    static final long DEFAULT_DEDUPE_WINDOW_MS = 10 * 1000L;
+    // 服务器连续不可达超过该时间后改为局域网广播
+    static final long DEFAULT_LAN_DEADLINE_MS = 5 * 1000L;
+    // 已完成的命令保留多久（查看状态、去重）
+    static final long HISTORY_MS = 10 * 60 * 1000L;
+    private static final long TICK_INTERVAL_MS = 1000;
+    private static final String JOURNAL_FILE = "outbox.log";
+    private static final int MIN_COMPACT_ENTRIES = 64;
+
+    private static final byte OP_ADD = 1;
+    private static final byte OP_STATE = 2;
+
+    private static final Counter QUEUED = MetricsRegistry.shared().counter("outbox.queued");
+    private static final Counter DEDUPED = MetricsRegistry.shared().counter("outbox.deduped");
+    private static final Counter LAN_FALLBACKS = MetricsRegistry.shared().counter("outbox.lan_fallbacks");
+    private static final Counter DROPS = MetricsRegistry.shared().counter("outbox.dropped");
+    private static final Gauge PENDING = MetricsRegistry.shared().gauge("outbox.pending");
+
+    private final File journalFile;
+    private final Relay relay;
+    private final LanSender lanSender;
+    private final LongSupplier clock;
+    private final int capacity;
+    private final long dedupeWindowMs;
+    private final long lanDeadlineMs;
+    // 按提交顺序
+    private final Map<Long, Entry> entries = new LinkedHashMap<>();
+    // MAC -> 最近一条命令
+    private final LongObjectMap<Entry> latestByMac = new LongObjectMap<>();
+    private volatile Listener listener;
+    private long nextId = 1;
+    private int journalEntries = 0;
+    private int pending = 0;
+    // 关闭后不再计入 outbox.pending
+    private boolean closed;
+    // 服务器开始不可达的时间，可达时为 -1
+    private long unreachableSince = -1;
+    private ScheduledExecutorService ticker;
+
+    public WakeOutbox(File dir, Relay relay, LanSender lanSender) {
+        this(dir, relay, lanSender, System::currentTimeMillis,
+                DEFAULT_CAPACITY, DEFAULT_DEDUPE_WINDOW_MS, DEFAULT_LAN_DEADLINE_MS);
+    }
+
+    WakeOutbox(File dir, Relay relay, LanSender lanSender, LongSupplier clock,
+               int capacity, long dedupeWindowMs, long lanDeadlineMs) {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new UncheckedIOException(new IOException("cannot create " + dir));
+        }
+        this.journalFile = new File(dir, JOURNAL_FILE);
+        this.relay = relay;
+        this.lanSender = lanSender;
+        this.clock = clock;
+        this.capacity = capacity;
+        this.dedupeWindowMs = dedupeWindowMs;
+        this.lanDeadlineMs = lanDeadlineMs;
+        load();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 每秒检查一次：已连接时发出遗留的命令，不可达超过期限时改为局域网广播
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wake-outbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(() -> {
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                Log.e("WakeOutbox tick", e);
+            }
+        }, TICK_INTERVAL_MS, TICK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+        if (!closed) {
+            // 撤销本实例计入汇总的待发送数
+            PENDING.add(-pending);
+            closed = true;
+        }
+    }
+
+    /**
+     * 提交唤醒命令，已连接时立即发出
+     * 去重窗口内同一 MAC 已有命令（或上一条还未完成）时返回已有的命令
+     */
+    public Entry enqueue(MacAddress macAddress) {
+        Entry entry;
+        synchronized (this) {
+            entry = add(macAddress, clock.getAsLong());
+        }
+        send();
+        return entry;
+    }
+
+    /**
+     * 一次提交多条唤醒命令，作为一批发出（定时唤醒同时到期的设备）
+     * @return 与 macAddresses 一一对应
+     */
+    public List<Entry> enqueueAll(List<MacAddress> macAddresses) {
+        List<Entry> added = new ArrayList<>(macAddresses.size());
+        synchronized (this) {
+            long now = clock.getAsLong();
+            for (MacAddress macAddress : macAddresses) {
+                added.add(add(macAddress, now));
+            }
+        }
+        send();
+        return added;
+    }
+
+    // 加入发件箱，调用方持有锁
+    private Entry add(MacAddress macAddress, long now) {
+        Entry latest = latestByMac.get(macAddress.toLong());
+        if (latest != null && (!latest.state.isDone()
+                || (now - latest.createdAt < dedupeWindowMs && latest.state != State.DROPPED && latest.state != State.FAILED))) {
+            DEDUPED.increment();
+            return latest;
+        }
+        if (pending >= capacity) {
+            dropOldest(now);
+        }
+        Entry entry = new Entry(nextId++, macAddress, now);
+        entries.put(entry.id, entry);
+        latestByMac.put(macAddress.toLong(), entry);
+        addPending(1);
+        QUEUED.increment();
+        append(OP_ADD, entry.id, macAddress.toLong(), State.QUEUED, now);
+        notifyListener(entry);
+        return entry;
+    }
+
+    private void send() {
+        if (relay.isConnected()) {
+            flush();
+        } else {
+            tick();
+        }
+    }
+
+    // 发件箱已满，丢弃最早的一条等待发送的命令；都在等待回复时丢弃最早的一条，之后的回复不再处理
+    private void dropOldest(long now) {
+        Entry oldest = null;
+        for (Entry entry : entries.values()) {
+            if (entry.state == State.QUEUED) {
+                oldest = entry;
+                break;
+            }
+            if (oldest == null && !entry.state.isDone()) {
+                oldest = entry;
+            }
+        }
+        if (oldest != null) {
+            Log.i("WakeOutbox enqueue: 发件箱已满，丢弃 {}", oldest.macAddress);
+            DROPS.increment();
+            transition(oldest, State.DROPPED, now);
+        }
+    }
+
+    /**
+     * 把等待中的命令作为一批发给服务器（连接成功时调用）
+     */
+    public void flush() {
+        List<Entry> batch = new ArrayList<>();
+        synchronized (this) {
+            if (!relay.isConnected()) {
+                return;
+            }
+            unreachableSince = -1;
+            long now = clock.getAsLong();
+            for (Entry entry : entries.values()) {
+                if (entry.state == State.QUEUED) {
+                    entry.attempts++;
+                    transition(entry, State.SENDING, now);
+                    batch.add(entry);
+                }
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        Log.i("WakeOutbox flush: 发出 {} 条唤醒命令", batch.size());
+        List<MacAddress> macAddresses = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            macAddresses.add(entry.macAddress);
+        }
+        // 在锁外发送，回复可能在发送线程或连接线程回调
+        List<PendingRequest> requests = relay.wakeAll(macAddresses);
+        for (int i = 0; i < batch.size(); i++) {
+            Entry entry = batch.get(i);
+            PendingRequest request = requests.get(i);
+            request.reply().whenComplete((reply, e) -> onReply(entry, reply, e));
+            if (request.receipt() != null) {
+                request.receipt().thenAccept(receipt -> onReceipt(entry));
+            }
+        }
+    }
+
+    private synchronized void onReply(Entry entry, TcpData reply, Throwable error) {
+        if (entry.state != State.SENDING) {
+            return;
+        }
+        long now = clock.getAsLong();
+        if (error != null) {
+            // 断开或超时，重新排队：连上后重发，一直连不上则局域网广播
+            Log.i("WakeOutbox onReply: {} 发送失败，重新排队", entry.macAddress);
+            transition(entry, State.QUEUED, now);
+            return;
+        }
+        int receivers = parseReceivers(reply.data);
+        entry.receivers = receivers;
+        if (receivers == 0) {
+            // 没有 ESP8266 在线，服务器转发不到
+            lanFallback(List.of(entry), now);
+            return;
+        }
+        transition(entry, State.RELAYED, now);
+    }
+
+    private synchronized void onReceipt(Entry entry) {
+        if (entry.state == State.RELAYED || entry.state == State.SENDING) {
+            transition(entry, State.DELIVERED, clock.getAsLong());
+        }
+    }
+
+    private static int parseReceivers(String data) {
+        try {
+            return Integer.parseInt(data.trim());
+        } catch (NumberFormatException | NullPointerException e) {
+            // 旧版本服务器不带数量，当作已转发
+            return -1;
+        }
+    }
+
+    /**
+     * 定时检查：已连接时发出遗留命令；不可达超过期限时等待中的命令改为局域网广播；清理过期记录
+     */
+    public void tick() {
+        if (relay.isConnected()) {
+            flush();
+        } else {
+            synchronized (this) {
+                long now = clock.getAsLong();
+                if (unreachableSince < 0) {
+                    unreachableSince = now;
+                }
+                if (now - unreachableSince >= lanDeadlineMs) {
+                    List<Entry> batch = new ArrayList<>();
+                    for (Entry entry : entries.values()) {
+                        if (entry.state == State.QUEUED) {
+                            batch.add(entry);
+                        }
+                    }
+                    if (!batch.isEmpty()) {
+                        lanFallback(batch, now);
+                    }
+                }
+            }
+        }
+        prune();
+    }
+
+    // 局域网广播，调用方持有锁
+    private void lanFallback(List<Entry> batch, long now) {
+        Log.i("WakeOutbox lanFallback: 服务器不可达，局域网广播 {} 条", batch.size());
+        List<MacAddress> macAddresses = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            entry.attempts++;
+            // 广播结束前不会再被发出或重复广播
+            transition(entry, State.SENDING, now);
+            macAddresses.add(entry.macAddress);
+        }
+        LAN_FALLBACKS.add(batch.size());
+        lanSender.wakeAll(macAddresses).whenComplete((results, e) -> onLanResult(batch, results, e));
+    }
+
+    private synchronized void onLanResult(List<Entry> batch, List<WakeResult> results, Throwable error) {
+        long now = clock.getAsLong();
+        for (int i = 0; i < batch.size(); i++) {
+            Entry entry = batch.get(i);
+            if (entry.state != State.SENDING) {
+                continue;
+            }
+            boolean sent = error == null && results != null && i < results.size() && results.get(i).isSuccess();
+            transition(entry, sent ? State.LAN_SENT : State.FAILED, now);
+        }
+    }
+
+    /**
+     * 删除超过保留时间的已完成命令
+     */
+    synchronized void prune() {
+        long now = clock.getAsLong();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.state.isDone() && now - entry.updatedAt >= HISTORY_MS) {
+                iterator.remove();
+                if (latestByMac.get(entry.macAddress.toLong()) == entry) {
+                    latestByMac.remove(entry.macAddress.toLong());
+                }
+            }
+        }
+    }
+
+    /**
+     * 当前保存的命令，按提交顺序
+     */
+    public synchronized List<Entry> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * 某个 MAC 最近一条命令，没有返回 null
+     */
+    public synchronized Entry get(MacAddress macAddress) {
+        return latestByMac.get(macAddress.toLong());
+    }
+
+    /**
+     * 还未完成（等待发送或等待回复）的命令数
+     */
+    public synchronized int getPendingCount() {
+        return pending;
+    }
+
+    // 调用方持有锁
+    private void transition(Entry entry, State state, long now) {
+        State old = entry.state;
+        if (old == state) {
+            return;
+        }
+        if (!old.isDone() && state.isDone()) {
+            addPending(-1);
+        } else if (old.isDone() && !state.isDone()) {
+            addPending(1);
+        }
+        entry.state = state;
+        entry.updatedAt = now;
+        // SENDING 只在内存中，重启后当作 QUEUED 重发
+        if (state != State.SENDING) {
+            append(OP_STATE, entry.id, entry.macAddress.toLong(), state, now);
+        }
+        notifyListener(entry);
+    }
+
+    // 调用方持有锁
+    private void addPending(int delta) {
+        pending += delta;
+        if (!closed) {
+            PENDING.add(delta);
+        }
+    }
+
+    private void notifyListener(Entry entry) {
+        Listener current = listener;
+        if (current != null) {
+            current.onStateChanged(entry);
+        }
+    }
+
+    private void load() {
+        if (!journalFile.exists()) {
+            return;
+        }
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        State[] states = State.values();
+        // 写入中途断电留下的半条记录直接忽略
+        while (buffer.remaining() >= RECORD_LENGTH) {
+            byte op = buffer.get();
+            long id = buffer.getLong();
+            long mac = buffer.getLong();
+            int state = buffer.get();
+            long time = buffer.getLong();
+            journalEntries++;
+            if (op == OP_ADD) {
+                Entry entry = new Entry(id, MacAddress.of(mac), time);
+                entries.put(id, entry);
+                latestByMac.put(mac, entry);
+                nextId = Math.max(nextId, id + 1);
+            } else if (op == OP_STATE && state >= 0 && state < states.length) {
+                Entry entry = entries.get(id);
+                if (entry != null) {
+                    entry.state = states[state];
+                    entry.updatedAt = time;
+                }
+            }
+        }
+        for (Entry entry : entries.values()) {
+            if (!entry.state.isDone()) {
+                pending++;
+            }
+        }
+        PENDING.add(pending);
+        prune();
+        Log.i("WakeOutbox load: {} 条命令，{} 条待发送", (Object) entries.size(), pending);
+    }
+
+    private void append(byte op, long id, long mac, State state, long time) {
+        try (OutputStream out = new FileOutputStream(journalFile, true)) {
+            out.write(encode(op, id, mac, state, time));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        journalEntries++;
+        if (journalEntries > Math.max(MIN_COMPACT_ENTRIES, 4 * entries.size())) {
+            compact();
+        }
+    }
+
+    private static byte[] encode(byte op, long id, long mac, State state, long time) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_LENGTH);
+        record.put(op).putLong(id).putLong(mac).put((byte) state.ordinal()).putLong(time);
+        return record.array();
+    }
+
+    /**
+     * 只保留当前命令重写日志，先写临时文件再改名
+     */
+    private void compact() {
+        prune();
+        File tmp = new File(journalFile.getPath() + ".tmp");
+        int written = 0;
+        try (FileOutputStream file = new FileOutputStream(tmp)) {
+            OutputStream out = new BufferedOutputStream(file);
+            for (Entry entry : entries.values()) {
+                long mac = entry.macAddress.toLong();
+                out.write(encode(OP_ADD, entry.id, mac, State.QUEUED, entry.createdAt));
+                written++;
+                State state = entry.state == State.SENDING ? State.QUEUED : entry.state;
+                if (state != State.QUEUED) {
+                    out.write(encode(OP_STATE, entry.id, mac, state, entry.updatedAt));
+                    written++;
+                }
+            }
+            out.flush();
+            // 落盘后再改名，避免断电后留下已替换但为空的日志
+            file.getChannel().force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!tmp.renameTo(journalFile)) {
+            throw new UncheckedIOException(new IOException("cannot replace " + journalFile));
+        }
+        journalEntries = written;
+    }
+}
@@ -0,0 +1,266 @@
+package lsp.wol.core.utils;
+
+import java.io.Closeable;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import lsp.wol.core.metrics.Counter;
+import lsp.wol.core.metrics.MetricsRegistry;
+import lsp.wol.core.model.Device;
+import lsp.wol.core.model.MacAddress;
+import lsp.wol.core.model.WakeSchedule;
+import lsp.wol.core.platform.Log;
+
+/**
+ * 定时唤醒调度：每条启用的定时唤醒在时间轮中挂一个到期任务，每秒推进一次，开销与定时唤醒条数无关
+ * 同一秒到期的定时唤醒解析成设备、按 MAC 去重后一次交给 Sender；cron 执行后按下次时间重新挂上，一次性的执行后停用
+ * 只在进程存活时执行，错过的 cron 时间不补发
+ */
+public class WakeScheduler implements Closeable {
+
+    /**
+     * 批量发送，在时间轮线程调用
+     */
+    public interface Sender {
+        void wakeAll(List<Device> devices);
+    }
+
+    /**
+     * 定时唤醒执行后回调，在时间轮线程调用
+     */
+    public interface Listener {
+        void onFired(List<WakeSchedule> schedules, List<Device> devices);
+    }
+
+    static final long TICK_MS = 1000;
+    // 4096 秒一圈，约 68 分钟
+    static final int SLOTS = 4096;
+    // 一次性唤醒错过超过这个时间（进程没有运行）不再执行
+    static final long MISSED_GRACE_MS = 10 * 60 * 1000;
+
+    private static final Counter FIRED = MetricsRegistry.shared().counter("schedule.fired");
+    private static final Counter WOKEN = MetricsRegistry.shared().counter("schedule.devices");
+
+    private final ScheduleStore store;
+    private final Supplier<List<Device>> devices;
+    private final Sender sender;
+    private final TimerWheel<WakeSchedule> wheel;
+    private final LongSupplier clock;
+    private final ZoneId zone;
+    private final Map<Long, WakeSchedule> schedules = new LinkedHashMap<>();
+    private final Map<Long, TimerWheel.Timeout<WakeSchedule>> timeouts = new HashMap<>();
+    private volatile Listener listener;
+    private long nextId = 1;
+
+    /**
+     * @param devices 当前保存的设备，用于解析分组
+     */
+    public WakeScheduler(ScheduleStore store, Supplier<List<Device>> devices, Sender sender) {
+        this(store, devices, sender, new TimerWheel<>(TICK_MS, SLOTS), System::currentTimeMillis, ZoneId.systemDefault());
+    }
+
+    WakeScheduler(ScheduleStore store, Supplier<List<Device>> devices, Sender sender,
+                  TimerWheel<WakeSchedule> wheel, LongSupplier clock, ZoneId zone) {
+        this.store = store;
+        this.devices = devices;
+        this.sender = sender;
+        this.wheel = wheel;
+        this.clock = clock;
+        this.zone = zone;
+        load();
+    }
+
+    private synchronized void load() {
+        long now = clock.getAsLong();
+        boolean changed = false;
+        for (WakeSchedule schedule : store.load()) {
+            schedules.put(schedule.id, schedule);
+            nextId = Math.max(nextId, schedule.id + 1);
+            if (!schedule.enabled) {
+                continue;
+            }
+            if (!schedule.isRecurring() && schedule.at < now - MISSED_GRACE_MS) {
+                Log.i("WakeScheduler load: 已错过 {}", schedule);
+                schedule.enabled = false;
+                changed = true;
+                continue;
+            }
+            changed |= !arm(schedule, now);
+        }
+        if (changed) {
+            save();
+        }
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 启动时间轮线程
+     */
+    public void start() {
+        wheel.start(this::fire);
+    }
+
+    @Override
+    public void close() {
+        wheel.stop();
+    }
+
+    /**
+     * 添加定时唤醒并保存，返回带编号的定时唤醒
+     * @throws IllegalArgumentException 没有目标、cron 格式不正确或时间已过
+     */
+    public synchronized WakeSchedule add(WakeSchedule schedule) {
+        if (schedule.macAddress == null && (schedule.group == null || schedule.group.isEmpty())) {
+            throw new IllegalArgumentException("定时唤醒没有目标");
+        }
+        long now = clock.getAsLong();
+        if (schedule.isRecurring()) {
+            CronExpression.parse(schedule.cron);
+        } else if (schedule.at <= now) {
+            throw new IllegalArgumentException("执行时间已过");
+        }
+        schedule.id = nextId++;
+        schedule.enabled = true;
+        schedules.put(schedule.id, schedule);
+        arm(schedule, now);
+        save();
+        Log.i("WakeScheduler add: {} 下次 {}", schedule, nextRunAt(schedule));
+        return schedule;
+    }
+
+    /**
+     * @return 是否存在并已删除
+     */
+    public synchronized boolean remove(long id) {
+        WakeSchedule schedule = schedules.remove(id);
+        if (schedule == null) {
+            return false;
+        }
+        wheel.cancel(timeouts.remove(id));
+        save();
+        return true;
+    }
+
+    /**
+     * 全部定时唤醒，按添加顺序
+     */
+    public synchronized List<WakeSchedule> getAll() {
+        return new ArrayList<>(schedules.values());
+    }
+
+    /**
+     * 下次执行时间 毫秒时间戳，已停用返回 -1
+     */
+    public synchronized long nextRunAt(WakeSchedule schedule) {
+        if (!schedule.enabled) {
+            return -1;
+        }
+        return schedule.isRecurring() ? CronExpression.parse(schedule.cron).next(clock.getAsLong(), zone) : schedule.at;
+    }
+
+    // 挂到时间轮上，cron 再也不会匹配时停用并返回 false
+    private boolean arm(WakeSchedule schedule, long now) {
+        long deadline = schedule.at;
+        if (schedule.isRecurring()) {
+            try {
+                deadline = CronExpression.parse(schedule.cron).next(now, zone);
+            } catch (IllegalArgumentException e) {
+                deadline = -1;
+            }
+            if (deadline < 0) {
+                Log.i("WakeScheduler arm: {} 不会再执行，已停用", schedule);
+                schedule.enabled = false;
+                return false;
+            }
+        }
+        timeouts.put(schedule.id, wheel.schedule(schedule, deadline));
+        return true;
+    }
+
+    /**
+     * 推进到 nowMs 并执行到期的定时唤醒（测试用，正常由时间轮线程推进）
+     */
+    void advance(long nowMs) {
+        List<WakeSchedule> expired = wheel.advance(nowMs);
+        if (!expired.isEmpty()) {
+            fire(expired);
+        }
+    }
+
+    // 同一批到期的定时唤醒合并成一次发送
+    private void fire(List<WakeSchedule> expired) {
+        List<WakeSchedule> batch = new ArrayList<>(expired.size());
+        Map<MacAddress, Device> targets = new LinkedHashMap<>();
+        synchronized (this) {
+            long now = clock.getAsLong();
+            List<Device> saved = devices.get();
+            for (WakeSchedule schedule : expired) {
+                // 到期后、执行前被删除
+                if (schedules.get(schedule.id) != schedule || !schedule.enabled) {
+                    continue;
+                }
+                timeouts.remove(schedule.id);
+                batch.add(schedule);
+                resolve(schedule, saved, targets);
+                schedule.lastRunAt = now;
+                if (schedule.isRecurring()) {
+                    // 按分钟匹配，从本次执行之后找下一次
+                    arm(schedule, now);
+                } else {
+                    schedule.enabled = false;
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            save();
+        }
+        List<Device> wake = new ArrayList<>(targets.values());
+        Log.i("WakeScheduler fire: {} 条定时唤醒，{} 台设备", (Object) batch.size(), wake.size());
+        FIRED.add(batch.size());
+        WOKEN.add(wake.size());
+        if (!wake.isEmpty()) {
+            sender.wakeAll(wake);
+        }
+        Listener current = listener;
+        if (current != null) {
+            current.onFired(batch, wake);
+        }
+    }
+
+    private static void resolve(WakeSchedule schedule, List<Device> saved, Map<MacAddress, Device> targets) {
+        if (schedule.macAddress != null) {
+            if (!targets.containsKey(schedule.macAddress)) {
+                Device device = null;
+                for (Device it : saved) {
+                    if (it.macAddress.equals(schedule.macAddress)) {
+                        device = it;
+                        break;
+                    }
+                }
+                // 设备已删除时仍按 MAC 唤醒
+                targets.put(schedule.macAddress, device != null ? device
+                        : new Device(schedule.macAddress.toString(), schedule.macAddress));
+            }
+            return;
+        }
+        for (Device device : saved) {
+            if (schedule.group.equals(device.group)) {
+                targets.putIfAbsent(device.macAddress, device);
+            }
+        }
+    }
+
+    private void save() {
+        store.save(new ArrayList<>(schedules.values()));
+    }
+}
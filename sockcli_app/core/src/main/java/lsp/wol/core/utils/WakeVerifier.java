@@ -0,0 +1,522 @@
+package lsp.wol.core.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import lsp.wol.core.metrics.Counter;
+import lsp.wol.core.metrics.Histogram;
+import lsp.wol.core.metrics.MetricsRegistry;
+import lsp.wol.core.model.Device;
+import lsp.wol.core.platform.Log;
+
+/**
+ * 唤醒后确认设备是否开机：按退避间隔对每台设备的若干 TCP 端口发起非阻塞连接，
+ * 连上或被拒绝（RST，说明协议栈已经在运行）都算开机；超过一段时间未开机时重发魔术包，次数有限
+ * 没有配置地址的设备从 ARP 表按 MAC 查地址（ARP 只用于查地址，睡眠中的网卡可能代答 ARP）
+ *
+ * 所有设备共用一个线程和一个 Selector，同时打开的连接数有上限，几百台设备同时检测也不会每台一个线程
+ * 结果回调在检测线程执行，不要阻塞；关闭时还在检测的设备以 CancellationException 结束
+ */
+public class WakeVerifier implements Closeable {
+
+    /**
+     * 检测参数
+     */
+    public static final class Options {
+        // 远程桌面、SSH、SMB、VNC、HTTP 等常见端口，任一端口连上或被拒绝即为开机
+        public int[] ports = {3389, 22, 445, 139, 5900, 80};
+        public long connectTimeoutMs = 1000;
+        // 第一次检测前等待，之后按倍数增加到最大间隔
+        public long initialIntervalMs = 1000;
+        public long maxIntervalMs = 5000;
+        // 这么久还没开机则重发魔术包
+        public long resendAfterMs = 20 * 1000L;
+        public int maxResends = 2;
+        // 超过该时间仍未开机则放弃
+        public long timeoutMs = 3 * 60 * 1000L;
+        // 同时打开的连接数上限
+        public int maxSockets = 256;
+    }
+
+    /**
+     * 重发魔术包（WolSender 或中继），不要阻塞
+     */
+    public interface Resender {
+        void resend(Device device);
+    }
+
+    /**
+     * 一台设备的检测结果
+     */
+    public static final class Result {
+        public final Device device;
+        public final boolean up;
+        // 从开始检测到确认开机的时间 毫秒，未开机为 -1
+        public final long timeToUpMs;
+        public final int probes;
+        public final int resends;
+        // 确认开机的方式，例如 tcp:3389；未开机为 null
+        public final String via;
+
+        Result(Device device, boolean up, long timeToUpMs, int probes, int resends, String via) {
+            this.device = device;
+            this.up = up;
+            this.timeToUpMs = timeToUpMs;
+            this.probes = probes;
+            this.resends = resends;
+            this.via = via;
+        }
+
+        /**
+         * 一直没有查到地址、一次也没有检测：无法判断是否开机，不能当作未开机
+         */
+        public boolean isUnknown() {
+            return !up && probes == 0;
+        }
+
+        @Override
+        public String toString() {
+            return device.name + " " + (up ? "up " + timeToUpMs + "ms via " + via : "down")
+                    + " probes=" + probes + " resends=" + resends;
+        }
+    }
+
+    // 一台正在检测的设备，只在检测线程访问
+    private static final class Target {
+        final Device device;
+        final Resender resender;
+        final CompletableFuture<Result> future;
+        final long startedAt;
+        final long deadline;
+        long dueAt;
+        long interval;
+        long nextResendAt;
+        InetAddress address;
+        int probes;
+        int resends;
+        // 当前一轮还未结束的连接
+        int connecting;
+        boolean waiting;
+        boolean done;
+
+        Target(Device device, Resender resender, CompletableFuture<Result> future, long now, Options options) {
+            this.device = device;
+            this.resender = resender;
+            this.future = future;
+            this.startedAt = now;
+            this.deadline = now + options.timeoutMs;
+            this.interval = options.initialIntervalMs;
+            this.dueAt = now + options.initialIntervalMs;
+            this.nextResendAt = now + options.resendAfterMs;
+        }
+    }
+
+    // 一个端口的连接
+    private static final class Probe {
+        final Target target;
+        final int port;
+        final long deadline;
+
+        Probe(Target target, int port, long deadline) {
+            this.target = target;
+            this.port = port;
+            this.deadline = deadline;
+        }
+    }
+
+    private static final Counter UP = MetricsRegistry.shared().counter("wake.verify.up");
+    private static final Counter TIMEOUTS = MetricsRegistry.shared().counter("wake.verify.timeouts");
+    private static final Counter RESENDS = MetricsRegistry.shared().counter("wake.verify.resends");
+    private static final Histogram TIME_TO_UP = MetricsRegistry.shared().histogram("wake.time_to_up");
+    // ARP 表最多每秒读一次，所有设备共用
+    private static final long ARP_REFRESH_MS = 1000;
+
+    private final Options options;
+    private final Resender resender;
+    private final Supplier<ArpTable> arpSource;
+    private final Queue<Runnable> inbox = new ConcurrentLinkedQueue<>();
+    private final PriorityQueue<Target> timers = new PriorityQueue<>((a, b) -> Long.compare(a.dueAt, b.dueAt));
+    // 等待连接数空出来的设备
+    private final ArrayDeque<Target> waiting = new ArrayDeque<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private ExecutorService resolveExecutor;
+    private Selector selector;
+    private Thread thread;
+    private volatile boolean running;
+    private boolean closed;
+    private int openSockets;
+    private ArpTable arpTable;
+    private long arpReadAt = Long.MIN_VALUE;
+
+    public WakeVerifier(Options options, Resender resender) {
+        this(options, resender, ArpTable::read);
+    }
+
+    WakeVerifier(Options options, Resender resender, Supplier<ArpTable> arpSource) {
+        this.options = options;
+        this.resender = resender;
+        this.arpSource = arpSource;
+    }
+
+    /**
+     * 开始检测一台设备（刚发出魔术包之后调用）
+     * 设备没有地址且 ARP 表中也查不到时一直等到超时
+     */
+    public CompletableFuture<Result> verify(Device device) {
+        return verify(device, resender);
+    }
+
+    /**
+     * 开始检测一台设备，未开机时用给定的方式重发（与这次唤醒走同一条路径）
+     */
+    public CompletableFuture<Result> verify(Device device, Resender resender) {
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        inFlight.incrementAndGet();
+        future.whenComplete((result, e) -> inFlight.decrementAndGet());
+        if (!ensureStarted()) {
+            future.completeExceptionally(new IOException("verifier closed"));
+            return future;
+        }
+        post(() -> admit(new Target(device, resender, future, now(), options)));
+        return future;
+    }
+
+    /**
+     * 批量检测，结果顺序与传入一致
+     */
+    public List<CompletableFuture<Result>> verifyAll(Collection<Device> devices) {
+        List<CompletableFuture<Result>> futures = new ArrayList<>(devices.size());
+        for (Device device : devices) {
+            futures.add(verify(device));
+        }
+        return futures;
+    }
+
+    /**
+     * 正在检测的设备数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized boolean ensureStarted() {
+        if (closed) {
+            return false;
+        }
+        if (thread != null) {
+            return running;
+        }
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            Log.e("WakeVerifier start", e);
+            return false;
+        }
+        resolveExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread resolver = new Thread(runnable, "wake-verify-dns");
+            resolver.setDaemon(true);
+            return resolver;
+        });
+        running = true;
+        thread = new Thread(this::loop, "wake-verify");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+
+    private void post(Runnable task) {
+        inbox.add(task);
+        selector.wakeup();
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    private void admit(Target target) {
+        String host = target.device.host;
+        if (host != null && !host.isEmpty()) {
+            if (DnsCache.isLiteral(host)) {
+                try {
+                    target.address = InetAddress.getByName(host);
+                } catch (IOException e) {
+                    Log.i("WakeVerifier admit: {} 地址不正确", host);
+                }
+            } else {
+                // 域名解析可能阻塞，不在检测线程执行
+                resolveExecutor.execute(() -> {
+                    try {
+                        InetAddress address = DnsCache.shared().resolve(host).get(0);
+                        post(() -> target.address = address);
+                    } catch (IOException e) {
+                        Log.i("WakeVerifier admit: {} 解析失败", host);
+                    }
+                });
+            }
+        }
+        timers.add(target);
+    }
+
+    private void loop() {
+        try {
+            while (running) {
+                Runnable task;
+                while ((task = inbox.poll()) != null) {
+                    task.run();
+                }
+                long now = now();
+                while (!timers.isEmpty() && timers.peek().dueAt <= now) {
+                    step(timers.poll(), now);
+                }
+                while (!waiting.isEmpty() && openSockets + options.ports.length <= options.maxSockets) {
+                    Target target = waiting.poll();
+                    target.waiting = false;
+                    startRound(target, now);
+                }
+                long timeout = nextTimeout(now);
+                if (timeout > 0) {
+                    selector.select(timeout);
+                } else if (timeout == 0) {
+                    selector.selectNow();
+                } else {
+                    selector.select();
+                }
+                onSelected(now());
+                expireProbes(now());
+            }
+        } catch (IOException e) {
+            Log.e("WakeVerifier loop", e);
+        } finally {
+            shutdown();
+        }
+    }
+
+    // 下一次定时事件的等待时间，-1 表示没有定时事件
+    private long nextTimeout(long now) {
+        long next = Long.MAX_VALUE;
+        if (!timers.isEmpty()) {
+            next = timers.peek().dueAt;
+        }
+        for (SelectionKey key : selector.keys()) {
+            Object attachment = key.attachment();
+            if (attachment instanceof Probe) {
+                next = Math.min(next, ((Probe) attachment).deadline);
+            }
+        }
+        if (!inbox.isEmpty()) {
+            return 0;
+        }
+        return next == Long.MAX_VALUE ? -1 : Math.max(1, next - now);
+    }
+
+    // 到了检测时间：超时、重发、查地址、发起一轮连接，再按退避间隔排下一次
+    private void step(Target target, long now) {
+        if (target.done) {
+            return;
+        }
+        if (now >= target.deadline) {
+            complete(target, false, now, null);
+            return;
+        }
+        if (target.resends < options.maxResends && now >= target.nextResendAt) {
+            target.resends++;
+            target.nextResendAt = now + options.resendAfterMs;
+            RESENDS.increment();
+            Log.i("WakeVerifier step: {} 未开机，重发魔术包", target.device.name);
+            try {
+                target.resender.resend(target.device);
+            } catch (RuntimeException e) {
+                Log.e("WakeVerifier resend", e);
+            }
+        }
+        if (target.address == null) {
+            InetAddress address = arp(now).lookup(target.device.macAddress);
+            if (address != null) {
+                target.address = address;
+            }
+        }
+        // 上一轮还没结束或正在排队时跳过这一轮
+        if (target.address != null && target.connecting == 0 && !target.waiting) {
+            if (openSockets + options.ports.length <= options.maxSockets) {
+                startRound(target, now);
+            } else {
+                target.waiting = true;
+                waiting.add(target);
+            }
+        }
+        target.interval = Math.min(options.maxIntervalMs, target.interval * 2);
+        target.dueAt = Math.min(now + target.interval, target.deadline);
+        timers.add(target);
+    }
+
+    private ArpTable arp(long now) {
+        if (arpTable == null || now - arpReadAt >= ARP_REFRESH_MS) {
+            arpTable = arpSource.get();
+            arpReadAt = now;
+        }
+        return arpTable;
+    }
+
+    private void startRound(Target target, long now) {
+        if (target.done) {
+            return;
+        }
+        target.probes++;
+        for (int port : options.ports) {
+            if (target.done) {
+                return;
+            }
+            SocketChannel channel = null;
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                openSockets++;
+                target.connecting++;
+                if (channel.connect(new InetSocketAddress(target.address, port))) {
+                    finish(channel, target);
+                    complete(target, true, now, "tcp:" + port);
+                    continue;
+                }
+                channel.register(selector, SelectionKey.OP_CONNECT,
+                        new Probe(target, port, now + options.connectTimeoutMs));
+            } catch (IOException e) {
+                finish(channel, target);
+                if (isRefused(e)) {
+                    complete(target, true, now, "tcp:" + port);
+                }
+            }
+        }
+    }
+
+    private void onSelected(long now) {
+        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+        while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+            Probe probe = (Probe) key.attachment();
+            SocketChannel channel = (SocketChannel) key.channel();
+            boolean up;
+            try {
+                up = channel.finishConnect();
+            } catch (IOException e) {
+                up = isRefused(e);
+            }
+            key.cancel();
+            finish(channel, probe.target);
+            if (up) {
+                complete(probe.target, true, now, "tcp:" + probe.port);
+            }
+        }
+    }
+
+    // 连接超时（主机不在线时 SYN 没有回应）
+    private void expireProbes(long now) {
+        for (SelectionKey key : selector.keys()) {
+            Object attachment = key.attachment();
+            if (key.isValid() && attachment instanceof Probe && ((Probe) attachment).deadline <= now) {
+                key.cancel();
+                finish((SocketChannel) key.channel(), ((Probe) attachment).target);
+            }
+        }
+    }
+
+    private void finish(SocketChannel channel, Target target) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        openSockets--;
+        target.connecting--;
+    }
+
+    /**
+     * 对方回复 RST：主机在线但端口未监听
+     * 主机不可达（ARP 无回应）为 NoRouteToHostException，不算开机
+     */
+    static boolean isRefused(IOException e) {
+        if (!(e instanceof ConnectException)) {
+            return false;
+        }
+        String message = e.getMessage();
+        return message == null || !message.toLowerCase(Locale.ROOT).contains("timed out");
+    }
+
+    private void complete(Target target, boolean up, long now, String via) {
+        if (target.done) {
+            return;
+        }
+        target.done = true;
+        long elapsed = now - target.startedAt;
+        if (up) {
+            UP.increment();
+            TIME_TO_UP.record(TimeUnit.MILLISECONDS.toNanos(elapsed));
+            Log.i("WakeVerifier complete: {} 已开机 {}ms", target.device.name, elapsed);
+        } else {
+            TIMEOUTS.increment();
+            Log.i("WakeVerifier complete: {} 超时未开机", target.device.name);
+        }
+        target.future.complete(new Result(target.device, up, up ? elapsed : -1,
+                target.probes, target.resends, via));
+    }
+
+    private void shutdown() {
+        for (SelectionKey key : selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException ignored) {
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+        }
+        Runnable task;
+        while ((task = inbox.poll()) != null) {
+            task.run();
+        }
+        resolveExecutor.shutdownNow();
+        // 没有检测完，不是未开机
+        for (Target target : timers) {
+            if (!target.done) {
+                target.done = true;
+                target.future.completeExceptionally(new CancellationException("verifier closed"));
+            }
+        }
+        timers.clear();
+        waiting.clear();
+    }
+}
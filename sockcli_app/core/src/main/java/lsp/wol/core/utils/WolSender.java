@@ -0,0 +1,178 @@
+package lsp.wol.core.utils;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import lsp.wol.core.metrics.Counter;
+import lsp.wol.core.metrics.Histogram;
+import lsp.wol.core.metrics.MetricsRegistry;
+import lsp.wol.core.model.Device;
+import lsp.wol.core.model.WakeResult;
+import lsp.wol.core.platform.Log;
+
+
+public class WolSender {
+
+    public static final Executor EXECUTOR = Executors.newSingleThreadExecutor();
+
+    public static final int WOL_PORT = 9;
+    // 重复发送的间隔 毫秒
+    private static final long BURST_INTERVAL_MS = 50;
+
+    // 指标：每个网卡的发包数按 wol.packets.<网卡> 计数
+    private static final String PACKETS_METRIC = "wol.packets.";
+    private static final Counter SEND_FAILURES = MetricsRegistry.shared().counter("wol.send_failures");
+    private static final Histogram SEND_LATENCY = MetricsRegistry.shared().histogram("wol.send_latency");
+
+    public static void sendMagicPacket(Device device) {
+        wakeAll(Collections.singletonList(device));
+    }
+
+    /**
+     * 批量唤醒，每个广播地址发送一次
+     */
+    public static CompletableFuture<List<WakeResult>> wakeAll(Collection<Device> devices) {
+        return wakeAll(devices, 1);
+    }
+
+    /**
+     * 批量唤醒
+     * @param devices 设备列表
+     * @param bursts 重复发送轮数，丢包严重的网络可以多发几轮
+     * @return 每台设备的发送结果，顺序与传入一致
+     */
+    public static CompletableFuture<List<WakeResult>> wakeAll(Collection<Device> devices, int bursts) {
+        List<Device> snapshot = new ArrayList<>(devices);
+        return CompletableFuture.supplyAsync(() -> wakeNow(snapshot, bursts), EXECUTOR);
+    }
+
+    /**
+     * 在调用线程同步唤醒，可由多个线程并发调用
+     */
+    public static List<WakeResult> wakeNow(List<Device> devices, int bursts) {
+        // 每个子网的广播地址 + 受限广播地址
+        List<InetAddress> targets = new ArrayList<>(BroadcastHelper.shared().getBroadcastAddresses());
+        targets.add(limitedBroadcast());
+        return sendAll(devices, targets, Math.max(1, bursts));
+    }
+
+    private static InetAddress limitedBroadcast() {
+        try {
+            // IP 字面量不会触发 DNS 查询
+            return InetAddress.getByName("255.255.255.255");
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static List<WakeResult> sendAll(List<Device> devices, List<InetAddress> broadcastAddresses, int bursts) {
+        List<InetSocketAddress> targets = new ArrayList<>(broadcastAddresses.size());
+        for (InetAddress address : broadcastAddresses) {
+            targets.add(new InetSocketAddress(address, WOL_PORT));
+        }
+        return sendTo(devices, targets, bursts);
+    }
+
+    /**
+     * 发送到指定地址与端口（例如跳板机上远端子网的定向广播地址），在调用线程执行
+     */
+    public static List<WakeResult> sendTo(List<Device> devices, List<InetSocketAddress> targets, int bursts) {
+        List<WakeResult> results = new ArrayList<>(devices.size());
+        // 先取出全部魔术包（保存设备时已编译缓存）
+        List<MagicPacket> packets = new ArrayList<>(devices.size());
+        List<WakeResult> sendable = new ArrayList<>(devices.size());
+        for (Device device : devices) {
+            WakeResult result = new WakeResult(device);
+            results.add(result);
+            try {
+                packets.add(MagicPacketCache.get(device));
+                sendable.add(result);
+            } catch (Exception e) {
+                result.error = e;
+            }
+        }
+        if (packets.isEmpty()) {
+            return results;
+        }
+
+        // 每个目标地址对应的发包计数，发送循环内不查表
+        Counter[] packetCounters = new Counter[targets.size()];
+        for (int t = 0; t < packetCounters.length; t++) {
+            packetCounters[t] = MetricsRegistry.shared().counter(PACKETS_METRIC + interfaceOf(targets.get(t)));
+        }
+
+        long start = System.nanoTime();
+        // 发送缓冲区复用，循环内不分配内存
+        ByteBuffer buffer = ByteBuffer.allocateDirect(MagicPacket.BASE_LENGTH + MagicPacket.SECURE_ON_LENGTH);
+        // 所有设备、所有广播地址共用一个通道
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            channel.setOption(StandardSocketOptions.SO_BROADCAST, true);
+            for (int burst = 0; burst < bursts; burst++) {
+                if (burst > 0) {
+                    Thread.sleep(BURST_INTERVAL_MS);
+                }
+                for (int t = 0; t < targets.size(); t++) {
+                    InetSocketAddress target = targets.get(t);
+                    for (int i = 0; i < packets.size(); i++) {
+                        WakeResult result = sendable.get(i);
+                        try {
+                            buffer.clear();
+                            packets.get(i).writeTo(buffer);
+                            buffer.flip();
+                            long sendStart = System.nanoTime();
+                            channel.send(buffer, target);
+                            SEND_LATENCY.record(System.nanoTime() - sendStart);
+                            packetCounters[t].increment();
+                            result.packetsSent++;
+                        } catch (Exception e) {
+                            SEND_FAILURES.increment();
+                            result.failures++;
+                            result.error = e;
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            Log.e("wakeAll", e);
+            for (WakeResult result : sendable) {
+                result.error = e;
+            }
+        }
+        Log.i("wakeAll: 设备数={} 广播地址数={} 轮数={} 耗时={}us",
+                devices.size(), targets.size(), bursts, (System.nanoTime() - start) / 1000);
+        return results;
+    }
+
+    /**
+     * 广播地址所属的网卡；受限广播记为 broadcast，其它地址（定向广播、单播）记为 direct，指标名称数量有限
+     */
+    static String interfaceOf(InetSocketAddress target) {
+        InetAddress address = target.getAddress();
+        if (address == null) {
+            return "direct";
+        }
+        if (address.equals(limitedBroadcast())) {
+            return "broadcast";
+        }
+        for (BroadcastHelper.Subnet subnet : BroadcastHelper.shared().getSubnets()) {
+            if (address.equals(subnet.broadcast)) {
+                return subnet.interfaceName;
+            }
+        }
+        return "direct";
+    }
+
+}
@@ -0,0 +1,140 @@
+package lsp.wol.core.utils;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * 批量发送：一次取空发送队列，所有消息编码进同一个直接缓冲区，一次写出
+ * 旧版协议（JSON 分帧）没有分隔符，服务器按一次读取解析一条消息，而连续的写出会被 TCP 合并，
+ * 所以该模式下每次只取一条，由调用方在收到回复或超时后再发下一条
+ * 只在连接线程使用
+ */
+public class WritePipeline<T> {
+
+    /**
+     * 把消息直接编码进发送缓冲区
+     */
+    public interface Encoder<T> {
+        /**
+         * @throws BufferOverflowException 空间不足，扩容后会重新调用
+         */
+        void encode(T item, ByteBuffer out);
+    }
+
+    private final Encoder<T> encoder;
+    // 消息入队时间 System.nanoTime()，用于统计发送延迟
+    private final ToLongFunction<T> queuedAt;
+    private final int maxBatch;
+    private final WriteStats stats = new WriteStats();
+    // 复用的批次列表
+    private final List<T> batch = new ArrayList<>();
+    private ByteBuffer out = ByteBuffer.allocateDirect(4096);
+    // 每条消息写出后回调
+    private Consumer<T> onSent = item -> { };
+
+    public WritePipeline(Encoder<T> encoder, ToLongFunction<T> queuedAt, int maxBatch) {
+        this.encoder = encoder;
+        this.queuedAt = queuedAt;
+        this.maxBatch = maxBatch;
+    }
+
+    public WritePipeline(Function<T, byte[]> serializer, ToLongFunction<T> queuedAt, int maxBatch) {
+        this((item, out) -> out.put(serializer.apply(item)), queuedAt, maxBatch);
+    }
+
+    /**
+     * 消息写出后回调，用于从写出时刻开始计时
+     */
+    public void setOnSent(Consumer<T> onSent) {
+        this.onSent = onSent;
+    }
+
+    public WriteStats getStats() {
+        return stats;
+    }
+
+    /**
+     * 取空队列并发送，旧版协议下只发送队首一条
+     * @return 发送的消息数
+     */
+    public int flush(BlockingQueue<T> queue, FrameCodec codec, TransportEngine engine) throws IOException {
+        batch.clear();
+        queue.drainTo(batch, codec.getMode() == FrameCodec.Mode.JSON ? 1 : maxBatch);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            writeBatch(codec, engine);
+            return batch.size();
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * 立即发送单条消息（心跳、协商）
+     */
+    public void write(T item, FrameCodec codec, TransportEngine engine) throws IOException {
+        batch.clear();
+        batch.add(item);
+        try {
+            writeBatch(codec, engine);
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(FrameCodec codec, TransportEngine engine) throws IOException {
+        int count = batch.size();
+        out.clear();
+        for (int i = 0; i < count; i++) {
+            T item = batch.get(i);
+            while (true) {
+                int frameStart = out.position();
+                try {
+                    codec.beginFrame(out);
+                    encoder.encode(item, out);
+                    codec.endFrame(out, frameStart);
+                    break;
+                } catch (BufferOverflowException e) {
+                    // 丢弃写了一半的帧，扩容后重新编码
+                    out.position(frameStart);
+                    grow(out.capacity());
+                }
+            }
+        }
+        out.flip();
+        int bytes = out.limit();
+        engine.write(out);
+
+        long now = System.nanoTime();
+        long maxLatency = 0;
+        long totalLatency = 0;
+        for (int i = 0; i < count; i++) {
+            T item = batch.get(i);
+            long latency = now - queuedAt.applyAsLong(item);
+            totalLatency += latency;
+            maxLatency = Math.max(maxLatency, latency);
+            onSent.accept(item);
+        }
+        stats.record(count, bytes, totalLatency, maxLatency);
+    }
+
+    private void grow(int needed) {
+        int capacity = out.capacity();
+        while (capacity - out.position() < needed) {
+            capacity *= 2;
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+        out.flip();
+        grown.put(out);
+        out = grown;
+    }
+}
@@ -0,0 +1,87 @@
+package lsp.wol.core.utils;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 发送统计：批次大小分布与入队到写出的延迟
+ * 由连接线程写入，其它线程读取
+ */
+public class WriteStats {
+
+    // 批次大小分桶上限：1, 2, 4, 8, 16, 32, 更大
+    private static final int[] BATCH_BUCKETS = {1, 2, 4, 8, 16, 32};
+
+    private volatile long batches;
+    private volatile long frames;
+    private volatile long bytes;
+    private volatile long maxBatch;
+    private volatile long totalLatencyNanos;
+    private volatile long maxLatencyNanos;
+    private final long[] batchHistogram = new long[BATCH_BUCKETS.length + 1];
+
+    synchronized void record(int batchSize, int batchBytes, long latencyNanos, long batchMaxLatencyNanos) {
+        batches++;
+        frames += batchSize;
+        bytes += batchBytes;
+        maxBatch = Math.max(maxBatch, batchSize);
+        totalLatencyNanos += latencyNanos;
+        maxLatencyNanos = Math.max(maxLatencyNanos, batchMaxLatencyNanos);
+
+        int bucket = 0;
+        while (bucket < BATCH_BUCKETS.length && batchSize > BATCH_BUCKETS[bucket]) {
+            bucket++;
+        }
+        batchHistogram[bucket]++;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getMaxBatch() {
+        return maxBatch;
+    }
+
+    /**
+     * 平均每批消息数
+     */
+    public double getAverageBatch() {
+        long b = batches;
+        return b == 0 ? 0 : (double) frames / b;
+    }
+
+    /**
+     * 平均发送延迟（入队到写出） 毫秒
+     */
+    public double getAverageLatencyMs() {
+        long f = frames;
+        return f == 0 ? 0 : (double) totalLatencyNanos / f / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxLatencyMs() {
+        return (double) maxLatencyNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * 批次大小分布，下标对应 <=1, <=2, <=4, <=8, <=16, <=32, >32
+     */
+    public synchronized long[] getBatchHistogram() {
+        return batchHistogram.clone();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "batches=%d frames=%d bytes=%d avgBatch=%.2f maxBatch=%d avgLatency=%.3fms maxLatency=%.3fms",
+                batches, frames, bytes, getAverageBatch(), maxBatch, getAverageLatencyMs(), getMaxLatencyMs());
+    }
+}
@@ -0,0 +1,66 @@
+package lsp.wol.core.cli;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import lsp.wol.core.platform.Log;
+import lsp.wol.core.platform.Logger;
+
+import static org.junit.Assert.*;
+
+public class RelayLoadCliTest {
+
+    @Before
+    public void setUp() {
+        Log.setLogger(Logger.NONE);
+    }
+
+    @After
+    public void tearDown() {
+        Log.setLogger(Logger.STDERR);
+    }
+
+    @Test
+    public void parsesOptions() {
+        RelayLoadCli.Options options = RelayLoadCli.Options.parse(new String[]{
+                "--relay", "10.0.0.1:9000", "--apps", "3", "--devices", "0", "--wakes", "5", "--window", "2"});
+        assertEquals("10.0.0.1", options.relayHost);
+        assertEquals(9000, options.relayPort);
+        assertEquals(3, options.apps);
+        assertEquals(0, options.devices);
+        assertEquals(2, options.window);
+
+        assertEquals(8080, RelayLoadCli.Options.parse(new String[]{"--serve"}).servePort);
+        assertEquals(9000, RelayLoadCli.Options.parse(new String[]{"--serve", "9000", "--strict"}).servePort);
+
+        String[][] invalid = {{"--apps", "0"}, {"--devices", "-1"}, {"--relay", "a", "--serve"}, {"--bogus"}};
+        for (String[] args : invalid) {
+            try {
+                RelayLoadCli.Options.parse(args);
+                fail("accepted " + String.join(" ", args));
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void wakesThroughLocalRelay() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RelayLoadCli.Options options = RelayLoadCli.Options.parse(new String[]{
+                "--apps", "3", "--devices", "5", "--wakes", "30", "--window", "2", "--connect-timeout", "5000"});
+        int code = new RelayLoadCli(options, new PrintStream(out, true, "UTF-8")).run();
+
+        String report = out.toString("UTF-8");
+        assertEquals(report, 0, code);
+        assertTrue(report, report.contains("esp8266 就绪 5/5"));
+        assertTrue(report, report.contains("app     就绪 3/3"));
+        assertTrue(report, report.contains("唤醒 30 回复 30 回执 30 失败 0"));
+        // 每次唤醒下发给全部 5 台
+        assertTrue(report, report.contains("下发 150 条"));
+        assertTrue(report, report.contains("回执延迟 count=30"));
+    }
+}
@@ -0,0 +1,182 @@
+package lsp.wol.core.cli;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import lsp.wol.core.platform.Log;
+import lsp.wol.core.platform.Logger;
+
+import static org.junit.Assert.*;
+
+public class WakeCliTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @Before
+    public void setUp() {
+        Log.setLogger(Logger.NONE);
+    }
+
+    @After
+    public void tearDown() {
+        Log.setLogger(Logger.STDERR);
+    }
+
+    private int run(String input, String... args) throws Exception {
+        WakeCli cli = new WakeCli(WakeCli.Options.parse(args),
+                new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8"));
+        return cli.run(new StringReader(input));
+    }
+
+    private static String macList(int count) {
+        StringBuilder builder = new StringBuilder("# 机房A\n\n");
+        for (int i = 0; i < count; i++) {
+            builder.append(String.format("02:00:00:00:%02X:%02X%n", i >> 8, i & 0xFF));
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void parsesOptions() throws Exception {
+        WakeCli.Options options = WakeCli.Options.parse(new String[]{
+                "--via", "both", "--relay", "10.0.0.1:9000", "--broadcast", "10.1.255.255",
+                "--port", "7", "--window", "8", "--receipts", "macs.txt"});
+        assertEquals(WakeCli.Via.BOTH, options.via);
+        assertEquals("10.0.0.1", options.relayHost);
+        assertEquals(9000, options.relayPort);
+        assertEquals(1, options.broadcasts.size());
+        assertEquals(7, options.port);
+        assertEquals(8, options.window);
+        assertTrue(options.receipts);
+        assertEquals("macs.txt", options.input);
+
+        String[][] invalid = {{"--via", "udp"}, {"--window", "0"}, {"--threads"}, {"--bogus"}, {"a", "b"}};
+        for (String[] args : invalid) {
+            try {
+                WakeCli.Options.parse(args);
+                fail("accepted " + String.join(" ", args));
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void wakesOverLanConcurrently() throws Exception {
+        try (DatagramSocket receiver = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            receiver.setSoTimeout(2000);
+            receiver.setReceiveBufferSize(1 << 20);
+            AtomicInteger received = new AtomicInteger();
+            Thread counter = new Thread(() -> {
+                byte[] buffer = new byte[256];
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                try {
+                    while (true) {
+                        receiver.receive(packet);
+                        if (packet.getLength() == 102) {
+                            received.incrementAndGet();
+                        }
+                    }
+                } catch (Exception ignored) {
+                    // 超时或关闭
+                }
+            });
+            counter.start();
+
+            int code = run(macList(300) + "not-a-mac\n",
+                    "--broadcast", "127.0.0.1", "--port", String.valueOf(receiver.getLocalPort()),
+                    "--threads", "3", "--batch", "64");
+            counter.join(5000);
+
+            assertEquals(0, code);
+            assertEquals(300, received.get());
+            assertTrue(out.toString("UTF-8").contains("FAIL not-a-mac input"));
+            String report = err.toString("UTF-8");
+            assertTrue(report, report.contains("lan   设备 300 魔术包 300 失败 0"));
+            assertTrue(report, report.contains("无效行 1"));
+        }
+    }
+
+    @Test
+    public void wakesThroughRelayWithWindow() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Thread relay = new Thread(() -> serveRelay(server));
+            relay.setDaemon(true);
+            relay.start();
+
+            int code = run(macList(50) + "02:00:00:00:FF:FF\n",
+                    "--via", "relay", "--relay", "127.0.0.1:" + server.getLocalPort(), "--window", "4");
+
+            // 最后一台没有在线的 ESP8266
+            assertEquals(1, code);
+            assertEquals("FAIL 02:00:00:00:FF:FF relay 没有在线的ESP8266", out.toString("UTF-8").trim());
+            String report = err.toString("UTF-8");
+            assertTrue(report, report.contains("relay 设备 51 回复 50 失败 1"));
+            assertTrue(report, report.contains("relay 回复延迟 count=51"));
+        }
+    }
+
+    @Test
+    public void failsWhenRelayUnreachable() throws Exception {
+        int port;
+        try (ServerSocket closed = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = closed.getLocalPort();
+        }
+        assertEquals(2, run(macList(1), "--via", "relay", "--relay", "127.0.0.1:" + port,
+                "--connect-timeout", "300"));
+        assertTrue(err.toString("UTF-8").contains("无法连接中继服务器"));
+    }
+
+    private static final Pattern WOL = Pattern.compile("\"cmd\":\"wol\",\"data\":\"([^\"]+)\"");
+
+    /**
+     * 模拟旧版中继：连接后下发 net_ip；消息之间没有分隔符，按大括号配对拆分；每个 wol 回复收到命令的 ESP8266 数量
+     */
+    private static void serveRelay(ServerSocket server) {
+        try (Socket socket = server.accept()) {
+            socket.setSoTimeout(5000);
+            InputStream in = socket.getInputStream();
+            OutputStream peer = socket.getOutputStream();
+            peer.write("{\"cmd\":\"net_ip\",\"data\":\"127.0.0.1\"}".getBytes(StandardCharsets.UTF_8));
+            peer.flush();
+            StringBuilder message = new StringBuilder();
+            int depth = 0;
+            int b;
+            while ((b = in.read()) >= 0) {
+                message.append((char) b);
+                if (b == '{') {
+                    depth++;
+                } else if (b == '}' && --depth == 0) {
+                    Matcher matcher = WOL.matcher(message);
+                    if (matcher.find()) {
+                        String size = matcher.group(1).endsWith("FF:FF") ? "0" : "1";
+                        peer.write(("{\"cmd\":\"wol_rec_dev_size\",\"data\":\"" + size + "\"}")
+                                .getBytes(StandardCharsets.UTF_8));
+                        peer.flush();
+                    }
+                    message.setLength(0);
+                }
+            }
+        } catch (SocketTimeoutException ignored) {
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package lsp.wol.core.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+
+    @Test
+    public void bucketsCoverAllValues() {
+        assertEquals(0, Histogram.bucketOf(0));
+        assertEquals(15, Histogram.bucketOf(15));
+        assertEquals(16, Histogram.bucketOf(16));
+        assertEquals(Histogram.BUCKETS - 1, Histogram.bucketOf(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, Histogram.upperBoundOf(Histogram.BUCKETS - 1));
+
+        // 相邻分桶首尾相接，值落在自己分桶的范围内
+        for (int bucket = 1; bucket < Histogram.BUCKETS; bucket++) {
+            long lower = Histogram.upperBoundOf(bucket - 1) + 1;
+            assertEquals(bucket, Histogram.bucketOf(lower));
+            assertEquals(bucket, Histogram.bucketOf(Histogram.upperBoundOf(bucket)));
+        }
+    }
+
+    @Test
+    public void percentilesWithinRelativeError() {
+        Histogram histogram = new Histogram();
+        for (long v = 1; v <= 100_000; v++) {
+            histogram.record(v * 1000);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(100_000_000, snapshot.getMax());
+        assertEquals(50_000_500, snapshot.getMean(), 1);
+
+        long[][] expected = {{50, 50_000_000}, {90, 90_000_000}, {99, 99_000_000}, {100, 100_000_000}};
+        for (long[] pair : expected) {
+            long value = snapshot.getValueAtPercentile(pair[0]);
+            assertTrue(pair[0] + "% = " + value, value >= pair[1] && value <= pair[1] * 17 / 16);
+        }
+    }
+
+    @Test
+    public void concurrentRecordsAreNotLost() throws Exception {
+        Histogram histogram = new Histogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400_000, histogram.getCount());
+        assertEquals(400_000, histogram.snapshot().getCount());
+        assertEquals(99_999, histogram.getMax());
+    }
+
+    @Test
+    public void emptyAndNegative() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.snapshot().getValueAtPercentile(99));
+        histogram.record(-5);
+        assertEquals(0, histogram.snapshot().getValueAtPercentile(100));
+        assertEquals(1, histogram.getCount());
+    }
+}
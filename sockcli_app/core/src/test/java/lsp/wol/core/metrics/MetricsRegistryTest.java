@@ -0,0 +1,59 @@
+package lsp.wol.core.metrics;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void sameNameSameMetric() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter counter = registry.counter("relay.connects");
+        counter.increment();
+        registry.counter("relay.connects").add(2);
+        assertSame(counter, registry.counter("relay.connects"));
+        assertEquals(3, counter.get());
+
+        try {
+            registry.gauge("relay.connects");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void snapshotExportsJson() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("wol.packets.wlan0").add(6);
+        Gauge queue = registry.gauge("relay.send_queue");
+        queue.add(5);
+        queue.add(-2);
+        Histogram rtt = registry.histogram("relay.heartbeat_rtt");
+        for (int i = 1; i <= 100; i++) {
+            rtt.record(i * 1_000_000L);
+        }
+
+        MetricsRegistry.Snapshot snapshot = registry.snapshot();
+        assertEquals(Long.valueOf(6), snapshot.getCounters().get("wol.packets.wlan0"));
+        assertEquals(Long.valueOf(3), snapshot.getGauges().get("relay.send_queue"));
+        assertEquals(100, snapshot.getHistograms().get("relay.heartbeat_rtt").getCount());
+
+        JsonObject json = JsonParser.parseString(snapshot.toJson()).getAsJsonObject();
+        assertEquals(snapshot.getTimestamp(), json.get("timestamp").getAsLong());
+        assertEquals(6, json.getAsJsonObject("counters").get("wol.packets.wlan0").getAsLong());
+        assertEquals(3, json.getAsJsonObject("gauges").get("relay.send_queue").getAsLong());
+        JsonObject histogram = json.getAsJsonObject("histograms").getAsJsonObject("relay.heartbeat_rtt");
+        assertEquals("ns", histogram.get("unit").getAsString());
+        assertEquals(100, histogram.get("count").getAsLong());
+        assertEquals(100_000_000, histogram.get("max").getAsLong());
+        assertTrue(histogram.has("p999"));
+        long p50 = histogram.get("p50").getAsLong();
+        assertTrue(String.valueOf(p50), p50 >= 50_000_000 && p50 <= 54_000_000);
+
+        assertTrue(snapshot.toString(), snapshot.toString().contains("relay.heartbeat_rtt count=100"));
+    }
+}
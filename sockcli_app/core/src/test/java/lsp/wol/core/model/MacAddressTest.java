@@ -0,0 +1,79 @@
+package lsp.wol.core.model;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MacAddressTest {
+
+    @Test
+    public void parsesAllSeparatorStyles() {
+        MacAddress expected = MacAddress.of(0xCC28AA0677E9L);
+        assertEquals(expected, MacAddress.parse("CC:28:AA:06:77:E9"));
+        assertEquals(expected, MacAddress.parse("cc-28-aa-06-77-e9"));
+        assertEquals(expected, MacAddress.parse("cc28AA0677e9"));
+        assertEquals(expected.hashCode(), MacAddress.parse("CC28AA0677E9").hashCode());
+        assertEquals("CC:28:AA:06:77:E9", expected.toString());
+    }
+
+    @Test
+    public void rejectsMalformedInput() {
+        String[] invalid = {null, "", "CC:28:AA:06:77", "CC:28:AA:06:77:E9:00", "CC:28:AA:06:77:EG",
+                ":CC28AA0677E9", "C:C28AA0677E9", "CC:28:AA:06:77:E9:", "CC 28 AA 06 77 E9"};
+        for (String text : invalid) {
+            assertNull(text, MacAddress.tryParse(text));
+            assertFalse(MacAddress.isValid(text));
+            try {
+                MacAddress.parse(text);
+                fail("accepted " + text);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void lenientParseIgnoresNonHexCharacters() {
+        MacAddress expected = MacAddress.of(0xCC28AA0677E9L);
+        assertEquals(expected, MacAddress.tryParseLenient(" cc 28.aa：06 77-E9 "));
+        assertEquals(expected, MacAddress.tryParseLenient("CC28AA0677E9"));
+        assertNull(MacAddress.tryParseLenient(null));
+        assertNull(MacAddress.tryParseLenient("CC:28:AA:06:77"));
+        assertNull(MacAddress.tryParseLenient("CC:28:AA:06:77:E9:00"));
+        // 与旧的正则过滤结果一致
+        String[] inputs = {"zz:cc:28:aa:06:77:e9", "CC-28-AA-06-77-E9", "gg", "ＣＣ28AA0677E9"};
+        for (String input : inputs) {
+            assertEquals(input, MacAddress.tryParse(input.replaceAll("[^0-9a-fA-F]", "")),
+                    MacAddress.tryParseLenient(input));
+        }
+    }
+
+    @Test
+    public void bytesRoundTrip() {
+        MacAddress mac = MacAddress.parse("00:E0:4C:A2:00:F3");
+        byte[] bytes = new byte[8];
+        mac.writeTo(bytes, 2);
+        assertEquals(mac, MacAddress.fromBytes(bytes, 2));
+
+        ByteBuffer buffer = ByteBuffer.allocate(6);
+        mac.writeTo(buffer);
+        assertEquals(mac, MacAddress.fromBuffer(buffer, 0));
+        assertEquals((byte) 0xF3, buffer.get(5));
+    }
+
+    @Test
+    public void gsonReadsLegacyText() {
+        Gson gson = new Gson();
+        List<Device> devices = gson.fromJson(
+                "[{\"name\":\"pc\",\"macAddress\":\"cc-28-aa-06-77-e9\"},{\"name\":\"bad\",\"macAddress\":\"xx\"}]",
+                new TypeToken<List<Device>>() {}.getType());
+        assertEquals(MacAddress.parse("CC:28:AA:06:77:E9"), devices.get(0).macAddress);
+        assertNull(devices.get(1).macAddress);
+        assertTrue(gson.toJson(devices.get(0)).contains("\"macAddress\":\"CC:28:AA:06:77:E9\""));
+    }
+}
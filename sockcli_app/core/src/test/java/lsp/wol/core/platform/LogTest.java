@@ -0,0 +1,121 @@
+package lsp.wol.core.platform;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LogTest {
+
+    private final List<String> output = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Log.setLogger(new Logger() {
+            @Override
+            public void d(String message) {
+                output.add("D " + message);
+            }
+
+            @Override
+            public void i(String message) {
+                output.add("I " + message);
+            }
+
+            @Override
+            public void e(String message, Throwable throwable) {
+                output.add("E " + message + ": " + throwable.getMessage());
+            }
+        });
+        Log.ring().clear();
+    }
+
+    @After
+    public void tearDown() {
+        Log.setLevel(Log.INFO);
+        Log.setRingLevel(Log.INFO);
+        Log.setLogger(Logger.STDERR);
+        Log.ring().clear();
+    }
+
+    @Test
+    public void formatsOnlyEnabledLevels() {
+        Log.setLevel(Log.INFO);
+        Log.setRingLevel(Log.OFF);
+        Log.d("RelayClient doReceive: 收到消息= {} {}", "heartbeat", "1");
+        Log.i("RelayClient doConnect: {}:{}", "espsock.devtask.cn", 8080);
+        Log.i("RelayClient onTick: 连续 {} 次心跳无回复", 3L);
+        Log.i("多余的参数 {}", "a", "b");
+        Log.i("缺少参数 {} {}", "a");
+        Log.e("RelayClient doConnect", new java.io.IOException("refused"));
+        assertEquals(List.of(
+                "I RelayClient doConnect: espsock.devtask.cn:8080",
+                "I RelayClient onTick: 连续 3 次心跳无回复",
+                "I 多余的参数 a",
+                "I 缺少参数 a {}",
+                "E RelayClient doConnect: refused"), output);
+        assertFalse(Log.isLoggable(Log.DEBUG));
+        assertTrue(Log.isLoggable(Log.INFO));
+
+        output.clear();
+        Log.setLevel(Log.DEBUG);
+        Log.d("发送消息条数= {}", 12);
+        assertEquals(List.of("D 发送消息条数= 12"), output);
+
+        Log.setLevel(Log.OFF);
+        Log.e("RelayClient doConnect", new java.io.IOException("refused"));
+        assertEquals(1, output.size());
+        assertEquals(0, Log.ring().getRecorded());
+    }
+
+    @Test
+    public void ringKeepsRecentEventsWithoutOutput() {
+        Log.setLevel(Log.OFF);
+        Log.setRingLevel(Log.DEBUG);
+        int capacity = Log.ring().capacity();
+        for (int i = 0; i < capacity + 10; i++) {
+            Log.d("心跳 {} 间隔 {}", "app", (long) i);
+        }
+        Log.e("RelayClient doReceive", new java.io.IOException("bad frame"));
+        assertTrue(output.isEmpty());
+
+        List<String> lines = Log.ring().dump();
+        assertEquals(capacity, lines.size());
+        // 最旧的 11 条被覆盖
+        assertTrue(lines.get(0), lines.get(0).endsWith(" D 心跳 app 间隔 11"));
+        assertTrue(lines.get(capacity - 1), lines.get(capacity - 1).endsWith(" E RelayClient doReceive: java.io.IOException: bad frame"));
+        assertEquals(capacity + 11, Log.ring().getRecorded());
+    }
+
+    @Test
+    public void ringRoundsCapacityAndSurvivesConcurrentWriters() throws Exception {
+        assertEquals(1, new LogRing(1).capacity());
+        assertEquals(8, new LogRing(5).capacity());
+        assertEquals(8, new LogRing(8).capacity());
+
+        LogRing ring = new LogRing(64);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long id = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    ring.record(Log.DEBUG, "线程 {} 序号 {}", null, 2, 0b11, null, null, null, null, id, i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40_000, ring.getRecorded());
+        List<String> lines = ring.dump();
+        assertEquals(64, lines.size());
+        for (String line : lines) {
+            assertTrue(line, line.matches("\\d{2}:\\d{2}:\\d{2}\\.\\d{3} D 线程 \\d 序号 \\d+"));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package lsp.wol.core.utils;
+
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.StringReader;
+import java.net.InetAddress;
+
+import lsp.wol.core.model.MacAddress;
+
+import static org.junit.Assert.*;
+
+public class ArpTableTest {
+
+    @Test
+    public void parsesCompleteEntriesOnly() throws Exception {
+        String text = "IP address       HW type     Flags       HW address            Mask     Device\n"
+                + "192.168.1.1      0x1         0x2         a4:91:b1:00:00:01     *        wlan0\n"
+                + "192.168.1.23     0x1         0x0         00:00:00:00:00:00     *        wlan0\n"
+                + "192.168.1.40     0x1         0x6         A4:91:B1:00:00:28     *        wlan0\n"
+                + "garbage\n";
+        ArpTable table = ArpTable.parse(new StringReader(text));
+        assertEquals(2, table.size());
+        assertEquals(InetAddress.getByName("192.168.1.1"), table.lookup(MacAddress.parse("A4:91:B1:00:00:01")));
+        assertEquals(MacAddress.parse("a4:91:b1:00:00:28"), table.lookup(InetAddress.getByName("192.168.1.40")));
+        assertNull(table.lookup(InetAddress.getByName("192.168.1.23")));
+    }
+
+    @Test
+    public void parsesIpNeighOutput() throws Exception {
+        String text = "192.168.1.1 dev wlan0 lladdr a4:91:b1:00:00:01 REACHABLE\n"
+                + "192.168.1.7 dev wlan0 lladdr a4:91:b1:00:00:07 STALE\n"
+                + "192.168.1.9 dev wlan0  FAILED\n"
+                + "fe80::1 dev wlan0 lladdr a4:91:b1:00:00:01 router REACHABLE\n";
+        ArpTable table = ArpTable.parseNeighbors(new StringReader(text));
+        assertEquals(2, table.size());
+        assertEquals(InetAddress.getByName("192.168.1.7"), table.lookup(MacAddress.parse("A4:91:B1:00:00:07")));
+        assertEquals(2, table.asMap().size());
+    }
+
+    @Test
+    public void unreadableTableIsEmpty() {
+        ArpTable table = ArpTable.read(() -> {
+            throw new FileNotFoundException("/proc/net/arp");
+        });
+        assertEquals(0, table.size());
+    }
+}
@@ -0,0 +1,88 @@
+package lsp.wol.core.utils;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class BroadcastHelperTest {
+
+    private final AtomicLong clock = new AtomicLong(1000);
+    private final AtomicInteger reads = new AtomicInteger();
+    private final List<BroadcastHelper.Subnet> subnets = new ArrayList<>();
+    private final BroadcastHelper helper = new BroadcastHelper(() -> {
+        reads.incrementAndGet();
+        return new ArrayList<>(subnets);
+    }, clock::get, 5000);
+
+    private static BroadcastHelper.Subnet subnet(String name, String address, String broadcast, int prefix)
+            throws Exception {
+        return new BroadcastHelper.Subnet(name, InetAddress.getByName(address),
+                InetAddress.getByName(broadcast), prefix);
+    }
+
+    @Test
+    public void returnsEverySubnetOnAllowedInterfaces() throws Exception {
+        subnets.add(subnet("wlan0", "192.168.1.20", "192.168.1.255", 24));
+        subnets.add(subnet("eth0", "10.0.0.5", "10.0.3.255", 22));
+        subnets.add(subnet("rmnet0", "100.64.0.2", "100.64.0.255", 24));
+        subnets.add(subnet("tun0", "fd00::2", "fd00::ff", 64));
+
+        List<InetAddress> broadcasts = helper.getBroadcastAddresses();
+        assertEquals(2, broadcasts.size());
+        assertEquals("192.168.1.255", broadcasts.get(0).getHostAddress());
+        assertEquals("10.0.3.255", broadcasts.get(1).getHostAddress());
+        assertEquals(2, helper.getSubnets().size());
+        assertEquals("192.168.1.255", helper.getBroadcastAddress().get().getHostAddress());
+    }
+
+    @Test
+    public void cachesUntilTtlExpires() throws Exception {
+        subnets.add(subnet("wlan0", "192.168.1.20", "192.168.1.255", 24));
+        helper.getBroadcastAddresses();
+        helper.getBroadcastAddresses();
+        assertEquals(1, reads.get());
+
+        subnets.add(subnet("eth0", "10.0.0.5", "10.0.0.255", 24));
+        clock.addAndGet(4999);
+        assertEquals(1, helper.getBroadcastAddresses().size());
+
+        clock.addAndGet(1);
+        assertEquals(2, helper.getBroadcastAddresses().size());
+        assertEquals(2, reads.get());
+    }
+
+    @Test
+    public void invalidateForcesRefresh() throws Exception {
+        assertTrue(helper.getBroadcastAddresses().isEmpty());
+        assertFalse(helper.getBroadcastAddress().isPresent());
+
+        subnets.add(subnet("wlan0", "192.168.1.20", "192.168.1.255", 24));
+        helper.invalidate();
+        assertEquals(1, helper.getBroadcastAddresses().size());
+        assertEquals(2, reads.get());
+    }
+
+    @Test
+    public void localOnlyWithinSubnetPrefix() throws Exception {
+        subnets.add(subnet("wlan0", "192.168.1.20", "192.168.1.255", 24));
+        subnets.add(subnet("eth0", "10.0.0.5", "10.0.3.255", 22));
+        assertTrue(helper.isLocal(InetAddress.getByName("192.168.1.7")));
+        assertTrue(helper.isLocal(InetAddress.getByName("10.0.2.200")));
+        assertFalse(helper.isLocal(InetAddress.getByName("10.0.4.1")));
+        assertFalse(helper.isLocal(InetAddress.getByName("192.168.2.7")));
+    }
+
+    @Test
+    public void deduplicatesBroadcastAddresses() throws Exception {
+        subnets.add(subnet("wlan0", "192.168.1.20", "192.168.1.255", 24));
+        subnets.add(subnet("wlan1", "192.168.1.21", "192.168.1.255", 24));
+        assertEquals(1, helper.getBroadcastAddresses().size());
+        assertEquals(2, helper.getSubnets().size());
+    }
+}
@@ -0,0 +1,74 @@
+package lsp.wol.core.utils;
+
+import org.junit.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.junit.Assert.*;
+
+public class CronExpressionTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    private static ZonedDateTime at(int year, int month, int day, int hour, int minute) {
+        return ZonedDateTime.of(year, month, day, hour, minute, 0, 0, ZONE);
+    }
+
+    @Test
+    public void workdayMorning() {
+        CronExpression cron = CronExpression.parse("30 7 * * 1-5");
+        // 2026-10-16 是周五
+        assertEquals(at(2026, 10, 19, 7, 30), cron.next(at(2026, 10, 16, 7, 30)));
+        assertEquals(at(2026, 10, 16, 7, 30), cron.next(at(2026, 10, 16, 7, 29).plusSeconds(59)));
+        assertEquals(at(2026, 10, 19, 7, 30), cron.next(at(2026, 10, 17, 0, 0)));
+    }
+
+    @Test
+    public void stepsListsAndRanges() {
+        CronExpression cron = CronExpression.parse("*/15 8-9,18 * * *");
+        assertEquals(at(2026, 1, 1, 8, 15), cron.next(at(2026, 1, 1, 8, 0)));
+        assertEquals(at(2026, 1, 1, 18, 0), cron.next(at(2026, 1, 1, 9, 45)));
+        assertEquals(at(2026, 1, 2, 8, 0), cron.next(at(2026, 1, 1, 18, 45)));
+
+        assertEquals(at(2026, 1, 1, 0, 5), CronExpression.parse("5/20 * * * *").next(at(2026, 1, 1, 0, 0)));
+        assertEquals(at(2026, 1, 1, 0, 45), CronExpression.parse("5/20 * * * *").next(at(2026, 1, 1, 0, 25)));
+    }
+
+    @Test
+    public void dayOfMonthOrDayOfWeek() {
+        // 每月 1 日或每个周日
+        CronExpression cron = CronExpression.parse("0 6 1 * 7");
+        assertEquals(at(2026, 10, 18, 6, 0), cron.next(at(2026, 10, 17, 0, 0)));
+        assertEquals(at(2026, 11, 1, 6, 0), cron.next(at(2026, 10, 25, 6, 0)));
+    }
+
+    @Test
+    public void monthAndLeapDay() {
+        assertEquals(at(2028, 2, 29, 0, 0), CronExpression.parse("0 0 29 2 *").next(at(2026, 3, 1, 0, 0)));
+        assertEquals(at(2027, 1, 1, 0, 0), CronExpression.parse("@yearly").next(at(2026, 10, 18, 12, 0)));
+        // 永远不会匹配
+        assertNull(CronExpression.parse("0 0 30 2 *").next(at(2026, 1, 1, 0, 0)));
+        assertEquals(-1, CronExpression.parse("0 0 31 4 *").next(0, ZONE));
+    }
+
+    @Test
+    public void epochMillis() {
+        long after = at(2026, 10, 18, 7, 0).toInstant().toEpochMilli();
+        assertEquals(after + 30 * 60_000, CronExpression.parse("30 7 * * *").next(after, ZONE));
+    }
+
+    @Test
+    public void rejectsInvalid() {
+        String[] invalid = {"", "* * * *", "60 * * * *", "* 24 * * *", "* * 0 * *", "* * * 13 *",
+                "* * * * 8", "5-1 * * * *", "*/0 * * * *", "a * * * *", "* * * * * *"};
+        for (String expression : invalid) {
+            try {
+                CronExpression.parse(expression);
+                fail(expression);
+            } catch (IllegalArgumentException expected) {
+                // 预期
+            }
+        }
+    }
+}
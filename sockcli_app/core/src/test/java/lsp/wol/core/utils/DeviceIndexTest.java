@@ -0,0 +1,161 @@
+package lsp.wol.core.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import lsp.wol.core.model.Device;
+import lsp.wol.core.model.MacAddress;
+
+import static org.junit.Assert.*;
+
+public class DeviceIndexTest {
+
+    private static Device device(String name, long mac, String group) {
+        return new Device(name, MacAddress.of(mac), group);
+    }
+
+    private static List<String> names(List<Device> devices) {
+        List<String> names = new ArrayList<>();
+        for (Device device : devices) {
+            names.add(device.name);
+        }
+        return names;
+    }
+
+    private static DeviceIndex sample() {
+        DeviceIndex index = new DeviceIndex();
+        index.put(device("Build-Win-01", 0xCC28AA0677E9L, "构建机"));
+        index.put(device("Build-Linux-02", 0x00E04CA200F3L, "构建机"));
+        index.put(device("天和华城NAS", 0x001122334455L, null));
+        index.put(device("office-pc", 0xAABBCCDDEEFFL, "办公室"));
+        return index;
+    }
+
+    @Test
+    public void nameSubstringIgnoresCase() {
+        DeviceIndex index = sample();
+        assertEquals(List.of("Build-Win-01", "Build-Linux-02"), names(index.search("build")));
+        assertEquals(List.of("Build-Linux-02"), names(index.search("LINUX")));
+        assertEquals(List.of("天和华城NAS"), names(index.search("华城")));
+        assertEquals(List.of("天和华城NAS"), names(index.search("城")));
+        assertTrue(index.search("nothing").isEmpty());
+    }
+
+    @Test
+    public void macFragmentWithOrWithoutSeparators() {
+        DeviceIndex index = sample();
+        assertEquals(List.of("Build-Win-01"), names(index.search("77:E9")));
+        assertEquals(List.of("Build-Win-01"), names(index.search("aa0677")));
+        assertEquals(List.of("Build-Win-01"), names(index.search("cc-28-aa")));
+        assertEquals(List.of("office-pc"), names(index.search("DD.EE")));
+        // 十六进制片段同时按名称匹配
+        assertEquals(List.of("Build-Win-01", "Build-Linux-02", "天和华城NAS"), names(index.search("0")));
+    }
+
+    @Test
+    public void groupAndMultipleTerms() {
+        DeviceIndex index = sample();
+        assertEquals(List.of("Build-Win-01", "Build-Linux-02"), names(index.search("构建机")));
+        assertEquals(List.of("Build-Linux-02"), names(index.search("构建 f3")));
+        assertEquals(List.of("office-pc"), names(index.search(" 办公 pc ")));
+        assertEquals(4, index.search("").size());
+        // 不跨名称与分组匹配
+        assertTrue(index.search("01构").isEmpty());
+    }
+
+    @Test
+    public void incrementalUpdates() {
+        DeviceIndex index = sample();
+        assertEquals(1, index.search("office").size());
+        index.put(device("meeting-room", 0xAABBCCDDEEFFL, "办公室"));
+        assertTrue(index.search("office").isEmpty());
+        assertEquals(List.of("meeting-room"), names(index.search("meet")));
+        // 修改不改变顺序
+        index.put(device("Build-Win-01-new", 0xCC28AA0677E9L, "构建机"));
+        assertEquals(List.of("Build-Win-01-new", "Build-Linux-02"), names(index.search("build")));
+
+        assertTrue(index.remove(MacAddress.of(0x00E04CA200F3L)));
+        assertFalse(index.remove(MacAddress.of(0x00E04CA200F3L)));
+        assertEquals(List.of("Build-Win-01-new"), names(index.search("build")));
+        assertTrue(index.search("f3").isEmpty());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void narrowingReusesPreviousResult() {
+        DeviceIndex index = sample();
+        // b 同时匹配 office-pc 的 MAC
+        assertEquals(3, index.search("b").size());
+        assertEquals(2, index.search("bu").size());
+        assertEquals(1, index.search("build-l").size());
+        // 修改后不能沿用上次结果
+        index.put(device("build-lab", 0x010203040506L, null));
+        assertEquals(2, index.search("build-l").size());
+        assertEquals(1, index.search("build-la").size());
+        // 删除字符重新查询
+        assertEquals(3, index.search("build").size());
+    }
+
+    // 随机增删改后与逐个比较的结果一致，包括重建之后
+    @Test
+    public void matchesBruteForce() {
+        Random random = new Random(7);
+        String alphabet = "abcdef构建机01:";
+        DeviceIndex index = new DeviceIndex();
+        List<Device> all = new ArrayList<>();
+        for (int round = 0; round < 5000; round++) {
+            long mac = random.nextInt(400) + 1;
+            int op = random.nextInt(10);
+            all.removeIf(it -> it.macAddress.toLong() == mac && op < 2);
+            if (op < 2) {
+                index.remove(MacAddress.of(mac));
+                continue;
+            }
+            StringBuilder name = new StringBuilder();
+            for (int i = random.nextInt(8) + 1; i > 0; i--) {
+                name.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            Device device = device(name.toString(), mac, random.nextBoolean() ? "g" + random.nextInt(3) : null);
+            boolean replaced = false;
+            for (int i = 0; i < all.size(); i++) {
+                if (all.get(i).macAddress.toLong() == mac) {
+                    all.set(i, device);
+                    replaced = true;
+                }
+            }
+            if (!replaced) {
+                all.add(device);
+            }
+            index.put(device);
+
+            if (round % 50 == 0) {
+                for (String query : new String[]{"a", "ab", "abc", "构建", "0:1", "g1", "a g2", "01"}) {
+                    assertEquals(query, bruteForce(all, query), index.search(query));
+                }
+            }
+        }
+        assertEquals(all.size(), index.size());
+    }
+
+    private static List<Device> bruteForce(List<Device> all, String query) {
+        List<Device> result = new ArrayList<>();
+        for (Device device : all) {
+            String text = device.name.toLowerCase(Locale.ROOT) + "\n"
+                    + (device.group == null ? "" : device.group.toLowerCase(Locale.ROOT));
+            String mac = device.macAddress.toString().replace(":", "").toLowerCase(Locale.ROOT);
+            boolean match = true;
+            for (String term : query.split(" ")) {
+                String hex = DeviceIndex.hexFragment(term);
+                match &= text.contains(term) || (hex != null && !hex.isEmpty() && mac.contains(hex));
+            }
+            if (match) {
+                result.add(device);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,61 @@
+package lsp.wol.core.utils;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import lsp.wol.core.model.MacAddress;
+
+import static org.junit.Assert.*;
+
+public class DeviceStatusBoardTest {
+
+    private static MacAddress mac(int i) {
+        return MacAddress.of(0x001122330000L | i);
+    }
+
+    @Test
+    public void changesCoalescedUntilDrained() {
+        DeviceStatusBoard board = new DeviceStatusBoard();
+        int[] dirty = new int[1];
+        board.setListener(() -> dirty[0]++);
+
+        board.markWaking(mac(1), 100);
+        board.markWaking(mac(2), 100);
+        board.markOnline(mac(1), 200);
+        board.markOffline(mac(1), 300);
+        // 一帧内只通知一次，每台设备只出现一次
+        assertEquals(1, dirty[0]);
+        assertEquals(List.of(mac(1), mac(2)), board.drain());
+        assertTrue(board.drain().isEmpty());
+
+        // 状态没变不通知
+        board.markOffline(mac(1), 400);
+        assertEquals(1, dirty[0]);
+        board.markOnline(mac(1), 500);
+        assertEquals(2, dirty[0]);
+        assertEquals(List.of(mac(1)), board.drain());
+    }
+
+    @Test
+    public void keepsLastWakeTime() {
+        DeviceStatusBoard board = new DeviceStatusBoard();
+        assertSame(DeviceStatusBoard.Status.UNKNOWN, board.get(mac(1)));
+
+        board.markWaking(mac(1), 1_000);
+        assertEquals(DeviceStatusBoard.State.WAKING, board.get(mac(1)).state);
+        board.markOnline(mac(1), 5_000);
+        DeviceStatusBoard.Status status = board.get(mac(1));
+        assertEquals(DeviceStatusBoard.State.ONLINE, status.state);
+        assertEquals(1_000, status.lastWakeAt);
+        assertEquals(5_000, status.updatedAt);
+
+        // 发送失败只撤销唤醒中
+        board.cancelWaking(mac(1), 6_000);
+        assertEquals(DeviceStatusBoard.State.ONLINE, board.get(mac(1)).state);
+        board.markWaking(mac(1), 7_000);
+        board.cancelWaking(mac(1), 8_000);
+        assertEquals(DeviceStatusBoard.State.UNKNOWN, board.get(mac(1)).state);
+        assertEquals(7_000, board.get(mac(1)).lastWakeAt);
+    }
+}
@@ -0,0 +1,149 @@
+package lsp.wol.core.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import lsp.wol.core.model.Device;
+import lsp.wol.core.model.MacAddress;
+
+import static org.junit.Assert.*;
+
+public class DeviceStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static MacAddress mac(int i) {
+        return MacAddress.of(0x001122330000L | i);
+    }
+
+    @Test
+    public void upsertAndDeleteSurviveReopen() throws Exception {
+        File dir = folder.newFolder("devices");
+        DeviceStore store = new DeviceStore(dir);
+        assertFalse(store.exists());
+        store.upsert(new Device("a", MacAddress.parse("AA:AA:AA:AA:AA:01")));
+        store.upsert(new Device("b", MacAddress.parse("AA:AA:AA:AA:AA:02")));
+        store.upsert(new Device("a2", MacAddress.parse("aa:aa:aa:aa:aa:01")));
+        assertTrue(store.delete(MacAddress.parse("AA:AA:AA:AA:AA:02")));
+        assertFalse(store.delete(MacAddress.parse("AA:AA:AA:AA:AA:02")));
+
+        DeviceStore reopened = new DeviceStore(dir);
+        assertTrue(reopened.exists());
+        List<Device> devices = reopened.getAll();
+        assertEquals(1, devices.size());
+        assertEquals("a2", devices.get(0).name);
+        assertEquals("a2", reopened.get(MacAddress.parse("AA:AA:AA:AA:AA:01")).name);
+    }
+
+    @Test
+    public void upsertKeepsInsertionOrder() throws Exception {
+        DeviceStore store = new DeviceStore(folder.newFolder("devices"));
+        store.upsert(new Device("a", mac(1)));
+        store.upsert(new Device("b", mac(2)));
+        store.upsert(new Device("a-renamed", mac(1)));
+        assertEquals(Arrays.asList("a-renamed", "b"), names(store.getAll()));
+    }
+
+    @Test
+    public void compactionKeepsContentAndShrinksJournal() throws Exception {
+        File dir = folder.newFolder("devices");
+        DeviceStore store = new DeviceStore(dir);
+        for (int i = 0; i < 500; i++) {
+            store.upsert(new Device("d" + i, mac(i)));
+        }
+        for (int i = 0; i < 500; i += 2) {
+            store.delete(mac(i));
+        }
+        File journal = new File(dir, "devices.log");
+        assertTrue(new File(dir, "devices.bin").exists());
+        // 最近一次压缩之后的日志条数不会超过阈值
+        assertTrue(!journal.exists() || journal.length() < 500L * 64);
+
+        DeviceStore reopened = new DeviceStore(dir);
+        assertEquals(250, reopened.size());
+        assertEquals("d1", reopened.get(mac(1)).name);
+        assertNull(reopened.get(mac(2)));
+    }
+
+    @Test
+    public void ignoresTornLastJournalRecord() throws Exception {
+        File dir = folder.newFolder("devices");
+        DeviceStore store = new DeviceStore(dir);
+        store.upsert(new Device("a", mac(1)));
+        byte[] record = DeviceBinaryFormat.encodeRecord(new Device("b", mac(2)));
+        try (FileOutputStream out = new FileOutputStream(new File(dir, "devices.log"), true)) {
+            out.write(1);
+            out.write(record, 0, record.length - 3);
+        }
+        DeviceStore reopened = new DeviceStore(dir);
+        assertEquals(1, reopened.size());
+
+        // 半条记录已截掉，之后追加的记录下次打开仍能读出
+        reopened.upsert(new Device("c", mac(3)));
+        DeviceStore again = new DeviceStore(dir);
+        assertEquals(2, again.size());
+        assertEquals("c", again.get(mac(3)).name);
+        assertNull(again.get(mac(2)));
+    }
+
+    @Test
+    public void extensionFieldsRoundTripThroughSnapshot() throws Exception {
+        File dir = folder.newFolder("devices");
+        Device device = new Device("nas", MacAddress.parse("aa-bb-cc-dd-ee-ff"), "书房");
+        device.secureOn = "01:02:03:04:05:06";
+        device.host = "nas.lan";
+        new DeviceStore(dir).replaceAll(Arrays.asList(device, new Device("pc", mac(1))));
+
+        DeviceStore reopened = new DeviceStore(dir);
+        Device loaded = reopened.get(MacAddress.parse("AA:BB:CC:DD:EE:FF"));
+        assertEquals("nas", loaded.name);
+        assertEquals(MacAddress.parse("AA:BB:CC:DD:EE:FF"), loaded.macAddress);
+        assertEquals("书房", loaded.group);
+        assertEquals("01:02:03:04:05:06", loaded.secureOn);
+        assertEquals("nas.lan", loaded.host);
+        assertNull(reopened.get(mac(1)).group);
+        assertNull(reopened.get(mac(1)).host);
+    }
+
+    @Test
+    public void skipsUnknownExtensionFields() throws Exception {
+        byte[] record = DeviceBinaryFormat.encodeRecord(new Device("pc", mac(1), "g"));
+        // 在记录末尾追加一个新版本才有的字段
+        ByteBuffer buffer = ByteBuffer.allocate(record.length + 3 + 4);
+        buffer.put(record).put((byte) 99).putShort((short) 4).putInt(0x12345678);
+        buffer.putShort(0, (short) (buffer.capacity() - 2));
+        buffer.flip();
+
+        int body = DeviceBinaryFormat.skipRecord(buffer);
+        assertFalse(buffer.hasRemaining());
+        Device device = DeviceBinaryFormat.decodeRecord(buffer, body);
+        assertEquals("pc", device.name);
+        assertEquals("g", device.group);
+    }
+
+    @Test
+    public void replaceAllWritesSnapshot() throws Exception {
+        File dir = folder.newFolder("devices");
+        DeviceStore store = new DeviceStore(dir);
+        store.upsert(new Device("old", mac(9)));
+        store.replaceAll(Arrays.asList(new Device("x", mac(1)), new Device("y", mac(2))));
+        assertFalse(new File(dir, "devices.log").exists());
+        assertEquals(Arrays.asList("x", "y"), names(new DeviceStore(dir).getAll()));
+    }
+
+    private static List<String> names(List<Device> devices) {
+        String[] names = new String[devices.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = devices.get(i).name;
+        }
+        return Arrays.asList(names);
+    }
+}
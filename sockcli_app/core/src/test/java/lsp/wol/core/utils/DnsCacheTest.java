@@ -0,0 +1,97 @@
+package lsp.wol.core.utils;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class DnsCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final List<Runnable> refreshes = new ArrayList<>();
+    private volatile InetAddress[] answer;
+    private volatile boolean failing;
+
+    private DnsCache newCache() {
+        return new DnsCache(host -> {
+            lookups.incrementAndGet();
+            if (failing) {
+                throw new UnknownHostException(host);
+            }
+            return answer;
+        }, refreshes::add, now::get, 1000, 10_000);
+    }
+
+    private static InetAddress ip(String literal) throws UnknownHostException {
+        return InetAddress.getByName(literal);
+    }
+
+    @Test
+    public void servesStaleWhileRevalidating() throws Exception {
+        DnsCache cache = newCache();
+        answer = new InetAddress[]{ip("10.0.0.1")};
+        assertEquals(Arrays.asList(ip("10.0.0.1")), cache.resolve("relay.example"));
+        assertEquals(1, lookups.get());
+
+        // 有效期内不再解析
+        now.addAndGet(999);
+        cache.resolve("relay.example");
+        assertEquals(1, lookups.get());
+
+        // 过期：立即返回旧结果，后台刷新只提交一次
+        answer = new InetAddress[]{ip("10.0.0.2")};
+        now.addAndGet(1);
+        assertEquals(Arrays.asList(ip("10.0.0.1")), cache.resolve("relay.example"));
+        cache.resolve("relay.example");
+        assertEquals(1, refreshes.size());
+        assertEquals(1, lookups.get());
+        refreshes.remove(0).run();
+        assertEquals(Arrays.asList(ip("10.0.0.2")), cache.resolve("relay.example"));
+
+        // 刷新失败保留旧结果
+        failing = true;
+        now.addAndGet(1000);
+        cache.resolve("relay.example");
+        refreshes.remove(0).run();
+        assertEquals(Arrays.asList(ip("10.0.0.2")), cache.resolve("relay.example"));
+
+        // 超过最长保留时间同步解析，失败抛出
+        now.addAndGet(10_000);
+        try {
+            cache.resolve("relay.example");
+            fail();
+        } catch (UnknownHostException expected) {
+        }
+    }
+
+    @Test
+    public void literalsBypassAndInvalidateMarksStale() throws Exception {
+        DnsCache cache = newCache();
+        assertEquals(Arrays.asList(ip("192.168.1.6")), cache.resolve("192.168.1.6"));
+        assertEquals(Arrays.asList(ip("::1")), cache.resolve("::1"));
+        assertEquals(0, lookups.get());
+
+        answer = new InetAddress[]{ip("10.0.0.1")};
+        cache.resolve("relay.example");
+        cache.invalidate();
+        cache.resolve("relay.example");
+        assertEquals(1, refreshes.size());
+    }
+
+    @Test
+    public void interleavesAddressFamilies() throws Exception {
+        List<InetAddress> mixed = Arrays.asList(ip("10.0.0.1"), ip("10.0.0.2"), ip("::1"), ip("10.0.0.3"), ip("::2"));
+        assertEquals(Arrays.asList(ip("::1"), ip("10.0.0.1"), ip("::2"), ip("10.0.0.2"), ip("10.0.0.3")),
+                DnsCache.interleaveFamilies(mixed));
+        List<InetAddress> v4 = Arrays.asList(ip("10.0.0.1"), ip("10.0.0.2"));
+        assertEquals(v4, DnsCache.interleaveFamilies(v4));
+    }
+}
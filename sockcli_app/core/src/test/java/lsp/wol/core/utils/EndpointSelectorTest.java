@@ -0,0 +1,83 @@
+package lsp.wol.core.utils;
+
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class EndpointSelectorTest {
+
+    @Test
+    public void parsesEndpointLists() {
+        List<InetSocketAddress> addresses = EndpointSelector.parse(
+                " espsock.devtask.cn, 192.168.1.6:9000  [::1]:7000 fe80::1", 8080);
+        assertEquals(4, addresses.size());
+        assertEquals("espsock.devtask.cn", addresses.get(0).getHostString());
+        assertEquals(8080, addresses.get(0).getPort());
+        assertEquals(9000, addresses.get(1).getPort());
+        assertEquals("::1", addresses.get(2).getHostString());
+        assertEquals(7000, addresses.get(2).getPort());
+        assertEquals("fe80::1", addresses.get(3).getHostString());
+        assertEquals(8080, addresses.get(3).getPort());
+        assertEquals("espsock.devtask.cn:8080,192.168.1.6:9000,[::1]:7000,[fe80::1]:8080",
+                EndpointSelector.format(addresses));
+
+        String[] invalid = {"", " , ", "host:0", "host:abc", "[::1", "[::1]x"};
+        for (String spec : invalid) {
+            try {
+                EndpointSelector.parse(spec, 8080);
+                fail("accepted " + spec);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void ranksByRttAndCoolsDownFailures() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        EndpointSelector selector = new EndpointSelector(
+                EndpointSelector.parse("wan:8080,lan:8080,backup:8080", 8080), now::get);
+
+        // 未测量时按配置顺序
+        List<EndpointSelector.Endpoint> ranked = selector.ranked();
+        assertEquals("wan", ranked.get(0).address.getHostString());
+        EndpointSelector.Endpoint wan = ranked.get(0);
+        EndpointSelector.Endpoint lan = ranked.get(1);
+
+        selector.onConnected(wan, TimeUnit.MILLISECONDS.toNanos(80));
+        selector.onConnected(lan, TimeUnit.MILLISECONDS.toNanos(5));
+        assertEquals(lan, selector.ranked().get(0));
+        assertEquals(wan, selector.ranked().get(1));
+        // 测量过的排在未测量的之前
+        assertEquals("backup", selector.ranked().get(2).address.getHostString());
+
+        // 平滑：一次慢的心跳不会立即改变排序
+        selector.onRtt(lan, TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(lan, selector.ranked().get(0));
+        assertEquals(30, lan.getSrttMs(), 1);
+
+        // 失败后冷却，排到最后；冷却结束恢复
+        selector.onFailure(lan);
+        assertEquals(lan, selector.ranked().get(2));
+        now.addAndGet(EndpointSelector.FAILURE_COOLDOWN_MS);
+        assertEquals(lan, selector.ranked().get(0));
+
+        // 连续失败冷却时间加倍，有上限
+        selector.onFailure(lan);
+        selector.onFailure(lan);
+        now.addAndGet(EndpointSelector.FAILURE_COOLDOWN_MS * 3);
+        assertEquals(lan, selector.ranked().get(2));
+        for (int i = 0; i < 40; i++) {
+            selector.onFailure(lan);
+        }
+        now.addAndGet(EndpointSelector.MAX_FAILURE_COOLDOWN_MS);
+        assertEquals(lan, selector.ranked().get(0));
+
+        selector.onConnected(lan, TimeUnit.MILLISECONDS.toNanos(5));
+        assertEquals(0, lan.getFailures());
+    }
+}
@@ -0,0 +1,114 @@
+package lsp.wol.core.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FrameCodecTest {
+
+    private final FrameCodec codec = new FrameCodec(16, 64 * 1024);
+    private final List<String> frames = new ArrayList<>();
+
+    private void feed(String text) throws IOException {
+        feed(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void feed(byte[] bytes) throws IOException {
+        codec.decode(ByteBuffer.wrap(bytes), (array, offset, length) ->
+                frames.add(new String(array, offset, length, StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void jsonModeSplitsCoalescedMessages() throws IOException {
+        feed("{\"cmd\":\"heartbeat\",\"data\":\"1\"}{\"cmd\":\"wol_rec_dev_size\",\"data\":\"2\"}");
+        assertEquals(Arrays.asList(
+                "{\"cmd\":\"heartbeat\",\"data\":\"1\"}",
+                "{\"cmd\":\"wol_rec_dev_size\",\"data\":\"2\"}"), frames);
+    }
+
+    @Test
+    public void jsonModeKeepsPartialFramesAcrossReads() throws IOException {
+        feed("{\"cmd\":\"wol\",\"da");
+        assertTrue(frames.isEmpty());
+        feed("ta\":\"AA:BB\"}\n{\"cmd\"");
+        assertEquals(Arrays.asList("{\"cmd\":\"wol\",\"data\":\"AA:BB\"}"), frames);
+        feed(":\"x\"}");
+        assertEquals("{\"cmd\":\"x\"}", frames.get(1));
+    }
+
+    @Test
+    public void jsonModeIgnoresBracesInsideStrings() throws IOException {
+        feed("{\"data\":\"}{\\\"}\"}");
+        assertEquals(Arrays.asList("{\"data\":\"}{\\\"}\"}"), frames);
+    }
+
+    @Test
+    public void jsonModeHandlesMessagesOverOneKilobyte() throws IOException {
+        char[] chars = new char[4000];
+        Arrays.fill(chars, 'a');
+        String big = "{\"data\":\"" + new String(chars) + "\"}";
+        byte[] bytes = big.getBytes(StandardCharsets.UTF_8);
+        // 按 1KB 拆分喂入
+        for (int i = 0; i < bytes.length; i += 1024) {
+            feed(Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + 1024)));
+        }
+        assertEquals(Arrays.asList(big), frames);
+    }
+
+    @Test
+    public void lineMode() throws IOException {
+        codec.setMode(FrameCodec.Mode.LINE);
+        feed("a\r\n\nb\nc");
+        assertEquals(Arrays.asList("a", "b"), frames);
+        feed("\n");
+        assertEquals(Arrays.asList("a", "b", "c"), frames);
+    }
+
+    @Test
+    public void lengthModeRoundTrip() throws IOException {
+        codec.setMode(FrameCodec.Mode.LENGTH);
+        ByteBuffer out = ByteBuffer.allocate(64);
+        byte[] first = "hello".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "{}".getBytes(StandardCharsets.UTF_8);
+        codec.encode(first, 0, first.length, out);
+        codec.encode(second, 0, second.length, out);
+        assertEquals(codec.frameLength(first.length) + codec.frameLength(second.length), out.position());
+        out.flip();
+
+        // 逐字节喂入
+        while (out.hasRemaining()) {
+            feed(new byte[]{out.get()});
+        }
+        assertEquals(Arrays.asList("hello", "{}"), frames);
+    }
+
+    @Test
+    public void switchingModeInsideCallbackAppliesToRemainingBytes() throws IOException {
+        byte[] ack = "{\"cmd\":\"frame\",\"data\":\"len\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] next = "{}".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer in = ByteBuffer.allocate(ack.length + 4 + next.length);
+        in.put(ack).putInt(next.length).put(next).flip();
+
+        codec.decode(in, (array, offset, length) -> {
+            frames.add(new String(array, offset, length, StandardCharsets.UTF_8));
+            if (frames.size() == 1) {
+                codec.setMode(FrameCodec.Mode.LENGTH);
+            }
+        });
+        assertEquals(2, frames.size());
+        assertEquals("{}", frames.get(1));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOversizedLengthPrefix() throws IOException {
+        codec.setMode(FrameCodec.Mode.LENGTH);
+        feed(new byte[]{0x7f, 0, 0, 0});
+    }
+}
@@ -0,0 +1,123 @@
+package lsp.wol.core.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class HeartbeatSchedulerTest {
+
+    private static final long RTT_MS = 50;
+
+    private long now;
+
+    /**
+     * 链路空闲直到心跳到期，发出心跳并在 RTT_MS 后收到回复
+     */
+    private void idleHeartbeat(HeartbeatScheduler scheduler, boolean replied) {
+        now += Math.max(0, scheduler.dueIn(now));
+        scheduler.onHeartbeatSent(now);
+        scheduler.onSent(now);
+        if (replied) {
+            now += RTT_MS;
+            scheduler.onReceived(now);
+            scheduler.onHeartbeatReply(now, TimeUnit.MILLISECONDS.toNanos(RTT_MS));
+        } else {
+            now += 10_000;
+            scheduler.onHeartbeatTimeout(now);
+        }
+    }
+
+    @Test
+    public void trafficInEitherDirectionPostponesHeartbeat() {
+        HeartbeatScheduler scheduler = new HeartbeatScheduler();
+        scheduler.onConnected(0);
+        assertEquals(20_000, scheduler.dueIn(0));
+
+        // 收到消息刷新 NAT，但服务器只认发出的消息
+        scheduler.onReceived(15_000);
+        assertEquals(13_000, scheduler.dueIn(15_000));
+
+        scheduler.onSent(15_000);
+        assertEquals(20_000, scheduler.dueIn(15_000));
+        assertEquals(0, scheduler.getSent());
+    }
+
+    @Test
+    public void learnsLongerIntervalUpToServerLimit() {
+        HeartbeatScheduler scheduler = new HeartbeatScheduler();
+        scheduler.onConnected(0);
+        for (int i = 0; i < HeartbeatScheduler.SUCCESSES_TO_GROW; i++) {
+            idleHeartbeat(scheduler, true);
+        }
+        assertEquals(22_000, scheduler.getIntervalMs());
+
+        for (int i = 0; i < 50; i++) {
+            idleHeartbeat(scheduler, true);
+            // 发出方向永远不超过服务器超时
+            assertTrue(scheduler.dueIn(now) <= HeartbeatScheduler.SERVER_IDLE_LIMIT_MS);
+        }
+        assertEquals(HeartbeatScheduler.SERVER_IDLE_LIMIT_MS, scheduler.getIntervalMs());
+        assertEquals(53, scheduler.getSent());
+        assertEquals(53, scheduler.getReplies());
+        assertEquals(53, scheduler.getRttStats().getCount());
+        assertEquals(-1, scheduler.getFailedIntervalMs());
+    }
+
+    @Test
+    public void failedIntervalIsNotRetried() {
+        HeartbeatScheduler scheduler = new HeartbeatScheduler();
+        scheduler.onConnected(0);
+        for (int i = 0; i < 2 * HeartbeatScheduler.SUCCESSES_TO_GROW; i++) {
+            idleHeartbeat(scheduler, true);
+        }
+        assertEquals(24_000, scheduler.getIntervalMs());
+
+        // NAT 在 24 秒空闲后丢弃映射
+        idleHeartbeat(scheduler, false);
+        assertEquals(24_000, scheduler.getFailedIntervalMs());
+        assertEquals(22_000, scheduler.getIntervalMs());
+        // 超时后立即探测
+        assertEquals(0, scheduler.dueIn(now));
+
+        scheduler.onConnected(now);
+        for (int i = 0; i < 20; i++) {
+            idleHeartbeat(scheduler, true);
+        }
+        assertEquals(22_000, scheduler.getIntervalMs());
+        assertEquals(1, scheduler.getTimeouts());
+    }
+
+    @Test
+    public void disconnectWhileAwaitingReplyCountsAsFailure() {
+        HeartbeatScheduler scheduler = new HeartbeatScheduler();
+        scheduler.onConnected(0);
+        now = scheduler.dueIn(0);
+        scheduler.onHeartbeatSent(now);
+        scheduler.onSent(now);
+        scheduler.onDisconnected(now + 100);
+        assertEquals(20_000, scheduler.getFailedIntervalMs());
+        assertEquals(18_000, scheduler.getIntervalMs());
+        assertEquals(20_100, scheduler.getConnectedMs());
+
+        // 换了网络重新学习
+        scheduler.resetLearning();
+        assertEquals(-1, scheduler.getFailedIntervalMs());
+        assertEquals(20_000, scheduler.getIntervalMs());
+    }
+
+    @Test
+    public void peerDeadAfterConsecutiveMissedReplies() {
+        HeartbeatScheduler scheduler = new HeartbeatScheduler();
+        scheduler.onConnected(0);
+        idleHeartbeat(scheduler, false);
+        assertFalse(scheduler.isPeerDead());
+        // 任意消息都说明服务器还在
+        scheduler.onReceived(now);
+        idleHeartbeat(scheduler, false);
+        assertFalse(scheduler.isPeerDead());
+        idleHeartbeat(scheduler, false);
+        assertTrue(scheduler.isPeerDead());
+    }
+}
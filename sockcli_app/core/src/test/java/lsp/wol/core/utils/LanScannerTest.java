@@ -0,0 +1,152 @@
+package lsp.wol.core.utils;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import lsp.wol.core.model.MacAddress;
+
+import static org.junit.Assert.*;
+
+public class LanScannerTest {
+
+    private static int ip(String text) throws Exception {
+        return LanScanner.toInt(InetAddress.getByName(text));
+    }
+
+    // Windows 主机的节点状态回复：两个名称 + 统计信息
+    static byte[] nbstatResponse(int id, String name, MacAddress mac) {
+        ByteBuffer out = ByteBuffer.allocate(12 + 34 + 10 + 1 + 2 * 18 + 46);
+        out.putShort((short) id).putShort((short) 0x8400).putShort((short) 0).putShort((short) 1)
+                .putShort((short) 0).putShort((short) 0);
+        byte[] query = NetBios.encodeQuery(0);
+        out.put(query, 12, 34);
+        out.putShort((short) 0x21).putShort((short) 1).putInt(0).putShort((short) (1 + 2 * 18 + 46));
+        out.put((byte) 2);
+        putName(out, "WORKGROUP", 0x8400);
+        putName(out, name, 0x0400);
+        mac.writeTo(out);
+        return out.array();
+    }
+
+    private static void putName(ByteBuffer out, String name, int flags) {
+        byte[] padded = new byte[16];
+        java.util.Arrays.fill(padded, 0, 15, (byte) ' ');
+        byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, padded, 0, bytes.length);
+        out.put(padded).putShort((short) flags);
+    }
+
+    @Test
+    public void hostsExcludeNetworkBroadcastAndSelf() throws Exception {
+        int[] hosts = LanScanner.hostsOf(ip("192.168.1.23"), 24);
+        assertEquals(253, hosts.length);
+        assertEquals(ip("192.168.1.1"), hosts[0]);
+        assertEquals(ip("192.168.1.254"), hosts[hosts.length - 1]);
+        for (int host : hosts) {
+            assertNotEquals(ip("192.168.1.23"), host);
+        }
+        assertEquals(0, LanScanner.hostsOf(ip("10.0.0.1"), 31).length);
+    }
+
+    @Test
+    public void largeSubnetNarrowedAroundSelf() throws Exception {
+        assertEquals(22, LanScanner.effectivePrefix(16, 1024));
+        assertEquals(24, LanScanner.effectivePrefix(24, 1024));
+        int[] hosts = LanScanner.hostsOf(ip("10.20.7.9"), LanScanner.effectivePrefix(16, 1024));
+        assertEquals(1021, hosts.length);
+        assertEquals(ip("10.20.4.1"), hosts[0]);
+        assertEquals(ip("10.20.7.254"), hosts[hosts.length - 1]);
+    }
+
+    @Test
+    public void parsesNetBiosStatus() {
+        MacAddress mac = MacAddress.parse("A4:91:B1:00:00:01");
+        NetBios.Status status = NetBios.parseResponse(ByteBuffer.wrap(nbstatResponse(7, "DESKTOP-1", mac)));
+        assertNotNull(status);
+        assertEquals("DESKTOP-1", status.name);
+        assertEquals(mac, status.macAddress);
+
+        // Samba 不填 MAC
+        assertNull(NetBios.parseResponse(ByteBuffer.wrap(nbstatResponse(7, "NAS", MacAddress.of(0)))));
+        assertNull(NetBios.parseResponse(ByteBuffer.wrap(new byte[12])));
+        assertNull(NetBios.parseResponse(ByteBuffer.wrap(new byte[]{0, 1, 0, 0, 0, 0, 0, 1, 0})));
+    }
+
+    @Test
+    public void streamsNetBiosAndArpResults() throws Exception {
+        MacAddress pcMac = MacAddress.parse("A4:91:B1:00:00:01");
+        try (DatagramSocket responder = new DatagramSocket(0, InetAddress.getByName("127.0.0.1"))) {
+            Thread thread = new Thread(() -> {
+                try {
+                    byte[] buffer = new byte[512];
+                    DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                    responder.receive(packet);
+                    int id = ((buffer[0] & 0xff) << 8) | (buffer[1] & 0xff);
+                    byte[] reply = nbstatResponse(id, "DESKTOP-1", pcMac);
+                    responder.send(new DatagramPacket(reply, reply.length, packet.getSocketAddress()));
+                } catch (Exception ignored) {
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+
+            LanScanner.Options options = new LanScanner.Options();
+            options.port = responder.getLocalPort();
+            options.settleMs = 300;
+            options.arpPollMs = 50;
+            options.resolveHostnames = false;
+            String arp = "IP address       HW type     Flags       HW address            Mask     Device\n"
+                    + "127.0.0.3        0x1         0x2         00:11:22:33:44:55     *        lo\n"
+                    + "10.1.1.1         0x1         0x2         00:11:22:33:44:66     *        eth0\n";
+            // 本机 127.0.0.2/30：扫描 127.0.0.1 与 127.0.0.3
+            BroadcastHelper.Subnet subnet = new BroadcastHelper.Subnet("lo",
+                    InetAddress.getByName("127.0.0.2"), InetAddress.getByName("127.0.0.3"), 30);
+            LanScanner scanner = new LanScanner(options, () -> Collections.singletonList(subnet),
+                    () -> ArpTable.read(() -> new StringReader(arp)));
+            List<LanScanner.Host> streamed = new CopyOnWriteArrayList<>();
+            List<LanScanner.Host> hosts = scanner.scan(streamed::add).get(5, TimeUnit.SECONDS);
+
+            assertEquals(2, hosts.size());
+            assertEquals(2, streamed.size());
+            for (LanScanner.Host host : hosts) {
+                if (host.address.equals(InetAddress.getByName("127.0.0.1"))) {
+                    assertEquals(pcMac, host.macAddress);
+                    assertEquals("DESKTOP-1", host.getName());
+                } else {
+                    assertEquals(InetAddress.getByName("127.0.0.3"), host.address);
+                    assertEquals(MacAddress.parse("00:11:22:33:44:55"), host.macAddress);
+                    assertNull(host.getName());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sweepsSlash22WithinSeconds() throws Exception {
+        LanScanner.Options options = new LanScanner.Options();
+        options.port = 9;
+        options.settleMs = 0;
+        options.resolveHostnames = false;
+        BroadcastHelper.Subnet subnet = new BroadcastHelper.Subnet("lo",
+                InetAddress.getByName("127.0.4.2"), InetAddress.getByName("127.0.7.255"), 22);
+        LanScanner scanner = new LanScanner(options, () -> Collections.singletonList(subnet),
+                () -> ArpTable.read(() -> new StringReader("")));
+        long probes = lsp.wol.core.metrics.MetricsRegistry.shared().counter("scan.probes").get();
+        long start = System.nanoTime();
+        assertTrue(scanner.scan(host -> { }).get(10, TimeUnit.SECONDS).isEmpty());
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(1021, lsp.wol.core.metrics.MetricsRegistry.shared().counter("scan.probes").get() - probes);
+        // 2000 个每秒：约 0.5 秒
+        assertTrue("用时 " + elapsedMs, elapsedMs >= 400 && elapsedMs < 5000);
+    }
+}
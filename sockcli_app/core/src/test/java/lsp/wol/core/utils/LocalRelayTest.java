@@ -0,0 +1,194 @@
+package lsp.wol.core.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+
+import lsp.wol.core.platform.Log;
+import lsp.wol.core.platform.Logger;
+
+import static org.junit.Assert.*;
+
+public class LocalRelayTest {
+
+    private LocalRelay relay;
+
+    @Before
+    public void setUp() {
+        Log.setLogger(Logger.NONE);
+    }
+
+    @After
+    public void tearDown() {
+        if (relay != null) {
+            relay.close();
+        }
+        Log.setLogger(Logger.STDERR);
+    }
+
+    private LocalRelay start(int maxConnections, long timeoutMs, long checkMs) throws IOException {
+        relay = new LocalRelay(0, maxConnections, timeoutMs, checkMs);
+        relay.start();
+        return relay;
+    }
+
+    /**
+     * 测试客户端：按括号边界读取服务器消息
+     */
+    private static final class Client implements AutoCloseable {
+        final Socket socket;
+        final InputStream in;
+
+        Client(LocalRelay relay) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), relay.getPort());
+            socket.setSoTimeout(2000);
+            in = socket.getInputStream();
+        }
+
+        void send(String json) throws IOException {
+            socket.getOutputStream().write(json.getBytes(StandardCharsets.UTF_8));
+            socket.getOutputStream().flush();
+        }
+
+        /**
+         * 下一条消息，连接关闭返回 null
+         */
+        String next() throws IOException {
+            StringBuilder message = new StringBuilder();
+            int depth = 0;
+            int b;
+            while ((b = in.read()) >= 0) {
+                if (depth == 0 && b != '{') {
+                    continue;
+                }
+                message.append((char) b);
+                if (b == '{') {
+                    depth++;
+                } else if (b == '}' && --depth == 0) {
+                    return message.toString();
+                }
+            }
+            return null;
+        }
+
+        boolean isClosedByPeer() throws IOException {
+            try {
+                return next() == null;
+            } catch (SocketTimeoutException e) {
+                return false;
+            } catch (IOException e) {
+                // 连接被重置
+                return true;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private static String heartbeat(String type) {
+        return "{\"cmd\":\"heartbeat\",\"data\":\"1\",\"host\":\"10.0.0.2\",\"type\":\"" + type + "\"}";
+    }
+
+    @Test
+    public void answersLikeSockser() throws Exception {
+        start(10, 30_000, 10_000);
+        try (Client app = new Client(relay)) {
+            assertEquals("{\"cmd\":\"net_ip\",\"data\":\"127.0.0.1\"}", app.next());
+
+            app.send(heartbeat("app"));
+            assertTrue(app.next().startsWith("{\"cmd\":\"heartbeat\",\"data\":\""));
+
+            // 未知命令与多余字段忽略
+            app.send("{\"cmd\":\"frame\",\"data\":\"len,line\",\"type\":\"app\",\"id\":\"7\"}");
+            app.send(heartbeat("app"));
+            assertTrue(app.next().startsWith("{\"cmd\":\"heartbeat\""));
+
+            // 没有类型的消息断开连接
+            app.send("{\"cmd\":\"heartbeat\",\"data\":\"1\"}");
+            assertTrue(app.isClosedByPeer());
+        }
+    }
+
+    @Test
+    public void fansOutWakeAndReceipts() throws Exception {
+        start(10, 30_000, 10_000);
+        try (Client esp1 = new Client(relay); Client esp2 = new Client(relay); Client app = new Client(relay)) {
+            for (Client client : new Client[]{esp1, esp2, app}) {
+                client.next();
+            }
+            esp1.send(heartbeat("esp8266"));
+            esp2.send(heartbeat("esp8266"));
+            esp1.next();
+            esp2.next();
+
+            app.send("{\"cmd\":\"wol\",\"data\":\"CC:28:AA:06:77:E9\",\"type\":\"app\"}");
+            assertEquals("{\"cmd\":\"wol\",\"data\":\"CC:28:AA:06:77:E9\"}", esp1.next());
+            assertEquals("{\"cmd\":\"wol\",\"data\":\"CC:28:AA:06:77:E9\"}", esp2.next());
+            assertEquals("{\"cmd\":\"wol_rec_dev_size\",\"data\":\"2\"}", app.next());
+
+            esp2.send("{\"cmd\":\"wol_rec_dev_recp\",\"data\":\"CC:28:AA:06:77:E9\",\"type\":\"esp8266\"}");
+            assertEquals("{\"cmd\":\"wol_rec_dev_recp\",\"data\":\"CC:28:AA:06:77:E9\"}", app.next());
+
+            // ESP8266 发的 wol 不转发
+            esp1.send("{\"cmd\":\"wol\",\"data\":\"CC:28:AA:06:77:E9\",\"type\":\"esp8266\"}");
+            esp1.send(heartbeat("esp8266"));
+            assertTrue(esp1.next().startsWith("{\"cmd\":\"heartbeat\""));
+
+            assertEquals(1, relay.getApps());
+            assertEquals(2, relay.getDevices());
+            assertEquals(1, relay.getWakes());
+            assertEquals(2, relay.getWakeDeliveries());
+            assertEquals(1, relay.getReceipts());
+        }
+    }
+
+    @Test
+    public void strictReadsRejectCoalescedMessages() throws Exception {
+        start(10, 30_000, 10_000);
+        try (Client lenient = new Client(relay)) {
+            lenient.next();
+            lenient.send(heartbeat("app") + heartbeat("app"));
+            assertNotNull(lenient.next());
+            assertNotNull(lenient.next());
+        }
+
+        relay.setStrictReads(true);
+        try (Client strict = new Client(relay)) {
+            strict.next();
+            strict.send(heartbeat("app"));
+            assertNotNull(strict.next());
+            strict.send(heartbeat("app") + heartbeat("app"));
+            assertTrue(strict.isClosedByPeer());
+        }
+    }
+
+    @Test
+    public void closesIdleConnections() throws Exception {
+        start(10, 200, 50);
+        try (Client idle = new Client(relay)) {
+            idle.next();
+            assertTrue(idle.isClosedByPeer());
+            assertEquals(1, relay.getTimeouts());
+        }
+    }
+
+    @Test
+    public void rejectsBeyondMaxConnections() throws Exception {
+        start(1, 30_000, 10_000);
+        try (Client first = new Client(relay); Client second = new Client(relay)) {
+            assertNotNull(first.next());
+            assertTrue(second.isClosedByPeer());
+            assertEquals(1, relay.getRejected());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package lsp.wol.core.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LongObjectMapTest {
+
+    @Test
+    public void keepsInsertionOrder() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(3, "c");
+        map.put(1, "a");
+        map.put(2, "b");
+        assertEquals("c", map.put(3, "c2"));
+        assertEquals("a", map.remove(1));
+        map.put(1, "a2");
+        assertEquals(Arrays.asList("c2", "b", "a2"), map.values());
+    }
+
+    @Test
+    public void matchesHashMapUnderRandomOperations() {
+        LongObjectMap<Long> map = new LongObjectMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // 键集中在小范围内，删除、覆盖与探测链冲突都会频繁出现
+            long key = random.nextInt(2000) * 0x1000_0000L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (long key = 0; key < 2000; key++) {
+            assertEquals(expected.get(key * 0x1000_0000L), map.get(key * 0x1000_0000L));
+        }
+        assertEquals(expected.size(), map.values().size());
+    }
+}
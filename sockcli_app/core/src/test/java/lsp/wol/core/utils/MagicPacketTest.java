@@ -0,0 +1,59 @@
+package lsp.wol.core.utils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import lsp.wol.core.model.MacAddress;
+
+import static org.junit.Assert.*;
+
+public class MagicPacketTest {
+
+    private static final byte[] MAC = {(byte) 0xCC, 0x28, (byte) 0xAA, 0x06, 0x77, (byte) 0xE9};
+
+    @Test
+    public void layoutMatchesWakeOnLanFormat() {
+        byte[] bytes = MagicPacket.compile(MacAddress.parse("CC:28:AA:06:77:E9"), null).toByteArray();
+        assertEquals(102, bytes.length);
+        for (int i = 0; i < 6; i++) {
+            assertEquals((byte) 0xff, bytes[i]);
+        }
+        for (int i = 1; i <= 16; i++) {
+            for (int j = 0; j < 6; j++) {
+                assertEquals(MAC[j], bytes[i * 6 + j]);
+            }
+        }
+    }
+
+    @Test
+    public void acceptsAllSeparatorStyles() {
+        byte[] expected = MagicPacket.compile(MacAddress.parse("CC:28:AA:06:77:E9"), null).toByteArray();
+        assertArrayEquals(expected, MagicPacket.compile(MacAddress.parse("cc-28-aa-06-77-e9"), null).toByteArray());
+        assertArrayEquals(expected, MagicPacket.compile(MacAddress.parse("CC28AA0677E9"), null).toByteArray());
+    }
+
+    @Test
+    public void appendsSecureOnPassword() {
+        MagicPacket packet = MagicPacket.compile(MacAddress.parse("CC:28:AA:06:77:E9"), "01:02:03:04:05:06");
+        assertTrue(packet.hasSecureOn());
+        ByteBuffer buffer = ByteBuffer.allocate(packet.length());
+        packet.writeTo(buffer);
+        assertEquals(108, buffer.position());
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i + 1, buffer.get(102 + i));
+        }
+    }
+
+    @Test
+    public void rejectsMalformedSecureOn() {
+        String[] invalid = {"01:02:03", "01:02:03:04:05:0G", ":010203040506"};
+        for (String password : invalid) {
+            try {
+                MagicPacket.compile(MacAddress.parse("CC:28:AA:06:77:E9"), password);
+                fail("accepted " + password);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+}
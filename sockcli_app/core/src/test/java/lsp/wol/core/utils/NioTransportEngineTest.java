@@ -0,0 +1,209 @@
+package lsp.wol.core.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * 在本地回环服务器上验证 NioTransportEngine
+ */
+public class NioTransportEngineTest {
+
+    private ServerSocket server;
+    private NioTransportEngine engine;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        engine = new NioTransportEngine();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        engine.close();
+        server.close();
+    }
+
+    @Test
+    public void readsWhenBytesArrive() throws Exception {
+        engine.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort()), 1000);
+        Socket peer = server.accept();
+
+        BlockingQueue<String> received = new ArrayBlockingQueue<>(4);
+        Thread loop = startLoop(new TransportEngine.Handler() {
+            @Override
+            public void onRead(ByteBuffer buffer) {
+                received.add(StandardCharsets.UTF_8.decode(buffer).toString());
+            }
+
+            @Override
+            public long onTick(long now) {
+                return 60_000;
+            }
+        });
+
+        peer.getOutputStream().write("hello".getBytes(StandardCharsets.UTF_8));
+        assertEquals("hello", received.poll(2, TimeUnit.SECONDS));
+
+        peer.close();
+        loop.join(2000);
+        assertFalse(engine.isOpen());
+    }
+
+    @Test
+    public void refusedAddressFailsOverImmediately() throws Exception {
+        InetSocketAddress refused;
+        try (ServerSocket closed = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            refused = new InetSocketAddress(InetAddress.getLoopbackAddress(), closed.getLocalPort());
+        }
+        InetSocketAddress live = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort());
+
+        long start = System.nanoTime();
+        // 错开时间很长，只有失败立即换下一个才能很快连上
+        assertEquals(live, engine.connect(Arrays.asList(refused, live), 10_000, 5_000));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+        assertTrue(engine.isOpen());
+        server.accept().close();
+    }
+
+    @Test
+    public void unansweredAddressRacesNext() throws Exception {
+        // TEST-NET 地址没有应答（或网络不可达立即失败），250 毫秒后下一个地址加入竞速
+        InetSocketAddress silent = new InetSocketAddress(InetAddress.getByName("192.0.2.1"), 9);
+        InetSocketAddress live = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort());
+
+        long start = System.nanoTime();
+        assertEquals(live, engine.connect(Arrays.asList(silent, live), 5_000, 250));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+        server.accept().close();
+    }
+
+    @Test
+    public void allAddressesFail() throws Exception {
+        InetSocketAddress refused;
+        try (ServerSocket closed = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            refused = new InetSocketAddress(InetAddress.getLoopbackAddress(), closed.getLocalPort());
+        }
+        try {
+            engine.connect(Arrays.asList(refused, refused), 2_000, 100);
+            fail();
+        } catch (IOException expected) {
+        }
+        assertFalse(engine.isOpen());
+    }
+
+    @Test
+    public void wakeupSendsWithoutPolling() throws Exception {
+        engine.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort()), 1000);
+        Socket peer = server.accept();
+
+        AtomicBoolean pending = new AtomicBoolean();
+        CountDownLatch idleTicks = new CountDownLatch(1);
+        startLoop(new TransportEngine.Handler() {
+            @Override
+            public void onRead(ByteBuffer buffer) {
+            }
+
+            @Override
+            public long onTick(long now) {
+                if (pending.getAndSet(false)) {
+                    try {
+                        engine.write(ByteBuffer.wrap("wol".getBytes(StandardCharsets.UTF_8)));
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                idleTicks.countDown();
+                // 空闲时一分钟才醒来一次
+                return 60_000;
+            }
+        });
+        assertTrue(idleTicks.await(1, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        pending.set(true);
+        engine.wakeup();
+
+        InputStream in = peer.getInputStream();
+        byte[] bytes = new byte[3];
+        int read = 0;
+        while (read < bytes.length) {
+            read += in.read(bytes, read, bytes.length - read);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals("wol", new String(bytes, StandardCharsets.UTF_8));
+        assertTrue("wakeup took " + elapsedMs + "ms", elapsedMs < 250);
+        peer.close();
+    }
+
+    @Test
+    public void largeWritesAreFlushedCompletely() throws Exception {
+        engine.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort()), 1000);
+        Socket peer = server.accept();
+
+        byte[] payload = new byte[4 * 1024 * 1024];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        AtomicBoolean written = new AtomicBoolean();
+        startLoop(new TransportEngine.Handler() {
+            @Override
+            public void onRead(ByteBuffer buffer) {
+            }
+
+            @Override
+            public long onTick(long now) {
+                if (!written.getAndSet(true)) {
+                    try {
+                        engine.write(ByteBuffer.wrap(payload));
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                return 60_000;
+            }
+        });
+
+        InputStream in = peer.getInputStream();
+        byte[] received = new byte[payload.length];
+        int read = 0;
+        while (read < received.length) {
+            int n = in.read(received, read, received.length - read);
+            assertTrue(n > 0);
+            read += n;
+        }
+        assertArrayEquals(payload, received);
+        OutputStream out = peer.getOutputStream();
+        out.close();
+    }
+
+    private Thread startLoop(TransportEngine.Handler handler) {
+        Thread thread = new Thread(() -> {
+            try {
+                engine.run(handler);
+            } catch (Exception ignored) {
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+}
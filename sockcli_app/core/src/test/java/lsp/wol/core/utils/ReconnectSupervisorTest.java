@@ -0,0 +1,228 @@
+package lsp.wol.core.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class ReconnectSupervisorTest {
+
+    private ReconnectSupervisor supervisor;
+
+    @After
+    public void tearDown() {
+        if (supervisor != null) {
+            supervisor.stop();
+        }
+    }
+
+    private static void awaitTrue(String message, BooleanSupplier condition, long timeoutMs)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail(message);
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void backoffDoublesWithJitterUpToMax() {
+        Backoff backoff = new Backoff(1000, 60_000, new Random(7));
+        assertEquals(0, backoff.ceilingMs(0));
+        assertEquals(1000, backoff.ceilingMs(1));
+        assertEquals(2000, backoff.ceilingMs(2));
+        assertEquals(32_000, backoff.ceilingMs(6));
+        assertEquals(60_000, backoff.ceilingMs(7));
+        assertEquals(60_000, backoff.ceilingMs(Integer.MAX_VALUE));
+
+        boolean spread = false;
+        long first = backoff.delayMs(3);
+        for (int i = 0; i < 1000; i++) {
+            long delay = backoff.delayMs(3);
+            assertTrue(delay >= 2000 && delay <= 4000);
+            spread |= delay != first;
+        }
+        assertTrue(spread);
+    }
+
+    /**
+     * 本地服务器接受连接后立即断开，统计断开到重新连上的耗时分布
+     */
+    @Test
+    public void measuresReconnectTimeAgainstDroppingServer() throws Exception {
+        ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort());
+        Thread dropper = new Thread(() -> {
+            while (!server.isClosed()) {
+                try {
+                    // 连上即断
+                    server.accept().close();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        dropper.setDaemon(true);
+        dropper.start();
+
+        supervisor = new ReconnectSupervisor(new EngineConnector(address), new Backoff(5, 40), 60_000);
+        supervisor.start();
+        try {
+            awaitTrue("too few sessions", () -> supervisor.getSessions() >= 20, 10_000);
+        } finally {
+            supervisor.stop();
+            server.close();
+        }
+
+        LatencyStats stats = supervisor.getReconnectStats();
+        assertTrue(stats.getCount() >= 19);
+        // 退避上限 40ms，重连耗时不应超出太多
+        assertTrue(stats.toString(), stats.getPercentileMs(0.99) <= 256);
+        assertEquals(0, supervisor.getFailures());
+    }
+
+    @Test
+    public void networkSignalCutsBackoffShort() throws Exception {
+        AtomicBoolean reachable = new AtomicBoolean();
+        CountDownLatch connected = new CountDownLatch(1);
+        supervisor = new ReconnectSupervisor(new FakeConnector() {
+            @Override
+            public void connect() throws Exception {
+                if (!reachable.get()) {
+                    throw new IOException("unreachable");
+                }
+                connected.countDown();
+            }
+        }, new Backoff(60_000, 60_000), 60_000);
+        supervisor.start();
+        awaitTrue("no failure", () -> supervisor.getFailures() == 1, 2000);
+
+        reachable.set(true);
+        supervisor.signal();
+        assertTrue(connected.await(1, TimeUnit.SECONDS));
+        assertEquals(2, supervisor.getAttempts());
+    }
+
+    @Test
+    public void waitsForNetworkBeforeConnecting() throws Exception {
+        AtomicBoolean network = new AtomicBoolean();
+        CountDownLatch connected = new CountDownLatch(1);
+        supervisor = new ReconnectSupervisor(new FakeConnector() {
+            @Override
+            public boolean isNetworkAvailable() {
+                return network.get();
+            }
+
+            @Override
+            public void connect() {
+                connected.countDown();
+            }
+        }, new Backoff(60_000, 60_000), 60_000);
+        supervisor.start();
+        assertFalse(connected.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(0, supervisor.getAttempts());
+
+        network.set(true);
+        supervisor.signal();
+        assertTrue(connected.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void restartReconnectsImmediately() throws Exception {
+        FakeConnector connector = new FakeConnector();
+        supervisor = new ReconnectSupervisor(connector, new Backoff(60_000, 60_000), 60_000);
+        supervisor.start();
+        awaitTrue("not connected", supervisor::isConnected, 2000);
+
+        // 连接时间很短，没有网络事件会退避 60 秒
+        supervisor.restart();
+        awaitTrue("not reconnected", () -> supervisor.getSessions() == 2, 1000);
+        assertEquals(1, supervisor.getReconnectStats().getCount());
+    }
+
+    /**
+     * 连接后阻塞到 abort
+     */
+    private static class FakeConnector implements ReconnectSupervisor.Connector {
+        private volatile CountDownLatch session = new CountDownLatch(1);
+
+        @Override
+        public boolean isNetworkAvailable() {
+            return true;
+        }
+
+        @Override
+        public void connect() throws Exception {
+        }
+
+        @Override
+        public void serve() throws Exception {
+            session.await();
+            session = new CountDownLatch(1);
+        }
+
+        @Override
+        public void abort() {
+            session.countDown();
+        }
+    }
+
+    /**
+     * 用 NioTransportEngine 连接，事件循环运行到对端断开
+     */
+    private static class EngineConnector implements ReconnectSupervisor.Connector {
+        private final InetSocketAddress address;
+        private volatile NioTransportEngine engine;
+
+        EngineConnector(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        @Override
+        public boolean isNetworkAvailable() {
+            return true;
+        }
+
+        @Override
+        public void connect() throws IOException {
+            NioTransportEngine newEngine = new NioTransportEngine();
+            newEngine.connect(address, 1000);
+            engine = newEngine;
+        }
+
+        @Override
+        public void serve() throws IOException {
+            engine.run(new TransportEngine.Handler() {
+                @Override
+                public void onRead(ByteBuffer buffer) {
+                }
+
+                @Override
+                public long onTick(long now) {
+                    return 60_000;
+                }
+            });
+        }
+
+        @Override
+        public void abort() {
+            NioTransportEngine current = engine;
+            if (current != null) {
+                current.close();
+            }
+        }
+    }
+}
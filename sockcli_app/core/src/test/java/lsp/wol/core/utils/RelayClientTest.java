@@ -0,0 +1,121 @@
+package lsp.wol.core.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lsp.wol.core.model.MacAddress;
+import lsp.wol.core.model.TcpData;
+import lsp.wol.core.platform.Log;
+import lsp.wol.core.platform.Logger;
+import lsp.wol.core.platform.NetworkMonitor;
+
+import static org.junit.Assert.*;
+
+public class RelayClientTest {
+
+    private LocalRelay relay;
+    private RelayClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        Log.setLogger(Logger.NONE);
+        relay = new LocalRelay(0, 10, 30_000, 10_000);
+        // 与 sockser 一样按一次读取解析一条消息，合并写出会被断开
+        relay.setStrictReads(true);
+        relay.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (client != null) {
+            client.stop();
+        }
+        relay.close();
+        Log.setLogger(Logger.STDERR);
+    }
+
+    @Test
+    public void silentServerIsNotAccepted() throws Exception {
+        // 端口上是别的服务：TCP 能连上，但不回复协议消息
+        try (ServerSocket silent = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            AtomicBoolean connected = new AtomicBoolean();
+            client = new RelayClient("127.0.0.1", silent.getLocalPort(), NetworkMonitor.ALWAYS,
+                    new RelayClient.Listener() {
+                        @Override
+                        public void onConnected(String host, String localIp) {
+                            connected.set(true);
+                        }
+                    });
+            client.start();
+            try (Socket accepted = silent.accept()) {
+                assertNotNull(accepted);
+                Thread.sleep(500);
+                assertFalse(client.isConnected());
+                assertFalse(connected.get());
+                assertEquals(0, client.getEndpointSelector().ranked().get(0).getSrttMs(), 0);
+            }
+        }
+    }
+
+    @Test
+    public void legacyServerRepliesToEveryWakeInBatch() throws Exception {
+        client = new RelayClient("127.0.0.1", relay.getPort(), NetworkMonitor.ALWAYS, new RelayClient.Listener() {
+        });
+        client.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!client.isConnected() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(client.isConnected());
+
+        List<MacAddress> macs = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            macs.add(MacAddress.of(0x020000000000L | i));
+        }
+        List<PendingRequest> requests = client.wakeAll(macs);
+        for (PendingRequest request : requests) {
+            // 没有 ESP8266 在线，回复 0
+            TcpData reply = request.reply().get(10, TimeUnit.SECONDS);
+            assertEquals("0", reply.data);
+        }
+        assertEquals(30, relay.getWakes());
+        assertTrue(client.isConnected());
+    }
+
+    @Test
+    public void restartFromOtherThreadReconnects() throws Exception {
+        AtomicInteger connects = new AtomicInteger();
+        client = new RelayClient("127.0.0.1", relay.getPort(), NetworkMonitor.ALWAYS, new RelayClient.Listener() {
+            @Override
+            public void onConnected(String host, String localIp) {
+                connects.incrementAndGet();
+            }
+        });
+        client.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (connects.get() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, connects.get());
+
+        // 网络回调线程上重启，清理在连接线程进行
+        Thread callback = new Thread(client::restart);
+        callback.start();
+        callback.join();
+        while (connects.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, connects.get());
+        assertTrue(client.isConnected());
+    }
+}
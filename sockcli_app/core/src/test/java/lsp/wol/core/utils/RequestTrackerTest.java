@@ -0,0 +1,152 @@
+package lsp.wol.core.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import lsp.wol.core.model.TcpData;
+
+import static org.junit.Assert.*;
+
+public class RequestTrackerTest {
+
+    private long nanos = 0;
+    private final RequestTracker tracker = new RequestTracker(() -> nanos, 1000, 5000);
+
+    private static TcpData message(String cmd, String data) {
+        TcpData tcpData = new TcpData();
+        tcpData.cmd = cmd;
+        tcpData.data = data;
+        return tcpData;
+    }
+
+    private PendingRequest send(TcpData tcpData) {
+        PendingRequest request = tracker.register(tcpData);
+        tracker.markSent(tcpData);
+        return request;
+    }
+
+    private void advanceMs(long ms) {
+        nanos += TimeUnit.MILLISECONDS.toNanos(ms);
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) {
+        try {
+            future.get();
+            fail("expected failure");
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Test
+    public void repliesWithoutIdMatchInSendOrder() throws Exception {
+        TcpData first = message("wol", "AA:AA:AA:AA:AA:01");
+        TcpData second = message("wol", "AA:AA:AA:AA:AA:02");
+        PendingRequest a = send(first);
+        PendingRequest b = send(second);
+        assertNotEquals(first.id, second.id);
+
+        advanceMs(20);
+        assertTrue(tracker.onMessage(message("wol_rec_dev_size", "1")));
+        assertTrue(a.reply().isDone());
+        assertFalse(b.reply().isDone());
+        assertEquals(20, a.getReplyLatencyMs());
+
+        // 回执按 MAC 匹配，与顺序无关
+        advanceMs(30);
+        assertTrue(tracker.onMessage(message("wol_rec_dev_recp", "aa-aa-aa-aa-aa-02")));
+        assertTrue(b.receipt().isDone());
+        assertFalse(a.receipt().isDone());
+        assertEquals(50, b.getReceiptLatencyMs());
+        assertFalse(tracker.onMessage(message("wol_rec_dev_recp", "AA:AA:AA:AA:AA:03")));
+    }
+
+    @Test
+    public void repliesWithIdMatchById() throws Exception {
+        PendingRequest a = send(message("heartbeat", "1"));
+        PendingRequest b = send(message("heartbeat", "2"));
+        TcpData reply = message("heartbeat", "x");
+        reply.id = b.getId();
+        assertTrue(tracker.onMessage(reply));
+        assertSame(reply, b.reply().get());
+        assertFalse(a.reply().isDone());
+    }
+
+    @Test
+    public void noOnlineDeviceFailsReceiptImmediately() {
+        PendingRequest request = send(message("wol", "AA:AA:AA:AA:AA:01"));
+        tracker.onMessage(message("wol_rec_dev_size", "0"));
+        assertTrue(request.reply().isDone());
+        assertTrue(failure(request.receipt()) instanceof IllegalStateException);
+        assertEquals(0, tracker.pendingCount());
+    }
+
+    @Test
+    public void expiresRepliesAndReceiptsSeparately() {
+        PendingRequest request = send(message("wol", "AA:AA:AA:AA:AA:01"));
+        assertEquals(1001, tracker.expire());
+
+        advanceMs(1000);
+        assertEquals(4001, tracker.expire());
+        assertTrue(failure(request.reply()) instanceof TimeoutException);
+        assertFalse(request.receipt().isDone());
+
+        advanceMs(4000);
+        assertEquals(Long.MAX_VALUE, tracker.expire());
+        assertTrue(failure(request.receipt()) instanceof TimeoutException);
+        assertEquals(1, tracker.getLatencyStats().get("wol").getTimeouts());
+        assertEquals(1, tracker.getLatencyStats().get("wol_rec_dev_recp").getTimeouts());
+    }
+
+    @Test
+    public void queuedRequestStartsTimingWhenSent() {
+        TcpData queued = message("wol", "AA:AA:AA:AA:AA:01");
+        PendingRequest request = tracker.register(queued);
+        // 排队期间不计时，也不匹配回复
+        advanceMs(3000);
+        assertEquals(Long.MAX_VALUE, tracker.expire());
+        assertFalse(request.reply().isDone());
+        assertFalse(tracker.onMessage(message("wol_rec_dev_size", "1")));
+
+        tracker.markSent(queued);
+        advanceMs(999);
+        assertEquals(2, tracker.expire());
+        advanceMs(1);
+        tracker.expire();
+        assertTrue(failure(request.reply()) instanceof TimeoutException);
+    }
+
+    @Test
+    public void failAllCompletesEveryPendingRequest() {
+        PendingRequest wol = send(message("wol", "AA:AA:AA:AA:AA:01"));
+        PendingRequest heartbeat = tracker.register(message("heartbeat", "1"));
+        tracker.failAll(new IOException("closed"));
+        assertTrue(failure(wol.reply()) instanceof IOException);
+        assertTrue(failure(wol.receipt()) instanceof IOException);
+        assertTrue(failure(heartbeat.reply()) instanceof IOException);
+        assertEquals(0, tracker.pendingCount());
+    }
+
+    @Test
+    public void recordsLatencyPerCommand() {
+        for (int i = 1; i <= 10; i++) {
+            send(message("heartbeat", ""));
+            advanceMs(i * 10);
+            tracker.onMessage(message("heartbeat", ""));
+        }
+        LatencyStats stats = tracker.getLatencyStats().get("heartbeat");
+        assertEquals(10, stats.getCount());
+        assertEquals(55, stats.getAverageMs(), 0.001);
+        assertEquals(100, stats.getMaxMs(), 0.001);
+        // 50ms 落在 (32, 64] 分桶
+        assertEquals(64, stats.getPercentileMs(0.5), 0.001);
+    }
+}
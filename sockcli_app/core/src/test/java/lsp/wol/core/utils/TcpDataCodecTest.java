@@ -0,0 +1,139 @@
+package lsp.wol.core.utils;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import lsp.wol.core.model.Command;
+import lsp.wol.core.model.TcpData;
+
+import static org.junit.Assert.*;
+
+public class TcpDataCodecTest {
+
+    private static byte[] encode(TcpDataCodec codec, TcpData tcpData) {
+        ByteBuffer out = ByteBuffer.allocate(1024);
+        codec.encode(tcpData, out);
+        byte[] bytes = new byte[out.position()];
+        out.flip();
+        out.get(bytes);
+        return bytes;
+    }
+
+    private static TcpData decode(TcpDataCodec codec, byte[] bytes) throws IOException {
+        // 帧位于更大的缓冲区中间
+        byte[] padded = new byte[bytes.length + 8];
+        System.arraycopy(bytes, 0, padded, 3, bytes.length);
+        return codec.decode(padded, 3, bytes.length);
+    }
+
+    private static TcpData sample() {
+        TcpData tcpData = new TcpData(Command.WOL, "CC:28:AA:06:77:E9");
+        tcpData.host = "192.168.1.6";
+        tcpData.id = "42";
+        return tcpData;
+    }
+
+    @Test
+    public void jsonMatchesGsonOutput() {
+        Gson gson = new Gson();
+        TcpData tcpData = sample();
+        tcpData.data = "引号\" 反斜杠\\ 换行\n 控制\u0001 表情😀";
+        String json = new String(encode(new TcpDataCodec(), tcpData), StandardCharsets.UTF_8);
+        TcpData parsed = gson.fromJson(json, TcpData.class);
+        assertEquals(tcpData.cmd, parsed.cmd);
+        assertEquals(tcpData.data, parsed.data);
+        assertEquals(tcpData.host, parsed.host);
+        assertEquals(tcpData.type, parsed.type);
+        assertEquals(tcpData.id, parsed.id);
+
+        // 没有特殊字符时与 Gson 逐字节一致
+        TcpData plain = sample();
+        assertEquals(gson.toJson(plain), new String(encode(new TcpDataCodec(), plain), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void decodesServerMessages() throws IOException {
+        TcpDataCodec codec = new TcpDataCodec();
+        TcpData heartbeat = decode(codec,
+                "{\"cmd\":\"heartbeat\",\"data\":\"1700000000000\"}".getBytes(StandardCharsets.UTF_8));
+        assertSame(Command.HEARTBEAT, heartbeat.command());
+        assertSame(Command.HEARTBEAT.wireName, heartbeat.cmd);
+        assertEquals("1700000000000", heartbeat.data);
+
+        TcpData gsonEncoded = decode(codec, new Gson().toJson(sample()).getBytes(StandardCharsets.UTF_8));
+        assertSame(Command.WOL, gsonEncoded.command());
+        assertEquals("192.168.1.6", gsonEncoded.host);
+        assertEquals("42", gsonEncoded.id);
+    }
+
+    @Test
+    public void toleratesUnknownFieldsAndValues() throws IOException {
+        TcpData tcpData = decode(new TcpDataCodec(), (" { \"extra\" : {\"a\":[1,\"}\"]}, \"cmd\" : \"sho\\u0077\" ,"
+                + " \"data\" : 3 , \"host\" : null , \"id\":\"a\\\"b\" } ").getBytes(StandardCharsets.UTF_8));
+        assertSame(Command.UNKNOWN, tcpData.command());
+        assertEquals("show", tcpData.cmd);
+        assertEquals("3", tcpData.data);
+        assertNull(tcpData.host);
+        assertEquals("a\"b", tcpData.id);
+
+        TcpData escapedKnown = decode(new TcpDataCodec(),
+                "{\"cmd\":\"w\\u006fl\"}".getBytes(StandardCharsets.UTF_8));
+        assertSame(Command.WOL, escapedKnown.command());
+    }
+
+    @Test
+    public void rejectsMalformedJson() {
+        String[] invalid = {"", "{", "{\"cmd\"}", "{\"cmd\":\"wol\"", "[\"cmd\"]", "{\"cmd\":\"a\\q\"}"};
+        for (String text : invalid) {
+            try {
+                decode(new TcpDataCodec(), text.getBytes(StandardCharsets.UTF_8));
+                fail("accepted " + text);
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void binaryRoundTrip() throws IOException {
+        TcpDataCodec codec = new TcpDataCodec();
+        codec.setEncoding(TcpDataCodec.Encoding.BINARY);
+        TcpData tcpData = sample();
+        tcpData.data = "设备 😀";
+        byte[] bytes = encode(codec, tcpData);
+        assertTrue(bytes.length < new Gson().toJson(tcpData).getBytes(StandardCharsets.UTF_8).length);
+
+        TcpData decoded = decode(codec, bytes);
+        assertSame(Command.WOL, decoded.command());
+        assertEquals(tcpData.data, decoded.data);
+        assertEquals(tcpData.host, decoded.host);
+        assertEquals(tcpData.type, decoded.type);
+        assertEquals(tcpData.id, decoded.id);
+
+        TcpData custom = new TcpData();
+        custom.cmd = "custom";
+        custom.type = null;
+        TcpData decodedCustom = decode(codec, encode(codec, custom));
+        assertEquals("custom", decodedCustom.cmd);
+        assertNull(decodedCustom.data);
+        assertNull(decodedCustom.type);
+    }
+
+    @Test
+    public void rejectsTruncatedBinary() {
+        TcpDataCodec codec = new TcpDataCodec();
+        codec.setEncoding(TcpDataCodec.Encoding.BINARY);
+        byte[] bytes = encode(codec, sample());
+        for (int length = 0; length < bytes.length; length++) {
+            try {
+                codec.decode(bytes, 0, length);
+                fail("accepted " + length + " bytes");
+            } catch (IOException expected) {
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package lsp.wol.core.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TimerWheelTest {
+
+    private long now = 1_000_000;
+
+    private TimerWheel<String> wheel(int slots) {
+        return new TimerWheel<>(1000, slots, () -> now);
+    }
+
+    @Test
+    public void sameTickExpiresAsOneBatch() {
+        TimerWheel<String> wheel = wheel(16);
+        wheel.schedule("a", now + 5_000);
+        wheel.schedule("b", now + 5_400);
+        wheel.schedule("c", now + 6_000);
+
+        assertTrue(wheel.advance(now + 4_999).isEmpty());
+        List<String> batch = wheel.advance(now + 5_999);
+        Collections.sort(batch);
+        assertEquals(List.of("a", "b"), batch);
+        assertEquals(List.of("c"), wheel.advance(now + 6_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void deadlinesBeyondOneRound() {
+        TimerWheel<String> wheel = wheel(16);
+        // 同一槽位，相差一圈和两圈
+        wheel.schedule("near", now + 3_000);
+        wheel.schedule("far", now + 19_000);
+        wheel.schedule("farther", now + 35_000);
+
+        assertEquals(List.of("near"), wheel.advance(now + 3_000));
+        assertTrue(wheel.advance(now + 18_000).isEmpty());
+        assertEquals(List.of("far"), wheel.advance(now + 19_000));
+        assertEquals(List.of("farther"), wheel.advance(now + 35_000));
+    }
+
+    @Test
+    public void catchesUpAfterLongPause() {
+        TimerWheel<String> wheel = wheel(16);
+        List<String> expected = new ArrayList<>();
+        for (int i = 1; i <= 40; i++) {
+            wheel.schedule("t" + i, now + i * 1_000L);
+            expected.add("t" + i);
+        }
+        wheel.schedule("later", now + 200_000);
+        // 进程被挂起，一次推进多圈：只检查每个槽位一次，全部过期任务一起到期
+        List<String> batch = wheel.advance(now + 100_000);
+        assertEquals(40, batch.size());
+        assertTrue(batch.containsAll(expected));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    public void cancelAndPastDeadline() {
+        TimerWheel<String> wheel = wheel(16);
+        TimerWheel.Timeout<String> a = wheel.schedule("a", now + 2_000);
+        wheel.schedule("b", now + 2_000);
+        assertTrue(wheel.cancel(a));
+        assertFalse(wheel.cancel(a));
+        assertEquals(List.of("b"), wheel.advance(now + 2_000));
+
+        // 已过期的任务在下一个 tick 到期
+        wheel.schedule("late", now - 60_000);
+        assertEquals(List.of("late"), wheel.advance(now + 3_000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void slotsMustBePowerOfTwo() {
+        wheel(100);
+    }
+}
@@ -0,0 +1,272 @@
+package lsp.wol.core.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import lsp.wol.core.metrics.Gauge;
+import lsp.wol.core.metrics.MetricsRegistry;
+import lsp.wol.core.model.Command;
+import lsp.wol.core.model.Device;
+import lsp.wol.core.model.MacAddress;
+import lsp.wol.core.model.TcpData;
+import lsp.wol.core.model.WakeResult;
+
+import static org.junit.Assert.*;
+
+public class WakeOutboxTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private long now = 1_000_000;
+
+    // 可控的服务器连接：记录每一批发出的命令，回复由测试完成
+    private static final class FakeRelay implements WakeOutbox.Relay {
+        boolean connected;
+        final List<List<PendingRequest>> batches = new ArrayList<>();
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+
+        @Override
+        public List<PendingRequest> wakeAll(List<MacAddress> macAddresses) {
+            List<PendingRequest> batch = new ArrayList<>();
+            for (MacAddress mac : macAddresses) {
+                batch.add(new PendingRequest(String.valueOf(batch.size()), Command.WOL.wireName,
+                        Command.WOL_DEVICE_SIZE, mac, 0, 0, 0));
+            }
+            batches.add(batch);
+            return batch;
+        }
+    }
+
+    private static final class FakeLan implements WakeOutbox.LanSender {
+        final List<MacAddress> sent = new ArrayList<>();
+        boolean fail;
+
+        @Override
+        public CompletableFuture<List<WakeResult>> wakeAll(List<MacAddress> macAddresses) {
+            List<WakeResult> results = new ArrayList<>();
+            for (MacAddress mac : macAddresses) {
+                sent.add(mac);
+                WakeResult result = new WakeResult(new Device(mac.toString(), mac));
+                if (fail) {
+                    result.failures = 1;
+                } else {
+                    result.packetsSent = 1;
+                }
+                results.add(result);
+            }
+            return CompletableFuture.completedFuture(results);
+        }
+    }
+
+    private static MacAddress mac(int i) {
+        return MacAddress.of(0x001122330000L | i);
+    }
+
+    private static TcpData reply(String data) {
+        TcpData tcpData = new TcpData();
+        tcpData.cmd = Command.WOL_DEVICE_SIZE.wireName;
+        tcpData.data = data;
+        return tcpData;
+    }
+
+    private WakeOutbox open(File dir, FakeRelay relay, FakeLan lan, int capacity) {
+        return new WakeOutbox(dir, relay, lan, () -> now, capacity, 10_000, 5_000);
+    }
+
+    @Test
+    public void queuedWhileOfflineAndFlushedAsOneBatch() throws Exception {
+        FakeRelay relay = new FakeRelay();
+        FakeLan lan = new FakeLan();
+        WakeOutbox outbox = open(folder.newFolder(), relay, lan, 64);
+
+        WakeOutbox.Entry a = outbox.enqueue(mac(1));
+        WakeOutbox.Entry b = outbox.enqueue(mac(2));
+        assertEquals(WakeOutbox.State.QUEUED, a.getState());
+        assertEquals(2, outbox.getPendingCount());
+        assertTrue(relay.batches.isEmpty());
+
+        relay.connected = true;
+        outbox.flush();
+        assertEquals(1, relay.batches.size());
+        assertEquals(2, relay.batches.get(0).size());
+        assertEquals(WakeOutbox.State.SENDING, a.getState());
+
+        PendingRequest first = relay.batches.get(0).get(0);
+        first.completeReply(reply("1"), 0);
+        assertEquals(WakeOutbox.State.RELAYED, a.getState());
+        assertEquals(1, a.getReceivers());
+        first.completeReceipt(reply(mac(1).toString()), 0);
+        assertEquals(WakeOutbox.State.DELIVERED, a.getState());
+
+        // 断开：重新排队，下次连上再发
+        relay.batches.get(0).get(1).fail(new java.io.IOException("closed"));
+        assertEquals(WakeOutbox.State.QUEUED, b.getState());
+        outbox.tick();
+        assertEquals(2, relay.batches.size());
+        assertEquals(2, b.getAttempts());
+        assertTrue(lan.sent.isEmpty());
+    }
+
+    @Test
+    public void enqueueAllSendsOneBatch() throws Exception {
+        FakeRelay relay = new FakeRelay();
+        relay.connected = true;
+        WakeOutbox outbox = open(folder.newFolder(), relay, new FakeLan(), 64);
+
+        List<WakeOutbox.Entry> entries = outbox.enqueueAll(List.of(mac(1), mac(2), mac(1)));
+        assertEquals(3, entries.size());
+        assertSame(entries.get(0), entries.get(2));
+        assertEquals(1, relay.batches.size());
+        assertEquals(2, relay.batches.get(0).size());
+    }
+
+    @Test
+    public void dedupesWithinWindow() throws Exception {
+        FakeRelay relay = new FakeRelay();
+        relay.connected = true;
+        WakeOutbox outbox = open(folder.newFolder(), relay, new FakeLan(), 64);
+
+        WakeOutbox.Entry a = outbox.enqueue(mac(1));
+        assertSame(a, outbox.enqueue(mac(1)));
+        assertEquals(1, relay.batches.size());
+        relay.batches.get(0).get(0).completeReply(reply("1"), 0);
+
+        // 窗口内即使已转发也不重复发送
+        now += 9_000;
+        assertSame(a, outbox.enqueue(mac(1)));
+        now += 1_000;
+        WakeOutbox.Entry again = outbox.enqueue(mac(1));
+        assertNotSame(a, again);
+        assertEquals(2, relay.batches.size());
+    }
+
+    @Test
+    public void fallsBackToLanAfterDeadline() throws Exception {
+        FakeRelay relay = new FakeRelay();
+        FakeLan lan = new FakeLan();
+        WakeOutbox outbox = open(folder.newFolder(), relay, lan, 64);
+
+        WakeOutbox.Entry a = outbox.enqueue(mac(1));
+        now += 4_000;
+        outbox.tick();
+        assertTrue(lan.sent.isEmpty());
+        now += 1_000;
+        outbox.tick();
+        assertEquals(List.of(mac(1)), lan.sent);
+        assertEquals(WakeOutbox.State.LAN_SENT, a.getState());
+
+        // 服务器长时间不可达时新命令立即广播
+        WakeOutbox.Entry b = outbox.enqueue(mac(2));
+        assertEquals(WakeOutbox.State.LAN_SENT, b.getState());
+        assertEquals(0, outbox.getPendingCount());
+    }
+
+    @Test
+    public void noReceiverFallsBackToLan() throws Exception {
+        FakeRelay relay = new FakeRelay();
+        relay.connected = true;
+        FakeLan lan = new FakeLan();
+        lan.fail = true;
+        WakeOutbox outbox = open(folder.newFolder(), relay, lan, 64);
+
+        WakeOutbox.Entry a = outbox.enqueue(mac(1));
+        relay.batches.get(0).get(0).completeReply(reply("0"), 0);
+        assertEquals(List.of(mac(1)), lan.sent);
+        assertEquals(WakeOutbox.State.FAILED, a.getState());
+    }
+
+    @Test
+    public void boundedDropsOldestQueued() throws Exception {
+        WakeOutbox outbox = open(folder.newFolder(), new FakeRelay(), new FakeLan(), 2);
+        WakeOutbox.Entry a = outbox.enqueue(mac(1));
+        outbox.enqueue(mac(2));
+        outbox.enqueue(mac(3));
+        assertEquals(WakeOutbox.State.DROPPED, a.getState());
+        assertEquals(2, outbox.getPendingCount());
+    }
+
+    @Test
+    public void boundCoversCommandsAwaitingReply() throws Exception {
+        FakeRelay relay = new FakeRelay();
+        relay.connected = true;
+        WakeOutbox outbox = open(folder.newFolder(), relay, new FakeLan(), 2);
+        WakeOutbox.Entry a = outbox.enqueue(mac(1));
+        WakeOutbox.Entry b = outbox.enqueue(mac(2));
+        assertEquals(WakeOutbox.State.SENDING, a.getState());
+
+        // 没有等待发送的命令时丢弃最早一条等待回复的
+        WakeOutbox.Entry c = outbox.enqueue(mac(3));
+        assertEquals(WakeOutbox.State.DROPPED, a.getState());
+        assertEquals(WakeOutbox.State.SENDING, b.getState());
+        assertEquals(WakeOutbox.State.SENDING, c.getState());
+        assertEquals(2, outbox.getPendingCount());
+
+        // 被丢弃后的回复不再改变状态
+        relay.batches.get(0).get(0).completeReply(reply("1"), 0);
+        assertEquals(WakeOutbox.State.DROPPED, a.getState());
+        assertEquals(2, outbox.getPendingCount());
+    }
+
+    @Test
+    public void pendingCommandsSurviveReopen() throws Exception {
+        File dir = folder.newFolder();
+        FakeRelay relay = new FakeRelay();
+        WakeOutbox outbox = open(dir, relay, new FakeLan(), 64);
+        for (int i = 0; i < 100; i++) {
+            now += 20_000;
+            relay.connected = false;
+            outbox.enqueue(mac(i % 3));
+            relay.connected = true;
+            outbox.flush();
+            relay.batches.get(relay.batches.size() - 1).get(0).completeReply(reply("1"), 0);
+        }
+        relay.connected = false;
+        outbox.enqueue(mac(7));
+        // 已交给连接但还没有回复的命令重启后重发
+        relay.connected = true;
+        outbox.enqueue(mac(8));
+
+        FakeRelay after = new FakeRelay();
+        WakeOutbox reopened = open(dir, after, new FakeLan(), 64);
+        assertEquals(2, reopened.getPendingCount());
+        assertEquals(WakeOutbox.State.QUEUED, reopened.get(mac(8)).getState());
+        assertEquals(WakeOutbox.State.RELAYED, reopened.get(mac(1)).getState());
+        after.connected = true;
+        reopened.flush();
+        assertEquals(2, after.batches.get(0).size());
+
+        // 编号继续递增
+        assertTrue(reopened.enqueue(mac(9)).getId() > reopened.get(mac(8)).getId());
+    }
+
+    @Test
+    public void closeRemovesPendingFromGauge() throws Exception {
+        Gauge gauge = MetricsRegistry.shared().gauge("outbox.pending");
+        long before = gauge.get();
+        File dir = folder.newFolder();
+        WakeOutbox outbox = open(dir, new FakeRelay(), new FakeLan(), 64);
+        outbox.enqueue(mac(1));
+        outbox.enqueue(mac(2));
+        assertEquals(before + 2, gauge.get());
+        outbox.close();
+        outbox.close();
+        assertEquals(before, gauge.get());
+
+        // 重新打开时载入的待发送命令同样在关闭时撤销
+        WakeOutbox reopened = open(dir, new FakeRelay(), new FakeLan(), 64);
+        assertEquals(before + 2, gauge.get());
+        reopened.close();
+        assertEquals(before, gauge.get());
+    }
+}
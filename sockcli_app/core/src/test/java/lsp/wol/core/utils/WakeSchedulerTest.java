@@ -0,0 +1,131 @@
+package lsp.wol.core.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import lsp.wol.core.model.Device;
+import lsp.wol.core.model.MacAddress;
+import lsp.wol.core.model.WakeSchedule;
+
+import static org.junit.Assert.*;
+
+public class WakeSchedulerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+    // 2026-10-19 周一 07:00
+    private long now = ZonedDateTime.of(2026, 10, 19, 7, 0, 0, 0, ZONE).toInstant().toEpochMilli();
+    private final List<Device> devices = new ArrayList<>();
+    private final List<List<Device>> sent = new ArrayList<>();
+
+    private static MacAddress mac(int i) {
+        return MacAddress.of(0x001122330000L | i);
+    }
+
+    private WakeScheduler open(File dir) {
+        return new WakeScheduler(new ScheduleStore(dir), () -> new ArrayList<>(devices), sent::add,
+                new TimerWheel<>(WakeScheduler.TICK_MS, 64, () -> now), () -> now, ZONE);
+    }
+
+    private void advanceTo(WakeScheduler scheduler, long time) {
+        // 按 tick 推进，与时间轮线程一样
+        while (now < time) {
+            now = Math.min(time, now + WakeScheduler.TICK_MS);
+            scheduler.advance(now);
+        }
+    }
+
+    @Test
+    public void dueTogetherSentAsOneBatch() throws Exception {
+        devices.add(new Device("build-1", mac(1), "构建机"));
+        devices.add(new Device("build-2", mac(2), "构建机"));
+        devices.add(new Device("nas", mac(3)));
+        WakeScheduler scheduler = open(folder.newFolder());
+        scheduler.add(WakeSchedule.cron(null, "构建机", "30 7 * * 1-5"));
+        scheduler.add(WakeSchedule.cron(mac(2), null, "30 7 * * *"));
+        scheduler.add(WakeSchedule.once(mac(3), null, now + 30 * 60_000));
+
+        advanceTo(scheduler, now + 30 * 60_000 - 1);
+        assertTrue(sent.isEmpty());
+        advanceTo(scheduler, now + 1_000);
+        assertEquals(1, sent.size());
+        // 按 MAC 去重
+        assertEquals(3, sent.get(0).size());
+
+        // 一次性的已停用，cron 挂到下一个工作日
+        List<WakeSchedule> all = scheduler.getAll();
+        assertFalse(all.get(2).enabled);
+        assertEquals(now, all.get(0).lastRunAt);
+        long tomorrow = ZonedDateTime.of(2026, 10, 20, 7, 30, 0, 0, ZONE).toInstant().toEpochMilli();
+        assertEquals(tomorrow, scheduler.nextRunAt(all.get(0)));
+    }
+
+    @Test
+    public void removedScheduleDoesNotFire() throws Exception {
+        devices.add(new Device("a", mac(1)));
+        WakeScheduler scheduler = open(folder.newFolder());
+        WakeSchedule schedule = scheduler.add(WakeSchedule.once(mac(1), null, now + 5_000));
+        assertTrue(scheduler.remove(schedule.id));
+        assertFalse(scheduler.remove(schedule.id));
+        advanceTo(scheduler, now + 10_000);
+        assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    public void persistedAcrossRestart() throws Exception {
+        File dir = folder.newFolder();
+        WakeScheduler scheduler = open(dir);
+        scheduler.add(WakeSchedule.cron(mac(1), null, "0 8 * * *"));
+        scheduler.add(WakeSchedule.once(mac(2), null, now + 60_000));
+        scheduler.add(WakeSchedule.once(mac(3), null, now + 120_000));
+        scheduler.close();
+
+        // 进程在第二条之后 20 分钟才重新启动：错过太久的一次性唤醒不再执行
+        now += 60_000 + WakeScheduler.MISSED_GRACE_MS + 1;
+        WakeScheduler reopened = open(dir);
+        List<WakeSchedule> all = reopened.getAll();
+        assertEquals(3, all.size());
+        assertEquals(mac(1), all.get(0).macAddress);
+        assertFalse(all.get(1).enabled);
+        assertTrue(all.get(2).enabled);
+
+        advanceTo(reopened, now + 1_000);
+        assertEquals(1, sent.size());
+        assertEquals(mac(3), sent.get(0).get(0).macAddress);
+        // 编号继续递增
+        assertEquals(4, reopened.add(WakeSchedule.cron(null, "g", "@daily")).id);
+    }
+
+    @Test
+    public void rejectsInvalid() throws Exception {
+        WakeScheduler scheduler = open(folder.newFolder());
+        try {
+            scheduler.add(WakeSchedule.cron(null, null, "0 8 * * *"));
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // 没有目标
+        }
+        try {
+            scheduler.add(WakeSchedule.cron(mac(1), null, "0 25 * * *"));
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // 格式不正确
+        }
+        try {
+            scheduler.add(WakeSchedule.once(mac(1), null, now - 1));
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // 时间已过
+        }
+        assertTrue(scheduler.getAll().isEmpty());
+    }
+}
@@ -0,0 +1,161 @@
+package lsp.wol.core.utils;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lsp.wol.core.model.Device;
+import lsp.wol.core.model.MacAddress;
+
+import static org.junit.Assert.*;
+
+public class WakeVerifierTest {
+
+    private static final String ARP = "IP address       HW type     Flags       HW address            Mask     Device\n"
+            + "127.0.0.1        0x1         0x2         00:11:22:33:44:55     *        lo\n";
+
+    private static WakeVerifier.Options options(int... ports) {
+        WakeVerifier.Options options = new WakeVerifier.Options();
+        options.ports = ports;
+        options.initialIntervalMs = 20;
+        options.maxIntervalMs = 100;
+        options.connectTimeoutMs = 200;
+        options.resendAfterMs = 150;
+        options.timeoutMs = 5000;
+        return options;
+    }
+
+    private static Device device(int i, String host) {
+        Device device = new Device("pc" + i, MacAddress.of(0x001122330000L | i));
+        device.host = host;
+        return device;
+    }
+
+    @Test
+    public void listeningPortMeansUp() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+             WakeVerifier verifier = new WakeVerifier(options(server.getLocalPort()), d -> fail("不应重发"))) {
+            WakeVerifier.Result result = verifier.verify(device(1, "127.0.0.1")).get(5, TimeUnit.SECONDS);
+            assertTrue(result.up);
+            assertEquals("tcp:" + server.getLocalPort(), result.via);
+            assertTrue(result.timeToUpMs >= 0);
+            assertEquals(0, result.resends);
+        }
+    }
+
+    @Test
+    public void refusedConnectionMeansUp() throws Exception {
+        int port;
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            port = server.getLocalPort();
+        }
+        try (WakeVerifier verifier = new WakeVerifier(options(port), d -> { })) {
+            WakeVerifier.Result result = verifier.verify(device(1, "127.0.0.1")).get(5, TimeUnit.SECONDS);
+            assertTrue(result.up);
+        }
+    }
+
+    @Test
+    public void resendsUpToLimitThenTimesOut() throws Exception {
+        AtomicInteger resends = new AtomicInteger();
+        WakeVerifier.Options options = options(9);
+        options.timeoutMs = 700;
+        // 没有地址，ARP 表中也没有：只会重发，直到超时
+        try (WakeVerifier verifier = new WakeVerifier(options, d -> resends.incrementAndGet(),
+                () -> ArpTable.read(() -> new StringReader("")))) {
+            WakeVerifier.Result result = verifier.verify(device(1, null)).get(5, TimeUnit.SECONDS);
+            assertFalse(result.up);
+            assertEquals(-1, result.timeToUpMs);
+            assertEquals(2, result.resends);
+            assertEquals(2, resends.get());
+            assertEquals(0, result.probes);
+            assertTrue(result.isUnknown());
+        }
+    }
+
+    @Test
+    public void addressFromArpTable() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+             WakeVerifier verifier = new WakeVerifier(options(server.getLocalPort()), d -> { },
+                     () -> ArpTable.read(() -> new StringReader(ARP)))) {
+            Device device = new Device("nas", MacAddress.parse("00:11:22:33:44:55"));
+            assertTrue(verifier.verify(device).get(5, TimeUnit.SECONDS).up);
+        }
+    }
+
+    @Test
+    public void hundredsOfDevicesWithBoundedSockets() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 1000, InetAddress.getLoopbackAddress())) {
+            // 接受连接，避免积压队列满后连接超时
+            Thread acceptor = new Thread(() -> {
+                try {
+                    while (true) {
+                        server.accept().close();
+                    }
+                } catch (Exception ignored) {
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            WakeVerifier.Options options = options(server.getLocalPort());
+            options.maxSockets = 16;
+            try (WakeVerifier verifier = new WakeVerifier(options, d -> { })) {
+                List<Device> devices = new ArrayList<>();
+                for (int i = 0; i < 300; i++) {
+                    devices.add(device(i, "127.0.0.1"));
+                }
+                List<CompletableFuture<WakeVerifier.Result>> futures = verifier.verifyAll(devices);
+                for (int i = 0; i < futures.size(); i++) {
+                    WakeVerifier.Result result = futures.get(i).get(10, TimeUnit.SECONDS);
+                    assertTrue(result.up);
+                    assertSame(devices.get(i), result.device);
+                }
+                assertEquals(0, verifier.getInFlight());
+            }
+        }
+    }
+
+    @Test
+    public void resendsThroughPerCheckResender() throws Exception {
+        AtomicInteger lan = new AtomicInteger();
+        AtomicInteger relay = new AtomicInteger();
+        WakeVerifier.Options options = options(9);
+        options.timeoutMs = 700;
+        try (WakeVerifier verifier = new WakeVerifier(options, d -> lan.incrementAndGet(),
+                () -> ArpTable.read(() -> new StringReader("")))) {
+            verifier.verify(device(1, null), d -> relay.incrementAndGet()).get(5, TimeUnit.SECONDS);
+            assertEquals(0, lan.get());
+            assertEquals(2, relay.get());
+        }
+    }
+
+    @Test
+    public void closedVerifierRejects() throws Exception {
+        WakeVerifier verifier = new WakeVerifier(options(9), d -> { });
+        verifier.close();
+        assertTrue(verifier.verify(device(1, "127.0.0.1")).isCompletedExceptionally());
+    }
+
+    @Test
+    public void closeCancelsPendingChecks() throws Exception {
+        WakeVerifier verifier = new WakeVerifier(options(9), d -> { },
+                () -> ArpTable.read(() -> new StringReader("")));
+        CompletableFuture<WakeVerifier.Result> future = verifier.verify(device(1, null));
+        verifier.close();
+        // 没有检测完的设备不报告未开机
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("completed after close");
+        } catch (CancellationException expected) {
+        }
+    }
+}
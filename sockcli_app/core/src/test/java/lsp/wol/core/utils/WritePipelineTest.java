@@ -0,0 +1,113 @@
+package lsp.wol.core.utils;
+
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.Assert.*;
+
+public class WritePipelineTest {
+
+    /**
+     * 记录每次 write 调用写出的内容
+     */
+    private static class RecordingEngine implements TransportEngine {
+        final List<String> writes = new ArrayList<>();
+
+        @Override
+        public void connect(InetSocketAddress address, int timeoutMs) {
+        }
+
+        @Override
+        public String getLocalIp() {
+            return "";
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void run(Handler handler) {
+        }
+
+        @Override
+        public void wakeup() {
+        }
+
+        @Override
+        public void write(ByteBuffer... buffers) {
+            StringBuilder sb = new StringBuilder();
+            for (ByteBuffer buffer : buffers) {
+                sb.append(StandardCharsets.UTF_8.decode(buffer));
+            }
+            writes.add(sb.toString());
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private final RecordingEngine engine = new RecordingEngine();
+    private final WritePipeline<String> pipeline = new WritePipeline<>(
+            s -> s.getBytes(StandardCharsets.UTF_8), s -> System.nanoTime(), 16);
+
+    @Test
+    public void framedModeWritesWholeBatchAtOnce() throws Exception {
+        FrameCodec codec = new FrameCodec();
+        codec.setMode(FrameCodec.Mode.LINE);
+        LinkedBlockingQueue<String> queue = new LinkedBlockingQueue<>();
+        for (int i = 0; i < 20; i++) {
+            queue.add("wol" + i);
+        }
+
+        assertEquals(16, pipeline.flush(queue, codec, engine));
+        assertEquals(4, pipeline.flush(queue, codec, engine));
+        assertEquals(0, pipeline.flush(queue, codec, engine));
+
+        assertEquals(2, engine.writes.size());
+        assertTrue(engine.writes.get(0).startsWith("wol0\nwol1\n"));
+        assertEquals(2, pipeline.getStats().getBatches());
+        assertEquals(20, pipeline.getStats().getFrames());
+        assertEquals(16, pipeline.getStats().getMaxBatch());
+    }
+
+    @Test
+    public void legacyModeFlushesOneFrameAtATime() throws Exception {
+        FrameCodec codec = new FrameCodec();
+        LinkedBlockingQueue<String> queue = new LinkedBlockingQueue<>();
+        queue.add("{\"a\":1}");
+        queue.add("{\"b\":2}");
+
+        // 没有分隔符，合并写出会被服务器当成一条消息
+        assertEquals(1, pipeline.flush(queue, codec, engine));
+        assertEquals(List.of("{\"a\":1}"), engine.writes);
+        assertEquals(1, queue.size());
+        assertEquals(1, pipeline.flush(queue, codec, engine));
+        assertEquals(List.of("{\"a\":1}", "{\"b\":2}"), engine.writes);
+        assertEquals(2, pipeline.getStats().getBatches());
+    }
+
+    @Test
+    public void growsBufferForLargeBatches() throws Exception {
+        FrameCodec codec = new FrameCodec();
+        codec.setMode(FrameCodec.Mode.LENGTH);
+        char[] chars = new char[3000];
+        java.util.Arrays.fill(chars, 'x');
+        LinkedBlockingQueue<String> queue = new LinkedBlockingQueue<>();
+        for (int i = 0; i < 4; i++) {
+            queue.add(new String(chars));
+        }
+
+        pipeline.flush(queue, codec, engine);
+        assertEquals(1, engine.writes.size());
+        assertEquals(4 * (4 + 3000), pipeline.getStats().getBytes());
+    }
+}